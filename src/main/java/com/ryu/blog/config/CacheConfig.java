@@ -60,10 +60,7 @@ public class CacheConfig {
         cacheNames.add(CacheConstants.MULTIPART_UPLOAD_CACHE_NAME);
         
         // 浏览历史统计缓存
-        cacheNames.add(CacheConstants.VIEW_HISTORY_PV_CACHE_NAME);
-        cacheNames.add(CacheConstants.VIEW_HISTORY_UV_CACHE_NAME);
         cacheNames.add(CacheConstants.VIEW_HISTORY_POST_PV_CACHE_NAME);
-        cacheNames.add(CacheConstants.VISIT_RECORD_CACHE_NAME);
         
         // 内容相关缓存
         cacheNames.add(CacheConstants.POST_CACHE_NAME);
@@ -195,14 +192,6 @@ public class CacheConfig {
                 .maximumSize(100)
                 .recordStats()
                 .buildAsync());
-        
-        // 访问记录缓存 - 用于控制访问频率
-        cacheManager.registerCustomCache(CacheConstants.VISIT_RECORD_CACHE_NAME, 
-            Caffeine.newBuilder()
-                .expireAfterWrite(30, TimeUnit.MINUTES)  // 30分钟过期
-                .maximumSize(10000)  // 支持更多并发用户
-                .recordStats()
-                .build());
     }
     
     /**
@@ -60,6 +60,10 @@ public class SaTokenConfig {
                             .notMatch("/content/category/list", "/content/tag/list")
                             // 通用接口
                             .notMatch("/ip/info", "/ip/query")
+                            // 阅读信标（sendBeacon 无法携带令牌请求头）
+                            .notMatch("/view/beacon")
+                            // 图片派生图（私有文件在接口内校验登录）
+                            .notMatch("/files/thumbnail/**")
                             .check(r -> {
                                 try {
                                     StpUtil.checkLogin();
@@ -72,6 +76,10 @@ public class SaTokenConfig {
                     // 权限认证 - 后台管理接口
                     SaRouter.match("/admin/**")
                             .check(r -> StpUtil.checkRole("admin"));
+                    
+                    // 归档浏览记录包含访客ID和IP，只允许管理员查询
+                    SaRouter.match("/view/archive/**")
+                            .check(r -> StpUtil.checkRole("admin"));
                 })
                 // 异常处理
                 .setError(e -> {
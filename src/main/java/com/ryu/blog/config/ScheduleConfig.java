@@ -1,11 +1,24 @@
 package com.ryu.blog.config;
 
-import com.ryu.blog.service.ViewHistoryService;
+import com.ryu.blog.service.ArticleArchiveService;
+import com.ryu.blog.service.BotDetectionService;
+import com.ryu.blog.service.FileService;
+import com.ryu.blog.service.IpLocationService;
+import com.ryu.blog.service.LiveStatsService;
+import com.ryu.blog.service.PostCounterService;
+import com.ryu.blog.service.ReadingEngagementService;
+import com.ryu.blog.service.UniqueVisitorService;
+import com.ryu.blog.service.ViewArchiveService;
+import com.ryu.blog.service.ViewStatsService;
+import com.ryu.blog.service.ViewTopKService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
 
 /**
  * 定时任务配置类
@@ -16,19 +29,189 @@ import org.springframework.scheduling.annotation.Scheduled;
 @RequiredArgsConstructor
 public class ScheduleConfig {
 
-    private final ViewHistoryService viewHistoryService;
+    private final PostCounterService postCounterService;
+    private final ArticleArchiveService articleArchiveService;
+    private final UniqueVisitorService uniqueVisitorService;
+    private final ViewStatsService viewStatsService;
+    private final ViewTopKService viewTopKService;
+    private final BotDetectionService botDetectionService;
+    private final IpLocationService ipLocationService;
+    private final LiveStatsService liveStatsService;
+    private final ReadingEngagementService readingEngagementService;
+    private final ViewArchiveService viewArchiveService;
+    private final FileService fileService;
+
+    /**
+     * 定时将内存中累积的文章浏览、点赞、评论增量批量写入数据库
+     */
+    @Scheduled(fixedDelayString = "${app.counter.flush-interval-ms:5000}")
+    public void flushPostCounters() {
+        postCounterService.flush()
+                .subscribe(
+                        count -> {
+                            if (count > 0) {
+                                log.debug("文章计数增量刷新完成，共 {} 条", count);
+                            }
+                        },
+                        error -> log.error("文章计数增量刷新失败: {}", error.getMessage())
+                );
+    }
+
+    /**
+     * 每天凌晨3点归档超过保留期的已删除文章，并分批清理在线表
+     */
+    @Scheduled(cron = "${app.retention.cron:0 0 3 * * ?}")
+    public void archiveDeletedArticles() {
+        log.info("开始执行定时任务：归档已删除文章");
+        articleArchiveService.archiveExpiredArticles()
+                .subscribe(
+                        count -> log.info("已删除文章归档任务完成，共归档 {} 篇文章", count),
+                        error -> log.error("已删除文章归档任务失败: {}", error.getMessage())
+                );
+    }
+
+    /**
+     * 每天凌晨将前一天的独立访客HyperLogLog合并到周、月汇总
+     */
+    @Scheduled(cron = "${app.uv.rollup-cron:0 5 0 * * ?}")
+    public void rollupUniqueVisitors() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        uniqueVisitorService.rollupDay(yesterday)
+                .subscribe(
+                        null,
+                        error -> log.error("独立访客汇总失败: 日期={}, 错误={}", yesterday, error.getMessage()),
+                        () -> log.info("独立访客汇总完成: 日期={}", yesterday)
+                );
+    }
+
+    /**
+     * 定时将新的浏览记录汇总到小时、天统计表
+     */
+    @Scheduled(fixedDelayString = "${app.view-stats.rollup-interval-ms:60000}")
+    public void rollupViewStats() {
+        viewStatsService.rollup()
+                .subscribe(
+                        count -> {
+                            if (count > 0) {
+                                log.debug("浏览统计汇总完成，共 {} 条记录", count);
+                            }
+                        },
+                        error -> log.error("浏览统计汇总失败: {}", error.getMessage())
+                );
+    }
+
+    /**
+     * 每天凌晨先把超过在线保留期的浏览记录归档到本地列式文件，再清理过期的已汇总浏览记录和小时汇总
+     */
+    @Scheduled(cron = "${app.view-stats.prune-cron:0 30 3 * * ?}")
+    public void pruneViewStats() {
+        log.info("开始执行定时任务：归档并清理过期浏览记录");
+        viewArchiveService.archiveExpired()
+                .doOnNext(count -> {
+                    if (count > 0) {
+                        log.info("浏览记录归档完成，共迁出 {} 条", count);
+                    }
+                })
+                .onErrorResume(error -> {
+                    log.error("浏览记录归档失败: {}", error.getMessage());
+                    return Mono.just(0L);
+                })
+                .then(viewStatsService.pruneExpired())
+                .subscribe(
+                        count -> log.info("过期浏览记录清理完成，共删除 {} 条", count),
+                        error -> log.error("过期浏览记录清理失败: {}", error.getMessage())
+                );
+    }
+
+    /**
+     * 定时将设备、地区Top-K草图快照写入Redis，供其他节点合并和重启后恢复
+     */
+    @Scheduled(fixedDelayString = "${app.topk.snapshot-interval-ms:30000}")
+    public void snapshotViewTopK() {
+        viewTopKService.snapshot()
+                .subscribe(
+                        count -> {
+                            if (count > 0) {
+                                log.debug("浏览Top-K草图快照完成，共 {} 个时间桶", count);
+                            }
+                        },
+                        error -> log.error("浏览Top-K草图快照失败: {}", error.getMessage())
+                );
+    }
+
+    /**
+     * 定时将机器流量计数写入Redis
+     */
+    @Scheduled(fixedDelayString = "${app.bot-filter.flush-interval-ms:10000}")
+    public void flushBotViewCounts() {
+        botDetectionService.flush()
+                .subscribe(
+                        count -> {
+                            if (count > 0) {
+                                log.debug("机器流量计数刷新完成，共 {} 次", count);
+                            }
+                        },
+                        error -> log.error("机器流量计数刷新失败: {}", error.getMessage())
+                );
+    }
+
+    /**
+     * 定时检查IP地理位置数据库是否更新，文件变化后热加载
+     */
+    @Scheduled(fixedDelayString = "${app.ip-location.reload-check-interval-ms:60000}")
+    public void reloadIpLocationDb() {
+        try {
+            ipLocationService.reloadIfModified();
+        } catch (Exception e) {
+            log.error("检查IP地理位置数据库失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时汇总并广播实时统计增量
+     */
+    @Scheduled(fixedRateString = "${app.live-stats.interval-ms:1000}")
+    public void publishLiveStats() {
+        liveStatsService.publish()
+                .subscribe(
+                        count -> {
+                            if (count > 0) {
+                                log.debug("实时统计增量已广播，本周期浏览 {} 次", count);
+                            }
+                        },
+                        error -> log.error("广播实时统计增量失败: {}", error.getMessage())
+                );
+    }
+
+    /**
+     * 定时将内存中累积的阅读深度直方图增量写入数据库
+     */
+    @Scheduled(fixedDelayString = "${app.reading-engagement.flush-interval-ms:60000}")
+    public void flushReadingEngagement() {
+        readingEngagementService.flush()
+                .subscribe(
+                        count -> {
+                            if (count > 0) {
+                                log.debug("阅读深度直方图写入完成，共 {} 个桶", count);
+                            }
+                        },
+                        error -> log.error("阅读深度直方图写入失败: {}", error.getMessage())
+                );
+    }
 
     /**
-     * 每天凌晨2点同步Redis中的文章浏览量到数据库
-     * 防止Redis数据丢失导致浏览量统计不准确
+     * 定时清理过期分片上传残留的暂存文件
      */
-    @Scheduled(cron = "0 0 2 * * ?")
-    public void syncViewCountsToDatabase() {
-        log.info("开始执行定时任务：同步Redis中的文章浏览量到数据库");
-        viewHistoryService.syncViewCountsToDatabase()
+    @Scheduled(cron = "${app.upload.multipart-cleanup-cron:0 15 * * * ?}")
+    public void cleanupMultipartUploads() {
+        fileService.cleanupExpiredMultipartUploads()
                 .subscribe(
-                        count -> log.info("文章浏览量同步完成，共同步 {} 篇文章", count),
-                        error -> log.error("文章浏览量同步失败: {}", error.getMessage())
+                        count -> {
+                            if (count > 0) {
+                                log.info("清理过期分片上传 {} 个", count);
+                            }
+                        },
+                        error -> log.error("清理过期分片上传失败: {}", error.getMessage())
                 );
     }
-} 
\ No newline at end of file
+}
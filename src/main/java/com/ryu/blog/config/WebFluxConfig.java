@@ -5,6 +5,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.http.codec.ServerCodecConfigurer;
 import org.springframework.http.codec.json.Jackson2JsonDecoder;
 import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.multipart.DefaultPartHttpMessageReader;
 import org.springframework.web.reactive.config.EnableWebFlux;
 import org.springframework.web.reactive.config.ResourceHandlerRegistry;
 import org.springframework.web.reactive.config.WebFluxConfigurer;
@@ -17,6 +18,8 @@ import org.springframework.web.reactive.config.WebFluxConfigurer;
 @EnableWebFlux
 public class WebFluxConfig implements WebFluxConfigurer {
 
+    private static final int MULTIPART_MAX_IN_MEMORY_SIZE = 256 * 1024;
+
     private final ObjectMapper objectMapper;
 
     public WebFluxConfig(ObjectMapper objectMapper) {
@@ -26,6 +29,12 @@ public class WebFluxConfig implements WebFluxConfigurer {
     @Override
     public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
         configurer.defaultCodecs().maxInMemorySize(16 * 1024 * 1024); // 设置缓冲区大小为16MB
+        // 上传的文件分段超过256KB即写入临时文件，不随16MB的缓冲区上限整段留在内存中
+        configurer.defaultCodecs().configureDefaultCodec(codec -> {
+            if (codec instanceof DefaultPartHttpMessageReader partReader) {
+                partReader.setMaxInMemorySize(MULTIPART_MAX_IN_MEMORY_SIZE);
+            }
+        });
         
         // 配置Jackson的编码器和解码器
         configurer.defaultCodecs().jackson2JsonEncoder(
@@ -36,6 +36,8 @@ public class CacheConstants {
     public static final String USER_INFO_KEY = USER_CACHE_PREFIX + "info:";
     public static final String USER_ID_KEY = USER_CACHE_PREFIX + "id:";
     public static final String USER_USERNAME_KEY = USER_CACHE_PREFIX + "username:";
+    /** 用户最近阅读的文章有序集合：前缀 + 用户ID，分值为阅读时间（毫秒） */
+    public static final String USER_READING_HISTORY_KEY = USER_CACHE_PREFIX + "reading:";
     
     /** 文章相关缓存 */
     public static final String POST_CACHE_PREFIX = CACHE_PREFIX + "post:";
@@ -47,6 +49,14 @@ public class CacheConstants {
     public static final String POST_RELATED_KEY = POST_CACHE_PREFIX + "related:";
     public static final String POST_FRONT_KEY = POST_CACHE_PREFIX + "front:";
     public static final String POST_ADMIN_KEY = POST_CACHE_PREFIX + "admin:page:";
+    /** 文章详情Redis缓存键（ArticleServiceImpl手动维护） */
+    public static final String POST_DETAIL_REDIS_KEY = "article:detail:";
+    /** 定时发布分布式锁键 */
+    public static final String POST_PUBLISH_LOCK_KEY = POST_CACHE_PREFIX + "publish:lock:";
+    /** 已删除文章归档任务分布式锁键 */
+    public static final String POST_ARCHIVE_LOCK_KEY = POST_CACHE_PREFIX + "archive:lock";
+    /** 定时发布调度广播频道 */
+    public static final String POST_PUBLISH_CHANNEL = POST_CACHE_PREFIX + "publish:channel";
     
     /** 标签相关缓存 */
     public static final String TAG_CACHE_PREFIX = CACHE_PREFIX + "tag:";
@@ -127,15 +137,26 @@ public class CacheConstants {
     public static final String STORAGE_PROPERTIES_ALL_KEY = ":all";
     
     /** 浏览历史统计相关缓存名称 */
-    public static final String VIEW_HISTORY_PV_CACHE_NAME = "viewHistoryPv";
-    public static final String VIEW_HISTORY_UV_CACHE_NAME = "viewHistoryUv";
     public static final String VIEW_HISTORY_POST_PV_CACHE_NAME = "viewHistoryPostPv";
-    public static final String VISIT_RECORD_CACHE_NAME = "visitRecordCache";
     
-    /** 浏览历史统计相关缓存键前缀 */
-    public static final String VIEW_HISTORY_PV_KEY_PREFIX = "pv:";
-    public static final String VIEW_HISTORY_UV_KEY_PREFIX = "uv:";
-    public static final String VIEW_HISTORY_POST_PV_KEY_PREFIX = "post:pv:";
+    /** 独立访客HyperLogLog键：站点/文章按天，站点按周、月汇总 */
+    public static final String UV_HLL_PREFIX = CACHE_PREFIX + "uv:";
+    public static final String UV_SITE_DAY_KEY = UV_HLL_PREFIX + "site:day:";
+    public static final String UV_SITE_WEEK_KEY = UV_HLL_PREFIX + "site:week:";
+    public static final String UV_SITE_MONTH_KEY = UV_HLL_PREFIX + "site:month:";
+    public static final String UV_POST_KEY = UV_HLL_PREFIX + "post:";
+    
+    /** 浏览高频维度（设备、地区）Top-K草图快照：前缀 + 维度:时间桶，哈希字段为节点ID */
+    public static final String VIEW_TOPK_KEY = VIEW_CACHE_PREFIX + "topk:";
+    
+    /** 机器流量按天聚合计数：前缀 + yyyyMMdd，哈希字段为流量类型 */
+    public static final String VIEW_BOT_KEY = VIEW_CACHE_PREFIX + "bot:";
+    
+    /** 访问去重布隆过滤器位图：前缀 + {分片}:时间桶 */
+    public static final String VIEW_DEDUP_KEY = VIEW_CACHE_PREFIX + "dedup:";
+    
+    /** 实时统计增量广播频道 */
+    public static final String VIEW_LIVE_CHANNEL = VIEW_CACHE_PREFIX + "live:channel";
     
     /** 存储策略客户端缓存名称 */
     public static final String STORAGE_CLIENT_CACHE_NAME = "storageClient";
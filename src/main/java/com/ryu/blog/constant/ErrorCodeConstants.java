@@ -37,6 +37,8 @@ public class ErrorCodeConstants {
     public static final int POST_TITLE_EXISTS = 11004;     // 文章标题已存在
     public static final int POST_SLUG_EXISTS = 11005;      // 文章别名已存在
     public static final int POST_CATEGORY_NOT_EXISTS = 11006; // 文章分类不存在
+    public static final int POST_ARCHIVE_NOT_FOUND = 11007; // 文章归档不存在
+    public static final int POST_VERSION_CONFLICT = 11008; // 文章已被其他人修改
     
     /** 标签模块错误码：12001-12999 */
     public static final int TAG_NOT_FOUND = 12001;         // 标签不存在
@@ -45,6 +45,8 @@ public class MessageConstants {
     public static final String POST_TITLE_EXISTS = "文章标题已存在";
     public static final String POST_SLUG_EXISTS = "文章别名已存在";
     public static final String POST_CATEGORY_NOT_EXISTS = "文章分类不存在";
+    public static final String POST_ARCHIVE_NOT_FOUND = "文章归档不存在";
+    public static final String POST_VERSION_CONFLICT = "文章已被其他人修改，请合并最新内容后重新提交";
     public static final String POST_CREATE_SUCCESS = "文章创建成功";
     public static final String POST_UPDATE_SUCCESS = "文章更新成功";
     public static final String POST_DELETE_SUCCESS = "文章删除成功";
@@ -1,15 +1,21 @@
 package com.ryu.blog.controller;
 
+import cn.dev33.satoken.stp.StpUtil;
+import com.ryu.blog.dto.FilePrecheckDTO;
 import com.ryu.blog.dto.FileSearchDTO;
 import com.ryu.blog.dto.FilesDTO;
 import com.ryu.blog.dto.ResourceGroupQueryDTO;
 import com.ryu.blog.dto.UploadOptionsDTO;
 import com.ryu.blog.entity.File;
+import com.ryu.blog.entity.ImageVariant;
 import com.ryu.blog.service.FileService;
+import com.ryu.blog.service.ImageDerivativeService;
 import com.ryu.blog.utils.Result;
 import com.ryu.blog.vo.FileInfoVO;
+import com.ryu.blog.vo.FilePrecheckVO;
 import com.ryu.blog.vo.FileUploadVO;
 import com.ryu.blog.vo.FileVersionVO;
+import com.ryu.blog.vo.MultipartUploadStatusVO;
 import com.ryu.blog.vo.PageResult;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -17,12 +23,13 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springdoc.core.annotations.ParameterObject;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -42,6 +49,7 @@ import java.util.Map;
 public class FileController {
 
     private final FileService fileService;
+    private final ImageDerivativeService imageDerivativeService;
 
     /**
      * 上传文件
@@ -88,6 +96,29 @@ public class FileController {
                 });
     }
     
+    /**
+     * 上传预检
+     * @param precheck 文件内容的SHA-256、大小和文件名
+     * @param options 上传选项
+     * @return 预检结果，内容已存在时返回创建的文件信息
+     */
+    @PostMapping("/upload/precheck")
+    @Operation(summary = "上传预检", description = "服务端已有本人上传过或公开的相同内容时直接创建文件记录，无需上传内容")
+    public Mono<Result<FilePrecheckVO>> precheckUpload(
+            @Valid @RequestBody FilePrecheckDTO precheck,
+            UploadOptionsDTO options) {
+
+        log.info("上传预检: fileName={}, sha256={}, options={}", precheck.getFileName(), precheck.getSha256(), options);
+        Long userId = StpUtil.getLoginIdAsLong();
+
+        return fileService.precheckUpload(precheck, options, userId)
+                .map(Result::success)
+                .onErrorResume(e -> {
+                    log.error("上传预检失败", e);
+                    return Mono.just(Result.error(e.getMessage()));
+                });
+    }
+
     /**
      * 初始化分片上传
      * @param fileName 文件名
@@ -114,6 +145,7 @@ public class FileController {
     
     /**
      * 上传分片
+     * 分片按流写入存储层，同一分片可以重复上传
      * @param uploadId 上传ID
      * @param partNumber 分片号
      * @param partData 分片数据
@@ -124,9 +156,9 @@ public class FileController {
     public Mono<Result<String>> uploadPart(
             @RequestParam("uploadId") String uploadId,
             @RequestParam("partNumber") int partNumber,
-            @RequestBody byte[] partData) {
+            @RequestBody Flux<DataBuffer> partData) {
         
-        log.info("上传分片: uploadId={}, partNumber={}, size={}", uploadId, partNumber, partData.length);
+        log.info("上传分片: uploadId={}, partNumber={}", uploadId, partNumber);
         
         return fileService.uploadPart(uploadId, partNumber, partData)
                 .map(Result::success)
@@ -136,10 +168,26 @@ public class FileController {
                 });
     }
     
+    /**
+     * 查询分片上传进度
+     * @param uploadId 上传ID
+     * @return 已上传的分片
+     */
+    @GetMapping("/upload/multipart/{uploadId}")
+    @Operation(summary = "查询分片上传进度", description = "返回已上传的分片，用于断点续传")
+    public Mono<Result<MultipartUploadStatusVO>> getMultipartUploadStatus(@PathVariable("uploadId") String uploadId) {
+        return fileService.getMultipartUploadStatus(uploadId)
+                .map(Result::success)
+                .onErrorResume(e -> {
+                    log.error("查询分片上传进度失败", e);
+                    return Mono.just(Result.error(e.getMessage()));
+                });
+    }
+    
     /**
      * 完成分片上传
      * @param uploadId 上传ID
-     * @param partETags 分片标识列表
+     * @param partETags 分片标识列表（可选，服务端按已记录的分片合并）
      * @param options 上传选项
      * @return 上传结果
      */
@@ -147,10 +195,10 @@ public class FileController {
     @Operation(summary = "完成分片上传", description = "完成分片上传并合并文件")
     public Mono<Result<FileUploadVO>> completeMultipartUpload(
             @RequestParam("uploadId") String uploadId,
-            @RequestBody List<String> partETags,
+            @RequestBody(required = false) List<String> partETags,
             UploadOptionsDTO options) {
         
-        log.info("完成分片上传: uploadId={}, partCount={}", uploadId, partETags.size());
+        log.info("完成分片上传: uploadId={}, partCount={}", uploadId, partETags != null ? partETags.size() : 0);
         
         return fileService.completeMultipartUpload(uploadId, partETags, options)
                 .map(Result::success)
@@ -216,45 +264,80 @@ public class FileController {
     
     /**
      * 下载文件
+     * 支持Range断点续传和ETag/Last-Modified条件请求
      * @param id 文件ID
-     * @return 文件资源
+     * @param exchange 当前请求
+     * @return 完成信号
      */
     @GetMapping("/download/{id}")
-    @Operation(summary = "下载文件", description = "根据文件ID下载文件")
-    public Mono<ResponseEntity<Resource>> download(@PathVariable("id") Long id) {
+    @Operation(summary = "下载文件", description = "根据文件ID下载文件，支持Range断点续传和条件请求")
+    public Mono<Void> download(@PathVariable("id") Long id, ServerWebExchange exchange) {
         log.info("下载文件: id={}", id);
         
-        return fileService.handleFileDownload(id)
+        return fileService.writeFileContent(id, exchange, false)
                 .onErrorResume(e -> {
                     log.error("文件下载失败", e);
-                    return Mono.just(ResponseEntity.notFound().build());
+                    return notFound(exchange);
                 });
     }
     
     /**
      * 预览文件
+     * 支持Range请求，视频拖动和PDF分段加载只读取需要的部分
      * @param id 文件ID
-     * @return 文件资源
+     * @param exchange 当前请求
+     * @return 完成信号
      */
     @GetMapping("/preview/{id}")
-    @Operation(summary = "预览文件", description = "根据文件ID预览文件，支持图片直接查看")
-    public Mono<ResponseEntity<Resource>> preview(@PathVariable("id") Long id) {
+    @Operation(summary = "预览文件", description = "根据文件ID预览文件，支持图片直接查看，支持Range请求")
+    public Mono<Void> preview(@PathVariable("id") Long id, ServerWebExchange exchange) {
         log.info("预览文件: id={}", id);
         
-        return fileService.handleFileDownload(id)
-                .map(response -> {
-                    // 修改Content-Disposition为inline，使浏览器尝试直接预览
-                    return ResponseEntity.ok()
-                            .contentType(response.getHeaders().getContentType())
-                            .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
-                            .body(response.getBody());
-                })
+        return fileService.writeFileContent(id, exchange, true)
                 .onErrorResume(e -> {
                     log.error("文件预览失败", e);
-                    return Mono.just(ResponseEntity.notFound().build());
+                    return notFound(exchange);
                 });
     }
     
+    /**
+     * 获取图片派生图
+     * 首次请求时生成，浏览器支持WebP时优先返回WebP；公开文件无需登录
+     * @param id 文件ID
+     * @param variant 规格（thumb、w640、w1280）
+     * @param exchange 当前请求
+     * @return 完成信号
+     */
+    @GetMapping("/thumbnail/{id}")
+    @Operation(summary = "获取图片派生图", description = "返回缩略图或指定宽度的缩放图，支持WebP和条件请求")
+    public Mono<Void> thumbnail(
+            @PathVariable("id") Long id,
+            @RequestParam(value = "variant", defaultValue = "thumb") String variant,
+            ServerWebExchange exchange) {
+        ImageVariant imageVariant = ImageVariant.fromKey(variant);
+        if (imageVariant == null) {
+            return notFound(exchange);
+        }
+
+        return imageDerivativeService.writeDerivative(id, imageVariant, exchange, StpUtil.isLogin())
+                .onErrorResume(e -> {
+                    log.debug("获取派生图失败: id={}, variant={}, error={}", id, variant, e.getMessage());
+                    return notFound(exchange);
+                });
+    }
+
+    /**
+     * 响应尚未提交时返回404
+     */
+    private Mono<Void> notFound(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        if (response.isCommitted()) {
+            return Mono.empty();
+        }
+        response.setStatusCode(HttpStatus.NOT_FOUND);
+        return response.setComplete();
+    }
+    
     /**
      * 获取文件预览URL
      * @param id 文件ID
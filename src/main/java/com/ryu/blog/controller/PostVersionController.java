@@ -1,15 +1,18 @@
 package com.ryu.blog.controller;
 
 import cn.dev33.satoken.stp.StpUtil;
+import com.ryu.blog.dto.PostMergeDTO;
 import com.ryu.blog.entity.PostVersion;
 import com.ryu.blog.entity.Posts;
 import com.ryu.blog.service.ArticleVersionService;
 import com.ryu.blog.utils.Result;
+import com.ryu.blog.vo.ArticleMergeVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
 
@@ -188,4 +191,26 @@ public class PostVersionController {
                     return Mono.just(Result.fail("比较版本差异失败: " + e.getMessage()));
                 });
     }
-} 
\ No newline at end of file
+
+    /**
+     * 将本地编辑与服务器最新内容合并
+     * 
+     * @param postId 文章ID
+     * @param mergeDTO 合并参数
+     * @return 合并结果
+     */
+    @PostMapping("/{postId}/merge")
+    @Operation(summary = "合并编辑冲突", description = "以开始编辑时的版本为基线，将本地编辑与服务器最新内容做三方合并")
+    public Mono<Result<ArticleMergeVO>> mergeWithLatest(
+            @Parameter(description = "文章ID") @PathVariable("postId") Long postId,
+            @RequestBody @Validated PostMergeDTO mergeDTO) {
+        log.info("合并文章内容: 文章ID={}, 基线版本号={}", postId, mergeDTO.getBaseLockVersion());
+
+        return articleVersionService.mergeWithLatest(postId, mergeDTO.getBaseLockVersion(), mergeDTO.getContent())
+                .map(Result::success)
+                .onErrorResume(e -> {
+                    log.error("合并文章内容失败: 文章ID={}, 错误信息={}", postId, e.getMessage(), e);
+                    return Mono.just(Result.fail("合并文章内容失败: " + e.getMessage()));
+                });
+    }
+}
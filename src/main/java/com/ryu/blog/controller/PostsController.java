@@ -5,6 +5,8 @@ import com.ryu.blog.dto.PostCreateDTO;
 import com.ryu.blog.dto.PostQueryDTO;
 import com.ryu.blog.dto.PostStatusDTO;
 import com.ryu.blog.dto.PostUpdateDTO;
+import com.ryu.blog.exception.ArticleConflictException;
+import com.ryu.blog.service.ArticleArchiveService;
 import com.ryu.blog.service.ArticleService;
 import com.ryu.blog.utils.Result;
 import com.ryu.blog.vo.PageResult;
@@ -44,6 +46,7 @@ import java.util.List;
 public class PostsController {
 
     private final ArticleService articleService;
+    private final ArticleArchiveService articleArchiveService;
 
     /**
      * 后台管理分页查询文章列表
@@ -150,6 +153,10 @@ public class PostsController {
                     return Mono.just(Result.<Void>success());
                 }))
                 .onErrorResume(e -> {
+                    // 编辑冲突交给全局异常处理，返回409并携带服务器当前版本
+                    if (e instanceof ArticleConflictException) {
+                        return Mono.error(e);
+                    }
                     log.error("文章更新失败: ID={}, 错误: {}", postUpdateDTO.getId(), e.getMessage(), e);
                     return Mono.just(Result.<Void>error(e.getMessage()));
                 });
@@ -199,6 +206,29 @@ public class PostsController {
                 });
     }
 
+    /**
+     * 恢复已删除的文章
+     * 已归档的文章会从归档中回写文章及其关联数据
+     * 
+     * @param id 文章ID
+     * @return 操作结果
+     */
+    @Operation(summary = "恢复已删除文章", description = "从回收站或归档中恢复文章")
+    @PutMapping("/restore/{id}")
+    public Mono<Result<Void>> restorePost(@PathVariable Long id) {
+        log.info("恢复已删除文章: ID={}", id);
+        
+        return articleArchiveService.restoreArticle(id)
+                .then(Mono.defer(() -> {
+                    log.info("恢复已删除文章成功: ID={}", id);
+                    return Mono.just(Result.<Void>success());
+                }))
+                .onErrorResume(e -> {
+                    log.error("恢复已删除文章失败: ID={}, 错误: {}", id, e.getMessage(), e);
+                    return Mono.just(Result.<Void>error(e.getMessage()));
+                });
+    }
+
     /**
      * 获取相关博客推荐
      * 
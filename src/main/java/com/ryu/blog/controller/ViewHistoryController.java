@@ -1,19 +1,42 @@
 package com.ryu.blog.controller;
 
 import cn.dev33.satoken.stp.StpUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ryu.blog.dto.ViewBeaconDTO;
 import com.ryu.blog.dto.ViewHistoryDTO;
-import com.ryu.blog.entity.ViewHistory;
+import com.ryu.blog.entity.ViewStatsDimension;
+import com.ryu.blog.service.LiveStatsService;
+import com.ryu.blog.service.ReadingEngagementService;
+import com.ryu.blog.service.ReadingHistoryService;
+import com.ryu.blog.service.ReferrerAttributionService;
+import com.ryu.blog.service.ViewArchiveService;
 import com.ryu.blog.service.ViewHistoryService;
+import com.ryu.blog.service.ViewTopKService;
+import com.ryu.blog.utils.IpUtil;
 import com.ryu.blog.utils.Result;
+import com.ryu.blog.vo.LiveStatsVO;
+import com.ryu.blog.vo.ReadingEngagementVO;
+import com.ryu.blog.vo.ReadingHistoryPageVO;
+import com.ryu.blog.vo.ReferrerStatVO;
+import com.ryu.blog.vo.ViewArchivePartitionVO;
 import com.ryu.blog.vo.ViewHistoryStatsVO;
+import com.ryu.blog.vo.ViewTopItemVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -26,9 +49,32 @@ import java.util.Map;
 @Tag(name = "浏览历史管理", description = "浏览历史相关接口")
 public class ViewHistoryController {
 
+    private static final int MAX_BEACON_LENGTH = 1024;
+
     @Autowired
     private ViewHistoryService viewHistoryService;
 
+    @Autowired
+    private ViewTopKService viewTopKService;
+
+    @Autowired
+    private LiveStatsService liveStatsService;
+
+    @Autowired
+    private ReadingHistoryService readingHistoryService;
+
+    @Autowired
+    private ReferrerAttributionService referrerAttributionService;
+
+    @Autowired
+    private ReadingEngagementService readingEngagementService;
+
+    @Autowired
+    private ViewArchiveService viewArchiveService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 添加浏览记录
      */
@@ -41,27 +87,51 @@ public class ViewHistoryController {
     }
 
     /**
-     * 获取用户浏览历史
+     * 上报阅读信标
+     * sendBeacon 无法设置请求头，请求体通常以 text/plain 发送，这里统一按字符串接收后解析
+     */
+    @PostMapping("/beacon")
+    @Operation(summary = "上报阅读信标", description = "上报滚动深度和停留时长，只在内存中累积，定时写入汇总表")
+    public Mono<Result<Boolean>> recordBeacon(@RequestBody String payload, ServerWebExchange exchange) {
+        if (payload.length() > MAX_BEACON_LENGTH) {
+            return Mono.just(Result.badRequest("信标内容过长"));
+        }
+        ViewBeaconDTO beacon;
+        try {
+            beacon = objectMapper.readValue(payload, ViewBeaconDTO.class);
+        } catch (JsonProcessingException e) {
+            return Mono.just(Result.badRequest("信标格式不正确"));
+        }
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        return Mono.just(Result.success(readingEngagementService.recordBeacon(beacon,
+                IpUtil.getClientIp(exchange), headers.getFirst(HttpHeaders.USER_AGENT), headers)));
+    }
+
+    /**
+     * 获取用户阅读历史
      */
     @GetMapping("/user")
-    @Operation(summary = "获取用户浏览历史", description = "获取当前用户的浏览历史")
-    public Mono<Result<List<ViewHistory>>> getUserViewHistory() {
+    @Operation(summary = "获取用户阅读历史", description = "按最近阅读时间倒序游标分页获取当前用户读过的文章，每篇文章只保留最近一次")
+    public Mono<Result<ReadingHistoryPageVO>> getUserViewHistory(
+            @Parameter(description = "游标，取上一页返回的nextCursor，第一页不传") @RequestParam(required = false) Long cursor,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size) {
         Long userId = StpUtil.getLoginIdAsLong();
-        return viewHistoryService.getUserViewHistory(userId)
-                .collectList()
+        return readingHistoryService.getReadingHistory(userId, cursor, size)
                 .map(Result::success);
     }
 
     /**
      * 分页获取浏览历史
+     *
+     * @deprecated 偏移分页且不区分用户，已改为当前用户的游标分页，请使用 {@code /user}
      */
+    @Deprecated
     @GetMapping("/page")
-    @Operation(summary = "分页获取浏览历史", description = "分页获取浏览历史")
-    public Mono<Result<Map<String, Object>>> getUserViewHistoryPaged(
-            @Parameter(description = "页码") @RequestParam(defaultValue = "1") int currentPage,
+    @Operation(summary = "分页获取浏览历史（已废弃）", description = "等同于/user：按最近阅读时间倒序游标分页获取当前用户的阅读历史", deprecated = true)
+    public Mono<Result<ReadingHistoryPageVO>> getUserViewHistoryPaged(
+            @Parameter(description = "游标，取上一页返回的nextCursor，第一页不传") @RequestParam(required = false) Long cursor,
             @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") int pageSize) {
-        return viewHistoryService.getUserViewHistoryPaged(currentPage, pageSize)
-                .map(Result::success);
+        return getUserViewHistory(cursor, pageSize);
     }
 
     /**
@@ -89,10 +159,10 @@ public class ViewHistoryController {
      * 清空用户浏览历史
      */
     @DeleteMapping("/clear")
-    @Operation(summary = "清空用户浏览历史", description = "清空当前用户的浏览历史")
+    @Operation(summary = "清空用户浏览历史", description = "清空当前用户的阅读历史和浏览记录")
     public Mono<Result<Boolean>> clearUserViewHistory() {
         Long userId = StpUtil.getLoginIdAsLong();
-        return viewHistoryService.clearUserViewHistory(userId)
+        return readingHistoryService.clearReadingHistory(userId)
                 .map(Result::success);
     }
 
@@ -105,4 +175,87 @@ public class ViewHistoryController {
         return viewHistoryService.getViewHistoryStats()
                 .map(Result::success);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 获取最近一段时间的高频设备或地区
+     */
+    @GetMapping("/stats/top")
+    @Operation(summary = "获取高频设备或地区", description = "基于Top-K草图统计最近一段时间内浏览量最高的设备或地区，计数为估计值")
+    public Mono<Result<List<ViewTopItemVO>>> getTopDimensionValues(
+            @Parameter(description = "维度：device-设备，region-地区") @RequestParam(defaultValue = "device") String dimension,
+            @Parameter(description = "时间窗口（分钟）") @RequestParam(defaultValue = "60") int minutes,
+            @Parameter(description = "返回数量") @RequestParam(defaultValue = "10") int k) {
+        ViewStatsDimension statsDimension = ViewStatsDimension.fromCode(dimension);
+        if (statsDimension != ViewStatsDimension.DEVICE && statsDimension != ViewStatsDimension.REGION) {
+            return Mono.just(Result.error("不支持的统计维度: " + dimension));
+        }
+        return viewTopKService.getTop(statsDimension, Duration.ofMinutes(Math.max(1, minutes)), Math.min(Math.max(1, k), 100))
+                .map(Result::success);
+    }
+
+    /**
+     * 获取来源排行
+     */
+    @GetMapping("/stats/referrers")
+    @Operation(summary = "获取来源排行", description = "按来源和推广活动统计浏览量，数据来自按天汇总，比实时数据滞后一个汇总周期")
+    public Mono<Result<List<ReferrerStatVO>>> getTopReferrers(
+            @Parameter(description = "文章ID，不传时统计全站") @RequestParam(required = false) Long postId,
+            @Parameter(description = "统计天数") @RequestParam(defaultValue = "30") int days,
+            @Parameter(description = "返回数量") @RequestParam(defaultValue = "10") int limit) {
+        LocalDate today = LocalDate.now();
+        return referrerAttributionService.getTopSources(postId, today.minusDays(Math.min(Math.max(days, 1), 366) - 1L),
+                        today, Math.min(Math.max(limit, 1), 100))
+                .map(Result::success);
+    }
+
+    /**
+     * 获取文章阅读深度统计
+     */
+    @GetMapping("/stats/engagement")
+    @Operation(summary = "获取阅读深度统计", description = "统计停留时长分位值和滚动深度到达率，数据来自定时写入的直方图，比实时数据滞后一个写入周期")
+    public Mono<Result<ReadingEngagementVO>> getReadingEngagement(
+            @Parameter(description = "文章ID，不传时统计全站") @RequestParam(required = false) Long postId,
+            @Parameter(description = "统计天数") @RequestParam(defaultValue = "30") int days) {
+        LocalDate today = LocalDate.now();
+        return readingEngagementService.getEngagement(postId, today.minusDays(Math.min(Math.max(days, 1), 366) - 1L), today)
+                .map(Result::success);
+    }
+
+    /**
+     * 列出浏览记录归档分区
+     */
+    @GetMapping("/archive/partitions")
+    @Operation(summary = "列出归档分区", description = "列出按天归档到本地列式文件的浏览记录分区，仅管理员可用")
+    public Mono<Result<List<ViewArchivePartitionVO>>> listArchivePartitions(
+            @Parameter(description = "开始日期") @RequestParam(required = false) LocalDate from,
+            @Parameter(description = "结束日期") @RequestParam(required = false) LocalDate to) {
+        return viewArchiveService.listPartitions(from != null ? from : LocalDate.MIN, to != null ? to : LocalDate.MAX)
+                .map(Result::success);
+    }
+
+    /**
+     * 从归档重新聚合浏览量
+     */
+    @GetMapping("/archive/aggregate")
+    @Operation(summary = "聚合归档浏览记录", description = "扫描归档文件中需要的列，按列值统计浏览量，仅管理员可用")
+    public Mono<Result<Map<String, Long>>> aggregateArchive(
+            @Parameter(description = "分组列：visitor_id、post_id、ip_address、agent、location、referer、referer_id、day")
+            @RequestParam(defaultValue = "day") String column,
+            @Parameter(description = "文章ID，不传时不过滤") @RequestParam(required = false) Long postId,
+            @Parameter(description = "开始日期") @RequestParam LocalDate from,
+            @Parameter(description = "结束日期") @RequestParam LocalDate to,
+            @Parameter(description = "返回数量") @RequestParam(defaultValue = "100") int limit) {
+        return viewArchiveService.aggregate(column, postId, from, to, Math.min(Math.max(limit, 1), 10000))
+                .map(Result::success);
+    }
+
+    /**
+     * 订阅实时统计
+     */
+    @GetMapping(value = "/stats/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "订阅实时统计", description = "SSE推送每秒的浏览量、在线读者、来源和新评论增量，所有订阅者共享同一份计算")
+    public Flux<ServerSentEvent<LiveStatsVO>> streamLiveStats() {
+        return liveStatsService.stream()
+                .map(stats -> ServerSentEvent.builder(stats).event("stats").build());
+    }
+}
@@ -0,0 +1,33 @@
+package com.ryu.blog.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+/**
+ * 上传预检数据传输对象
+ * 客户端先计算文件的SHA-256，服务端已有相同内容时直接创建文件记录，无需上传内容
+ *
+ * @author ryu
+ */
+@Data
+@Schema(description = "上传预检数据传输对象")
+public class FilePrecheckDTO {
+
+    @NotBlank(message = "SHA-256不能为空")
+    @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "SHA-256格式不正确")
+    @Schema(description = "文件内容的SHA-256（十六进制）")
+    private String sha256;
+
+    @NotNull(message = "文件大小不能为空")
+    @PositiveOrZero(message = "文件大小不能为负数")
+    @Schema(description = "文件大小（字节）")
+    private Long fileSize;
+
+    @NotBlank(message = "文件名不能为空")
+    @Schema(description = "文件名")
+    private String fileName;
+}
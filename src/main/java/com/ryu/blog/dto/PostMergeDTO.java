@@ -0,0 +1,22 @@
+package com.ryu.blog.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * 文章内容合并数据传输对象
+ * @author ryu
+ */
+@Data
+@Schema(description = "文章内容合并数据传输对象")
+public class PostMergeDTO {
+
+    @NotNull(message = "基线版本号不能为空")
+    @Schema(description = "开始编辑时读取到的文章版本号")
+    private Long baseLockVersion;
+
+    @NotNull(message = "内容不能为空")
+    @Schema(description = "本地编辑后的正文")
+    private String content;
+}
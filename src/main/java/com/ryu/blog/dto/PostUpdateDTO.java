@@ -64,4 +64,7 @@ public class PostUpdateDTO {
     private List<String> tagsIds;
 
     private Integer status;
+
+    @Schema(description = "编辑开始时读取到的文章版本号，提交时用于检测并发修改，为空时不检查")
+    private Long lockVersion;
 } 
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.ryu.blog.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 阅读信标数据传输对象
+ * 由页面通过 navigator.sendBeacon 上报，同一次浏览可多次上报累计值
+ *
+ * @author ryu
+ */
+@Data
+@Schema(description = "阅读信标数据传输对象")
+public class ViewBeaconDTO {
+
+    @Schema(description = "文章ID")
+    private Long postId;
+
+    @Schema(description = "本次浏览的随机标识，同一次浏览多次上报时只保留最后的值；为空时每次上报单独计数")
+    private String viewId;
+
+    @Schema(description = "最大滚动深度（百分比，0-100）")
+    private Integer scrollDepth;
+
+    @Schema(description = "累计停留时长（秒）")
+    private Integer dwellSeconds;
+}
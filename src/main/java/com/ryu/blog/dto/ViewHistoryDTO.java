@@ -29,4 +29,7 @@ public class ViewHistoryDTO {
 
     @Schema(description = "来源页面")
     private String referrer;
+
+    @Schema(description = "落地页地址，用于提取utm_source、utm_campaign等推广参数")
+    private String landingUrl;
 } 
\ No newline at end of file
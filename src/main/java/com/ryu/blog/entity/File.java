@@ -102,6 +102,12 @@ public class File implements Serializable {
     @Column("checksum")
     private String checksum;
 
+    /**
+     * 引用的文件内容ID，为空时文件独占存储对象（分片上传、历史数据）
+     */
+    @Column("blob_id")
+    private Long blobId;
+
     /**
      * 文件描述
      */
@@ -0,0 +1,91 @@
+package com.ryu.blog.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 文件内容实体类，同一内容（按SHA-256）只存储一份，文件记录通过blobId引用
+ *
+ * @author ryu 475118582@qq.com
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("t_file_blob")
+public class FileBlob implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 内容ID
+     */
+    @Id
+    private Long id;
+
+    /**
+     * 内容的SHA-256
+     */
+    private String sha256;
+
+    /**
+     * 内容的MD5，引用此内容的文件记录沿用为校验和
+     */
+    private String md5;
+
+    /**
+     * 内容大小
+     */
+    @Column("file_size")
+    private Long fileSize;
+
+    /**
+     * 存储类型
+     */
+    @Column("storage_type")
+    private String storageType;
+
+    /**
+     * 存储路径
+     */
+    @Column("file_path")
+    private String filePath;
+
+    /**
+     * MIME类型
+     */
+    @Column("mime_type")
+    private String mimeType;
+
+    /**
+     * 引用计数，归零时删除存储对象
+     */
+    @Column("ref_count")
+    private Integer refCount;
+
+    /**
+     * 创建时间
+     */
+    @Column("create_time")
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @Column("update_time")
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime updateTime;
+}
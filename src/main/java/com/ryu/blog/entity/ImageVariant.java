@@ -0,0 +1,76 @@
+package com.ryu.blog.entity;
+
+/**
+ * 图片派生图规格枚举
+ * 对应t_file_thumbnails表的size列；按比例缩放到不超过给定宽高，不放大原图
+ *
+ * @author ryu
+ */
+public enum ImageVariant {
+    /**
+     * 列表、卡片使用的缩略图
+     */
+    THUMB("thumb", 320, 320),
+
+    /**
+     * 窄屏和正文内嵌图片
+     */
+    SMALL("w640", 640, 0),
+
+    /**
+     * 宽屏和文章封面
+     */
+    LARGE("w1280", 1280, 0);
+
+    private final String key;
+    private final int maxWidth;
+    private final int maxHeight;
+
+    ImageVariant(String key, int maxWidth, int maxHeight) {
+        this.key = key;
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+    }
+
+    /**
+     * 获取规格标识，用于请求参数和t_file_thumbnails的size列
+     *
+     * @return 规格标识
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 获取最大宽度
+     *
+     * @return 像素
+     */
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    /**
+     * 获取最大高度
+     *
+     * @return 像素，0表示不限制
+     */
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+
+    /**
+     * 根据规格标识查找
+     *
+     * @param key 规格标识
+     * @return 对应的规格，不存在时返回null
+     */
+    public static ImageVariant fromKey(String key) {
+        for (ImageVariant variant : values()) {
+            if (variant.key.equals(key)) {
+                return variant;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,55 @@
+package com.ryu.blog.entity;
+
+/**
+ * 文章计数器类型枚举
+ * 每种类型对应t_posts表中的一个计数列
+ *
+ * @author ryu
+ */
+public enum PostCounterType {
+    /**
+     * 浏览量
+     */
+    VIEWS("views", "浏览量"),
+
+    /**
+     * 点赞数
+     */
+    LIKES("likes", "点赞数"),
+
+    /**
+     * 评论数
+     */
+    COMMENTS("comments", "评论数"),
+
+    /**
+     * 收藏数
+     */
+    FAVORITES("favorites", "收藏数");
+
+    private final String column;
+    private final String description;
+
+    PostCounterType(String column, String description) {
+        this.column = column;
+        this.description = description;
+    }
+
+    /**
+     * 获取对应的t_posts列名
+     *
+     * @return 列名
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * 获取计数器描述
+     *
+     * @return 描述
+     */
+    public String getDescription() {
+        return description;
+    }
+}
@@ -48,6 +48,18 @@ public class PostVersion implements Serializable {
      */
     private String content;
 
+    /**
+     * 版本内容指纹（标题、正文、摘要的规范化SHA-256）
+     */
+    @Column("content_hash")
+    private String contentHash;
+
+    /**
+     * 生成版本时文章的乐观锁版本号，用于定位编辑冲突时的合并基线
+     */
+    @Column("lock_version")
+    private Long lockVersion;
+
     /**
      * 编辑者ID（引用 auth_service.t_users）
      */
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -55,10 +57,29 @@ public class Posts implements Serializable {
     private Integer status;
 
     /**
-     * 文章的浏览次数
+     * 文章的浏览次数，由计数器服务增量刷新，实体保存时不回写
      */
+    @ReadOnlyProperty
     private Integer views;
 
+    /**
+     * 点赞数，由计数器服务增量刷新，实体保存时不回写
+     */
+    @ReadOnlyProperty
+    private Integer likes;
+
+    /**
+     * 评论数，由计数器服务增量刷新，实体保存时不回写
+     */
+    @ReadOnlyProperty
+    private Integer comments;
+
+    /**
+     * 收藏数，由计数器服务增量刷新，实体保存时不回写
+     */
+    @ReadOnlyProperty
+    private Integer favorites;
+
     /**
      * SEO信息（关键词、描述等）json
      */
@@ -115,6 +136,19 @@ public class Posts implements Serializable {
     @Column("schedule_time")
     private LocalDateTime scheduleTime;
 
+    /**
+     * 内容指纹（行、分类、标签的规范化SHA-256），用于跳过无变化的更新
+     */
+    @Column("content_hash")
+    private String contentHash;
+
+    /**
+     * 乐观锁版本号，保存时以 WHERE lock_version = :v 条件更新，每次更新加一
+     */
+    @Version
+    @Column("lock_version")
+    private Long lockVersion;
+
     /**
      * 文章的创建时间
      */
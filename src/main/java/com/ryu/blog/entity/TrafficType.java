@@ -0,0 +1,74 @@
+package com.ryu.blog.entity;
+
+/**
+ * 访问流量类型枚举
+ * 浏览统计前对请求分类，非正常访问只计入聚合计数
+ *
+ * @author ryu
+ */
+public enum TrafficType {
+    /**
+     * 正常访问
+     */
+    HUMAN("human", "正常访问"),
+
+    /**
+     * 缺少User-Agent
+     */
+    EMPTY_UA("empty_ua", "缺少User-Agent"),
+
+    /**
+     * 爬虫、监控或脚本客户端
+     */
+    CRAWLER("crawler", "爬虫或脚本"),
+
+    /**
+     * 无头浏览器或自动化框架
+     */
+    HEADLESS("headless", "无头浏览器"),
+
+    /**
+     * 单个IP访问频率过高
+     */
+    HIGH_RATE("high_rate", "高频访问"),
+
+    /**
+     * 多个弱信号（缺少Accept-Language、访问频率偏高等）叠加后判定的可疑访问
+     */
+    SUSPICIOUS("suspicious", "可疑访问");
+
+    private final String code;
+    private final String description;
+
+    TrafficType(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    /**
+     * 获取类型编码
+     *
+     * @return 编码
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * 获取类型描述
+     *
+     * @return 描述
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 是否为机器流量
+     *
+     * @return 非正常访问时返回true
+     */
+    public boolean isBot() {
+        return this != HUMAN;
+    }
+}
@@ -78,6 +78,12 @@ public class ViewHistory implements Serializable {
      * 来源页面
      */
     private String referer;
+
+    /**
+     * 归一化来源的字典ID
+     */
+    @Column("referer_id")
+    private Long refererId;
     
     /**
      * 创建时间
@@ -0,0 +1,75 @@
+package com.ryu.blog.entity;
+
+/**
+ * 浏览统计汇总维度枚举
+ * 对应t_view_stats_hourly和t_view_stats_daily中的dim_type列
+ *
+ * @author ryu
+ */
+public enum ViewStatsDimension {
+    /**
+     * 全站，维度值为空串
+     */
+    SITE("site", "全站"),
+
+    /**
+     * 文章，维度值为文章ID
+     */
+    POST("post", "文章"),
+
+    /**
+     * 设备类型
+     */
+    DEVICE("device", "设备类型"),
+
+    /**
+     * 地区（省份，缺失时为国家）
+     */
+    REGION("region", "地区"),
+
+    /**
+     * 来源域名
+     */
+    REFERRER("referrer", "来源域名");
+
+    private final String code;
+    private final String description;
+
+    ViewStatsDimension(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    /**
+     * 获取dim_type列的取值
+     *
+     * @return 维度编码
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * 获取维度描述
+     *
+     * @return 描述
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 根据编码获取维度
+     *
+     * @param code 维度编码
+     * @return 维度，编码无效时返回null
+     */
+    public static ViewStatsDimension fromCode(String code) {
+        for (ViewStatsDimension dimension : values()) {
+            if (dimension.code.equalsIgnoreCase(code)) {
+                return dimension;
+            }
+        }
+        return null;
+    }
+}
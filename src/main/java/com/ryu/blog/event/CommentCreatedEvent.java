@@ -0,0 +1,55 @@
+package com.ryu.blog.event;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 评论创建事件
+ * 评论保存成功后发布，用于实时统计
+ *
+ * @author ryu
+ */
+public class CommentCreatedEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 评论ID
+     */
+    private final Long commentId;
+
+    /**
+     * 所属文章ID
+     */
+    private final Long postId;
+
+    /**
+     * 创建评论事件
+     *
+     * @param source    事件源
+     * @param commentId 评论ID
+     * @param postId    所属文章ID
+     */
+    public CommentCreatedEvent(Object source, Long commentId, Long postId) {
+        super(source);
+        this.commentId = commentId;
+        this.postId = postId;
+    }
+
+    /**
+     * 获取评论ID
+     *
+     * @return 评论ID
+     */
+    public Long getCommentId() {
+        return commentId;
+    }
+
+    /**
+     * 获取所属文章ID
+     *
+     * @return 文章ID
+     */
+    public Long getPostId() {
+        return postId;
+    }
+}
@@ -0,0 +1,85 @@
+package com.ryu.blog.event;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 浏览事件
+ * 请求线程只填充原始信息后入队，地理位置、设备信息由后台写入线程补充
+ *
+ * @author ryu
+ */
+@Data
+@NoArgsConstructor
+public class ViewEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 被浏览文章ID
+     */
+    private Long postId;
+
+    /**
+     * 游客标识
+     */
+    private String visitorId;
+
+    /**
+     * 游客IP地址
+     */
+    private String ipAddress;
+
+    /**
+     * 原始User-Agent
+     */
+    private String userAgent;
+
+    /**
+     * 浏览时长（秒）
+     */
+    private Integer viewDuration;
+
+    /**
+     * 来源页面
+     */
+    private String referer;
+
+    /**
+     * 落地页地址（包含推广参数）
+     */
+    private String landingUrl;
+
+    /**
+     * 浏览时间
+     */
+    private LocalDateTime viewTime;
+
+    /**
+     * 是否为新访问（超过访问间隔，计入浏览量和分布统计）
+     */
+    private boolean newVisit;
+
+    /**
+     * 地理位置（后台补充）
+     */
+    private String location;
+
+    /**
+     * 格式化后的设备信息（后台补充）
+     */
+    private String deviceInfo;
+
+    /**
+     * 设备类型（后台补充）
+     */
+    private String deviceType;
+
+    /**
+     * 归一化来源的字典ID（后台补充）
+     */
+    private Long refererId;
+}
@@ -0,0 +1,41 @@
+package com.ryu.blog.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+/**
+ * 浏览事件入库事件
+ * 后台写入线程每成功写入一批浏览记录后发布，用于更新依赖地理位置、设备信息的统计
+ *
+ * @author ryu
+ */
+public class ViewEventsPersistedEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 已写入的浏览事件（已补充地理位置和设备信息）
+     */
+    private final transient List<ViewEvent> events;
+
+    /**
+     * 创建浏览事件入库事件
+     *
+     * @param source 事件源
+     * @param events 已写入的浏览事件
+     */
+    public ViewEventsPersistedEvent(Object source, List<ViewEvent> events) {
+        super(source);
+        this.events = events;
+    }
+
+    /**
+     * 获取已写入的浏览事件
+     *
+     * @return 浏览事件列表
+     */
+    public List<ViewEvent> getEvents() {
+        return events;
+    }
+}
@@ -0,0 +1,33 @@
+package com.ryu.blog.exception;
+
+import com.ryu.blog.constant.ErrorCodeConstants;
+import com.ryu.blog.constant.MessageConstants;
+import com.ryu.blog.vo.ArticleConflictVO;
+import lombok.Getter;
+
+/**
+ * 文章并发编辑冲突异常
+ * 提交的乐观锁版本号与服务器不一致时抛出，携带服务器当前版本供客户端合并
+ *
+ * @author ryu
+ */
+@Getter
+public class ArticleConflictException extends BaseException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 冲突信息
+     */
+    private final ArticleConflictVO conflict;
+
+    /**
+     * 构造函数
+     *
+     * @param conflict 冲突信息
+     */
+    public ArticleConflictException(ArticleConflictVO conflict) {
+        super(ErrorCodeConstants.POST_VERSION_CONFLICT, MessageConstants.POST_VERSION_CONFLICT);
+        this.conflict = conflict;
+    }
+}
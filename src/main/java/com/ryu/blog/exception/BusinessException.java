@@ -105,6 +105,15 @@ public class BusinessException extends BaseException {
         return new BusinessException(ErrorCodeConstants.POST_ALREADY_DELETED, MessageConstants.POST_ALREADY_DELETED);
     }
     
+    /**
+     * 文章归档不存在异常
+     * 
+     * @return 异常实例
+     */
+    public static BusinessException postArchiveNotFound() {
+        return new BusinessException(ErrorCodeConstants.POST_ARCHIVE_NOT_FOUND, MessageConstants.POST_ARCHIVE_NOT_FOUND);
+    }
+    
     /**
      * 文章标题已存在异常
      * 
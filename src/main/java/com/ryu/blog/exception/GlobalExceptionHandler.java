@@ -6,6 +6,7 @@ import cn.dev33.satoken.exception.NotRoleException;
 import com.ryu.blog.constant.ErrorCodeConstants;
 import com.ryu.blog.constant.MessageConstants;
 import com.ryu.blog.utils.Result;
+import com.ryu.blog.vo.ArticleConflictVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -112,6 +113,22 @@ public class GlobalExceptionHandler {
         return Mono.just(ResponseEntity.badRequest().body(result));
     }
     
+    /**
+     * 处理文章编辑冲突异常
+     * 
+     * @param e 编辑冲突异常
+     * @param exchange 请求交换对象
+     * @return 响应结果，携带服务器当前版本
+     */
+    @ExceptionHandler(ArticleConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Mono<ResponseEntity<Result<ArticleConflictVO>>> handleArticleConflictException(ArticleConflictException e, ServerWebExchange exchange) {
+        log.warn("文章编辑冲突：{}, 路径: {}", e.getMessage(), exchange.getRequest().getPath());
+        Result<ArticleConflictVO> result = Result.error(e.getCode(), e.getMessage());
+        result.setData(e.getConflict());
+        return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(result));
+    }
+    
     /**
      * 处理限流异常
      * 
@@ -53,6 +53,7 @@ public interface PostMapper {
     @Mapping(target = "publishTime", ignore = true)
     @Mapping(target = "isDeleted", ignore = true)
     @Mapping(target = "seoMeta", ignore = true) // SEO信息需要特殊处理
+    @Mapping(target = "lockVersion", ignore = true) // 乐观锁版本号由服务层校验
     void updateEntityFromDTO(PostUpdateDTO dto, @MappingTarget Posts entity);
 
     /**
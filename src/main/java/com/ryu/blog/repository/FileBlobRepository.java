@@ -0,0 +1,73 @@
+package com.ryu.blog.repository;
+
+import com.ryu.blog.entity.FileBlob;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * 文件内容数据库操作接口
+ * 引用计数只通过条件更新修改，并发的引用和释放不会相互覆盖
+ *
+ * @author ryu 475118582@qq.com
+ */
+@Repository
+public interface FileBlobRepository extends R2dbcRepository<FileBlob, Long> {
+
+    /**
+     * 根据SHA-256查询内容
+     *
+     * @param sha256 内容的SHA-256
+     * @return 内容信息
+     */
+    Mono<FileBlob> findBySha256(String sha256);
+
+    /**
+     * 登记新内容，内容已存在时（并发上传了相同内容）改为增加引用计数
+     *
+     * @param sha256      内容的SHA-256
+     * @param md5         内容的MD5
+     * @param fileSize    内容大小
+     * @param storageType 存储类型
+     * @param filePath    存储路径
+     * @param mimeType    MIME类型
+     * @return 影响行数，1为新插入，2为已存在
+     */
+    @Modifying
+    @Query("INSERT INTO t_file_blob (sha256, md5, file_size, storage_type, file_path, mime_type, ref_count, create_time, update_time) " +
+           "VALUES (:sha256, :md5, :fileSize, :storageType, :filePath, :mimeType, 1, NOW(), NOW()) " +
+           "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, update_time = NOW()")
+    Mono<Integer> insertOrReference(String sha256, String md5, Long fileSize, String storageType, String filePath, String mimeType);
+
+    /**
+     * 增加引用计数，内容已被删除时不更新
+     *
+     * @param id 内容ID
+     * @return 影响行数
+     */
+    @Modifying
+    @Query("UPDATE t_file_blob SET ref_count = ref_count + 1, update_time = NOW() WHERE id = :id AND ref_count > 0")
+    Mono<Integer> incrementRefCount(Long id);
+
+    /**
+     * 减少引用计数
+     *
+     * @param id 内容ID
+     * @return 影响行数
+     */
+    @Modifying
+    @Query("UPDATE t_file_blob SET ref_count = ref_count - 1, update_time = NOW() WHERE id = :id AND ref_count > 0")
+    Mono<Integer> decrementRefCount(Long id);
+
+    /**
+     * 删除已没有引用的内容记录
+     *
+     * @param id 内容ID
+     * @return 影响行数，为1时由调用方删除存储对象
+     */
+    @Modifying
+    @Query("DELETE FROM t_file_blob WHERE id = :id AND ref_count = 0")
+    Mono<Integer> deleteIfUnreferenced(Long id);
+}
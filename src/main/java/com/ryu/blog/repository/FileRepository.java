@@ -2,6 +2,7 @@ package com.ryu.blog.repository;
 
 import com.ryu.blog.entity.File;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import org.springframework.stereotype.Repository;
@@ -105,4 +106,25 @@ public interface FileRepository extends R2dbcRepository<File, Long> {
      * @return 文件列表
      */
     Flux<File> findByChecksumAndIsDeleted(String checksum, Integer isDeleted);
-} 
\ No newline at end of file
+
+    /**
+     * 记录文件的缩略图
+     *
+     * @param id            文件ID
+     * @param thumbnailPath 缩略图存储路径
+     * @return 更新行数
+     */
+    @Modifying
+    @Query("UPDATE t_file SET has_thumbnail = 1, thumbnail_path = :thumbnailPath WHERE id = :id")
+    Mono<Integer> updateThumbnail(Long id, String thumbnailPath);
+
+    /**
+     * 统计调用方可以访问的引用指定内容的文件数：本人上传的文件或公开文件
+     *
+     * @param blobId    内容ID
+     * @param creatorId 调用方用户ID
+     * @return 文件数
+     */
+    @Query("SELECT COUNT(*) FROM t_file WHERE blob_id = :blobId AND is_deleted = 0 AND (creator_id = :creatorId OR access_type = 0)")
+    Mono<Long> countAccessibleByBlobId(Long blobId, Long creatorId);
+}
@@ -0,0 +1,56 @@
+package com.ryu.blog.repository;
+
+import com.ryu.blog.entity.FileThumbnail;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 文件派生图数据库操作接口
+ * 同一文件的同一规格、格式只有一条记录，多个节点同时生成时先登记的保留
+ *
+ * @author ryu 475118582@qq.com
+ */
+@Repository
+public interface FileThumbnailRepository extends R2dbcRepository<FileThumbnail, Long> {
+
+    /**
+     * 查询文件的所有派生图
+     *
+     * @param fileId 文件ID
+     * @return 派生图列表
+     */
+    Flux<FileThumbnail> findByFileId(Long fileId);
+
+    /**
+     * 登记派生图，已存在时保留原记录
+     *
+     * @param fileId      文件ID
+     * @param size        规格标识
+     * @param width       宽度
+     * @param height      高度
+     * @param filePath    存储路径
+     * @param fileSize    文件大小
+     * @param storageType 存储类型
+     * @param format      图片格式
+     * @return 影响行数，0表示已存在
+     */
+    @Modifying
+    @Query("INSERT IGNORE INTO t_file_thumbnails (file_id, size, width, height, file_path, file_size, storage_type, format, create_time, update_time) " +
+           "VALUES (:fileId, :size, :width, :height, :filePath, :fileSize, :storageType, :format, NOW(), NOW())")
+    Mono<Integer> insertIfAbsent(Long fileId, String size, Integer width, Integer height,
+                                 String filePath, Long fileSize, String storageType, String format);
+
+    /**
+     * 删除文件的所有派生图记录
+     *
+     * @param fileId 文件ID
+     * @return 删除行数
+     */
+    @Modifying
+    @Query("DELETE FROM t_file_thumbnails WHERE file_id = :fileId")
+    Mono<Integer> deleteByFileId(Long fileId);
+}
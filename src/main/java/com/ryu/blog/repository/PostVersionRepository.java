@@ -42,6 +42,17 @@ public interface PostVersionRepository extends ReactiveCrudRepository<PostVersio
     @Query("SELECT * FROM t_post_versions WHERE post_id = :postId AND is_deleted = :isDeleted ORDER BY version DESC LIMIT 1")
     Mono<PostVersion> findLatestVersionByPostId(Long postId, Integer isDeleted);
 
+    /**
+     * 获取文章在指定乐观锁版本号时的内容版本，即不晚于该版本号的最新版本记录
+     *
+     * @param postId 文章ID
+     * @param lockVersion 文章乐观锁版本号
+     * @return 版本信息
+     */
+    @Query("SELECT * FROM t_post_versions WHERE post_id = :postId AND is_deleted = 0 AND lock_version <= :lockVersion " +
+           "ORDER BY version DESC LIMIT 1")
+    Mono<PostVersion> findVersionAtLockVersion(Long postId, Long lockVersion);
+
     /**
      * 获取文章的最大版本号
      *
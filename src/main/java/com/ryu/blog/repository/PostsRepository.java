@@ -9,6 +9,7 @@ import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -85,16 +86,6 @@ public interface PostsRepository extends R2dbcRepository<Posts, Long> {
     @Query("UPDATE t_posts SET views = views + 1 WHERE id = :id")
     Mono<Integer> incrementViews(Long id);
 
-    /**
-     * 直接更新文章浏览量为指定值
-     * @param id 文章ID
-     * @param views 新的浏览量值
-     * @return 更新结果
-     */
-    @Modifying
-    @Query("UPDATE t_posts SET views = :views WHERE id = :id")
-    Mono<Integer> updateViews(Long id, int views);
-
     /**
      * 增加文章点赞数
      * @param id 文章ID
@@ -122,6 +113,48 @@ public interface PostsRepository extends R2dbcRepository<Posts, Long> {
     @Query("UPDATE t_posts SET comments = comments - 1 WHERE id = :id AND comments > 0")
     Mono<Integer> decrementComments(Long id);
 
+    /**
+     * 查询所有待定时发布的文章
+     * @return 待发布文章列表
+     */
+    @Query("SELECT * FROM t_posts WHERE status = 0 AND is_deleted = 0 AND schedule_time IS NOT NULL ORDER BY schedule_time ASC")
+    Flux<Posts> findScheduledPosts();
+
+    /**
+     * 条件发布定时文章，仅当文章仍处于待发布状态且已到发布时间时生效
+     * @param id 文章ID
+     * @param now 当前时间
+     * @return 更新行数，0表示已被其他节点发布或计划已变更
+     */
+    @Modifying
+    @Query("UPDATE t_posts SET status = 1, publish_time = schedule_time, update_time = :now, lock_version = lock_version + 1 " +
+           "WHERE id = :id AND status = 0 AND is_deleted = 0 AND schedule_time IS NOT NULL AND schedule_time <= :now")
+    Mono<Integer> publishScheduledPost(Long id, LocalDateTime now);
+
+    /**
+     * 更新文章内容指纹
+     * @param id 文章ID
+     * @param contentHash 内容指纹
+     * @return 更新行数
+     */
+    @Modifying
+    @Query("UPDATE t_posts SET content_hash = :contentHash WHERE id = :id")
+    Mono<Integer> updateContentHash(Long id, String contentHash);
+
+    /**
+     * 按乐观锁版本号条件更新文章指纹并递增版本号
+     * 用于只修改了分类或标签、文章行本身无需保存的场景
+     * @param id 文章ID
+     * @param lockVersion 期望的当前版本号
+     * @param contentHash 内容指纹
+     * @param now 更新时间
+     * @return 更新行数，0表示版本号已变化
+     */
+    @Modifying
+    @Query("UPDATE t_posts SET content_hash = :contentHash, update_time = :now, lock_version = lock_version + 1 " +
+           "WHERE id = :id AND lock_version = :lockVersion")
+    Mono<Integer> touchArticle(Long id, Long lockVersion, String contentHash, LocalDateTime now);
+
     /**
      * 查询热门文章列表
      * @param limit 限制数量
@@ -0,0 +1,29 @@
+package com.ryu.blog.service;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 已删除文章归档服务接口
+ * 软删除超过保留期的文章连同其关联数据一起归档到t_post_archive，再分批清理在线表
+ *
+ * @author ryu
+ */
+public interface ArticleArchiveService {
+
+    /**
+     * 归档并清理超过保留期的已删除文章
+     * 每次最多处理配置的文章数量，清理过程按批次限速执行
+     *
+     * @return 本次归档的文章数量
+     */
+    Mono<Integer> archiveExpiredArticles();
+
+    /**
+     * 从归档中恢复文章及其关联数据，恢复后文章为未删除状态
+     * 尚未归档的软删除文章直接取消删除标记
+     *
+     * @param articleId 文章ID
+     * @return 完成信号
+     */
+    Mono<Void> restoreArticle(Long articleId);
+}
@@ -0,0 +1,47 @@
+package com.ryu.blog.service;
+
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文章定时发布服务接口
+ * 基于内存时间轮精确触发待发布文章的发布，发布计划持久化在t_posts.schedule_time中
+ *
+ * @author ryu
+ */
+public interface ArticlePublishService {
+
+    /**
+     * 登记或更新文章的定时发布计划，并广播到集群中的其他节点
+     *
+     * @param articleId   文章ID
+     * @param publishTime 计划发布时间
+     * @return 完成信号
+     */
+    Mono<Void> schedule(Long articleId, LocalDateTime publishTime);
+
+    /**
+     * 取消文章的定时发布计划，并广播到集群中的其他节点
+     *
+     * @param articleId 文章ID
+     * @return 完成信号
+     */
+    Mono<Void> cancel(Long articleId);
+
+    /**
+     * 从数据库重新加载所有待发布文章到时间轮
+     * 应用重启后调用，已过期的计划会立即触发
+     *
+     * @return 加载的计划数量
+     */
+    Mono<Integer> reloadSchedules();
+
+    /**
+     * 补偿扫描：把数据库中待发布但本节点时间轮中没有登记的计划重新登记
+     * 在计划变更频道断线重连后执行，补上断线期间丢失的广播，已逾期的计划会立即触发
+     *
+     * @return 新登记的计划数量
+     */
+    Mono<Integer> catchUp();
+}
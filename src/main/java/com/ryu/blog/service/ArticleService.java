@@ -37,7 +37,8 @@ public interface ArticleService {
     
     /**
      * 使用DTO更新文章
-     * 使用Spring Cache注解自动管理缓存，会清除以下缓存：
+     * 通过内容指纹比较提交内容与已存储内容：完全一致时直接返回，不写库也不清除缓存；
+     * 部分变化时只写入变化的部分（文章行、分类、标签、版本），并清除以下缓存：
      * 1. 文章详情缓存
      * 2. 前台文章列表缓存
      * 3. 热门文章缓存
@@ -191,28 +192,28 @@ public interface ArticleService {
 
     /**
      * 增加文章点赞数
-     * 使用Spring Cache注解自动清除文章详情、热门文章和前台列表缓存
+     * 增量先累积在计数器服务中，由定时任务批量写入数据库，不再逐次清除缓存
      * 
      * @param id 文章ID
-     * @return 更新结果
+     * @return 累积的增量条数
      */
     Mono<Integer> incrementLikes(Long id);
 
     /**
      * 增加文章评论数
-     * 使用Spring Cache注解自动清除文章详情、热门文章和前台列表缓存
+     * 增量先累积在计数器服务中，由定时任务批量写入数据库，不再逐次清除缓存
      * 
      * @param id 文章ID
-     * @return 更新结果
+     * @return 累积的增量条数
      */
     Mono<Integer> incrementComments(Long id);
 
     /**
      * 减少文章评论数
-     * 使用Spring Cache注解自动清除文章详情、热门文章和前台列表缓存
+     * 增量先累积在计数器服务中，由定时任务批量写入数据库，不再逐次清除缓存
      * 
      * @param id 文章ID
-     * @return 更新结果
+     * @return 累积的增量条数
      */
     Mono<Integer> decrementComments(Long id);
 
@@ -2,6 +2,7 @@ package com.ryu.blog.service;
 
 import com.ryu.blog.entity.PostVersion;
 import com.ryu.blog.entity.Posts;
+import com.ryu.blog.vo.ArticleMergeVO;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -84,4 +85,15 @@ public interface ArticleVersionService {
      * @return 差异信息
      */
     Mono<Map<String, Object>> compareVersions(Long articleId, Integer version1, Integer version2);
-} 
\ No newline at end of file
+
+    /**
+     * 将本地编辑与服务器最新内容做三方合并
+     * 合并基线为开始编辑时文章版本号对应的历史版本
+     *
+     * @param articleId       文章ID
+     * @param baseLockVersion 开始编辑时的文章版本号
+     * @param content         本地编辑后的正文
+     * @return 合并结果
+     */
+    Mono<ArticleMergeVO> mergeWithLatest(Long articleId, Long baseLockVersion, String content);
+}
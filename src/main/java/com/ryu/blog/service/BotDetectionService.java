@@ -0,0 +1,60 @@
+package com.ryu.blog.service;
+
+import com.ryu.blog.entity.TrafficType;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * 机器流量识别服务接口
+ * 在浏览统计之前识别爬虫、无头浏览器和高频访问，机器流量只计入按天的聚合计数
+ *
+ * @author ryu
+ */
+public interface BotDetectionService {
+
+    /**
+     * 对一次浏览请求分类，同时累计该IP的访问频率
+     *
+     * @param ipAddress 客户端IP
+     * @param userAgent User-Agent
+     * @param headers   请求头
+     * @return 流量类型
+     */
+    TrafficType classify(String ipAddress, String userAgent, HttpHeaders headers);
+
+    /**
+     * 检查浏览之外的上报请求（如阅读信标）是否来自机器流量，不累计IP的访问频率
+     * 只根据请求特征和IP是否处于惩罚期判断，同一次浏览的多次上报不会把真实用户推过频率阈值
+     *
+     * @param ipAddress 客户端IP
+     * @param userAgent User-Agent
+     * @param headers   请求头
+     * @return 流量类型
+     */
+    TrafficType inspect(String ipAddress, String userAgent, HttpHeaders headers);
+
+    /**
+     * 记录一次机器流量，只在内存中累加，由定时任务批量写入Redis
+     *
+     * @param type 流量类型
+     */
+    void recordBotView(TrafficType type);
+
+    /**
+     * 将内存中累积的机器流量计数写入当天的Redis哈希
+     *
+     * @return 写入的计数总和
+     */
+    Mono<Long> flush();
+
+    /**
+     * 获取某天各类型的机器流量计数
+     *
+     * @param date 日期
+     * @return 类型编码 -> 次数
+     */
+    Mono<Map<String, Long>> getBotViewCounts(LocalDate date);
+}
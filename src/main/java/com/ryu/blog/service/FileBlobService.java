@@ -0,0 +1,58 @@
+package com.ryu.blog.service;
+
+import com.ryu.blog.entity.FileBlob;
+import com.ryu.blog.utils.UploadSpool;
+import reactor.core.publisher.Mono;
+
+/**
+ * 文件内容服务接口
+ * 存储对象按内容（SHA-256）去重，每份内容带引用计数，文件记录只引用内容
+ *
+ * @author ryu 475118582@qq.com
+ */
+public interface FileBlobService {
+
+    /**
+     * 查询已存在的内容，不修改引用计数
+     *
+     * @param sha256   内容的SHA-256
+     * @param fileSize 内容大小，与记录不一致时视为不存在
+     * @return 内容信息，不存在时为空
+     */
+    Mono<FileBlob> find(String sha256, long fileSize);
+
+    /**
+     * 引用已存在的内容
+     *
+     * @param sha256   内容的SHA-256
+     * @param fileSize 内容大小，与记录不一致时视为不存在
+     * @return 已增加引用计数的内容，不存在时为空
+     */
+    Mono<FileBlob> reference(String sha256, long fileSize);
+
+    /**
+     * 引用已查询到的内容
+     *
+     * @param blob 内容信息
+     * @return 已增加引用计数的内容，内容已被删除时为空
+     */
+    Mono<FileBlob> reference(FileBlob blob);
+
+    /**
+     * 保存上传内容并增加引用计数，内容已存在时不再上传
+     *
+     * @param spool    上传暂存文件
+     * @param fileName 文件名
+     * @param mimeType MIME类型
+     * @return 已增加引用计数的内容
+     */
+    Mono<FileBlob> store(UploadSpool spool, String fileName, String mimeType);
+
+    /**
+     * 释放一次引用，引用计数归零时删除存储对象
+     *
+     * @param blobId 内容ID
+     * @return 是否删除了存储对象
+     */
+    Mono<Boolean> release(Long blobId);
+}
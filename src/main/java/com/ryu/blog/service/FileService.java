@@ -3,12 +3,14 @@ package com.ryu.blog.service;
 import com.ryu.blog.dto.*;
 import com.ryu.blog.entity.File;
 import com.ryu.blog.vo.FileInfoVO;
+import com.ryu.blog.vo.FilePrecheckVO;
 import com.ryu.blog.vo.FileUploadVO;
 import com.ryu.blog.vo.FileVersionVO;
+import com.ryu.blog.vo.MultipartUploadStatusVO;
 import com.ryu.blog.vo.PageResult;
-import org.springframework.core.io.Resource;
-import org.springframework.http.ResponseEntity;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -40,6 +42,18 @@ public interface FileService {
      * @return 上传结果列表
      */
     Flux<FileUploadVO> handleBatchFileUpload(Flux<FilePart> fileParts, UploadOptionsDTO options);
+
+    /**
+     * 上传预检
+     * 服务端已有相同内容（SHA-256与大小一致），且调用方上传过该内容或该内容存在公开文件时，
+     * 直接创建文件记录并引用该内容，客户端无需再上传
+     *
+     * @param precheck 预检信息
+     * @param options 上传选项
+     * @param userId 调用方用户ID，作为文件创建者
+     * @return 预检结果，内容不存在或不可访问时 exists 为 false
+     */
+    Mono<FilePrecheckVO> precheckUpload(FilePrecheckDTO precheck, UploadOptionsDTO options, Long userId);
     
     /**
      * 处理大文件分片上传
@@ -56,10 +70,18 @@ public interface FileService {
      * 
      * @param uploadId 上传ID
      * @param partNumber 分片号
-     * @param partData 分片数据
+     * @param content 分片数据流，直接写入存储层，不在内存中合并
      * @return 分片标识
      */
-    Mono<String> uploadPart(String uploadId, int partNumber, byte[] partData);
+    Mono<String> uploadPart(String uploadId, int partNumber, Flux<DataBuffer> content);
+    
+    /**
+     * 查询分片上传进度，用于断点续传
+     * 
+     * @param uploadId 上传ID
+     * @return 已上传的分片
+     */
+    Mono<MultipartUploadStatusVO> getMultipartUploadStatus(String uploadId);
     
     /**
      * 完成分片上传
@@ -78,13 +100,24 @@ public interface FileService {
      * @return 是否成功
      */
     Mono<Boolean> abortMultipartUpload(String uploadId);
+    
+    /**
+     * 清理过期分片上传在存储层残留的暂存数据
+     * 
+     * @return 清理的上传数
+     */
+    Mono<Integer> cleanupExpiredMultipartUploads();
 
     /**
-     * 处理文件下载的业务逻辑
+     * 按请求头输出文件内容
+     * 支持条件请求（If-None-Match、If-Modified-Since、If-Range）和区间请求（Range），
+     * 区间请求只从存储读取请求的部分，单区间返回206，多区间返回multipart/byteranges
      * @param fileId 文件ID
-     * @return ResponseEntity包含文件资源
+     * @param exchange 当前请求
+     * @param inline 是否内联显示（预览），否则作为附件下载
+     * @return 完成信号
      */
-    Mono<ResponseEntity<Resource>> handleFileDownload(Long fileId);
+    Mono<Void> writeFileContent(Long fileId, ServerWebExchange exchange, boolean inline);
     
     /**
      * 处理文件下载的业务逻辑
@@ -0,0 +1,56 @@
+package com.ryu.blog.service;
+
+import com.ryu.blog.entity.File;
+import com.ryu.blog.entity.FileThumbnail;
+import com.ryu.blog.entity.ImageVariant;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * 图片派生图服务接口
+ * 为图片文件生成各规格（{@link ImageVariant}）的缩放图，运行环境支持时另外生成WebP版本，
+ * 派生图通过当前存储策略保存并登记在t_file_thumbnails表中
+ *
+ * @author ryu 475118582@qq.com
+ */
+public interface ImageDerivativeService {
+
+    /**
+     * 上传完成后排队生成派生图，立即返回
+     * 非图片文件直接忽略，队列已满时放弃，首次请求时再生成
+     *
+     * @param file 已保存的文件
+     */
+    void enqueue(File file);
+
+    /**
+     * 获取文件的所有派生图，缺少的规格当场生成
+     * 同一文件同时只有一次生成，并发请求共享结果
+     *
+     * @param file 文件
+     * @return 以 规格:格式 为键的派生图，无法解码的图片返回空Map
+     */
+    Mono<Map<String, FileThumbnail>> getDerivatives(File file);
+
+    /**
+     * 输出派生图，请求头Accept包含image/webp且有WebP版本时优先输出WebP
+     * 支持If-None-Match条件请求，派生图内容不变，可长期缓存
+     *
+     * @param fileId 文件ID
+     * @param variant 规格
+     * @param exchange 当前请求
+     * @param includePrivate 是否允许输出私有文件的派生图
+     * @return 完成信号，文件不存在或不是图片时返回错误
+     */
+    Mono<Void> writeDerivative(Long fileId, ImageVariant variant, ServerWebExchange exchange, boolean includePrivate);
+
+    /**
+     * 删除文件的所有派生图及其存储对象
+     *
+     * @param fileId 文件ID
+     * @return 完成信号，删除失败只记录日志
+     */
+    Mono<Void> deleteDerivatives(Long fileId);
+}
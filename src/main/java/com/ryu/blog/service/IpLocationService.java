@@ -0,0 +1,46 @@
+package com.ryu.blog.service;
+
+import com.ryu.blog.utils.IPLocationUtil;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * IP地理位置服务接口
+ * 基于内存映射的ip2region数据库查询，带按网段缓存，支持数据库热更新
+ *
+ * @author ryu
+ */
+public interface IpLocationService {
+
+    /**
+     * 根据IP获取地理位置
+     *
+     * @param ip IP地址
+     * @return 地理位置，格式：国家|区域|省份|城市|ISP；本地地址返回"本地局域网"，无法识别时返回"未知"
+     */
+    String getIpLocation(String ip);
+
+    /**
+     * 根据IP获取结构化的地理位置
+     *
+     * @param ip IP地址
+     * @return 地理位置信息，无法识别时各字段为空串
+     */
+    IPLocationUtil.IPLocationInfo getLocationInfo(String ip);
+
+    /**
+     * 批量获取地理位置，重复的IP只查询一次
+     *
+     * @param ips IP地址集合
+     * @return IP -> 地理位置（格式同 {@link #getIpLocation}）
+     */
+    Map<String, String> getIpLocations(Collection<String> ips);
+
+    /**
+     * 数据库文件有变化时重新加载，加载成功后替换查询器并清空缓存
+     *
+     * @return 是否重新加载
+     */
+    boolean reloadIfModified();
+}
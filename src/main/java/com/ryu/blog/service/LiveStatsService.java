@@ -0,0 +1,29 @@
+package com.ryu.blog.service;
+
+import com.ryu.blog.vo.LiveStatsVO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 实时统计服务接口
+ * 各节点按周期汇总本地的浏览和评论增量并广播，订阅方合并所有节点的增量后推送
+ *
+ * @author ryu
+ */
+public interface LiveStatsService {
+
+    /**
+     * 汇总本节点上一周期的增量，推送给本节点订阅者并广播到其他节点
+     *
+     * @return 本周期浏览次数
+     */
+    Mono<Long> publish();
+
+    /**
+     * 订阅实时统计
+     * 所有订阅者共享同一个热流，订阅者数量不影响计算量
+     *
+     * @return 每个周期一条的实时统计增量
+     */
+    Flux<LiveStatsVO> stream();
+}
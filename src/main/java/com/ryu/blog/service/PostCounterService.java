@@ -0,0 +1,39 @@
+package com.ryu.blog.service;
+
+import com.ryu.blog.entity.PostCounterType;
+import reactor.core.publisher.Mono;
+
+/**
+ * 文章计数器服务接口
+ * 采用写后（write-behind）策略：计数增量先累积在内存分段计数器中，
+ * 再按固定间隔批量合并写入t_posts，避免热门文章行锁竞争
+ *
+ * @author ryu
+ */
+public interface PostCounterService {
+
+    /**
+     * 累加计数增量（仅写内存，不访问数据库）
+     *
+     * @param postId 文章ID
+     * @param type   计数器类型
+     * @param delta  增量，可为负数
+     */
+    void increment(Long postId, PostCounterType type, long delta);
+
+    /**
+     * 获取尚未刷入数据库的增量
+     *
+     * @param postId 文章ID
+     * @param type   计数器类型
+     * @return 待刷新增量
+     */
+    long getPendingDelta(Long postId, PostCounterType type);
+
+    /**
+     * 将所有待刷新增量批量写入数据库
+     *
+     * @return 本次写入的文章计数条目数
+     */
+    Mono<Integer> flush();
+}
@@ -0,0 +1,46 @@
+package com.ryu.blog.service;
+
+import com.ryu.blog.dto.ViewBeaconDTO;
+import com.ryu.blog.vo.ReadingEngagementVO;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * 阅读深度服务接口
+ * 页面上报的滚动深度和停留时长先在内存中按文章累积为直方图，定时批量写入按天汇总表，上报本身不访问数据库
+ *
+ * @author ryu
+ */
+public interface ReadingEngagementService {
+
+    /**
+     * 记录一次阅读信标
+     * 同一次浏览多次上报时，样本从上次的桶移动到新桶，每次浏览只计一个样本
+     *
+     * @param beacon    信标
+     * @param ipAddress 客户端IP
+     * @param userAgent User-Agent
+     * @param headers   请求头
+     * @return 是否被接受，参数不合法、文章未发布、机器流量、IP超出频率限制或跟踪的文章数量已满时返回false
+     */
+    boolean recordBeacon(ViewBeaconDTO beacon, String ipAddress, String userAgent, HttpHeaders headers);
+
+    /**
+     * 将内存中累积的直方图增量写入数据库
+     *
+     * @return 写入的桶数量
+     */
+    Mono<Integer> flush();
+
+    /**
+     * 获取阅读深度统计
+     *
+     * @param postId 文章ID，为空时统计全站
+     * @param from   开始日期（含）
+     * @param to     结束日期（含）
+     * @return 统计结果，只包含已写入数据库的数据
+     */
+    Mono<ReadingEngagementVO> getEngagement(Long postId, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,40 @@
+package com.ryu.blog.service;
+
+import com.ryu.blog.vo.ReadingHistoryPageVO;
+import reactor.core.publisher.Mono;
+
+/**
+ * 阅读历史服务接口
+ * 每个用户只保留最近阅读的若干篇文章，同一篇文章只保留最近一次阅读时间
+ *
+ * @author ryu
+ */
+public interface ReadingHistoryService {
+
+    /**
+     * 记录一次阅读
+     *
+     * @param userId 用户ID
+     * @param postId 文章ID
+     * @return 完成信号
+     */
+    Mono<Void> recordRead(Long userId, Long postId);
+
+    /**
+     * 按阅读时间倒序游标分页查询阅读历史
+     *
+     * @param userId 用户ID
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param size   每页大小
+     * @return 分页结果
+     */
+    Mono<ReadingHistoryPageVO> getReadingHistory(Long userId, Long cursor, int size);
+
+    /**
+     * 清空阅读历史，同时删除该用户的浏览记录
+     *
+     * @param userId 用户ID
+     * @return 是否清空成功
+     */
+    Mono<Boolean> clearReadingHistory(Long userId);
+}
@@ -0,0 +1,64 @@
+package com.ryu.blog.service;
+
+import com.ryu.blog.utils.RefererUtils;
+import com.ryu.blog.vo.ReferrerStatVO;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 来源归因服务接口
+ * 来源在写入时归一化为 来源 + 推广活动 并登记到字典表，浏览记录只保存字典ID；
+ * 按文章、按天汇总来源浏览量，每篇文章每天的来源数量有上限，超出的计入"其他"来源
+ *
+ * @author ryu
+ */
+public interface ReferrerAttributionService {
+
+    /**
+     * "其他"来源的字典ID
+     */
+    long OTHER_SOURCE_ID = 1L;
+
+    /**
+     * 获取来源的字典ID，不存在的来源会被登记；
+     * 每天新登记的来源数量有上限，超出后未登记的来源返回"其他"来源的ID
+     *
+     * @param sources 归一化的来源
+     * @return 来源 -> 字典ID
+     */
+    Mono<Map<RefererUtils.Source, Long>> intern(Collection<RefererUtils.Source> sources);
+
+    /**
+     * 累加文章每天的来源浏览量
+     * 由浏览统计汇总任务在同一事务中调用
+     *
+     * @param views 汇总键 -> 浏览量
+     * @return 完成信号
+     */
+    Mono<Void> addDailyViews(Map<DailyKey, Long> views);
+
+    /**
+     * 获取浏览量最高的来源
+     *
+     * @param postId 文章ID，为空时统计全站
+     * @param from   开始日期（含）
+     * @param to     结束日期（含）
+     * @param limit  返回数量
+     * @return 按浏览量降序的来源
+     */
+    Mono<List<ReferrerStatVO>> getTopSources(Long postId, LocalDate from, LocalDate to, int limit);
+
+    /**
+     * 文章来源汇总键
+     *
+     * @param date      日期
+     * @param postId    文章ID
+     * @param refererId 来源字典ID
+     */
+    record DailyKey(LocalDate date, Long postId, Long refererId) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.ryu.blog.service;
+
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * 独立访客统计服务接口
+ * 基于HyperLogLog按天记录站点和文章的独立访客，按周、月合并汇总
+ *
+ * @author ryu
+ */
+public interface UniqueVisitorService {
+
+    /**
+     * 记录一次访问，同时计入当天的站点和文章独立访客
+     *
+     * @param postId    文章ID
+     * @param visitorId 访客标识
+     * @return 完成信号，记录失败不会返回错误
+     */
+    Mono<Void> recordVisit(Long postId, String visitorId);
+
+    /**
+     * 获取站点某天的独立访客数
+     *
+     * @param date 日期
+     * @return 独立访客数
+     */
+    Mono<Long> getSiteUniqueVisitors(LocalDate date);
+
+    /**
+     * 获取站点在日期区间内（含首尾）去重后的独立访客数
+     *
+     * @param from 开始日期
+     * @param to   结束日期
+     * @return 独立访客数
+     */
+    Mono<Long> getSiteUniqueVisitors(LocalDate from, LocalDate to);
+
+    /**
+     * 获取文章在日期区间内（含首尾）去重后的独立访客数
+     *
+     * @param postId 文章ID
+     * @param from   开始日期
+     * @param to     结束日期
+     * @return 独立访客数
+     */
+    Mono<Long> getPostUniqueVisitors(Long postId, LocalDate from, LocalDate to);
+
+    /**
+     * 获取站点某周（周一至周日）的独立访客数
+     *
+     * @param dayOfWeek 该周内的任意一天
+     * @return 独立访客数
+     */
+    Mono<Long> getWeeklyUniqueVisitors(LocalDate dayOfWeek);
+
+    /**
+     * 获取站点某月的独立访客数
+     *
+     * @param month 月份
+     * @return 独立访客数
+     */
+    Mono<Long> getMonthlyUniqueVisitors(YearMonth month);
+
+    /**
+     * 将某天的站点独立访客合并到所在周、月的汇总中，可重复执行
+     *
+     * @param date 日期
+     * @return 完成信号
+     */
+    Mono<Void> rollupDay(LocalDate date);
+}
@@ -0,0 +1,45 @@
+package com.ryu.blog.service;
+
+import com.ryu.blog.vo.ViewArchivePartitionVO;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 浏览记录归档服务接口
+ * 超过在线保留期的浏览记录按天迁移到本地列式压缩文件，MySQL只保留近期数据；归档数据可按列重新聚合
+ *
+ * @author ryu
+ */
+public interface ViewArchiveService {
+
+    /**
+     * 按天归档超过在线保留期且已汇总的浏览记录，写入文件后再从数据库删除，可重复执行
+     *
+     * @return 迁出的浏览记录数
+     */
+    Mono<Long> archiveExpired();
+
+    /**
+     * 列出归档分区
+     *
+     * @param from 开始日期（含）
+     * @param to   结束日期（含）
+     * @return 按日期升序的分区
+     */
+    Mono<List<ViewArchivePartitionVO>> listPartitions(LocalDate from, LocalDate to);
+
+    /**
+     * 从归档文件按列重新聚合浏览量
+     *
+     * @param column 分组列：visitor_id、post_id、ip_address、agent、location、referer、referer_id 或 day
+     * @param postId 文章ID，为空时不过滤
+     * @param from   开始日期（含）
+     * @param to     结束日期（含）
+     * @param limit  返回数量，按day分组时按日期升序，其余按浏览量降序
+     * @return 列值 -> 浏览量
+     */
+    Mono<Map<String, Long>> aggregate(String column, Long postId, LocalDate from, LocalDate to, int limit);
+}
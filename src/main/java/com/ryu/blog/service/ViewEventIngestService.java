@@ -0,0 +1,28 @@
+package com.ryu.blog.service;
+
+import com.ryu.blog.event.ViewEvent;
+
+/**
+ * 浏览事件写入服务接口
+ * 浏览事件先进入有界环形缓冲区，由后台线程补充信息后批量写入t_view_history
+ *
+ * @author ryu
+ */
+public interface ViewEventIngestService {
+
+    /**
+     * 提交浏览事件，不阻塞调用线程
+     * 缓冲区已满时放入溢出队列，由后台线程写入本地溢出文件；溢出队列也满时丢弃
+     *
+     * @param event 浏览事件
+     * @return 是否被接收（进入缓冲区或溢出队列）
+     */
+    boolean offer(ViewEvent event);
+
+    /**
+     * 获取缓冲区中等待写入的事件数量
+     *
+     * @return 事件数量
+     */
+    int getPendingCount();
+}
@@ -1,9 +1,7 @@
 package com.ryu.blog.service;
 
 import com.ryu.blog.dto.ViewHistoryDTO;
-import com.ryu.blog.entity.ViewHistory;
 import com.ryu.blog.vo.ViewHistoryStatsVO;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.Map;
@@ -22,23 +20,6 @@ public interface ViewHistoryService {
      */
     Mono<Boolean> addViewHistory(ViewHistoryDTO viewHistoryDTO);
 
-    /**
-     * 获取用户浏览历史
-     *
-     * @param userId 用户ID
-     * @return 浏览历史列表
-     */
-    Flux<ViewHistory> getUserViewHistory(Long userId);
-
-    /**
-     * 分页获取用户浏览历史
-     *
-     * @param page 页码
-     * @param size 每页大小
-     * @return 分页结果
-     */
-    Mono<Map<String, Object>> getUserViewHistoryPaged(int page, int size);
-
     /**
      * 获取文章浏览量
      *
@@ -55,34 +36,19 @@ public interface ViewHistoryService {
      */
     Mono<Map<Long, Long>> batchGetArticleViewCounts(Iterable<Long> articleIds);
 
-    /**
-     * 清空用户浏览历史
-     *
-     * @param userId 用户ID
-     * @return 是否清空成功
-     */
-    Mono<Boolean> clearUserViewHistory(Long userId);
-
     /**
      * 获取浏览历史统计信息
+     * 浏览量和分布只查询预聚合的汇总表，比实时数据滞后一个汇总周期
      *
      * @return 统计信息
      */
     Mono<ViewHistoryStatsVO> getViewHistoryStats();
 
     /**
-     * 获取文章当前浏览量（优先从Redis获取，Redis无数据则从数据库获取）
+     * 获取文章当前浏览量（数据库中的值加上计数器中尚未刷新的增量）
      * 
      * @param articleId 文章ID
      * @return 浏览量
      */
     Mono<Integer> getArticleCurrentViews(Long articleId);
-
-    /**
-     * 批量同步Redis中的文章浏览量到数据库
-     * 用于定时任务调用，确保数据库中的浏览量与Redis保持同步
-     * 
-     * @return 同步的文章数量
-     */
-    Mono<Integer> syncViewCountsToDatabase();
 } 
\ No newline at end of file
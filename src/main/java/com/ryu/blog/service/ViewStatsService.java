@@ -0,0 +1,75 @@
+package com.ryu.blog.service;
+
+import com.ryu.blog.entity.ViewStatsDimension;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * 浏览统计汇总服务接口
+ * 按小时、按天把浏览记录预聚合到汇总表，统计看板只查询汇总表
+ *
+ * @author ryu
+ */
+public interface ViewStatsService {
+
+    /**
+     * 从水位线开始汇总新的浏览记录，可重复执行
+     *
+     * @return 本次汇总的浏览记录数
+     */
+    Mono<Integer> rollup();
+
+    /**
+     * 清理超过保留期且已汇总的浏览记录，以及过期的小时汇总
+     * 启用冷数据归档时浏览记录由归档任务迁出，这里只清理小时汇总
+     *
+     * @return 删除的浏览记录数
+     */
+    Mono<Long> pruneExpired();
+
+    /**
+     * 获取汇总水位线
+     *
+     * @return 已汇总的最大浏览记录ID
+     */
+    Mono<Long> getWatermark();
+
+    /**
+     * 获取全站每天的浏览量，没有数据的日期为0
+     *
+     * @param from 开始日期
+     * @param to   结束日期
+     * @return 日期 -> 浏览量，按日期升序
+     */
+    Mono<Map<LocalDate, Long>> getDailySiteViews(LocalDate from, LocalDate to);
+
+    /**
+     * 获取全站累计浏览量
+     *
+     * @return 浏览量
+     */
+    Mono<Long> getTotalSiteViews();
+
+    /**
+     * 获取某个维度在日期区间内浏览量最高的取值
+     *
+     * @param dimension 维度
+     * @param from      开始日期
+     * @param to        结束日期
+     * @param limit     数量
+     * @return 维度值 -> 浏览量，按浏览量降序
+     */
+    Mono<Map<String, Long>> getTopValues(ViewStatsDimension dimension, LocalDate from, LocalDate to, int limit);
+
+    /**
+     * 合并每日草图，获取全站在日期区间内去重后的独立访客数
+     * 不受Redis独立访客键保留期限制，可用于长周期统计
+     *
+     * @param from 开始日期
+     * @param to   结束日期
+     * @return 独立访客数
+     */
+    Mono<Long> getSiteUniqueVisitors(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,34 @@
+package com.ryu.blog.service;
+
+import com.ryu.blog.entity.ViewStatsDimension;
+import com.ryu.blog.vo.ViewTopItemVO;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 浏览高频维度统计服务接口
+ * 使用有界的Space-Saving草图按时间桶统计设备、地区的Top-K，通过Redis快照跨节点合并
+ *
+ * @author ryu
+ */
+public interface ViewTopKService {
+
+    /**
+     * 获取最近一段时间内浏览量最高的维度值
+     *
+     * @param dimension 维度，支持设备和地区
+     * @param window    时间窗口，按时间桶向上取整
+     * @param k         数量
+     * @return 按估计浏览量降序排列的维度值
+     */
+    Mono<List<ViewTopItemVO>> getTop(ViewStatsDimension dimension, Duration window, int k);
+
+    /**
+     * 将本节点有变化的草图写入Redis，并淘汰超出保留期的本地时间桶
+     *
+     * @return 写入的草图数量
+     */
+    Mono<Integer> snapshot();
+}
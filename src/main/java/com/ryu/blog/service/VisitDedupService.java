@@ -0,0 +1,22 @@
+package com.ryu.blog.service;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 访问去重服务接口
+ * 判断同一访客在去重窗口内是否已访问过同一文章，集群内所有节点共享判定结果
+ *
+ * @author ryu
+ */
+public interface VisitDedupService {
+
+    /**
+     * 登记一次访问
+     * 无论是否重复都会记录到当前时间桶，连续访问会顺延去重窗口
+     *
+     * @param postId    文章ID
+     * @param visitorId 访客标识
+     * @return 是否为新访问（去重窗口内没有记录）
+     */
+    Mono<Boolean> markVisit(Long postId, String visitorId);
+}
@@ -0,0 +1,336 @@
+package com.ryu.blog.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ryu.blog.constant.CacheConstants;
+import com.ryu.blog.entity.PostCategory;
+import com.ryu.blog.entity.PostTag;
+import com.ryu.blog.exception.BusinessException;
+import com.ryu.blog.repository.PostCategoryRepository;
+import com.ryu.blog.repository.PostTagRepository;
+import com.ryu.blog.repository.PostsRepository;
+import com.ryu.blog.service.ArticleArchiveService;
+import com.ryu.blog.utils.ContentFingerprintUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 已删除文章归档服务实现类
+ * <p>
+ * 归档内容以 表名 -> 行列表 的JSON结构压缩后存入t_post_archive，
+ * 不依赖在线表的列顺序，表结构演进后仍可恢复。
+ * 清理阶段每条DELETE只删除一小批，并在批次之间暂停，避免长事务和主从延迟。
+ * 浏览记录行数随热度无上限增长，不进入快照（汇总表和列式归档中已有统计），只随文章一起分批清理。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class ArticleArchiveServiceImpl implements ArticleArchiveService {
+
+    /**
+     * 文章的关联表及其关联条件，按恢复顺序排列
+     */
+    private static final Map<String, String> DEPENDENT_TABLES = new LinkedHashMap<>();
+
+    static {
+        DEPENDENT_TABLES.put("t_post_categories", "post_id");
+        DEPENDENT_TABLES.put("t_post_tags", "post_id");
+        DEPENDENT_TABLES.put("t_post_versions", "post_id");
+        DEPENDENT_TABLES.put("t_comments", "post_id");
+        DEPENDENT_TABLES.put("t_favorites", "post_id");
+        DEPENDENT_TABLES.put("t_likes", "type = 1 AND target_id");
+    }
+
+    /**
+     * 只清理、不进入快照的关联表
+     */
+    private static final Map<String, String> PURGE_ONLY_TABLES = Map.of("t_view_history", "post_id");
+
+    private static final String POSTS_TABLE = "t_posts";
+
+    private final DatabaseClient databaseClient;
+    private final PostsRepository postsRepository;
+    private final PostCategoryRepository postCategoryRepository;
+    private final PostTagRepository postTagRepository;
+    private final ReactiveRedisTemplate<String, String> reactiveRedisTemplate;
+    private final CacheManager cacheManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionalOperator transactionalOperator;
+
+    private final int graceDays;
+    private final int archiveBatchSize;
+    private final int purgeBatchSize;
+    private final Duration purgeInterval;
+
+    public ArticleArchiveServiceImpl(DatabaseClient databaseClient,
+                                     PostsRepository postsRepository,
+                                     PostCategoryRepository postCategoryRepository,
+                                     PostTagRepository postTagRepository,
+                                     ReactiveRedisTemplate<String, String> reactiveRedisTemplate,
+                                     CacheManager cacheManager,
+                                     ObjectMapper objectMapper,
+                                     ReactiveTransactionManager transactionManager,
+                                     @Value("${app.retention.grace-days:30}") int graceDays,
+                                     @Value("${app.retention.archive-batch-size:20}") int archiveBatchSize,
+                                     @Value("${app.retention.purge-batch-size:500}") int purgeBatchSize,
+                                     @Value("${app.retention.purge-interval-ms:200}") long purgeIntervalMs) {
+        this.databaseClient = databaseClient;
+        this.postsRepository = postsRepository;
+        this.postCategoryRepository = postCategoryRepository;
+        this.postTagRepository = postTagRepository;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.cacheManager = cacheManager;
+        this.objectMapper = objectMapper;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+        this.graceDays = graceDays;
+        this.archiveBatchSize = archiveBatchSize;
+        this.purgeBatchSize = purgeBatchSize;
+        this.purgeInterval = Duration.ofMillis(purgeIntervalMs);
+    }
+
+    @Override
+    public Mono<Integer> archiveExpiredArticles() {
+        // 集群中只允许一个节点执行归档
+        return reactiveRedisTemplate.opsForValue()
+                .setIfAbsent(CacheConstants.POST_ARCHIVE_LOCK_KEY, "1", Duration.ofHours(1))
+                .flatMap(locked -> {
+                    if (!Boolean.TRUE.equals(locked)) {
+                        log.debug("归档任务正在其他节点执行，跳过");
+                        return Mono.just(0);
+                    }
+                    return findExpiredArticleIds()
+                            .concatMap(articleId -> archiveArticle(articleId)
+                                    .then(purgeArticle(articleId))
+                                    .thenReturn(1)
+                                    .onErrorResume(e -> {
+                                        log.error("归档文章失败: 文章ID={}, 错误={}", articleId, e.getMessage());
+                                        return Mono.just(0);
+                                    }))
+                            .reduce(0, Integer::sum)
+                            // 无论成功、失败还是取消都释放锁，避免下次调度被锁住一小时
+                            .doFinally(signal -> reactiveRedisTemplate.delete(CacheConstants.POST_ARCHIVE_LOCK_KEY)
+                                    .onErrorResume(e -> {
+                                        log.warn("释放归档锁失败: {}", e.getMessage());
+                                        return Mono.empty();
+                                    })
+                                    .subscribe());
+                })
+                .doOnSuccess(count -> log.info("已删除文章归档完成: 数量={}", count));
+    }
+
+    @Override
+    public Mono<Void> restoreArticle(Long articleId) {
+        log.info("恢复已删除文章: ID={}", articleId);
+
+        return databaseClient.sql("SELECT payload FROM t_post_archive WHERE post_id = :postId")
+                .bind("postId", articleId)
+                .map((row, metadata) -> row.get("payload", byte[].class))
+                .one()
+                .flatMap(payload -> restoreFromPayload(articleId, decode(payload)))
+                // 尚未归档的软删除文章直接取消删除标记
+                .switchIfEmpty(Mono.defer(() -> undelete(articleId)
+                        .flatMap(updated -> updated > 0 ? Mono.just(updated) : Mono.error(BusinessException.postArchiveNotFound()))))
+                .then(refreshContentHash(articleId))
+                .then(Mono.fromRunnable(this::evictListCaches))
+                .then()
+                .doOnSuccess(v -> log.info("文章恢复成功: ID={}", articleId))
+                .doOnError(e -> log.error("文章恢复失败: ID={}, 错误={}", articleId, e.getMessage()));
+    }
+
+    /**
+     * 查询超过保留期的已删除文章
+     */
+    private Flux<Long> findExpiredArticleIds() {
+        return databaseClient.sql("SELECT id FROM t_posts WHERE is_deleted = 1 AND update_time < :deadline " +
+                        "ORDER BY id LIMIT :limit")
+                .bind("deadline", LocalDateTime.now().minusDays(graceDays))
+                .bind("limit", archiveBatchSize)
+                .map((row, metadata) -> row.get("id", Long.class))
+                .all();
+    }
+
+    /**
+     * 将文章及关联数据写入归档表
+     * 已存在归档记录说明上次清理未完成，此时保留旧归档，避免用残缺数据覆盖
+     */
+    private Mono<Void> archiveArticle(Long articleId) {
+        Map<String, String> tables = new LinkedHashMap<>();
+        tables.put(POSTS_TABLE, "id");
+        tables.putAll(DEPENDENT_TABLES);
+
+        return Flux.fromIterable(tables.entrySet())
+                .concatMap(entry -> databaseClient.sql("SELECT * FROM " + entry.getKey() +
+                                " WHERE " + entry.getValue() + " = :postId")
+                        .bind("postId", articleId)
+                        .fetch()
+                        .all()
+                        .collectList()
+                        .map(rows -> Map.entry(entry.getKey(), rows)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new)
+                .flatMap(snapshot -> {
+                    List<Map<String, Object>> postRows = snapshot.get(POSTS_TABLE);
+                    String title = postRows.isEmpty() ? null : String.valueOf(postRows.get(0).get("title"));
+                    int rowCount = snapshot.values().stream().mapToInt(List::size).sum();
+                    return databaseClient.sql("INSERT IGNORE INTO t_post_archive (post_id, title, payload, row_count, archive_time) " +
+                                    "VALUES (:postId, :title, :payload, :rowCount, NOW())")
+                            .bind("postId", articleId)
+                            .bind("title", title != null ? title : "")
+                            .bind("payload", encode(snapshot))
+                            .bind("rowCount", rowCount)
+                            .fetch()
+                            .rowsUpdated()
+                            .doOnSuccess(inserted -> log.debug("文章归档写入: 文章ID={}, 行数={}, 新增={}", articleId, rowCount, inserted));
+                })
+                .then();
+    }
+
+    /**
+     * 分批限速清理文章关联数据，最后删除文章本身
+     */
+    private Mono<Void> purgeArticle(Long articleId) {
+        return Flux.concat(Flux.fromIterable(DEPENDENT_TABLES.entrySet()), Flux.fromIterable(PURGE_ONLY_TABLES.entrySet()))
+                .concatMap(entry -> purgeTable(entry.getKey(), entry.getValue(), articleId))
+                .then(purgeTable(POSTS_TABLE, "is_deleted = 1 AND id", articleId))
+                .then(databaseClient.sql("UPDATE t_post_archive SET purge_time = NOW() WHERE post_id = :postId")
+                        .bind("postId", articleId)
+                        .fetch()
+                        .rowsUpdated())
+                .then();
+    }
+
+    private Mono<Long> purgeTable(String table, String condition, Long articleId) {
+        String sql = "DELETE FROM " + table + " WHERE " + condition + " = " + articleId + " LIMIT " + purgeBatchSize;
+        return deleteBatch(sql)
+                .expand(deleted -> deleted < purgeBatchSize
+                        ? Mono.empty()
+                        : Mono.delay(purgeInterval).then(deleteBatch(sql)))
+                .reduce(0L, Long::sum)
+                .doOnSuccess(total -> {
+                    if (total > 0) {
+                        log.debug("清理归档数据: 表={}, 文章ID={}, 删除行数={}", table, articleId, total);
+                    }
+                });
+    }
+
+    private Mono<Long> deleteBatch(String sql) {
+        return databaseClient.sql(sql).fetch().rowsUpdated();
+    }
+
+    /**
+     * 在同一事务中回写归档数据并删除归档记录
+     */
+    private Mono<Long> restoreFromPayload(Long articleId, Map<String, List<Map<String, Object>>> snapshot) {
+        Mono<Long> restore = Flux.fromIterable(snapshot.entrySet())
+                .concatMap(entry -> Flux.fromIterable(entry.getValue())
+                        .concatMap(row -> insertRow(entry.getKey(), row)))
+                .reduce(0L, Long::sum)
+                .flatMap(inserted -> undelete(articleId).thenReturn(inserted))
+                .flatMap(inserted -> databaseClient.sql("DELETE FROM t_post_archive WHERE post_id = :postId")
+                        .bind("postId", articleId)
+                        .fetch()
+                        .rowsUpdated()
+                        .thenReturn(inserted))
+                .doOnSuccess(inserted -> log.debug("归档数据回写完成: 文章ID={}, 行数={}", articleId, inserted));
+        return transactionalOperator.transactional(restore);
+    }
+
+    /**
+     * 按列名动态生成INSERT，已存在的行（清理未完成时）会被忽略
+     */
+    private Mono<Long> insertRow(String table, Map<String, Object> row) {
+        if (!POSTS_TABLE.equals(table) && !DEPENDENT_TABLES.containsKey(table)) {
+            return Mono.just(0L);
+        }
+        List<String> columns = new ArrayList<>(row.keySet());
+        StringBuilder sql = new StringBuilder("INSERT IGNORE INTO ").append(table).append(" (");
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+                values.append(", ");
+            }
+            sql.append('`').append(columns.get(i).replace("`", "")).append('`');
+            values.append(":c").append(i);
+        }
+        sql.append(") VALUES (").append(values).append(')');
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < columns.size(); i++) {
+            Object value = row.get(columns.get(i));
+            spec = value == null ? spec.bindNull("c" + i, String.class) : spec.bind("c" + i, value);
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    private Mono<Long> undelete(Long articleId) {
+        return databaseClient.sql("UPDATE t_posts SET is_deleted = 0, update_time = NOW() WHERE id = :postId AND is_deleted = 1")
+                .bind("postId", articleId)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * 删除时分类关联已被移除，归档快照中的指纹也可能早于当前算法，恢复后按实际状态重算
+     */
+    private Mono<Void> refreshContentHash(Long articleId) {
+        return Mono.zip(
+                        postsRepository.findById(articleId),
+                        postCategoryRepository.findByPostId(articleId).map(PostCategory::getCategoryId).collectList(),
+                        postTagRepository.findByPostId(articleId).map(PostTag::getTagId).collectList())
+                .flatMap(state -> postsRepository.updateContentHash(articleId,
+                        ContentFingerprintUtils.storedArticleFingerprint(state.getT1(), state.getT2(), state.getT3())))
+                .then();
+    }
+
+    private void evictListCaches() {
+        for (String cacheName : List.of(CacheConstants.POST_FRONT_CACHE_NAME,
+                CacheConstants.POST_ADMIN_CACHE_NAME, CacheConstants.POST_HOT_CACHE_NAME)) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private byte[] encode(Map<String, List<Map<String, Object>>> snapshot) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            objectMapper.writeValue(gzip, snapshot);
+        } catch (IOException e) {
+            throw new UncheckedIOException("归档数据序列化失败", e);
+        }
+        return out.toByteArray();
+    }
+
+    private Map<String, List<Map<String, Object>>> decode(byte[] payload) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return objectMapper.readValue(gzip, new TypeReference<LinkedHashMap<String, List<Map<String, Object>>>>() {
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("归档数据解析失败", e);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.ryu.blog.service.impl;
+
+import cn.hutool.core.util.IdUtil;
+import com.ryu.blog.constant.CacheConstants;
+import com.ryu.blog.repository.PostsRepository;
+import com.ryu.blog.service.ArticlePublishService;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文章定时发布服务实现类
+ * <p>
+ * 所有待发布文章的计划时间都登记在内存时间轮中，到点后先抢占Redis锁，
+ * 再通过条件UPDATE发布，保证集群中只有一个节点真正执行发布。
+ * 计划变更通过Redis频道广播，应用启动时从t_posts重新加载，频道断线重连后补偿扫描一次断线期间遗漏的计划，
+ * 不做周期性扫描。发布失败时释放锁并按指数退避重新登记；抢锁失败时在锁过期后再检查一次，
+ * 持有锁的节点中途宕机时由其他节点接手，已发布的文章由条件UPDATE跳过。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class ArticlePublishServiceImpl implements ArticlePublishService,
+        ApplicationListener<ApplicationStartedEvent>, DisposableBean {
+
+    private static final String SCHEDULE_ACTION = "S";
+    private static final String CANCEL_ACTION = "C";
+
+    /**
+     * 仅当锁仍由当前节点持有时才删除，避免误删其他节点在锁过期后重新获取的锁
+     */
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = RedisScript.of(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final PostsRepository postsRepository;
+    private final ReactiveRedisTemplate<String, String> reactiveRedisTemplate;
+    private final CacheManager cacheManager;
+    private final HashedWheelTimer wheelTimer;
+    private final Duration lockTtl;
+    private final long retryBaseMillis;
+    private final long retryMaxMillis;
+
+    /**
+     * 当前节点标识，用于忽略自己发出的广播
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    /**
+     * 文章ID -> 时间轮中的任务
+     */
+    private final Map<Long, Timeout> pendingTimeouts = new ConcurrentHashMap<>();
+
+    private volatile Disposable channelSubscription;
+
+    public ArticlePublishServiceImpl(PostsRepository postsRepository,
+                                     ReactiveRedisTemplate<String, String> reactiveRedisTemplate,
+                                     CacheManager cacheManager,
+                                     @Value("${app.schedule.publish.tick-millis:100}") long tickMillis,
+                                     @Value("${app.schedule.publish.ticks-per-wheel:512}") int ticksPerWheel,
+                                     @Value("${app.schedule.publish.lock-ttl-seconds:30}") long lockTtlSeconds,
+                                     @Value("${app.schedule.publish.retry-base-millis:1000}") long retryBaseMillis,
+                                     @Value("${app.schedule.publish.retry-max-millis:60000}") long retryMaxMillis) {
+        this.postsRepository = postsRepository;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.cacheManager = cacheManager;
+        this.wheelTimer = new HashedWheelTimer(new DefaultThreadFactory("post-publish-wheel", true),
+                tickMillis, TimeUnit.MILLISECONDS, ticksPerWheel);
+        this.lockTtl = Duration.ofSeconds(lockTtlSeconds);
+        this.retryBaseMillis = retryBaseMillis;
+        this.retryMaxMillis = retryMaxMillis;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationStartedEvent event) {
+        // 订阅集群内的计划变更广播
+        channelSubscription = reactiveRedisTemplate.listenToChannel(CacheConstants.POST_PUBLISH_CHANNEL)
+                .doOnNext(message -> handleBroadcast(message.getMessage()))
+                .doOnError(e -> log.error("订阅定时发布频道失败: {}", e.getMessage()))
+                .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, Duration.ofSeconds(5))
+                        .doAfterRetry(signal -> catchUp()
+                                .subscribe(count -> log.info("定时发布频道重连，补偿登记 {} 篇文章", count),
+                                        e -> log.error("定时发布补偿扫描失败: {}", e.getMessage()))))
+                .subscribe();
+
+        reloadSchedules()
+                .doOnSuccess(count -> log.info("定时发布计划加载完成，共 {} 篇待发布文章", count))
+                .doOnError(e -> log.error("定时发布计划加载失败: {}", e.getMessage()))
+                .subscribe();
+    }
+
+    @Override
+    public Mono<Void> schedule(Long articleId, LocalDateTime publishTime) {
+        if (articleId == null || publishTime == null) {
+            return Mono.empty();
+        }
+        long publishAt = toEpochMillis(publishTime);
+        registerLocal(articleId, publishAt);
+        return broadcast(SCHEDULE_ACTION + ":" + articleId + ":" + publishAt);
+    }
+
+    @Override
+    public Mono<Void> cancel(Long articleId) {
+        if (articleId == null) {
+            return Mono.empty();
+        }
+        boolean removed = cancelLocal(articleId);
+        // 本节点没有计划时无需广播，避免每次普通编辑都产生一条消息
+        return removed ? broadcast(CANCEL_ACTION + ":" + articleId) : Mono.empty();
+    }
+
+    @Override
+    public Mono<Integer> reloadSchedules() {
+        return postsRepository.findScheduledPosts()
+                .doOnNext(post -> registerLocal(post.getId(), toEpochMillis(post.getScheduleTime())))
+                .count()
+                .map(Long::intValue);
+    }
+
+    @Override
+    public Mono<Integer> catchUp() {
+        long now = System.currentTimeMillis();
+        return postsRepository.findScheduledPosts()
+                .filter(post -> !pendingTimeouts.containsKey(post.getId()))
+                .doOnNext(post -> {
+                    long publishAt = toEpochMillis(post.getScheduleTime());
+                    if (publishAt <= now) {
+                        log.warn("补偿扫描发现逾期未发布文章: 文章ID={}, 计划时间={}", post.getId(), post.getScheduleTime());
+                    }
+                    registerLocal(post.getId(), publishAt);
+                })
+                .count()
+                .map(Long::intValue);
+    }
+
+    @Override
+    public void destroy() {
+        if (channelSubscription != null) {
+            channelSubscription.dispose();
+        }
+        wheelTimer.stop();
+        log.info("定时发布时间轮已停止，未触发计划 {} 个将在下次启动时重新加载", pendingTimeouts.size());
+    }
+
+    /**
+     * 在本地时间轮中登记发布计划，已存在的计划会被替换
+     */
+    private void registerLocal(Long articleId, long publishAt) {
+        long delay = Math.max(0, publishAt - System.currentTimeMillis());
+        Timeout timeout = wheelTimer.newTimeout(t -> fire(articleId, t, 0), delay, TimeUnit.MILLISECONDS);
+        Timeout previous = pendingTimeouts.put(articleId, timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+        log.debug("登记定时发布计划: 文章ID={}, 延迟={}ms", articleId, delay);
+    }
+
+    private boolean cancelLocal(Long articleId) {
+        Timeout previous = pendingTimeouts.remove(articleId);
+        if (previous != null) {
+            previous.cancel();
+            log.debug("取消定时发布计划: 文章ID={}", articleId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 时间轮到点回调：抢锁 -> 条件发布 -> 定向清理缓存 -> 释放锁，失败时按退避重新登记
+     */
+    private void fire(Long articleId, Timeout timeout, int attempt) {
+        String lockKey = CacheConstants.POST_PUBLISH_LOCK_KEY + articleId;
+        reactiveRedisTemplate.opsForValue().setIfAbsent(lockKey, nodeId, lockTtl)
+                // Redis不可用时退化为依赖条件UPDATE保证只发布一次
+                .onErrorResume(e -> {
+                    log.warn("获取定时发布锁失败，退化为数据库条件更新: 文章ID={}, 错误={}", articleId, e.getMessage());
+                    return Mono.just(true);
+                })
+                .flatMap(locked -> {
+                    if (!Boolean.TRUE.equals(locked)) {
+                        // 其他节点正在发布：锁过期后再检查一次，持有者中途宕机时由本节点接手
+                        reschedule(articleId, timeout, attempt, lockTtl.toMillis());
+                        return Mono.<Integer>empty();
+                    }
+                    return postsRepository.publishScheduledPost(articleId, LocalDateTime.now())
+                            .filter(updated -> updated > 0)
+                            .flatMap(updated -> evictPublishedCaches(articleId).thenReturn(updated))
+                            .doFinally(signal -> releaseLock(lockKey));
+                })
+                .subscribe(
+                        updated -> {
+                            pendingTimeouts.remove(articleId, timeout);
+                            log.info("定时发布文章成功: 文章ID={}", articleId);
+                        },
+                        e -> {
+                            log.error("定时发布文章失败: 文章ID={}, 第{}次, 错误={}", articleId, attempt + 1, e.getMessage());
+                            retryLater(articleId, timeout, attempt + 1);
+                        },
+                        () -> pendingTimeouts.remove(articleId, timeout)
+                );
+    }
+
+    /**
+     * 发布失败后按指数退避重新登记，期间计划被取消或替换则放弃重试
+     */
+    private void retryLater(Long articleId, Timeout failed, int attempt) {
+        reschedule(articleId, failed, attempt, Math.min(retryMaxMillis, retryBaseMillis << Math.min(attempt - 1, 16)));
+    }
+
+    /**
+     * 用新的延迟替换本次触发的计划，期间计划被取消或替换则放弃
+     */
+    private void reschedule(Long articleId, Timeout current, int attempt, long delayMillis) {
+        Timeout next = wheelTimer.newTimeout(t -> fire(articleId, t, attempt), delayMillis, TimeUnit.MILLISECONDS);
+        if (!pendingTimeouts.replace(articleId, current, next)) {
+            next.cancel();
+        }
+    }
+
+    private void releaseLock(String lockKey) {
+        reactiveRedisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(lockKey), List.of(nodeId))
+                .onErrorResume(e -> {
+                    log.warn("释放定时发布锁失败: {}, 错误={}", lockKey, e.getMessage());
+                    return Mono.empty();
+                })
+                .subscribe();
+    }
+
+    /**
+     * 只清理受发布影响的缓存：该文章详情、前台列表和后台列表
+     */
+    private Mono<Void> evictPublishedCaches(Long articleId) {
+        return reactiveRedisTemplate.delete(CacheConstants.POST_DETAIL_REDIS_KEY + articleId)
+                .then(Mono.fromRunnable(() -> {
+                    Cache detailCache = cacheManager.getCache(CacheConstants.POST_DETAIL_CACHE_NAME);
+                    if (detailCache != null) {
+                        detailCache.evict(CacheConstants.POST_DETAIL_KEY + articleId);
+                    }
+                    Cache frontCache = cacheManager.getCache(CacheConstants.POST_FRONT_CACHE_NAME);
+                    if (frontCache != null) {
+                        frontCache.clear();
+                    }
+                    Cache adminCache = cacheManager.getCache(CacheConstants.POST_ADMIN_CACHE_NAME);
+                    if (adminCache != null) {
+                        adminCache.clear();
+                    }
+                }));
+    }
+
+    private Mono<Void> broadcast(String payload) {
+        return reactiveRedisTemplate.convertAndSend(CacheConstants.POST_PUBLISH_CHANNEL, payload + ":" + nodeId)
+                .doOnError(e -> log.warn("广播定时发布计划失败: {}, 错误={}", payload, e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * 处理其他节点广播的计划变更，格式为 动作:文章ID[:发布时间]:节点ID
+     */
+    private void handleBroadcast(String message) {
+        String[] parts = message.split(":");
+        if (parts.length < 3 || nodeId.equals(parts[parts.length - 1])) {
+            return;
+        }
+        try {
+            Long articleId = Long.parseLong(parts[1]);
+            if (SCHEDULE_ACTION.equals(parts[0]) && parts.length == 4) {
+                registerLocal(articleId, Long.parseLong(parts[2]));
+            } else if (CANCEL_ACTION.equals(parts[0])) {
+                cancelLocal(articleId);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("忽略格式错误的定时发布广播: {}", message);
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
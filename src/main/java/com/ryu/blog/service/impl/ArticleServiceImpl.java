@@ -12,23 +12,30 @@ import com.ryu.blog.dto.PostCreateDTO;
 import com.ryu.blog.dto.PostStatusDTO;
 import com.ryu.blog.dto.PostUpdateDTO;
 import com.ryu.blog.entity.*;
+import com.ryu.blog.exception.ArticleConflictException;
 import com.ryu.blog.exception.BusinessException;
 import com.ryu.blog.mapper.PostMapper;
 import com.ryu.blog.repository.*;
+import com.ryu.blog.service.ArticlePublishService;
 import com.ryu.blog.service.ArticleService;
 import com.ryu.blog.service.ArticleVersionService;
 import com.ryu.blog.service.ContentService;
 import com.ryu.blog.service.FileService;
+import com.ryu.blog.service.PostCounterService;
 import com.ryu.blog.service.ViewHistoryService;
+import com.ryu.blog.utils.ContentFingerprintUtils;
 import com.ryu.blog.utils.MarkdownUtils;
 import com.ryu.blog.vo.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
@@ -77,9 +84,11 @@ public class ArticleServiceImpl implements ArticleService {
     private final FileService fileService;
     private final CacheManager cacheManager;
     private final ViewHistoryService viewHistoryService;
+    private final ArticlePublishService articlePublishService;
+    private final PostCounterService postCounterService;
 
     private static final String HOT_ARTICLES_KEY = "hot:articles";
-    private static final String ARTICLE_DETAIL_KEY = "article:detail:";
+    private static final String ARTICLE_DETAIL_KEY = CacheConstants.POST_DETAIL_REDIS_KEY;
     private static final Duration ARTICLE_DETAIL_CACHE_TTL = Duration.ofHours(2);
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
@@ -217,10 +226,14 @@ public class ArticleServiceImpl implements ArticleService {
             articleMono = contentService.generateExcerpt(articleCreateDTO.getContent(), 200)
                     .flatMap(generatedExcerpt -> {
                         article.setExcerpt(generatedExcerpt);
+                        article.setContentHash(computeArticleFingerprint(article,
+                                articleCreateDTO.getCategoryId(), articleCreateDTO.getTagsIds()));
                         return postsRepository.save(article);
                     });
         } else {
             // 直接保存文章
+            article.setContentHash(computeArticleFingerprint(article,
+                    articleCreateDTO.getCategoryId(), articleCreateDTO.getTagsIds()));
             articleMono = postsRepository.save(article);
         }
 
@@ -256,78 +269,221 @@ public class ArticleServiceImpl implements ArticleService {
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(cacheNames = CacheConstants.POST_DETAIL_CACHE_NAME, key = "'" + CacheConstants.POST_DETAIL_KEY + "' + #articleUpdateDTO.id"),
-            @CacheEvict(cacheNames = CacheConstants.POST_FRONT_CACHE_NAME, allEntries = true),
-            @CacheEvict(cacheNames = CacheConstants.POST_HOT_CACHE_NAME, allEntries = true),
-            @CacheEvict(cacheNames = CacheConstants.POST_CACHE_NAME, key = "'" + CacheConstants.POST_RELATED_KEY + "' + #articleUpdateDTO.id + ':*'"),
-            @CacheEvict(cacheNames = CacheConstants.POST_ADMIN_CACHE_NAME, allEntries = true)
-    })
     public Mono<Posts> updateArticle(PostUpdateDTO articleUpdateDTO) {
         log.info("根据DTO更新文章: ID={}", articleUpdateDTO.getId());
 
         return postsRepository.findById(articleUpdateDTO.getId())
                 .switchIfEmpty(Mono.error(BusinessException.postNotFound()))
                 .flatMap(existingArticle -> {
-                    // 保存旧内容作为比较
-                    String oldContent = existingArticle.getContent();
+                    // 在副本上应用更新，保留原文章用于比较
+                    Posts candidate = new Posts();
+                    BeanUtils.copyProperties(existingArticle, candidate);
 
                     // 使用MapStruct更新实体
-                    postMapper.updateEntityFromDTO(articleUpdateDTO, existingArticle);
-
-                    // 设置更新时间
-                    existingArticle.setUpdateTime(LocalDateTime.now());
-
+                    postMapper.updateEntityFromDTO(articleUpdateDTO, candidate);
 
                     // 更新SEO信息
                     String seoMeta = processSeoMetadata(articleUpdateDTO.getSeoTitle(), articleUpdateDTO.getSeoDescription());
                     if (seoMeta != null) {
-                        existingArticle.setSeoMeta(seoMeta);
+                        candidate.setSeoMeta(seoMeta);
                     }
 
                     // 如果文章状态是已发布，设置发布时间
                     if (articleUpdateDTO.getStatus() != null &&
                             articleUpdateDTO.getStatus() == Posts.Status.PUBLISHED &&
-                            existingArticle.getPublishTime() == null) {
-                        existingArticle.setPublishTime(LocalDateTime.now());
+                            candidate.getPublishTime() == null) {
+                        candidate.setPublishTime(LocalDateTime.now());
                     }
 
-                    // 保存更新后的文章
-                    return postsRepository.save(existingArticle)
-                            .flatMap(updatedArticle -> {
-                                // 创建一个Mono列表，用于保存所有操作
-                                List<Mono<?>> operations = new ArrayList<>();
-
-                                // 处理分类关联
-                                if (articleUpdateDTO.getCategoryId() != null) {
-                                    operations.add(
-                                            removeAllArticleCategories(updatedArticle.getId())
-                                                    .then(addArticleCategory(updatedArticle.getId(), articleUpdateDTO.getCategoryId()))
-                                    );
-                                }
+                    String rowHash = ContentFingerprintUtils.rowFingerprint(candidate);
+                    boolean lifecycleChanged = !Objects.equals(existingArticle.getStatus(), candidate.getStatus())
+                            || !Objects.equals(existingArticle.getScheduleTime(), candidate.getScheduleTime());
+                    List<Long> submittedTagIds = parseTagIds(articleUpdateDTO.getTagsIds());
 
-                                // 处理标签关联
-                                if (articleUpdateDTO.getTagsIds() != null) {
-                                    operations.add(
-                                            addArticleTags(updatedArticle.getId(), articleUpdateDTO.getTagsIds())
-                                    );
-                                }
-
-                                // 如果内容发生变更，创建新版本
-                                if (!oldContent.equals(updatedArticle.getContent())) {
-                                    log.debug("创建文章新版本: 文章ID: {}", updatedArticle.getId());
-                                    operations.add(articleVersionService.createVersion(updatedArticle, "内容更新"));
-                                }
-
-                                // 并行执行所有操作
-                                return Mono.when(operations)
-                                        .thenReturn(updatedArticle);
-                            });
+                    // 读取当前分类和标签，逐项比较后只写入变化的部分。
+                    // 不用已存储的content_hash做捷径：标签、分类接口修改关联时不会重算它，与旧指纹一致不代表关联未变
+                    return Mono.zip(
+                                    getArticleCategoryIds(existingArticle.getId()).collectList(),
+                                    postTagRepository.findByPostId(existingArticle.getId()).map(PostTag::getTagId).collectList())
+                            .flatMap(current -> applyArticleChanges(existingArticle, candidate, articleUpdateDTO,
+                                    rowHash, lifecycleChanged, submittedTagIds, current.getT1(), current.getT2()));
                 })
                 .doOnSuccess(updatedArticle -> log.info("文章更新成功: ID={}, 标题={}", updatedArticle.getId(), updatedArticle.getTitle()))
                 .doOnError(e -> log.error("文章更新失败: ID={}, 错误信息={}", articleUpdateDTO.getId(), e.getMessage()));
     }
 
+    /**
+     * 按指纹差异写入文章变化的部分
+     *
+     * @param existingArticle   数据库中的文章
+     * @param candidate         应用更新后的文章
+     * @param articleUpdateDTO  文章更新DTO
+     * @param rowHash           更新后的行指纹
+     * @param lifecycleChanged  状态或定时发布时间是否变化
+     * @param submittedTagIds   提交的标签ID，null表示不修改标签
+     * @param currentCategoryIds 当前分类ID
+     * @param currentTagIds     当前标签ID
+     * @return 更新后的文章
+     */
+    private Mono<Posts> applyArticleChanges(Posts existingArticle, Posts candidate, PostUpdateDTO articleUpdateDTO,
+                                            String rowHash, boolean lifecycleChanged, List<Long> submittedTagIds,
+                                            List<Long> currentCategoryIds, List<Long> currentTagIds) {
+        Long articleId = existingArticle.getId();
+        Long targetCategoryId = articleUpdateDTO.getCategoryId() != null ? articleUpdateDTO.getCategoryId()
+                : (currentCategoryIds.isEmpty() ? null : currentCategoryIds.get(0));
+        List<Long> targetTagIds = submittedTagIds != null ? submittedTagIds : currentTagIds;
+        String targetTagsHash = ContentFingerprintUtils.tagsFingerprint(targetTagIds);
+
+        boolean rowChanged = lifecycleChanged || !rowHash.equals(ContentFingerprintUtils.rowFingerprint(existingArticle));
+        boolean categoryChanged = articleUpdateDTO.getCategoryId() != null
+                && !(currentCategoryIds.size() == 1 && currentCategoryIds.get(0).equals(articleUpdateDTO.getCategoryId()));
+        boolean tagsChanged = submittedTagIds != null
+                && !targetTagsHash.equals(ContentFingerprintUtils.tagsFingerprint(currentTagIds));
+        boolean contentChanged = !ContentFingerprintUtils.contentFingerprint(
+                        existingArticle.getTitle(), existingArticle.getContent(), existingArticle.getExcerpt())
+                .equals(ContentFingerprintUtils.contentFingerprint(
+                        candidate.getTitle(), candidate.getContent(), candidate.getExcerpt()));
+        String articleHash = ContentFingerprintUtils.articleFingerprint(rowHash, targetCategoryId, targetTagsHash);
+
+        if (!rowChanged && !categoryChanged && !tagsChanged) {
+            log.debug("文章内容未变化，跳过更新: ID={}", articleId);
+            // 指纹缺失或已过期（关联被其他接口修改过）时补写
+            return articleHash.equals(existingArticle.getContentHash())
+                    ? Mono.just(existingArticle)
+                    : postsRepository.updateContentHash(articleId, articleHash).thenReturn(existingArticle);
+        }
+
+        // 编辑期间文章已被其他人修改，直接返回冲突而不是覆盖对方的修改
+        Long expectedVersion = existingArticle.getLockVersion();
+        if (articleUpdateDTO.getLockVersion() != null && !articleUpdateDTO.getLockVersion().equals(expectedVersion)) {
+            return versionConflict(articleId, articleUpdateDTO.getLockVersion());
+        }
+
+        log.debug("文章变更: ID={}, 文章行={}, 分类={}, 标签={}, 正文={}",
+                articleId, rowChanged, categoryChanged, tagsChanged, contentChanged);
+
+        candidate.setContentHash(articleHash);
+        candidate.setUpdateTime(LocalDateTime.now());
+        Mono<Posts> saveMono;
+        if (rowChanged) {
+            // @Version字段使保存变为 WHERE lock_version = :v 的条件更新，读取之后的并发修改在这里被拦截
+            saveMono = postsRepository.save(candidate)
+                    .onErrorResume(OptimisticLockingFailureException.class,
+                            e -> versionConflict(articleId, expectedVersion));
+        } else {
+            saveMono = postsRepository.touchArticle(articleId, expectedVersion, articleHash, candidate.getUpdateTime())
+                    .flatMap(updated -> {
+                        if (updated == 0) {
+                            return versionConflict(articleId, expectedVersion);
+                        }
+                        candidate.setLockVersion(expectedVersion + 1);
+                        return Mono.just(candidate);
+                    });
+        }
+
+        return saveMono.flatMap(updatedArticle -> {
+            List<Mono<?>> operations = new ArrayList<>();
+
+            if (categoryChanged) {
+                operations.add(removeAllArticleCategories(articleId)
+                        .then(addArticleCategory(articleId, articleUpdateDTO.getCategoryId())));
+            }
+            if (tagsChanged) {
+                operations.add(addArticleTags(articleId, articleUpdateDTO.getTagsIds()));
+            }
+            if (lifecycleChanged) {
+                operations.add(syncPublishSchedule(updatedArticle));
+            }
+            if (contentChanged) {
+                log.debug("创建文章新版本: 文章ID: {}", articleId);
+                operations.add(articleVersionService.createVersion(updatedArticle, "内容更新"));
+            }
+
+            return Mono.when(operations)
+                    .then(evictArticleCaches(articleId))
+                    .thenReturn(updatedArticle);
+        });
+    }
+
+    /**
+     * 构建文章编辑冲突，携带服务器当前的版本信息
+     *
+     * @param articleId        文章ID
+     * @param submittedVersion 提交的版本号
+     * @return 冲突异常
+     */
+    private Mono<Posts> versionConflict(Long articleId, Long submittedVersion) {
+        return postsRepository.findById(articleId)
+                .switchIfEmpty(Mono.error(BusinessException.postNotFound()))
+                .flatMap(current -> {
+                    log.warn("文章编辑冲突: ID={}, 提交版本={}, 当前版本={}",
+                            articleId, submittedVersion, current.getLockVersion());
+                    return Mono.error(new ArticleConflictException(new ArticleConflictVO(articleId,
+                            submittedVersion, current.getLockVersion(), current.getTitle(), current.getUpdateTime())));
+                });
+    }
+
+    /**
+     * 解析提交的标签ID，格式错误的ID会被忽略
+     *
+     * @param tagIds 标签ID字符串列表
+     * @return 标签ID列表，未提交标签时返回null
+     */
+    private List<Long> parseTagIds(List<String> tagIds) {
+        if (tagIds == null) {
+            return null;
+        }
+        List<Long> result = new ArrayList<>(tagIds.size());
+        for (String tagId : tagIds) {
+            try {
+                result.add(Long.parseLong(tagId));
+            } catch (NumberFormatException e) {
+                log.warn("标签ID格式错误: {}, 将被忽略", tagId);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 计算新建文章的整体指纹
+     *
+     * @param article    文章
+     * @param categoryId 分类ID
+     * @param tagIds     标签ID字符串列表
+     * @return 指纹
+     */
+    private String computeArticleFingerprint(Posts article, Long categoryId, List<String> tagIds) {
+        List<Long> parsedTagIds = parseTagIds(tagIds);
+        return ContentFingerprintUtils.articleFingerprint(
+                ContentFingerprintUtils.rowFingerprint(article),
+                categoryId,
+                ContentFingerprintUtils.tagsFingerprint(parsedTagIds != null ? parsedTagIds : Collections.emptyList()));
+    }
+
+    /**
+     * 清除文章更新影响的缓存：该文章详情以及包含文章的列表缓存
+     *
+     * @param articleId 文章ID
+     * @return 完成信号
+     */
+    private Mono<Void> evictArticleCaches(Long articleId) {
+        return reactiveRedisTemplate.delete(ARTICLE_DETAIL_KEY + articleId)
+                .then(Mono.fromRunnable(() -> {
+                    Cache detailCache = cacheManager.getCache(CacheConstants.POST_DETAIL_CACHE_NAME);
+                    if (detailCache != null) {
+                        detailCache.evict(CacheConstants.POST_DETAIL_KEY + articleId);
+                    }
+                    for (String cacheName : List.of(CacheConstants.POST_FRONT_CACHE_NAME, CacheConstants.POST_HOT_CACHE_NAME,
+                            CacheConstants.POST_CACHE_NAME, CacheConstants.POST_ADMIN_CACHE_NAME)) {
+                        Cache cache = cacheManager.getCache(cacheName);
+                        if (cache != null) {
+                            cache.clear();
+                        }
+                    }
+                }))
+                .then();
+    }
+
     @Override
     @Transactional
     @Caching(evict = {
@@ -354,12 +510,26 @@ public class ArticleServiceImpl implements ArticleService {
                         existingArticle.setPublishTime(LocalDateTime.now());
                     }
 
-                    return postsRepository.save(existingArticle);
+                    return postsRepository.save(existingArticle)
+                            .flatMap(updatedArticle -> syncPublishSchedule(updatedArticle).thenReturn(updatedArticle));
                 })
                 .doOnSuccess(updatedArticle -> log.info("文章状态更新成功: ID={}, 状态={}", updatedArticle.getId(), updatedArticle.getStatus()))
                 .doOnError(e -> log.error("文章状态更新失败: ID={}, 错误信息={}", statusDTO.getId(), e.getMessage()));
     }
 
+    /**
+     * 根据文章当前状态同步定时发布计划
+     * 待发布且设置了发布时间的文章登记到时间轮，其余情况取消已有计划
+     *
+     * @param article 文章
+     * @return 完成信号
+     */
+    private Mono<Void> syncPublishSchedule(Posts article) {
+        if (article.getStatus() != null && article.getStatus() == Posts.Status.PENDING && article.getScheduleTime() != null) {
+            return articlePublishService.schedule(article.getId(), article.getScheduleTime());
+        }
+        return articlePublishService.cancel(article.getId());
+    }
 
     /**
      * 清除文章相关的缓存
@@ -745,6 +915,7 @@ public class ArticleServiceImpl implements ArticleService {
                                 return Flux.fromIterable(postsList)
                                         .map(post -> {
                                             PostFrontListVO vo = postMapper.toFrontListVO(post);
+                                            vo.setViews(currentViews(post));
                                             Long pid = post.getId();
                                             Long userId = post.getUserId();
 
@@ -845,45 +1016,30 @@ public class ArticleServiceImpl implements ArticleService {
 
 
     @Override
-    @CacheEvict(cacheNames = {
-            CacheConstants.POST_DETAIL_CACHE_NAME,
-            CacheConstants.POST_HOT_CACHE_NAME,
-            CacheConstants.POST_FRONT_CACHE_NAME
-    }, key = "'" + CacheConstants.POST_DETAIL_KEY + "' + #id", condition = "#id != null")
     public Mono<Integer> incrementLikes(Long id) {
         log.debug("增加文章点赞数: ID={}", id);
-
-        return postsRepository.incrementLikes(id)
-                .doOnSuccess(likes -> log.debug("文章点赞数增加成功: ID={}", id))
-                .doOnError(e -> log.error("增加文章点赞数失败: ID={}, 错误信息={}", id, e.getMessage()));
+        return Mono.fromCallable(() -> {
+            postCounterService.increment(id, PostCounterType.LIKES, 1);
+            return 1;
+        });
     }
 
     @Override
-    @CacheEvict(cacheNames = {
-            CacheConstants.POST_DETAIL_CACHE_NAME,
-            CacheConstants.POST_HOT_CACHE_NAME,
-            CacheConstants.POST_FRONT_CACHE_NAME
-    }, key = "'" + CacheConstants.POST_DETAIL_KEY + "' + #id", condition = "#id != null")
     public Mono<Integer> incrementComments(Long id) {
         log.debug("增加文章评论数: ID={}", id);
-
-        return postsRepository.incrementComments(id)
-                .doOnSuccess(comments -> log.debug("文章评论数增加成功: ID={}", id))
-                .doOnError(e -> log.error("增加文章评论数失败: ID={}, 错误信息={}", id, e.getMessage()));
+        return Mono.fromCallable(() -> {
+            postCounterService.increment(id, PostCounterType.COMMENTS, 1);
+            return 1;
+        });
     }
 
     @Override
-    @CacheEvict(cacheNames = {
-            CacheConstants.POST_DETAIL_CACHE_NAME,
-            CacheConstants.POST_HOT_CACHE_NAME,
-            CacheConstants.POST_FRONT_CACHE_NAME
-    }, key = "'" + CacheConstants.POST_DETAIL_KEY + "' + #id", condition = "#id != null")
     public Mono<Integer> decrementComments(Long id) {
         log.debug("减少文章评论数: ID={}", id);
-
-        return postsRepository.decrementComments(id)
-                .doOnSuccess(comments -> log.debug("文章评论数减少成功: ID={}", id))
-                .doOnError(e -> log.error("减少文章评论数失败: ID={}, 错误信息={}", id, e.getMessage()));
+        return Mono.fromCallable(() -> {
+            postCounterService.increment(id, PostCounterType.COMMENTS, -1);
+            return 1;
+        });
     }
 
     @Override
@@ -1019,6 +1175,7 @@ public class ArticleServiceImpl implements ArticleService {
                                             List<PostAdminListVO> voList = postsList.stream()
                                                     .map(post -> {
                                                         PostAdminListVO vo = postMapper.toAdminListVO(post);
+                                                        vo.setViews(currentViews(post));
                                                         Long postId = post.getId();
                                                         Long userId = post.getUserId();
 
@@ -1253,6 +1410,17 @@ public class ArticleServiceImpl implements ArticleService {
                 .switchIfEmpty(Mono.just(Tuples.of("未知用户", "/assets/images/default-avatar.png")));
     }
 
+    /**
+     * 获取文章当前浏览量：已持久化的值 + 计数器中尚未刷新的增量
+     *
+     * @param post 文章
+     * @return 浏览量
+     */
+    private int currentViews(Posts post) {
+        int views = post.getViews() != null ? post.getViews() : 0;
+        return (int) (views + postCounterService.getPendingDelta(post.getId(), PostCounterType.VIEWS));
+    }
+
     /**
      * 获取文章的统计信息（评论数和点赞数）
      *
@@ -1264,9 +1432,11 @@ public class ArticleServiceImpl implements ArticleService {
         Mono<Long> commentCountMono = commentRepository.countByPostId(postId)
                 .defaultIfEmpty(0L);
 
-        // 点赞数暂时固定为0，因为Posts实体中没有likes属性
-        // 如果后续需要点赞功能，可以通过Redis或专门的点赞表来实现
-        Mono<Integer> likeCountMono = Mono.just(0);
+        // 点赞数 = 已持久化的值 + 计数器中尚未刷新的增量
+        Mono<Integer> likeCountMono = postsRepository.findById(postId)
+                .map(post -> post.getLikes() != null ? post.getLikes() : 0)
+                .defaultIfEmpty(0)
+                .map(likes -> (int) (likes + postCounterService.getPendingDelta(postId, PostCounterType.LIKES)));
 
         // 组合结果
         return Mono.zip(
@@ -1527,6 +1697,7 @@ public class ArticleServiceImpl implements ArticleService {
 
                                 for (Posts post : resultList) {
                                     PostFrontListVO vo = postMapper.toFrontListVO(post);
+                                    vo.setViews(currentViews(post));
                                     Long pid = post.getId();
                                     Long userId = post.getUserId();
 
@@ -1651,7 +1822,7 @@ public class ArticleServiceImpl implements ArticleService {
                 .collect(Collectors.joining(","));
 
         // 使用手动SQL查询代替Repository方法，避免映射问题
-        String query = "SELECT p.id as post_id, COUNT(c.id) as comment_count " +
+        String query = "SELECT p.id as post_id, p.likes as like_count, COUNT(c.id) as comment_count " +
                 "FROM t_posts p " +
                 "LEFT JOIN t_comments c ON p.id = c.post_id AND c.is_deleted = 0 " +
                 "WHERE p.id IN (" + postIdsStr + ") " +
@@ -1661,8 +1832,11 @@ public class ArticleServiceImpl implements ArticleService {
                 .map((row, rowMetadata) -> {
                     Long postId = row.get("post_id", Long.class);
                     Integer commentCount = row.get("comment_count", Integer.class);
-                    // 目前点赞数固定为0，未来可以从Redis或专门的点赞表获取
-                    return Tuples.of(postId, Tuples.of(commentCount != null ? commentCount : 0, 0));
+                    Integer likeCount = row.get("like_count", Integer.class);
+                    // 点赞数叠加计数器中尚未刷新的增量
+                    int likes = (int) ((likeCount != null ? likeCount : 0)
+                            + postCounterService.getPendingDelta(postId, PostCounterType.LIKES));
+                    return Tuples.of(postId, Tuples.of(commentCount != null ? commentCount : 0, likes));
                 })
                 .all()
                 .collectMap(
@@ -1712,6 +1886,8 @@ public class ArticleServiceImpl implements ArticleService {
                     }
 
                     article.setIsDeleted(1);
+                    // 删除时间决定归档保留期的起点
+                    article.setUpdateTime(LocalDateTime.now());
                     return postsRepository.save(article)
                             .then(removeAllArticleCategories(id))
                             .then();
@@ -3,11 +3,19 @@ package com.ryu.blog.service.impl;
 
 import com.ryu.blog.entity.PostVersion;
 import com.ryu.blog.entity.Posts;
+import com.ryu.blog.exception.BusinessException;
+import com.ryu.blog.entity.PostCategory;
+import com.ryu.blog.entity.PostTag;
 import com.ryu.blog.mapper.PostVersionMapper;
+import com.ryu.blog.repository.PostCategoryRepository;
+import com.ryu.blog.repository.PostTagRepository;
 import com.ryu.blog.repository.PostVersionRepository;
 import com.ryu.blog.repository.PostsRepository;
 import com.ryu.blog.repository.UserRepository;
 import com.ryu.blog.service.ArticleVersionService;
+import com.ryu.blog.utils.ContentFingerprintUtils;
+import com.ryu.blog.utils.ThreeWayMergeUtils;
+import com.ryu.blog.vo.ArticleMergeVO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -29,6 +37,8 @@ public class ArticleVersionServiceImpl implements ArticleVersionService {
 
     private final PostVersionRepository postVersionRepository;
     private final PostsRepository postsRepository;
+    private final PostCategoryRepository postCategoryRepository;
+    private final PostTagRepository postTagRepository;
     private final UserRepository userRepository;
     private final PostVersionMapper postVersionMapper;
 
@@ -44,9 +54,11 @@ public class ArticleVersionServiceImpl implements ArticleVersionService {
         
         // 计算文章内容字数
         final int wordCount = article.getContent() != null ? article.getContent().length() : 0;
+        final String contentHash = ContentFingerprintUtils.contentFingerprint(
+                article.getTitle(), article.getContent(), article.getExcerpt());
         
-        // 获取当前文章的最大版本号
-        return postVersionRepository.findMaxVersionByPostId(article.getId())
+        // 内容与最新版本一致时不再生成新版本
+        Mono<PostVersion> createMono = postVersionRepository.findMaxVersionByPostId(article.getId())
                 .defaultIfEmpty(0) // 如果没有版本，则默认为0
                 .flatMap(maxVersion -> {
                     log.debug("获取到文章当前最大版本号: 文章ID={}, 最大版本号={}", article.getId(), maxVersion);
@@ -63,6 +75,8 @@ public class ArticleVersionServiceImpl implements ArticleVersionService {
                     version.setIsDeleted(0);
                     version.setWordCount(wordCount);
                     version.setIsLatest(true);
+                    version.setContentHash(contentHash);
+                    version.setLockVersion(article.getLockVersion() != null ? article.getLockVersion() : 0L);
                     
                     // 将之前的最新版本标记为非最新
                     return (maxVersion > 0 ? 
@@ -72,6 +86,11 @@ public class ArticleVersionServiceImpl implements ArticleVersionService {
                         .doOnSuccess(savedVersion -> log.info("文章版本创建成功: 文章ID={}, 版本号={}", article.getId(), savedVersion.getVersion()))
                         .doOnError(e -> log.error("文章版本创建失败: 文章ID={}, 错误信息={}", article.getId(), e.getMessage()));
                 });
+
+        return postVersionRepository.findLatestVersionByPostId(article.getId(), 0)
+                .filter(latest -> contentHash.equals(latest.getContentHash()))
+                .doOnNext(latest -> log.debug("文章内容与最新版本一致，跳过创建版本: 文章ID={}, 版本号={}", article.getId(), latest.getVersion()))
+                .switchIfEmpty(createMono);
     }
     
     /**
@@ -218,8 +237,16 @@ public class ArticleVersionServiceImpl implements ArticleVersionService {
                                             article.setContent(articleVersion.getContent());
                                             article.setUpdateTime(LocalDateTime.now());
 
-                                            // 保存更新后的文章
-                                            return postsRepository.save(article)
+                                            // 正文已变化，按当前分类和标签重算指纹，否则编辑接口的快速路径会与过期指纹比较
+                                            return Mono.zip(
+                                                            postCategoryRepository.findByPostId(articleId).map(PostCategory::getCategoryId).collectList(),
+                                                            postTagRepository.findByPostId(articleId).map(PostTag::getTagId).collectList())
+                                                    .flatMap(relations -> {
+                                                        article.setContentHash(ContentFingerprintUtils.storedArticleFingerprint(
+                                                                article, relations.getT1(), relations.getT2()));
+                                                        // 保存更新后的文章
+                                                        return postsRepository.save(article);
+                                                    })
                                                     // 创建新版本记录回滚操作
                                                     .flatMap(savedArticle -> createVersion(
                                                             savedArticle,
@@ -336,4 +363,31 @@ public class ArticleVersionServiceImpl implements ArticleVersionService {
                 .doOnError(e -> log.error("比较文章版本差异失败: 文章ID={}, 版本1={}, 版本2={}, 错误信息={}", 
                         articleId, version1, version2, e.getMessage()));
     }
-} 
\ No newline at end of file
+
+    @Override
+    public Mono<ArticleMergeVO> mergeWithLatest(Long articleId, Long baseLockVersion, String content) {
+        log.debug("合并文章内容: 文章ID={}, 基线版本号={}", articleId, baseLockVersion);
+
+        return postsRepository.findById(articleId)
+                .switchIfEmpty(Mono.error(BusinessException.postNotFound()))
+                .flatMap(article -> postVersionRepository.findVersionAtLockVersion(articleId, baseLockVersion)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .map(baseVersion -> {
+                            if (baseVersion.isEmpty()) {
+                                log.warn("未找到合并基线版本，按空基线合并: 文章ID={}, 基线版本号={}", articleId, baseLockVersion);
+                            }
+                            String baseContent = baseVersion.map(PostVersion::getContent).orElse("");
+                            ThreeWayMergeUtils.MergeResult result =
+                                    ThreeWayMergeUtils.merge(baseContent, content, article.getContent());
+                            return new ArticleMergeVO(articleId,
+                                    baseVersion.map(PostVersion::getVersion).orElse(null),
+                                    article.getLockVersion(),
+                                    result.getContent(),
+                                    result.getConflictCount(),
+                                    result.isClean());
+                        }))
+                .doOnSuccess(merge -> log.info("文章内容合并完成: 文章ID={}, 冲突数={}", articleId, merge.getConflictCount()))
+                .doOnError(e -> log.error("文章内容合并失败: 文章ID={}, 错误信息={}", articleId, e.getMessage()));
+    }
+}
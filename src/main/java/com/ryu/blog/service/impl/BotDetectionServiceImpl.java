@@ -0,0 +1,258 @@
+package com.ryu.blog.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ryu.blog.constant.CacheConstants;
+import com.ryu.blog.entity.TrafficType;
+import com.ryu.blog.service.BotDetectionService;
+import com.ryu.blog.utils.UserAgentAnalyzer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 机器流量识别服务实现类
+ * <p>
+ * 缺少User-Agent、已知爬虫和脚本客户端特征、无头浏览器标识、单个IP请求数超过硬上限直接判定为机器流量，
+ * IP超过硬上限后在惩罚期内的请求都视为高频访问。
+ * 缺少Accept-Language、IP请求数超过软阈值只是弱信号：NAT出口和隐私浏览器下的真实用户也会命中，
+ * 因此只累加分值，分值达到阈值才判定为可疑访问。
+ * 机器流量按类型在内存中累加，定时写入按天的Redis哈希，不产生浏览记录，
+ * 跨零点时尚未刷新的计数会计入刷新当天。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class BotDetectionServiceImpl implements BotDetectionService {
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final Duration COUNT_RETENTION = Duration.ofDays(35);
+
+    /**
+     * 自称浏览器却没有Accept-Language的分值
+     */
+    static final int MISSING_ACCEPT_LANGUAGE_SCORE = 1;
+
+    /**
+     * IP窗口内请求数超过软阈值的分值
+     */
+    static final int HIGH_RATE_SCORE = 2;
+
+    private final ReactiveRedisTemplate<String, String> reactiveRedisTemplate;
+    private final boolean enabled;
+    private final int ipMaxRequests;
+    private final int ipHardMaxRequests;
+    private final int suspicionThreshold;
+
+    /**
+     * IP在当前窗口内的请求数，窗口从第一次请求开始计算
+     */
+    private final Cache<String, AtomicInteger> ipRequests;
+
+    /**
+     * 超过频率阈值的IP，惩罚期内直接判定为高频访问
+     */
+    private final Cache<String, Boolean> flaggedIps;
+
+    private final Map<TrafficType, AtomicLong> pendingCounts = new EnumMap<>(TrafficType.class);
+    private final Map<TrafficType, Counter> botCounters = new EnumMap<>(TrafficType.class);
+
+    public BotDetectionServiceImpl(ReactiveRedisTemplate<String, String> reactiveRedisTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.bot-filter.enabled:true}") boolean enabled,
+                                   @Value("${app.bot-filter.ip-max-requests:120}") int ipMaxRequests,
+                                   @Value("${app.bot-filter.ip-hard-max-requests:600}") int ipHardMaxRequests,
+                                   @Value("${app.bot-filter.suspicion-threshold:3}") int suspicionThreshold,
+                                   @Value("${app.bot-filter.ip-window-seconds:60}") long ipWindowSeconds,
+                                   @Value("${app.bot-filter.ip-penalty-seconds:600}") long ipPenaltySeconds,
+                                   @Value("${app.bot-filter.max-tracked-ips:100000}") long maxTrackedIps) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.enabled = enabled;
+        this.ipMaxRequests = ipMaxRequests;
+        this.ipHardMaxRequests = ipHardMaxRequests;
+        this.suspicionThreshold = suspicionThreshold;
+        this.ipRequests = Caffeine.newBuilder()
+                .maximumSize(maxTrackedIps)
+                .expireAfterWrite(Duration.ofSeconds(ipWindowSeconds))
+                .build();
+        this.flaggedIps = Caffeine.newBuilder()
+                .maximumSize(maxTrackedIps)
+                .expireAfterWrite(Duration.ofSeconds(ipPenaltySeconds))
+                .build();
+        for (TrafficType type : TrafficType.values()) {
+            if (type.isBot()) {
+                pendingCounts.put(type, new AtomicLong());
+                botCounters.put(type, Counter.builder("blog.view.bot")
+                        .description("识别为机器流量的浏览请求数")
+                        .tag("type", type.getCode())
+                        .register(meterRegistry));
+            }
+        }
+    }
+
+    @Override
+    public TrafficType classify(String ipAddress, String userAgent, HttpHeaders headers) {
+        if (!enabled) {
+            return TrafficType.HUMAN;
+        }
+        TrafficType signature = classifySignature(userAgent, headers);
+        if (signature != null) {
+            return signature;
+        }
+        int requests = countRequest(ipAddress);
+        if (requests < 0) {
+            return TrafficType.HIGH_RATE;
+        }
+        int score = 0;
+        if (userAgent.startsWith("Mozilla/") && headers != null && headers.getFirst(HttpHeaders.ACCEPT_LANGUAGE) == null) {
+            score += MISSING_ACCEPT_LANGUAGE_SCORE;
+        }
+        if (requests > ipMaxRequests) {
+            score += HIGH_RATE_SCORE;
+        }
+        return score >= suspicionThreshold ? TrafficType.SUSPICIOUS : TrafficType.HUMAN;
+    }
+
+    @Override
+    public TrafficType inspect(String ipAddress, String userAgent, HttpHeaders headers) {
+        if (!enabled) {
+            return TrafficType.HUMAN;
+        }
+        TrafficType signature = classifySignature(userAgent, headers);
+        if (signature != null) {
+            return signature;
+        }
+        if (ipAddress != null && !ipAddress.isEmpty() && flaggedIps.getIfPresent(ipAddress) != null) {
+            return TrafficType.HIGH_RATE;
+        }
+        return TrafficType.HUMAN;
+    }
+
+    @Override
+    public void recordBotView(TrafficType type) {
+        if (type == null || !type.isBot()) {
+            return;
+        }
+        pendingCounts.get(type).incrementAndGet();
+        botCounters.get(type).increment();
+    }
+
+    @Override
+    public Mono<Long> flush() {
+        String key = dayKey(LocalDate.now());
+        Map<TrafficType, Long> deltas = new EnumMap<>(TrafficType.class);
+        pendingCounts.forEach((type, pending) -> {
+            long delta = pending.getAndSet(0);
+            if (delta > 0) {
+                deltas.put(type, delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return Flux.fromIterable(deltas.entrySet())
+                .concatMap(entry -> reactiveRedisTemplate.opsForHash()
+                        .increment(key, entry.getKey().getCode(), entry.getValue())
+                        .thenReturn(entry.getValue())
+                        .onErrorResume(e -> {
+                            // 写入失败的增量放回内存，下次刷新重试
+                            pendingCounts.get(entry.getKey()).addAndGet(entry.getValue());
+                            log.debug("写入机器流量计数失败: 类型={}, 错误={}", entry.getKey().getCode(), e.getMessage());
+                            return Mono.just(0L);
+                        }))
+                .reduce(0L, Long::sum)
+                .flatMap(total -> total > 0
+                        ? reactiveRedisTemplate.expire(key, COUNT_RETENTION).onErrorReturn(false).thenReturn(total)
+                        : Mono.just(total));
+    }
+
+    @Override
+    public Mono<Map<String, Long>> getBotViewCounts(LocalDate date) {
+        boolean today = LocalDate.now().equals(date);
+        return reactiveRedisTemplate.<String, String>opsForHash()
+                .entries(dayKey(date))
+                .collectMap(Map.Entry::getKey, entry -> Long.parseLong(entry.getValue()))
+                .onErrorResume(e -> {
+                    log.debug("读取机器流量计数失败: 日期={}, 错误={}", date, e.getMessage());
+                    return Mono.just(Map.of());
+                })
+                .map(stored -> {
+                    Map<String, Long> counts = new LinkedHashMap<>();
+                    pendingCounts.forEach((type, pending) -> {
+                        // 当天的统计加上尚未刷新的增量
+                        counts.put(type.getCode(), stored.getOrDefault(type.getCode(), 0L) + (today ? pending.get() : 0));
+                    });
+                    return counts;
+                });
+    }
+
+    /**
+     * 按请求特征判定的机器流量：缺少User-Agent、已知爬虫和脚本客户端、无头浏览器
+     *
+     * @return 流量类型，没有命中任何特征时返回null
+     */
+    private TrafficType classifySignature(String userAgent, HttpHeaders headers) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return TrafficType.EMPTY_UA;
+        }
+        if (UserAgentAnalyzer.isBot(userAgent)) {
+            return TrafficType.CRAWLER;
+        }
+        if (isHeadless(userAgent, headers)) {
+            return TrafficType.HEADLESS;
+        }
+        return null;
+    }
+
+    /**
+     * 无头浏览器：User-Agent或Client Hints中带有无头标识
+     */
+    private boolean isHeadless(String userAgent, HttpHeaders headers) {
+        if (UserAgentAnalyzer.isHeadless(userAgent)) {
+            return true;
+        }
+        String clientHints = headers != null ? headers.getFirst("Sec-CH-UA") : null;
+        return clientHints != null && clientHints.contains("HeadlessChrome");
+    }
+
+    /**
+     * 累加IP在当前窗口内的请求数
+     *
+     * @return 窗口内请求数，IP超过硬上限或仍在惩罚期内时返回-1
+     */
+    private int countRequest(String ipAddress) {
+        if (ipAddress == null || ipAddress.isEmpty()) {
+            return 0;
+        }
+        if (flaggedIps.getIfPresent(ipAddress) != null) {
+            return -1;
+        }
+        int requests = ipRequests.get(ipAddress, ip -> new AtomicInteger()).incrementAndGet();
+        if (requests > ipHardMaxRequests) {
+            flaggedIps.put(ipAddress, Boolean.TRUE);
+            log.info("IP访问频率超过硬上限，判定为机器流量: IP={}, 窗口内请求数={}", ipAddress, requests);
+            return -1;
+        }
+        return requests;
+    }
+
+    private static String dayKey(LocalDate date) {
+        return CacheConstants.VIEW_BOT_KEY + date.format(DAY_FORMATTER);
+    }
+}
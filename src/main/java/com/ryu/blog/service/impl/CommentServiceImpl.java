@@ -2,6 +2,7 @@ package com.ryu.blog.service.impl;
 
 import com.ryu.blog.entity.Comment;
 import com.ryu.blog.entity.User;
+import com.ryu.blog.event.CommentCreatedEvent;
 import com.ryu.blog.mapper.CommentMapper;
 import com.ryu.blog.repository.CommentRepository;
 import com.ryu.blog.repository.UserRepository;
@@ -9,6 +10,7 @@ import com.ryu.blog.service.CommentService;
 import com.ryu.blog.vo.CommentTreeVO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.stereotype.Service;
@@ -39,6 +41,7 @@ public class CommentServiceImpl implements CommentService {
     private final UserRepository userRepository;
     private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
     private final CommentMapper commentMapper;
+    private final ApplicationEventPublisher eventPublisher;
     
     private static final String ARTICLE_COMMENTS_CACHE_KEY = "article:comments:";
     private static final String USER_COMMENTS_CACHE_KEY = "user:comments:";
@@ -73,6 +76,7 @@ public class CommentServiceImpl implements CommentService {
                 .doOnSuccess(savedComment -> {
                     // 清除缓存
                     clearCommentCache(savedComment.getPostId(), savedComment.getUserId());
+                    eventPublisher.publishEvent(new CommentCreatedEvent(this, savedComment.getId(), savedComment.getPostId()));
                 });
     }
 
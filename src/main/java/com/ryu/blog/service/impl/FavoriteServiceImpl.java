@@ -1,10 +1,13 @@
 package com.ryu.blog.service.impl;
 
 import com.ryu.blog.entity.Favorite;
+import com.ryu.blog.entity.PostCounterType;
+import com.ryu.blog.entity.Posts;
 import com.ryu.blog.repository.FavoriteRepository;
 import com.ryu.blog.repository.PostsRepository;
 import com.ryu.blog.repository.UserRepository;
 import com.ryu.blog.service.FavoriteService;
+import com.ryu.blog.service.PostCounterService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -31,6 +34,9 @@ public class FavoriteServiceImpl implements FavoriteService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PostCounterService postCounterService;
+
     @Override
     @Transactional
     public Mono<Boolean> toggleFavorite(Long articleId, Long userId) {
@@ -40,7 +46,9 @@ public class FavoriteServiceImpl implements FavoriteService {
                     // 如果存在，则取消收藏
                     favorite.setIsDeleted(1);
                     favorite.setUpdateTime(LocalDateTime.now());
-                    return favoriteRepository.save(favorite).map(f -> false);
+                    return favoriteRepository.save(favorite)
+                            .doOnNext(f -> postCounterService.increment(articleId, PostCounterType.FAVORITES, -1))
+                            .map(f -> false);
                 })
                 .switchIfEmpty(
                         // 如果不存在，则添加收藏
@@ -51,7 +59,9 @@ public class FavoriteServiceImpl implements FavoriteService {
                             favorite.setCreateTime(LocalDateTime.now());
                             favorite.setUpdateTime(LocalDateTime.now());
                             favorite.setIsDeleted(0);
-                            return favoriteRepository.save(favorite).map(f -> true);
+                            return favoriteRepository.save(favorite)
+                                    .doOnNext(f -> postCounterService.increment(articleId, PostCounterType.FAVORITES, 1))
+                                    .map(f -> true);
                         })
                 );
     }
@@ -65,7 +75,11 @@ public class FavoriteServiceImpl implements FavoriteService {
 
     @Override
     public Mono<Long> getFavoriteCount(Long articleId) {
-        return favoriteRepository.countByArticleIdAndIsDeleted(articleId, 0);
+        // 收藏数 = 已持久化的值 + 计数器中尚未刷新的增量
+        return postsRepository.findById(articleId)
+                .map(article -> article.getFavorites() != null ? article.getFavorites().longValue() : 0L)
+                .defaultIfEmpty(0L)
+                .map(favorites -> favorites + postCounterService.getPendingDelta(articleId, PostCounterType.FAVORITES));
     }
 
     @Override
@@ -114,11 +128,11 @@ public class FavoriteServiceImpl implements FavoriteService {
 
     @Override
     public Mono<Map<Long, Long>> batchGetFavoriteCounts(Iterable<Long> articleIds) {
-        return favoriteRepository.countByArticleIdsAndIsDeleted(articleIds)
+        return postsRepository.findAllById(articleIds)
                 .collectMap(
-                        objects -> (Long) objects[0],  // articleId
-                        objects -> (Long) objects[1]   // count
-                )
+                        Posts::getId,
+                        article -> (article.getFavorites() != null ? article.getFavorites().longValue() : 0L)
+                                + postCounterService.getPendingDelta(article.getId(), PostCounterType.FAVORITES))
                 .defaultIfEmpty(Collections.emptyMap());
     }
 } 
\ No newline at end of file
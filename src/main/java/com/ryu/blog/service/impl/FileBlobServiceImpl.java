@@ -0,0 +1,100 @@
+package com.ryu.blog.service.impl;
+
+import com.ryu.blog.entity.FileBlob;
+import com.ryu.blog.repository.FileBlobRepository;
+import com.ryu.blog.service.FileBlobService;
+import com.ryu.blog.strategy.StorageStrategyRegistry;
+import com.ryu.blog.utils.UploadSpool;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * 文件内容服务实现类
+ * <p>
+ * 引用计数只通过条件更新修改：引用时要求计数大于0，释放后计数为0的记录由条件删除移除，
+ * 删除成功的一方负责删除存储对象。引用与删除并发时，引用失败的一方按新内容重新上传，
+ * 每次上传的对象名都不相同，不会误删新对象。
+ *
+ * @author ryu 475118582@qq.com
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileBlobServiceImpl implements FileBlobService {
+
+    private final FileBlobRepository fileBlobRepository;
+    private final StorageStrategyRegistry strategyRegistry;
+
+    @Override
+    public Mono<FileBlob> find(String sha256, long fileSize) {
+        return fileBlobRepository.findBySha256(sha256)
+                .filter(blob -> blob.getFileSize() != null && blob.getFileSize() == fileSize);
+    }
+
+    @Override
+    public Mono<FileBlob> reference(String sha256, long fileSize) {
+        return find(sha256, fileSize).flatMap(this::reference);
+    }
+
+    @Override
+    public Mono<FileBlob> reference(FileBlob blob) {
+        return fileBlobRepository.incrementRefCount(blob.getId())
+                .filter(updated -> updated > 0)
+                .map(updated -> {
+                    log.debug("引用已存在的内容: blobId={}, sha256={}", blob.getId(), blob.getSha256());
+                    return blob;
+                });
+    }
+
+    @Override
+    public Mono<FileBlob> store(UploadSpool spool, String fileName, String mimeType) {
+        String sha256 = spool.getSha256();
+        return reference(sha256, spool.getSize())
+                .switchIfEmpty(Mono.defer(() -> upload(spool, fileName, mimeType)));
+    }
+
+    @Override
+    public Mono<Boolean> release(Long blobId) {
+        return fileBlobRepository.findById(blobId)
+                .flatMap(blob -> fileBlobRepository.decrementRefCount(blobId)
+                        .then(fileBlobRepository.deleteIfUnreferenced(blobId))
+                        .flatMap(deleted -> {
+                            if (deleted == 0) {
+                                return Mono.just(false);
+                            }
+                            log.info("内容已无引用，删除存储对象: blobId={}, path={}", blobId, blob.getFilePath());
+                            return strategyRegistry.getStrategy(blob.getStorageType())
+                                    .flatMap(strategy -> strategy.deleteFile(blob.getFilePath()))
+                                    .onErrorResume(error -> {
+                                        log.error("删除存储对象失败: blobId={}, path={}, error={}",
+                                                blobId, blob.getFilePath(), error.getMessage());
+                                        return Mono.just(false);
+                                    });
+                        }))
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * 上传新内容并登记，并发上传了相同内容时保留先登记的对象，删除本次上传的对象
+     */
+    private Mono<FileBlob> upload(UploadSpool spool, String fileName, String mimeType) {
+        String sha256 = spool.getSha256();
+        return strategyRegistry.getActiveStrategy()
+                .flatMap(strategy -> strategy.uploadFile(spool.getFile(), fileName, spool.getSize())
+                        .flatMap(filePath -> fileBlobRepository.insertOrReference(sha256, spool.getChecksum(),
+                                        spool.getSize(), strategy.getStrategyKey(), filePath, mimeType)
+                                .then(fileBlobRepository.findBySha256(sha256))
+                                .flatMap(blob -> {
+                                    if (filePath.equals(blob.getFilePath()) && strategy.getStrategyKey().equals(blob.getStorageType())) {
+                                        log.debug("登记新内容: blobId={}, sha256={}, path={}", blob.getId(), sha256, filePath);
+                                        return Mono.just(blob);
+                                    }
+                                    log.info("相同内容已由并发上传登记，删除本次上传的对象: sha256={}, path={}", sha256, filePath);
+                                    return strategy.deleteFile(filePath)
+                                            .onErrorResume(error -> Mono.just(false))
+                                            .thenReturn(blob);
+                                })));
+    }
+}
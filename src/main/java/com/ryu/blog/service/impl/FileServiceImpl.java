@@ -2,17 +2,24 @@ package com.ryu.blog.service.impl;
 
 import com.ryu.blog.dto.*;
 import com.ryu.blog.entity.File;
+import com.ryu.blog.entity.FileBlob;
+import com.ryu.blog.exception.ResourceNotFoundException;
 import com.ryu.blog.repository.FileRepository;
 import com.ryu.blog.repository.UserRepository;
+import com.ryu.blog.service.FileBlobService;
 import com.ryu.blog.service.FileService;
+import com.ryu.blog.service.ImageDerivativeService;
 import com.ryu.blog.strategy.ConfigurableStorageStrategy;
 import com.ryu.blog.strategy.FileStorageStrategy;
 import com.ryu.blog.strategy.StorageConfigManager;
 import com.ryu.blog.strategy.StorageStrategyRegistry;
 import com.ryu.blog.utils.FileUtils;
+import com.ryu.blog.utils.UploadSpool;
 import com.ryu.blog.vo.FileInfoVO;
+import com.ryu.blog.vo.FilePrecheckVO;
 import com.ryu.blog.vo.FileUploadVO;
 import com.ryu.blog.vo.FileVersionVO;
+import com.ryu.blog.vo.MultipartUploadStatusVO;
 import com.ryu.blog.vo.PageResult;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -23,30 +30,51 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
-import org.springframework.core.io.Resource;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
 import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * 文件服务实现类 - 提供文件上传、下载、管理等功能
@@ -84,13 +112,30 @@ public class FileServiceImpl implements FileService {
     private final R2dbcEntityTemplate databaseClient;
     private final StorageStrategyRegistry strategyRegistry;
     private final StorageConfigManager configManager;
+    private final FileBlobService fileBlobService;
+    private final ImageDerivativeService imageDerivativeService;
 
-    // 分片上传的临时数据存储
-    private static final Map<String, MultipartUploadInfo> MULTIPART_UPLOADS = new ConcurrentHashMap<>();
     private static final String UPLOAD_TEMP_DIR = "temp";
+    // 派生图接口地址，规格通过variant参数选择，默认缩略图
+    private static final String THUMBNAIL_URL_PREFIX = "/files/thumbnail/";
+    // 分片上传会话保存在Redis中，任意节点都能继续上传；已上传分片单独保存在哈希中，并发上传分片互不覆盖
     private static final String MULTIPART_UPLOAD_PREFIX = "multipart:";
+    private static final String MULTIPART_PARTS_SUFFIX = ":parts";
+    private static final String MULTIPART_LOCK_SUFFIX = ":lock";
+    private static final Duration MULTIPART_COMPLETE_LOCK_TTL = Duration.ofMinutes(10);
+    // 合并锁仅当仍由本次合并持有时才删除，避免锁过期后误删其他合并请求重新获取的锁
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = RedisScript.of(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+    // 会话仍存在且未开始合并时才登记分片，检查和写入在Redis中原子执行
+    private static final RedisScript<Long> RECORD_PART_SCRIPT = RedisScript.of(
+            "if redis.call('EXISTS', KEYS[1]) == 0 or redis.call('EXISTS', KEYS[3]) == 1 then return 0 end " +
+            "redis.call('HSET', KEYS[2], ARGV[1], ARGV[2]) return 1",
+            Long.class);
     private static final long DEFAULT_CHUNK_SIZE = 5 * 1024 * 1024; // 5MB
-    private static final int UPLOAD_EXPIRE_HOURS = 24; // 上传过期时间（小时）
+    private static final int UPLOAD_EXPIRE_HOURS = 24; // 上传过期时间（小时），每上传一个分片重新计时
+    private static final String LOCAL_STORAGE = "local";
+    private static final int MAX_RANGES = 16; // 单个请求最多处理的Range区间数，超出时返回完整内容
 
     /**
      * 分片上传信息类
@@ -105,14 +150,29 @@ public class FileServiceImpl implements FileService {
         private Long groupId;
         private String description;
         private Boolean isPublic;
-        private String tempDir;
-        @Builder.Default
-        private List<String> parts = new ArrayList<>();
+        private String storageType;
+        private String storageUploadId;
+        private Long chunkSize;
+        private Integer totalParts;
         private LocalDateTime createTime;
         
         // 无参构造函数，用于序列化
         public MultipartUploadInfo() {
-            this.parts = new ArrayList<>();
+        }
+    }
+
+    /**
+     * 已上传分片的信息
+     */
+    @Data
+    @AllArgsConstructor
+    private static class MultipartPartInfo {
+        private Long size;
+        private String checksum;
+        private String etag;
+        
+        // 无参构造函数，用于序列化
+        public MultipartPartInfo() {
         }
     }
 
@@ -161,76 +221,22 @@ public class FileServiceImpl implements FileService {
     public Mono<FileUploadVO> handleFileUpload(FilePart filePart, UploadOptionsDTO options) {
         String fileName = filePart.filename();
         log.info("处理文件上传请求: fileName={}, options={}", fileName, options);
-        // 1. 读取文件内容到内存
-        return DataBufferUtils.join(filePart.content())
-                .flatMap(dataBuffer -> {
-                    // 2. 获取文件大小和内容
-                    long fileSize = dataBuffer.readableByteCount();
-                    byte[] fileBytes = new byte[dataBuffer.readableByteCount()];
-                    dataBuffer.read(fileBytes);
-                    DataBufferUtils.release(dataBuffer); // 释放资源
-                    // 3. 验证文件类型和大小
-                    return isFileAllowed(fileName, fileSize)
-                            .flatMap(allowed -> {
-                                if (!allowed) {
-                                    return Mono.error(new RuntimeException("文件类型或大小不允许"));
-                                }
-                                // 4. 使用Tika识别MIME类型
-                                String mimeType = FileUtils.getMimeType(fileBytes, fileName);
-                                log.debug("识别MIME类型: fileName={}, mimeType={}", fileName, mimeType);
-                                // 5. 检查MIME类型是否在白名单
-                                if (!FileUtils.isAllowedExtension(fileName, getAllowedTypes())) {
-                                    return Mono.error(new RuntimeException("文件扩展名不被允许"));
-                                }
-                                // 6. 文件名安全化
-                                String safeFileName = FileUtils.sanitizeFileName(fileName);
-                                // 7. 计算文件校验和
-                                String checksum = FileUtils.calculateChecksum(fileBytes);
-                                log.debug("文件校验和: fileName={}, checksum={}", safeFileName, checksum);
-                                // 8. 处理重复文件
-                                String duplicateStrategy = options.getDuplicateStrategy();
-                                if (duplicateStrategy == null || duplicateStrategy.isEmpty()) {
-                                    duplicateStrategy = "reject"; // 默认拒绝上传重复文件
-                                }
-                                return handleDuplicateFile(safeFileName, fileSize, checksum, duplicateStrategy)
-                                        .flatMap(result -> {
-                                            // 如果是已存在的文件，直接返回文件信息
-                                            if (result instanceof File) {
-                                                File existingFile = (File) result;
-                                                log.info("检测到重复文件，使用已存在文件: fileId={}, fileName={}",
-                                                        existingFile.getId(), existingFile.getFileName());
-                                                return buildFileUploadVO(existingFile);
-                                            }
-                                            // 获取新文件名（可能因为重命名策略而改变）
-                                            String newFileName = result.toString();
-                                            // 9. 选择存储策略
-                                            return strategyRegistry.getActiveStrategy()
-                                                    .flatMap(strategy -> {
-                                                        DataBuffer newBuffer = new DefaultDataBufferFactory()
-                                                                .wrap(ByteBuffer.wrap(fileBytes));
-                                                        return strategy.uploadFile(
-                                                                Flux.just(newBuffer),
-                                                                newFileName,
-                                                                fileSize
-                                                        )
-                                                        .flatMap(filePath -> {
-                                                            // 10. 保存文件元数据到数据库
-                                                            File file = createFileEntity(
-                                                                    newFileName,
-                                                                    filePath,
-                                                                    fileSize,
-                                                                    checksum,
-                                                                    options,
-                                                                    strategy.getStrategyKey()
-                                                            );
-                                                            file.setMimeType(mimeType); // 存储MIME类型
-                                                            file.setFileType(FileUtils.getFileType(mimeType));
-                                                            return fileRepository.save(file)
-                                                                    .flatMap(this::buildFileUploadVO);
-                                                        });
-                                                    });
-                                        });
-                            });
+        long maxSize = FileUtils.getMaxSize(maxSizeStr);
+        // 1. 先按文件名校验，大小在写入暂存文件时校验
+        return isFileAllowed(fileName, 0)
+                .flatMap(allowed -> {
+                    if (!allowed) {
+                        return Mono.error(new RuntimeException("文件类型或大小不允许"));
+                    }
+                    // 2. 检查扩展名是否在白名单
+                    if (!FileUtils.isAllowedExtension(fileName, getAllowedTypes())) {
+                        return Mono.error(new RuntimeException("文件扩展名不被允许"));
+                    }
+                    // 3. 按块写入暂存文件，同时计算校验和、截取文件头，超过大小上限立即中止
+                    return Mono.usingWhen(
+                            UploadSpool.spool(filePart.content(), Paths.get(uploadPath, UPLOAD_TEMP_DIR), maxSize),
+                            spool -> storeUpload(fileName, spool, options),
+                            UploadSpool::delete);
                 })
                 // 文件内容预览（如图片/文本片段）可在此扩展
                 .doOnSuccess(result -> log.info("文件上传成功: fileId={}, fileName={}",
@@ -239,6 +245,132 @@ public class FileServiceImpl implements FileService {
                         fileName, error.getMessage(), error));
     }
 
+    /**
+     * 处理重复文件并把暂存文件交给存储策略
+     *
+     * @param fileName 原始文件名
+     * @param spool 暂存文件
+     * @param options 上传选项
+     * @return 文件上传结果VO
+     */
+    private Mono<FileUploadVO> storeUpload(String fileName, UploadSpool spool, UploadOptionsDTO options) {
+        long fileSize = spool.getSize();
+        // 4. 使用Tika识别MIME类型，只检测文件头
+        String mimeType = FileUtils.getMimeType(spool.getHead(), fileName);
+        log.debug("识别MIME类型: fileName={}, mimeType={}", fileName, mimeType);
+        // 5. 文件名安全化
+        String safeFileName = FileUtils.sanitizeFileName(fileName);
+        // 6. 校验和已在写入时增量计算
+        String checksum = spool.getChecksum();
+        log.debug("文件校验和: fileName={}, checksum={}, size={}", safeFileName, checksum, fileSize);
+        // 7. 处理重复文件
+        String duplicateStrategy = options.getDuplicateStrategy();
+        if (duplicateStrategy == null || duplicateStrategy.isEmpty()) {
+            duplicateStrategy = "reject"; // 默认拒绝上传重复文件
+        }
+        return handleDuplicateFile(safeFileName, fileSize, checksum, duplicateStrategy)
+                .flatMap(result -> {
+                    // 如果是已存在的文件，直接返回文件信息
+                    if (result instanceof File) {
+                        File existingFile = (File) result;
+                        log.info("检测到重复文件，使用已存在文件: fileId={}, fileName={}",
+                                existingFile.getId(), existingFile.getFileName());
+                        return buildFileUploadVO(existingFile);
+                    }
+                    // 获取新文件名（可能因为重命名策略而改变）
+                    String newFileName = result.toString();
+                    // 8. 按内容存储，相同内容只保存一份，从暂存文件按块上传
+                    return fileBlobService.store(spool, newFileName, mimeType)
+                            .flatMap(blob -> {
+                                // 9. 保存文件元数据到数据库，保存失败时释放本次引用
+                                File file = createFileEntity(
+                                        newFileName,
+                                        blob.getFilePath(),
+                                        fileSize,
+                                        checksum,
+                                        options,
+                                        blob.getStorageType()
+                                );
+                                file.setMimeType(mimeType); // 存储MIME类型
+                                file.setFileType(FileUtils.getFileType(mimeType));
+                                file.setBlobId(blob.getId());
+                                return fileRepository.save(file)
+                                        .onErrorResume(error -> fileBlobService.release(blob.getId())
+                                                .then(Mono.error(error)))
+                                        // 10. 图片排队生成缩略图等派生图
+                                        .doOnNext(imageDerivativeService::enqueue)
+                                        .flatMap(this::buildFileUploadVO);
+                            });
+                });
+    }
+
+    @Override
+    @Transactional
+    public Mono<FilePrecheckVO> precheckUpload(FilePrecheckDTO precheck, UploadOptionsDTO options, Long userId) {
+        String sha256 = precheck.getSha256().toLowerCase(Locale.ROOT);
+        String fileName = precheck.getFileName();
+        long fileSize = precheck.getFileSize();
+        log.info("上传预检: fileName={}, sha256={}, size={}, userId={}", fileName, sha256, fileSize, userId);
+        FilePrecheckVO missing = FilePrecheckVO.builder().exists(false).build();
+        // 1. 与正常上传相同的文件名、扩展名和大小校验
+        return isFileAllowed(fileName, fileSize)
+                .flatMap(allowed -> {
+                    if (!allowed) {
+                        return Mono.error(new RuntimeException("文件类型或大小不允许"));
+                    }
+                    if (!FileUtils.isAllowedExtension(fileName, getAllowedTypes())) {
+                        return Mono.error(new RuntimeException("文件扩展名不被允许"));
+                    }
+                    // 2. 只有调用方已经能访问该内容（本人上传过或存在公开文件）时才直接引用，
+                    //    否则仅凭哈希和大小就能取得他人的私有文件；不可访问与不存在返回相同结果，由客户端正常上传
+                    return fileBlobService.find(sha256, fileSize)
+                            .filterWhen(blob -> fileRepository.countAccessibleByBlobId(blob.getId(), userId)
+                                    .map(count -> count > 0))
+                            .flatMap(fileBlobService::reference)
+                            .flatMap(blob -> createFromBlob(fileName, blob, options, userId)
+                                    .map(file -> FilePrecheckVO.builder().exists(true).file(file).build()))
+                            .defaultIfEmpty(missing);
+                })
+                .doOnSuccess(result -> log.info("上传预检完成: fileName={}, exists={}", fileName, result.getExists()));
+    }
+
+    /**
+     * 用已引用的内容创建文件记录，重复文件处理与正常上传一致
+     *
+     * @param fileName 原始文件名
+     * @param blob 已增加引用计数的内容
+     * @param options 上传选项
+     * @param userId 创建者ID
+     * @return 文件上传结果VO
+     */
+    private Mono<FileUploadVO> createFromBlob(String fileName, FileBlob blob, UploadOptionsDTO options, Long userId) {
+        String safeFileName = FileUtils.sanitizeFileName(fileName);
+        String duplicateStrategy = options.getDuplicateStrategy();
+        if (duplicateStrategy == null || duplicateStrategy.isEmpty()) {
+            duplicateStrategy = "reject";
+        }
+        String mimeType = blob.getMimeType() != null ? blob.getMimeType() : FileUtils.getMimeType(new byte[0], safeFileName);
+        return handleDuplicateFile(safeFileName, blob.getFileSize(), blob.getMd5(), duplicateStrategy)
+                .flatMap(result -> {
+                    if (result instanceof File existingFile) {
+                        // 使用已存在的文件记录，不再需要本次引用
+                        return fileBlobService.release(blob.getId())
+                                .then(buildFileUploadVO(existingFile));
+                    }
+                    File file = createFileEntity(result.toString(), blob.getFilePath(), blob.getFileSize(),
+                            blob.getMd5(), options, blob.getStorageType());
+                    file.setCreatorId(userId);
+                    file.setMimeType(mimeType);
+                    file.setFileType(FileUtils.getFileType(mimeType));
+                    file.setBlobId(blob.getId());
+                    return fileRepository.save(file)
+                            .doOnNext(imageDerivativeService::enqueue)
+                            .flatMap(this::buildFileUploadVO);
+                })
+                .onErrorResume(error -> fileBlobService.release(blob.getId())
+                        .then(Mono.error(error)));
+    }
+
     /**
      * 创建文件实体对象
      * 
@@ -374,7 +506,8 @@ public class FileServiceImpl implements FileService {
                     return strategyRegistry.getActiveStrategy()
                             .flatMap(strategy -> {
                                 // 创建上传ID
-                                String uploadId = MULTIPART_UPLOAD_PREFIX + UUID.randomUUID().toString();
+                                String uploadId = UUID.randomUUID().toString();
+                                int totalParts = (int) Math.max(1, (fileSize + DEFAULT_CHUNK_SIZE - 1) / DEFAULT_CHUNK_SIZE);
                                 
                                 // 创建元数据
                                 Map<String, String> metadata = new HashMap<>();
@@ -393,140 +526,200 @@ public class FileServiceImpl implements FileService {
                                     }
                                 }
                                 
-                                // 记录上传信息
-                                MultipartUploadInfo uploadInfo = MultipartUploadInfo.builder()
-                                        .fileName(fileName)
-                                        .fileSize(fileSize)
-                                        .userId(options != null ? options.getGroup() : null) // 使用group作为userId
-                                        .groupId(options != null ? options.getGroup() : null)
-                                        .description(options != null ? options.getDescription() : null)
-                                        .isPublic(options != null && "public".equals(options.getAccess()))
-                                        .createTime(LocalDateTime.now())
-                                        .build();
-                                MULTIPART_UPLOADS.put(uploadId, uploadInfo);
-                                
                                 // 初始化分片上传
                                 return strategy.initiateMultipartUpload(fileName, fileSize, metadata)
-                                        .map(result -> {
+                                        .flatMap(result -> {
+                                            // 记录上传信息，存储层的上传ID只在服务端保存
+                                            MultipartUploadInfo uploadInfo = MultipartUploadInfo.builder()
+                                                    .fileName(fileName)
+                                                    .fileSize(fileSize)
+                                                    .userId(options != null ? options.getGroup() : null) // 使用group作为userId
+                                                    .groupId(options != null ? options.getGroup() : null)
+                                                    .description(options != null ? options.getDescription() : null)
+                                                    .isPublic(options != null && "public".equals(options.getAccess()))
+                                                    .storageType(strategy.getStrategyKey())
+                                                    .storageUploadId(result.get("uploadId"))
+                                                    .chunkSize(DEFAULT_CHUNK_SIZE)
+                                                    .totalParts(totalParts)
+                                                    .createTime(LocalDateTime.now())
+                                                    .build();
+                                            
                                             // 合并结果
                                             result.put("uploadId", uploadId);
                                             result.put("chunkSize", String.valueOf(DEFAULT_CHUNK_SIZE));
-                                            result.put("chunks", String.valueOf((fileSize + DEFAULT_CHUNK_SIZE - 1) / DEFAULT_CHUNK_SIZE));
-                                            log.info("分片上传初始化成功: uploadId={}, fileName={}", uploadId, fileName);
-                                            return result;
-                                        });
+                                            result.put("chunks", String.valueOf(totalParts));
+                                            return reactiveRedisTemplate.opsForValue()
+                                                    .set(MULTIPART_UPLOAD_PREFIX + uploadId, uploadInfo, Duration.ofHours(UPLOAD_EXPIRE_HOURS))
+                                                    .thenReturn(result);
+                                        })
+                                        .doOnNext(result -> log.info("分片上传初始化成功: uploadId={}, fileName={}", uploadId, fileName));
                             });
                 })
                 .doOnError(error -> log.error("初始化分片上传失败: fileName={}, error={}", fileName, error.getMessage(), error));
     }
 
     @Override
-    public Mono<String> uploadPart(String uploadId, int partNumber, byte[] partData) {
-        log.info("上传分片: uploadId={}, partNumber={}, dataSize={}", uploadId, partNumber, partData.length);
-        
-        // 检查上传ID是否存在
-        MultipartUploadInfo uploadInfo = MULTIPART_UPLOADS.get(uploadId);
-        if (uploadInfo == null) {
-            // 尝试从Redis恢复上传信息
-            String redisKey = MULTIPART_UPLOAD_PREFIX + uploadId;
-            return reactiveRedisTemplate.opsForValue().get(redisKey)
-                    .cast(MultipartUploadInfo.class)
-                    .flatMap(info -> {
-                        MULTIPART_UPLOADS.put(uploadId, info);
-                        return uploadPartWithStrategy(uploadId, partNumber, partData);
-                    })
-                    .switchIfEmpty(Mono.error(new RuntimeException("上传ID不存在或已过期")));
-        }
-        
-        return uploadPartWithStrategy(uploadId, partNumber, partData);
-    }
-    
-    private Mono<String> uploadPartWithStrategy(String uploadId, int partNumber, byte[] data) {
-        log.debug("上传分片: uploadId={}, partNumber={}, dataSize={}", uploadId, partNumber, data.length);
-        
-        // 获取上传信息
-        MultipartUploadInfo uploadInfo = MULTIPART_UPLOADS.get(uploadId);
-        if (uploadInfo == null) {
-            log.warn("上传ID不存在: uploadId={}", uploadId);
-            return Mono.error(new RuntimeException("无效的上传ID"));
-        }
+    public Mono<String> uploadPart(String uploadId, int partNumber, Flux<DataBuffer> content) {
+        log.info("上传分片: uploadId={}, partNumber={}", uploadId, partNumber);
         
-        // 选择存储策略
-        return strategyRegistry.getActiveStrategy()
-                .flatMap(strategy -> {
-                    // 创建数据缓冲区
-                    DataBuffer buffer = new DefaultDataBufferFactory().wrap(ByteBuffer.wrap(data));
+        return loadMultipartUpload(uploadId)
+                .flatMap(uploadInfo -> {
+                    if (partNumber < 1 || partNumber > uploadInfo.getTotalParts()) {
+                        return Mono.error(new RuntimeException("分片号超出范围: " + partNumber));
+                    }
+                    // 除最后一片外每片都是固定大小
+                    long expectedSize = partNumber < uploadInfo.getTotalParts()
+                            ? uploadInfo.getChunkSize()
+                            : uploadInfo.getFileSize() - uploadInfo.getChunkSize() * (uploadInfo.getTotalParts() - 1);
+                    MessageDigest digest = createMd5Digest();
+                    long[] received = new long[1];
                     
-                    // 上传分片
-                    return strategy.uploadPart(uploadId, partNumber, Flux.just(buffer))
-                            .doOnNext(etag -> {
-                                // 记录分片信息
-                                if (uploadInfo.getParts() == null) {
-                                    uploadInfo.setParts(new ArrayList<>());
-                                }
-                                // 确保列表大小足够
-                                while (uploadInfo.getParts().size() < partNumber) {
-                                    uploadInfo.getParts().add(null);
-                                }
-                                // 设置ETag
-                                if (uploadInfo.getParts().size() >= partNumber) {
-                                    uploadInfo.getParts().set(partNumber - 1, etag);
-                                } else {
-                                    uploadInfo.getParts().add(etag);
-                                }
-                                log.debug("分片上传成功: uploadId={}, partNumber={}, etag={}", uploadId, partNumber, etag);
+                    // 分片内容直接流向存储层，同时计算大小和MD5，超出预期大小立即中止；
+                    // 大小不足时在流结束前报错，存储层不会用不完整的内容替换已上传的同号分片
+                    Flux<DataBuffer> counted = content.<DataBuffer>handle((buffer, sink) -> {
+                        received[0] += buffer.readableByteCount();
+                        if (received[0] > expectedSize) {
+                            DataBufferUtils.release(buffer);
+                            sink.error(new RuntimeException("分片大小超出预期: " + expectedSize));
+                            return;
+                        }
+                        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                            while (iterator.hasNext()) {
+                                digest.update(iterator.next());
+                            }
+                        }
+                        sink.next(buffer);
+                    }).concatWith(Mono.defer(() -> received[0] == expectedSize ? Mono.<DataBuffer>empty()
+                            : Mono.error(new RuntimeException(
+                                    "分片大小不正确: 预期" + expectedSize + "字节，实际" + received[0] + "字节"))));
+                    
+                    // 合并进行中不再接收分片，避免合并时分片文件被替换；这里只是提前拒绝，登记分片时还会原子地重新校验
+                    return reactiveRedisTemplate.hasKey(MULTIPART_UPLOAD_PREFIX + uploadId + MULTIPART_LOCK_SUFFIX)
+                            .flatMap(completing -> Boolean.TRUE.equals(completing)
+                                    ? Mono.<FileStorageStrategy>error(new RuntimeException("分片上传正在合并，不能再上传分片"))
+                                    : strategyRegistry.getStrategy(uploadInfo.getStorageType()))
+                            .flatMap(strategy -> strategy.uploadPart(uploadInfo.getStorageUploadId(), partNumber, counted))
+                            .flatMap(etag -> {
+                                MultipartPartInfo partInfo = new MultipartPartInfo(received[0], HexFormat.of().formatHex(digest.digest()), etag);
+                                // 写入分片期间可能已开始合并或会话已完成，登记前重新校验，不登记的分片不算上传成功
+                                return recordMultipartPart(uploadId, partNumber, partInfo)
+                                        .flatMap(recorded -> recorded
+                                                ? touchMultipartUpload(uploadId)
+                                                : Mono.<Void>error(new RuntimeException("分片上传已合并或正在合并，分片未登记")))
+                                        .doOnSuccess(ignored -> log.debug("分片上传成功: uploadId={}, partNumber={}, size={}, etag={}",
+                                                uploadId, partNumber, partInfo.getSize(), etag))
+                                        .thenReturn(etag);
                             });
                 })
                 .doOnError(error -> log.error("分片上传失败: uploadId={}, partNumber={}, error={}", 
                         uploadId, partNumber, error.getMessage(), error));
     }
 
+    @Override
+    public Mono<MultipartUploadStatusVO> getMultipartUploadStatus(String uploadId) {
+        return loadMultipartUpload(uploadId)
+                .zipWith(loadMultipartParts(uploadId))
+                .map(tuple -> {
+                    MultipartUploadInfo uploadInfo = tuple.getT1();
+                    List<MultipartUploadStatusVO.Part> parts = new ArrayList<>();
+                    tuple.getT2().forEach((partNumber, partInfo) -> parts.add(MultipartUploadStatusVO.Part.builder()
+                            .partNumber(partNumber)
+                            .size(partInfo.getSize())
+                            .checksum(partInfo.getChecksum())
+                            .build()));
+                    return MultipartUploadStatusVO.builder()
+                            .uploadId(uploadId)
+                            .fileName(uploadInfo.getFileName())
+                            .fileSize(uploadInfo.getFileSize())
+                            .chunkSize(uploadInfo.getChunkSize())
+                            .totalParts(uploadInfo.getTotalParts())
+                            .uploadedParts(parts)
+                            .build();
+                });
+    }
+
     @Override
     @Transactional
     public Mono<FileUploadVO> completeMultipartUpload(String uploadId, List<String> partETags, UploadOptionsDTO options) {
         log.info("完成分片上传: uploadId={}, partETags={}", uploadId, partETags);
         
-        // 获取上传信息
-        MultipartUploadInfo uploadInfo = MULTIPART_UPLOADS.get(uploadId);
-        if (uploadInfo == null) {
-            log.warn("上传ID不存在: uploadId={}", uploadId);
-            return Mono.error(new RuntimeException("无效的上传ID"));
-        }
-        
-        // 合并上传选项
-        final UploadOptionsDTO finalOptions = mergeUploadOptions(options, uploadInfo);
-        
-        // 选择存储策略
-        return strategyRegistry.getActiveStrategy()
-                .flatMap(strategy -> {
-                    // 合并分片
-                    return strategy.completeMultipartUpload(uploadId, partETags)
-                            .flatMap(filePath -> {
-                                // 创建文件记录
-                                File file = createFileEntity(
-                                        uploadInfo.getFileName(),
-                                        filePath,
-                                        uploadInfo.getFileSize(),
-                                        "", // 分片上传不计算校验和
-                                        finalOptions,
-                                        strategy.getStrategyKey()
-                                );
-                                
-                                // 保存文件记录
-                                return fileRepository.save(file)
-                                        .flatMap(this::buildFileUploadVO)
-                                        .doOnSuccess(result -> {
-                                            // 清理上传信息
-                                            MULTIPART_UPLOADS.remove(uploadId);
-                                            log.info("分片上传完成: fileId={}, fileName={}", 
-                                                    result.getFileId(), result.getFileName());
-                                        });
-                            });
+        // 同一上传只允许一个合并请求，重复提交或并发提交直接拒绝，合并结束（无论成败）后释放
+        String lockKey = MULTIPART_UPLOAD_PREFIX + uploadId + MULTIPART_LOCK_SUFFIX;
+        String lockToken = UUID.randomUUID().toString();
+        return reactiveRedisTemplate.opsForValue()
+                .setIfAbsent(lockKey, lockToken, MULTIPART_COMPLETE_LOCK_TTL)
+                .flatMap(locked -> {
+                    if (!Boolean.TRUE.equals(locked)) {
+                        return Mono.<FileUploadVO>error(new RuntimeException("分片上传正在合并，请勿重复提交"));
+                    }
+                    return doCompleteMultipartUpload(uploadId, options)
+                            .doFinally(signal -> reactiveRedisTemplate
+                                    .execute(RELEASE_LOCK_SCRIPT, List.of(lockKey), List.of(lockToken))
+                                    .onErrorResume(e -> {
+                                        log.warn("释放分片合并锁失败: uploadId={}, error={}", uploadId, e.getMessage());
+                                        return Mono.empty();
+                                    })
+                                    .subscribe());
                 })
                 .doOnError(error -> log.error("完成分片上传失败: uploadId={}, error={}", 
                         uploadId, error.getMessage(), error));
     }
 
+    private Mono<FileUploadVO> doCompleteMultipartUpload(String uploadId, UploadOptionsDTO options) {
+        // 以服务端记录的分片为准，客户端提交的分片标识只用于日志
+        return loadMultipartUpload(uploadId)
+                .zipWith(loadMultipartParts(uploadId))
+                .flatMap(tuple -> {
+                    MultipartUploadInfo uploadInfo = tuple.getT1();
+                    Map<Integer, MultipartPartInfo> parts = tuple.getT2();
+                    
+                    List<Integer> missing = new ArrayList<>();
+                    List<String> etags = new ArrayList<>(uploadInfo.getTotalParts());
+                    long totalSize = 0;
+                    for (int partNumber = 1; partNumber <= uploadInfo.getTotalParts(); partNumber++) {
+                        MultipartPartInfo partInfo = parts.get(partNumber);
+                        if (partInfo == null) {
+                            missing.add(partNumber);
+                        } else {
+                            etags.add(partInfo.getEtag());
+                            totalSize += partInfo.getSize();
+                        }
+                    }
+                    if (!missing.isEmpty()) {
+                        return Mono.error(new RuntimeException("缺少分片: " + missing));
+                    }
+                    if (totalSize != uploadInfo.getFileSize()) {
+                        return Mono.error(new RuntimeException("分片总大小与文件大小不一致"));
+                    }
+                    
+                    // 合并上传选项
+                    final UploadOptionsDTO finalOptions = mergeUploadOptions(options, uploadInfo);
+                    
+                    return strategyRegistry.getStrategy(uploadInfo.getStorageType())
+                            .flatMap(strategy -> strategy.completeMultipartUpload(uploadInfo.getStorageUploadId(), etags)
+                                    .flatMap(filePath -> {
+                                        // 创建文件记录
+                                        File file = createFileEntity(
+                                                uploadInfo.getFileName(),
+                                                filePath,
+                                                uploadInfo.getFileSize(),
+                                                "", // 分片上传不计算校验和
+                                                finalOptions,
+                                                strategy.getStrategyKey()
+                                        );
+                                        
+                                        // 保存文件记录，图片排队生成派生图
+                                        return fileRepository.save(file)
+                                                .doOnNext(imageDerivativeService::enqueue)
+                                                .flatMap(this::buildFileUploadVO);
+                                    }))
+                            .flatMap(result -> deleteMultipartUpload(uploadId)
+                                    .doOnSuccess(ignored -> log.info("分片上传完成: fileId={}, fileName={}", 
+                                            result.getFileId(), result.getFileName()))
+                                    .thenReturn(result));
+                });
+    }
+
     /**
      * 合并上传选项
      * @param options 用户提供的选项
@@ -565,81 +758,298 @@ public class FileServiceImpl implements FileService {
     public Mono<Boolean> abortMultipartUpload(String uploadId) {
         log.info("终止分片上传: uploadId={}", uploadId);
         
-        // 获取上传信息
-        MultipartUploadInfo uploadInfo = MULTIPART_UPLOADS.get(uploadId);
-        if (uploadInfo == null) {
-            log.warn("上传ID不存在: uploadId={}", uploadId);
-            return Mono.just(false);
-        }
-        
-        // 选择存储策略
-        return strategyRegistry.getActiveStrategy()
-                .flatMap(strategy -> {
-                    // 终止分片上传
-                    return strategy.abortMultipartUpload(uploadId)
-                            .doOnNext(result -> {
-                                if (result) {
-                                    // 清理上传信息
-                                    MULTIPART_UPLOADS.remove(uploadId);
-                                    log.info("分片上传已终止: uploadId={}", uploadId);
-                                } else {
-                                    log.warn("终止分片上传失败: uploadId={}", uploadId);
-                                }
-                            });
-                })
+        return reactiveRedisTemplate.opsForValue().get(MULTIPART_UPLOAD_PREFIX + uploadId)
+                .cast(MultipartUploadInfo.class)
+                .flatMap(uploadInfo -> strategyRegistry.getStrategy(uploadInfo.getStorageType())
+                        // 终止分片上传
+                        .flatMap(strategy -> strategy.abortMultipartUpload(uploadInfo.getStorageUploadId()))
+                        .flatMap(result -> deleteMultipartUpload(uploadId).thenReturn(result))
+                        .doOnNext(result -> log.info("分片上传已终止: uploadId={}, result={}", uploadId, result)))
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.warn("上传ID不存在: uploadId={}", uploadId);
+                    return false;
+                }))
                 .doOnError(error -> log.error("终止分片上传失败: uploadId={}, error={}", 
                         uploadId, error.getMessage(), error));
     }
 
     @Override
-    public Mono<ResponseEntity<Resource>> handleFileDownload(Long fileId) {
-        log.info("处理文件下载请求: fileId={}", fileId);
+    public Mono<Integer> cleanupExpiredMultipartUploads() {
+        // 会话在Redis中按TTL过期，这里清理存储层残留的暂存数据；多留一小时，避免删除仍然有效的会话的数据
+        Duration maxIdle = Duration.ofHours(UPLOAD_EXPIRE_HOURS + 1);
+        return Flux.fromIterable(strategyRegistry.getAvailableStrategies())
+                .flatMap(strategyRegistry::getStrategy)
+                .flatMap(strategy -> strategy.cleanupMultipartUploads(maxIdle)
+                        .onErrorResume(error -> {
+                            log.warn("清理过期分片上传失败: strategy={}, error={}", strategy.getStrategyKey(), error.getMessage());
+                            return Mono.just(0);
+                        }))
+                .reduce(0, Integer::sum);
+    }
+
+    private Mono<MultipartUploadInfo> loadMultipartUpload(String uploadId) {
+        return reactiveRedisTemplate.opsForValue().get(MULTIPART_UPLOAD_PREFIX + uploadId)
+                .cast(MultipartUploadInfo.class)
+                .switchIfEmpty(Mono.error(new RuntimeException("上传ID不存在或已过期")));
+    }
+
+    private Mono<Map<Integer, MultipartPartInfo>> loadMultipartParts(String uploadId) {
+        return reactiveRedisTemplate.opsForHash()
+                .entries(MULTIPART_UPLOAD_PREFIX + uploadId + MULTIPART_PARTS_SUFFIX)
+                .collectMap(entry -> Integer.valueOf(entry.getKey().toString()),
+                        entry -> (MultipartPartInfo) entry.getValue(),
+                        TreeMap::new);
+    }
+
+    /**
+     * 原子地登记已上传的分片：会话已删除（合并完成或过期）或合并锁已被持有时不登记
+     *
+     * @return 是否已登记
+     */
+    private Mono<Boolean> recordMultipartPart(String uploadId, int partNumber, MultipartPartInfo partInfo) {
+        String sessionKey = MULTIPART_UPLOAD_PREFIX + uploadId;
+        // 参数按哈希的序列化方式写入，与opsForHash读写的内容一致
+        RedisSerializationContext<String, Object> context = reactiveRedisTemplate.getSerializationContext();
+        List<ByteBuffer> args = List.of(
+                context.<String>getHashKeySerializationPair().write(String.valueOf(partNumber)),
+                context.<Object>getHashValueSerializationPair().write(partInfo));
+        return reactiveRedisTemplate.execute(RECORD_PART_SCRIPT,
+                        List.of(sessionKey, sessionKey + MULTIPART_PARTS_SUFFIX, sessionKey + MULTIPART_LOCK_SUFFIX),
+                        args,
+                        RedisSerializationContext.SerializationPair.byteBuffer().getWriter(),
+                        RedisSerializationContext.SerializationPair.fromSerializer(new GenericToStringSerializer<>(Long.class)).getReader())
+                .next()
+                .map(recorded -> recorded == 1L)
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * 有分片上传时延长会话有效期
+     */
+    private Mono<Void> touchMultipartUpload(String uploadId) {
+        Duration ttl = Duration.ofHours(UPLOAD_EXPIRE_HOURS);
+        return reactiveRedisTemplate.expire(MULTIPART_UPLOAD_PREFIX + uploadId, ttl)
+                .then(reactiveRedisTemplate.expire(MULTIPART_UPLOAD_PREFIX + uploadId + MULTIPART_PARTS_SUFFIX, ttl))
+                .then();
+    }
+
+    private Mono<Void> deleteMultipartUpload(String uploadId) {
+        return reactiveRedisTemplate.delete(MULTIPART_UPLOAD_PREFIX + uploadId,
+                        MULTIPART_UPLOAD_PREFIX + uploadId + MULTIPART_PARTS_SUFFIX)
+                .then();
+    }
+
+    private static MessageDigest createMd5Digest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5算法不可用", e);
+        }
+    }
+
+    @Override
+    public Mono<Void> writeFileContent(Long fileId, ServerWebExchange exchange, boolean inline) {
+        log.debug("输出文件内容: fileId={}, range={}", fileId, exchange.getRequest().getHeaders().getFirst(HttpHeaders.RANGE));
         
         return fileRepository.findByIdAndIsDeleted(fileId, 0)
                 .switchIfEmpty(Mono.error(new RuntimeException("文件不存在或已删除")))
-                .flatMap(file -> {
-                    // 获取文件存储策略
-                    return strategyRegistry.getStrategy(file.getStorageType())
-                            .flatMap(strategy -> {
-                                // 获取文件数据流
-                                return strategy.downloadFile(file.getFilePath())
-                                        .flatMap(dataBufferFlux -> {
-                                            // 创建临时文件
-                                            try {
-                                                java.io.File tempFile = java.io.File.createTempFile("download_", "_" + file.getFileName());
-                                                tempFile.deleteOnExit();
-                                                
-                                                // 将数据流写入临时文件
-                                                return DataBufferUtils.write(dataBufferFlux, tempFile.toPath())
-                                                        .then(Mono.fromCallable(() -> {
-                                                            // 创建Resource
-                                                            Resource resource = new org.springframework.core.io.FileSystemResource(tempFile);
-                                                            
-                                                            // 设置响应头
-                                                            HttpHeaders headers = new HttpHeaders();
-                                                            headers.add(HttpHeaders.CONTENT_DISPOSITION, 
-                                                                    "attachment; filename=\"" + file.getFileName() + "\"");
-                                                            headers.add(HttpHeaders.CONTENT_TYPE, 
-                                                                    file.getMimeType() != null ? file.getMimeType() : FileUtils.getContentType(file.getFileName()));
-                                                            if (file.getFileSize() != null) {
-                                                                headers.add(HttpHeaders.CONTENT_LENGTH, file.getFileSize().toString());
-                                                            }
-                                                            
-                                                            // 记录下载日志（异步）
-                                                            logFileDownload(file).subscribe();
-                                                            
-                                                            return ResponseEntity.ok()
-                                                                    .headers(headers)
-                                                                    .body(resource);
-                                                        }));
-                                            } catch (IOException e) {
-                                                return Mono.error(new RuntimeException("创建临时文件失败", e));
-                                            }
-                                        });
-                            });
-                })
-                .doOnSuccess(response -> log.info("文件下载成功: fileId={}", fileId))
-                .doOnError(error -> log.error("文件下载失败: fileId={}, error={}", fileId, error.getMessage()));
+                .flatMap(file -> strategyRegistry.getStrategy(file.getStorageType())
+                        .flatMap(strategy -> strategy.resolveLocalFile(file.getFilePath())
+                                .flatMap(localFile -> Mono.fromCallable(() -> Files.size(localFile))
+                                        .subscribeOn(Schedulers.boundedElastic())
+                                        .map(size -> new StoredContent(strategy, localFile, size)))
+                                .switchIfEmpty(Mono.defer(() -> LOCAL_STORAGE.equals(strategy.getStrategyKey())
+                                        // 本地存储解析不到文件说明内容已丢失，在写入任何响应头之前返回404
+                                        ? Mono.<StoredContent>error(new ResourceNotFoundException("文件内容不存在"))
+                                        : Mono.just(new StoredContent(strategy, null,
+                                                file.getFileSize() != null ? file.getFileSize() : -1))))
+                                .flatMap(content -> writeContent(exchange, file, content, inline))))
+                .doOnError(error -> log.error("输出文件内容失败: fileId={}, error={}", fileId, error.getMessage()));
+    }
+
+    /**
+     * 文件内容的来源
+     *
+     * @param strategy  存储策略
+     * @param localFile 本机磁盘上的文件，非本地存储时为null
+     * @param size      文件大小，未知时为-1
+     */
+    private record StoredContent(FileStorageStrategy strategy, Path localFile, long size) {
+    }
+
+    private Mono<Void> writeContent(ServerWebExchange exchange, File file, StoredContent content, boolean inline) {
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpResponse response = exchange.getResponse();
+        String etag = StringUtils.hasText(file.getChecksum()) ? "\"" + file.getChecksum() + "\"" : null;
+        LocalDateTime modifyTime = file.getUpdateTime() != null ? file.getUpdateTime() : file.getUploadTime();
+        Instant lastModified = modifyTime != null ? modifyTime.atZone(ZoneId.systemDefault()).toInstant() : Instant.MIN;
+        
+        // 处理 If-None-Match / If-Modified-Since，命中时状态码已设置为304，同时写入ETag和Last-Modified
+        if (exchange.checkNotModified(etag, lastModified)) {
+            return response.setComplete();
+        }
+        
+        HttpHeaders headers = response.getHeaders();
+        String mimeType = file.getMimeType() != null ? file.getMimeType() : FileUtils.getContentType(file.getFileName());
+        headers.setContentType(MediaType.parseMediaType(mimeType));
+        headers.setContentDisposition((inline ? ContentDisposition.inline() : ContentDisposition.attachment())
+                .filename(file.getFileName(), StandardCharsets.UTF_8)
+                .build());
+        boolean head = request.getMethod() == HttpMethod.HEAD;
+        long size = content.size();
+        
+        if (size < 0) {
+            // 大小未知，无法处理区间请求，整体输出
+            logFileDownload(file).subscribe();
+            return head ? response.setComplete()
+                    : content.strategy().downloadFile(file.getFilePath()).flatMap(response::writeWith);
+        }
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        
+        List<long[]> regions = resolveRanges(request.getHeaders(), etag, lastModified, size);
+        if (regions == null) {
+            response.setStatusCode(HttpStatus.OK);
+            headers.setContentLength(size);
+            logFileDownload(file).subscribe();
+            return head ? response.setComplete() : writeRegion(response, file, content, 0, size);
+        }
+        if (regions.isEmpty()) {
+            response.setStatusCode(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            headers.remove(HttpHeaders.CONTENT_DISPOSITION);
+            return response.setComplete();
+        }
+        
+        response.setStatusCode(HttpStatus.PARTIAL_CONTENT);
+        // 只在包含文件开头时记录下载，避免视频拖动等连续的区间请求重复计数
+        if (regions.get(0)[0] == 0) {
+            logFileDownload(file).subscribe();
+        }
+        if (regions.size() == 1) {
+            long start = regions.get(0)[0];
+            long end = regions.get(0)[1];
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            headers.setContentLength(end - start + 1);
+            return head ? response.setComplete() : writeRegion(response, file, content, start, end - start + 1);
+        }
+        
+        // 多区间：multipart/byteranges，每段前写入分段头
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        headers.setContentType(new MediaType("multipart", "byteranges", Map.of("boundary", boundary)));
+        List<byte[]> partHeaders = new ArrayList<>(regions.size());
+        long contentLength = 0;
+        for (long[] region : regions) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + mimeType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + region[0] + "-" + region[1] + "/" + size + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + region[1] - region[0] + 1;
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        headers.setContentLength(contentLength + closing.length);
+        if (head) {
+            return response.setComplete();
+        }
+        
+        Flux<DataBuffer> body = Flux.range(0, regions.size())
+                .concatMap(i -> Flux.concat(
+                        Mono.fromSupplier(() -> response.bufferFactory().wrap(partHeaders.get(i))),
+                        content.strategy().downloadFile(file.getFilePath(), regions.get(i)[0], regions.get(i)[1] - regions.get(i)[0] + 1)
+                                .flatMapMany(Function.identity())))
+                .concatWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(closing)));
+        return response.writeWith(body);
+    }
+
+    /**
+     * 解析Range请求头
+     *
+     * @return 需要输出的区间（闭区间），为null时输出完整内容，为空列表时区间无法满足
+     */
+    private List<long[]> resolveRanges(HttpHeaders requestHeaders, String etag, Instant lastModified, long size) {
+        String rangeHeader = requestHeaders.getFirst(HttpHeaders.RANGE);
+        if (!StringUtils.hasText(rangeHeader) || !ifRangeMatches(requestHeaders, etag, lastModified)) {
+            return null;
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // 格式不正确的Range按规范忽略
+            return null;
+        }
+        
+        // 区间过多时按规范忽略Range返回完整内容，避免大量小区间放大请求和分段头
+        if (ranges.size() > MAX_RANGES) {
+            return null;
+        }
+        
+        List<long[]> regions = new ArrayList<>(ranges.size());
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(size);
+            long end = range.getRangeEnd(size);
+            if (start < size && start <= end) {
+                regions.add(new long[]{start, end});
+            }
+        }
+        if (regions.size() <= 1) {
+            return regions;
+        }
+        
+        // 按起点排序后合并重叠或相邻的区间，每个字节最多输出一次
+        regions.sort(Comparator.comparingLong(region -> region[0]));
+        List<long[]> merged = new ArrayList<>(regions.size());
+        long total = 0;
+        long[] current = regions.get(0);
+        for (int i = 1; i < regions.size(); i++) {
+            long[] region = regions.get(i);
+            if (region[0] <= current[1] + 1) {
+                current[1] = Math.max(current[1], region[1]);
+            } else {
+                merged.add(current);
+                total += current[1] - current[0] + 1;
+                current = region;
+            }
+        }
+        merged.add(current);
+        total += current[1] - current[0] + 1;
+        // 合并后覆盖整个文件时直接返回完整内容
+        if (merged.size() > 1 && total >= size) {
+            return null;
+        }
+        return merged;
+    }
+
+    /**
+     * If-Range：ETag按强比较，日期需与最后修改时间（秒）一致，不满足时忽略Range返回完整内容
+     */
+    private boolean ifRangeMatches(HttpHeaders requestHeaders, String etag, Instant lastModified) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (!StringUtils.hasText(ifRange)) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return etag != null && etag.equals(ifRange);
+        }
+        try {
+            ZonedDateTime date = requestHeaders.getFirstZonedDateTime(HttpHeaders.IF_RANGE);
+            return date != null && !Instant.MIN.equals(lastModified)
+                    && date.toEpochSecond() == lastModified.getEpochSecond();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 输出文件的一个区间，本地文件通过ZeroCopyHttpOutputMessage零拷贝发送
+     */
+    private Mono<Void> writeRegion(ServerHttpResponse response, File file, StoredContent content, long offset, long length) {
+        if (content.localFile() != null && response instanceof ZeroCopyHttpOutputMessage zeroCopy) {
+            return zeroCopy.writeWith(content.localFile(), offset, length);
+        }
+        return content.strategy().downloadFile(file.getFilePath(), offset, length)
+                .flatMap(response::writeWith);
     }
 
     @Override
@@ -679,21 +1089,29 @@ public class FileServiceImpl implements FileService {
                 .flatMap(file -> {
                     // 获取文件存储策略
                     return strategyRegistry.getStrategy(file.getStorageType())
-                            .flatMap(strategy -> strategy.downloadFile(file.getFilePath())
-                                    .flatMap(dataBufferFlux -> DataBufferUtils.join(dataBufferFlux)
-                                            .map(dataBuffer -> {
-                                                // 将DataBuffer转换为字节数组，然后创建InputStream
-                                                byte[] bytes = new byte[dataBuffer.readableByteCount()];
-                                                dataBuffer.read(bytes);
-                                                DataBufferUtils.release(dataBuffer);
-                                                
-                                                // 记录下载日志（异步）
+                            .flatMap(strategy -> strategy.resolveLocalFile(file.getFilePath())
+                                    // 本地存储直接打开文件流，不把内容读入内存
+                                    .flatMap(localFile -> Mono.fromCallable(() -> {
+                                                InputStream inputStream = Files.newInputStream(localFile);
                                                 logFileDownload(file).subscribe();
-                                                
-                                                // 明确指定返回类型
-                                                InputStream inputStream = new ByteArrayInputStream(bytes);
                                                 return inputStream;
-                                            })));
+                                            })
+                                            .subscribeOn(Schedulers.boundedElastic()))
+                                    .switchIfEmpty(Mono.defer(() -> strategy.downloadFile(file.getFilePath())
+                                        .flatMap(dataBufferFlux -> DataBufferUtils.join(dataBufferFlux)
+                                                .map(dataBuffer -> {
+                                                    // 将DataBuffer转换为字节数组，然后创建InputStream
+                                                    byte[] bytes = new byte[dataBuffer.readableByteCount()];
+                                                    dataBuffer.read(bytes);
+                                                    DataBufferUtils.release(dataBuffer);
+                                                
+                                                    // 记录下载日志（异步）
+                                                    logFileDownload(file).subscribe();
+                                                
+                                                    // 明确指定返回类型
+                                                    InputStream inputStream = new ByteArrayInputStream(bytes);
+                                                    return inputStream;
+                                                })))));
                 })
                 .doOnSuccess(stream -> log.info("获取文件流成功: fileId={}", fileId))
                 .doOnError(error -> log.error("获取文件流失败: fileId={}, error={}", fileId, error.getMessage()));
@@ -714,6 +1132,14 @@ public class FileServiceImpl implements FileService {
         return fileRepository.findByIdAndIsDeleted(fileId, 0)
                 .switchIfEmpty(Mono.error(new RuntimeException("文件不存在或已删除")))
                         .flatMap(file -> {
+                            if (file.getBlobId() != null) {
+                                // 按内容存储的文件：先逻辑删除记录，再释放引用，最后一个引用释放时删除存储对象
+                                file.setIsDeleted(1);
+                                file.setUpdateTime(LocalDateTime.now());
+                                return fileRepository.save(file)
+                                        .then(fileBlobService.release(file.getBlobId()))
+                                        .then();
+                            }
                     // 获取文件存储策略
                             return strategyRegistry.getStrategy(file.getStorageType())
                                     .flatMap(strategy -> strategy.deleteFile(file.getFilePath())
@@ -728,6 +1154,8 @@ public class FileServiceImpl implements FileService {
                                                 }
                                             }));
                         })
+                // 删除派生图，失败只记录日志
+                .then(imageDerivativeService.deleteDerivatives(fileId))
                 .doOnSuccess(v -> log.info("文件删除成功: fileId={}", fileId))
                 .doOnError(error -> log.error("文件删除失败: fileId={}, error={}", fileId, error.getMessage()));
     }
@@ -1058,6 +1486,7 @@ public class FileServiceImpl implements FileService {
                             .description(file.getDescription())
                             .checksum(file.getChecksum())
                             .hasThumbnail(file.getHasThumbnail())
+                            .thumbnailUrl(Boolean.TRUE.equals(file.getHasThumbnail()) ? THUMBNAIL_URL_PREFIX + file.getId() : null)
                             .accessType(file.getAccessType())
                             .createTime(file.getCreateTime())
                             .build();
@@ -1349,6 +1778,7 @@ public class FileServiceImpl implements FileService {
                 .description(file.getDescription())
                 .checksum(file.getChecksum())
                 .hasThumbnail(file.getHasThumbnail())
+                .thumbnailUrl(Boolean.TRUE.equals(file.getHasThumbnail()) ? THUMBNAIL_URL_PREFIX + file.getId() : null)
                 .accessType(file.getAccessType())
                 .createTime(file.getCreateTime())
                 .build();
@@ -0,0 +1,432 @@
+package com.ryu.blog.service.impl;
+
+import com.ryu.blog.entity.File;
+import com.ryu.blog.entity.FileThumbnail;
+import com.ryu.blog.entity.ImageVariant;
+import com.ryu.blog.repository.FileRepository;
+import com.ryu.blog.repository.FileThumbnailRepository;
+import com.ryu.blog.service.ImageDerivativeService;
+import com.ryu.blog.strategy.FileStorageStrategy;
+import com.ryu.blog.strategy.StorageStrategyRegistry;
+import com.ryu.blog.utils.FileUtils;
+import com.ryu.blog.utils.ImageUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * 图片派生图服务实现类
+ * <p>
+ * 上传完成后排队生成，也可以在首次请求时生成。同一文件的所有规格一起生成，原图只解码一次；
+ * 缩放和编码在大小等于CPU核数的专用线程池中执行，排队任务数有上限，不会占满处理请求的线程。
+ * 生成结果以文件为单位缓存在 longTermCacheManager 的 thumbnails 缓存中，
+ * 缓存按键合并并发加载，同一节点上同一文件同时只有一次生成；多个节点同时生成时由唯一键保留先登记的记录，
+ * 后登记的节点删除自己上传的对象。无法解码或超过像素上限的图片缓存空结果，不会反复尝试。
+ *
+ * @author ryu 475118582@qq.com
+ */
+@Slf4j
+@Service
+public class ImageDerivativeServiceImpl implements ImageDerivativeService, DisposableBean {
+
+    private static final String CACHE_NAME = "thumbnails";
+    private static final String CACHE_KEY_PREFIX = "derivatives:";
+    private static final String UPLOAD_TEMP_DIR = "temp";
+    private static final String WEBP = "webp";
+    private static final Duration BROWSER_CACHE_MAX_AGE = Duration.ofDays(30);
+
+    private final FileRepository fileRepository;
+    private final FileThumbnailRepository thumbnailRepository;
+    private final StorageStrategyRegistry strategyRegistry;
+    private final Cache cache;
+    private final Scheduler scheduler;
+    private final Path tempDirectory;
+    private final boolean enabled;
+    private final long maxPixels;
+    private final boolean webpSupported;
+
+    /**
+     * 待生成的派生图
+     */
+    private record Target(ImageVariant variant, String format) {
+    }
+
+    /**
+     * 已生成的派生图临时文件
+     */
+    private record Rendered(Target target, Path file, Dimension size, long fileSize) {
+    }
+
+    /**
+     * 原图文件，temporary为true时是从远程存储下载的临时文件
+     */
+    private record SourceFile(Path path, boolean temporary) {
+    }
+
+    public ImageDerivativeServiceImpl(FileRepository fileRepository,
+                                      FileThumbnailRepository thumbnailRepository,
+                                      StorageStrategyRegistry strategyRegistry,
+                                      @Qualifier("longTermCacheManager") CacheManager cacheManager,
+                                      @Value("${app.upload.base-path}") String uploadPath,
+                                      @Value("${app.image-derivative.enabled:true}") boolean enabled,
+                                      @Value("${app.image-derivative.threads:0}") int threads,
+                                      @Value("${app.image-derivative.queue-capacity:1000}") int queueCapacity,
+                                      @Value("${app.image-derivative.max-pixels:40000000}") long maxPixels) {
+        this.fileRepository = fileRepository;
+        this.thumbnailRepository = thumbnailRepository;
+        this.strategyRegistry = strategyRegistry;
+        this.cache = Objects.requireNonNull(cacheManager.getCache(CACHE_NAME), "缺少缓存: " + CACHE_NAME);
+        this.tempDirectory = Paths.get(uploadPath, UPLOAD_TEMP_DIR);
+        this.enabled = enabled;
+        this.maxPixels = maxPixels;
+        this.webpSupported = ImageUtils.canWrite(WEBP);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.scheduler = Schedulers.newBoundedElastic(poolSize, queueCapacity, "image-derivative");
+        log.info("图片派生图线程池已创建: 线程数={}, 队列上限={}, WebP={}", poolSize, queueCapacity,
+                webpSupported ? "支持" : "不支持（缺少ImageIO插件）");
+    }
+
+    @Override
+    public void enqueue(File file) {
+        if (!enabled || !isImage(file)) {
+            return;
+        }
+        getDerivatives(file).subscribe(
+                derivatives -> log.debug("派生图已生成: fileId={}, count={}", file.getId(), derivatives.size()),
+                error -> log.warn("派生图生成失败，将在首次请求时重试: fileId={}, error={}", file.getId(), error.getMessage()));
+    }
+
+    @Override
+    public Mono<Map<String, FileThumbnail>> getDerivatives(File file) {
+        return Mono.fromFuture(() -> cache.retrieve(CACHE_KEY_PREFIX + file.getId(),
+                () -> loadOrGenerate(file).toFuture()));
+    }
+
+    @Override
+    public Mono<Void> writeDerivative(Long fileId, ImageVariant variant, ServerWebExchange exchange, boolean includePrivate) {
+        boolean acceptsWebp = Optional.ofNullable(exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT))
+                .map(accept -> accept.contains("image/" + WEBP))
+                .orElse(false);
+        return fileRepository.findByIdAndIsDeleted(fileId, 0)
+                .filter(file -> includePrivate || Integer.valueOf(0).equals(file.getAccessType()))
+                .filter(this::isImage)
+                .switchIfEmpty(Mono.error(new RuntimeException("文件不存在或不是图片")))
+                .flatMap(file -> getDerivatives(file)
+                        .mapNotNull(derivatives -> select(derivatives, variant, acceptsWebp))
+                        .switchIfEmpty(Mono.error(new RuntimeException("派生图不可用")))
+                        .flatMap(record -> writeRecord(file, record, exchange)));
+    }
+
+    @Override
+    public Mono<Void> deleteDerivatives(Long fileId) {
+        return thumbnailRepository.findByFileId(fileId)
+                .flatMap(record -> strategyRegistry.getStrategy(record.getStorageType())
+                        .flatMap(strategy -> strategy.deleteFile(record.getFilePath()))
+                        .onErrorResume(error -> {
+                            log.warn("删除派生图对象失败: fileId={}, path={}, error={}",
+                                    fileId, record.getFilePath(), error.getMessage());
+                            return Mono.just(false);
+                        }))
+                .then(thumbnailRepository.deleteByFileId(fileId))
+                .doOnNext(deleted -> {
+                    if (deleted > 0) {
+                        log.info("派生图已删除: fileId={}, count={}", fileId, deleted);
+                    }
+                })
+                .onErrorResume(error -> {
+                    log.warn("删除派生图记录失败: fileId={}, error={}", fileId, error.getMessage());
+                    return Mono.empty();
+                })
+                .doFinally(signal -> cache.evict(CACHE_KEY_PREFIX + fileId))
+                .then();
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+    /**
+     * 读取已登记的派生图，补齐缺少的规格
+     */
+    private Mono<Map<String, FileThumbnail>> loadOrGenerate(File file) {
+        return thumbnailRepository.findByFileId(file.getId())
+                .collectMap(this::recordKey)
+                .flatMap(existing -> {
+                    List<Target> missing = new ArrayList<>();
+                    for (Target target : targets(file)) {
+                        if (!existing.containsKey(key(target.variant().getKey(), target.format()))) {
+                            missing.add(target);
+                        }
+                    }
+                    if (missing.isEmpty()) {
+                        return Mono.just(Collections.unmodifiableMap(existing));
+                    }
+                    return generate(file, missing)
+                            .then(thumbnailRepository.findByFileId(file.getId()).collectMap(this::recordKey))
+                            .flatMap(derivatives -> markThumbnail(file, derivatives)
+                                    .thenReturn(Collections.unmodifiableMap(derivatives)));
+                });
+    }
+
+    /**
+     * 读取原图、缩放编码并通过当前存储策略保存
+     */
+    private Mono<Void> generate(File file, List<Target> targets) {
+        return strategyRegistry.getStrategy(file.getStorageType())
+                .flatMap(source -> Mono.usingWhen(
+                        openSource(source, file),
+                        sourceFile -> Mono.usingWhen(
+                                Mono.fromCallable(() -> render(file, sourceFile.path(), targets)).subscribeOn(scheduler),
+                                rendered -> strategyRegistry.getActiveStrategy()
+                                        .flatMap(target -> Flux.fromIterable(rendered)
+                                                .concatMap(item -> register(file, target, item))
+                                                .then()),
+                                this::deleteRendered),
+                        this::releaseSource));
+    }
+
+    /**
+     * 本地存储直接读取原图，远程存储先下载到临时文件
+     */
+    private Mono<SourceFile> openSource(FileStorageStrategy strategy, File file) {
+        return strategy.resolveLocalFile(file.getFilePath())
+                .map(path -> new SourceFile(path, false))
+                .switchIfEmpty(Mono.defer(() -> Mono.fromCallable(() -> {
+                            Files.createDirectories(tempDirectory);
+                            return Files.createTempFile(tempDirectory, "derivative-", ".src");
+                        })
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMap(temp -> strategy.downloadFile(file.getFilePath())
+                                .flatMap(content -> DataBufferUtils.write(content, temp,
+                                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+                                .thenReturn(new SourceFile(temp, true))
+                                .onErrorResume(error -> deleteQuietly(temp).then(Mono.error(error))))));
+    }
+
+    private Mono<Void> releaseSource(SourceFile sourceFile) {
+        return sourceFile.temporary() ? deleteQuietly(sourceFile.path()) : Mono.empty();
+    }
+
+    /**
+     * 解码原图并生成所有目标规格，在派生图线程池中执行
+     */
+    private List<Rendered> render(File file, Path source, List<Target> targets) throws IOException {
+        // 先读文件头检查尺寸，避免解码超大图片耗尽内存
+        Dimension dimension = ImageUtils.readDimension(source);
+        if (dimension == null) {
+            log.warn("无法识别的图片格式，跳过派生图: fileId={}", file.getId());
+            return List.of();
+        }
+        if ((long) dimension.width * dimension.height > maxPixels) {
+            log.warn("图片像素数超过上限，跳过派生图: fileId={}, size={}x{}", file.getId(), dimension.width, dimension.height);
+            return List.of();
+        }
+        BufferedImage image = ImageUtils.read(source);
+        if (image == null) {
+            log.warn("图片解码失败，跳过派生图: fileId={}", file.getId());
+            return List.of();
+        }
+
+        Files.createDirectories(tempDirectory);
+        List<Rendered> rendered = new ArrayList<>(targets.size());
+        try {
+            for (Target target : targets) {
+                ImageVariant variant = target.variant();
+                Dimension size = ImageUtils.fitWithin(image.getWidth(), image.getHeight(),
+                        variant.getMaxWidth(), variant.getMaxHeight());
+                Path output = Files.createTempFile(tempDirectory, "derivative-", "." + target.format());
+                try {
+                    ImageUtils.writeScaled(image, size, target.format(), output);
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(output);
+                    throw e;
+                }
+                rendered.add(new Rendered(target, output, size, Files.size(output)));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Rendered item : rendered) {
+                Files.deleteIfExists(item.file());
+            }
+            throw e;
+        }
+        log.debug("派生图编码完成: fileId={}, count={}", file.getId(), rendered.size());
+        return rendered;
+    }
+
+    private Mono<Void> deleteRendered(List<Rendered> rendered) {
+        return Flux.fromIterable(rendered)
+                .concatMap(item -> deleteQuietly(item.file()))
+                .then();
+    }
+
+    /**
+     * 上传派生图并登记，其他节点已登记同一规格时删除本次上传的对象
+     */
+    private Mono<Void> register(File file, FileStorageStrategy strategy, Rendered item) {
+        Target target = item.target();
+        String objectName = baseName(file.getFileName()) + "_" + target.variant().getKey() + "." + target.format();
+        return strategy.uploadFile(item.file(), objectName, item.fileSize())
+                .flatMap(path -> thumbnailRepository.insertIfAbsent(file.getId(), target.variant().getKey(),
+                                item.size().width, item.size().height, path, item.fileSize(),
+                                strategy.getStrategyKey(), target.format())
+                        .flatMap(inserted -> {
+                            if (inserted > 0) {
+                                return Mono.empty();
+                            }
+                            log.debug("派生图已由其他节点登记，删除本次上传的对象: fileId={}, path={}", file.getId(), path);
+                            return strategy.deleteFile(path)
+                                    .onErrorResume(error -> Mono.just(false))
+                                    .then();
+                        }));
+    }
+
+    /**
+     * 缩略图生成后回写文件记录，文件信息接口据此返回缩略图地址
+     */
+    private Mono<Void> markThumbnail(File file, Map<String, FileThumbnail> derivatives) {
+        FileThumbnail thumbnail = derivatives.get(key(ImageVariant.THUMB.getKey(), baseFormat(file)));
+        if (thumbnail == null || Boolean.TRUE.equals(file.getHasThumbnail())) {
+            return Mono.empty();
+        }
+        return fileRepository.updateThumbnail(file.getId(), thumbnail.getFilePath()).then();
+    }
+
+    /**
+     * 输出派生图
+     */
+    private Mono<Void> writeRecord(File file, FileThumbnail record, ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        String etag = "\"" + file.getId() + "-" + record.getSize() + "-" + record.getFormat() + "-" + record.getFileSize() + "\"";
+        CacheControl cacheControl = CacheControl.maxAge(BROWSER_CACHE_MAX_AGE);
+        headers.setCacheControl(Integer.valueOf(0).equals(file.getAccessType())
+                ? cacheControl.cachePublic() : cacheControl.cachePrivate());
+        headers.setVary(List.of(HttpHeaders.ACCEPT));
+        if (exchange.checkNotModified(etag)) {
+            return response.setComplete();
+        }
+        headers.setContentType(mediaType(record.getFormat()));
+        headers.setContentLength(record.getFileSize());
+        if (HttpMethod.HEAD.equals(exchange.getRequest().getMethod())) {
+            return response.setComplete();
+        }
+        return strategyRegistry.getStrategy(record.getStorageType())
+                .flatMap(strategy -> strategy.resolveLocalFile(record.getFilePath())
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(local -> {
+                            if (local.isPresent() && response instanceof ZeroCopyHttpOutputMessage zeroCopy) {
+                                return zeroCopy.writeWith(local.get(), 0, record.getFileSize());
+                            }
+                            return strategy.downloadFile(record.getFilePath())
+                                    .flatMap(response::writeWith);
+                        }));
+    }
+
+    /**
+     * 选择输出的派生图，优先WebP
+     */
+    private FileThumbnail select(Map<String, FileThumbnail> derivatives, ImageVariant variant, boolean acceptsWebp) {
+        if (acceptsWebp) {
+            FileThumbnail webp = derivatives.get(key(variant.getKey(), WEBP));
+            if (webp != null) {
+                return webp;
+            }
+        }
+        return derivatives.values().stream()
+                .filter(record -> variant.getKey().equals(record.getSize()) && !WEBP.equals(record.getFormat()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private List<Target> targets(File file) {
+        String baseFormat = baseFormat(file);
+        List<Target> targets = new ArrayList<>();
+        for (ImageVariant variant : ImageVariant.values()) {
+            targets.add(new Target(variant, baseFormat));
+            if (webpSupported) {
+                targets.add(new Target(variant, WEBP));
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * JPEG等不透明格式输出jpg，其余输出png以保留透明通道
+     */
+    private String baseFormat(File file) {
+        String mimeType = mimeType(file);
+        return "image/jpeg".equals(mimeType) || "image/bmp".equals(mimeType) ? "jpg" : "png";
+    }
+
+    private boolean isImage(File file) {
+        String mimeType = mimeType(file);
+        // SVG是矢量图，不需要缩放
+        return mimeType.startsWith("image/") && !mimeType.startsWith("image/svg");
+    }
+
+    private String mimeType(File file) {
+        String mimeType = file.getMimeType();
+        return mimeType != null && !mimeType.isEmpty() ? mimeType : FileUtils.getContentType(file.getFileName());
+    }
+
+    private MediaType mediaType(String format) {
+        return "jpg".equals(format) ? MediaType.IMAGE_JPEG : MediaType.parseMediaType("image/" + format);
+    }
+
+    private String recordKey(FileThumbnail record) {
+        return key(record.getSize(), record.getFormat());
+    }
+
+    private String key(String variant, String format) {
+        return variant + ":" + format;
+    }
+
+    private String baseName(String fileName) {
+        int dotIndex = fileName.lastIndexOf('.');
+        return dotIndex > 0 ? fileName.substring(0, dotIndex) : fileName;
+    }
+
+    private Mono<Void> deleteQuietly(Path file) {
+        return Mono.<Void>fromRunnable(() -> {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        log.warn("删除派生图临时文件失败: file={}, error={}", file, e.getMessage());
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,174 @@
+package com.ryu.blog.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ryu.blog.service.IpLocationService;
+import com.ryu.blog.utils.IPLocationUtil;
+import com.ryu.blog.utils.XdbSearcher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * IP地理位置服务实现类
+ * <p>
+ * xdb文件通过内存映射加载到堆外，查询结果按 /24 网段缓存：命中的IP段完整覆盖所在 /24 网段时以网段为键，
+ * 否则以单个IP为键，保证缓存结果与直接查询一致。
+ * 定时检查文件的修改时间和大小，变化后映射新文件并原子替换查询器。
+ * 更新数据库时应先写入临时文件再重命名覆盖，避免旧映射读到写了一半的文件。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class IpLocationServiceImpl implements IpLocationService {
+
+    private static final String CLASSPATH_DB = "ip2region.xdb";
+    private static final String LOCAL_NETWORK = "本地局域网";
+    private static final String UNKNOWN = "未知";
+
+    /**
+     * 单个IP缓存键的偏移，与 /24 网段键（小于 2^24）区分
+     */
+    private static final long EXACT_KEY_OFFSET = 1L << 32;
+
+    private final Path dbPath;
+    private final Cache<Long, CachedLocation> cache;
+    private final AtomicReference<LoadedDb> current = new AtomicReference<>();
+
+    public IpLocationServiceImpl(@Value("${app.ip-location.db-path:./data/ip2region.xdb}") String dbPath,
+                                 @Value("${app.ip-location.cache-size:65536}") long cacheSize) {
+        this.dbPath = Paths.get(dbPath).toAbsolutePath();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+        extractFromClassPath();
+        reloadIfModified();
+    }
+
+    @Override
+    public String getIpLocation(String ip) {
+        return lookup(ip).raw();
+    }
+
+    @Override
+    public IPLocationUtil.IPLocationInfo getLocationInfo(String ip) {
+        return lookup(ip).info();
+    }
+
+    @Override
+    public Map<String, String> getIpLocations(Collection<String> ips) {
+        Map<String, String> result = new HashMap<>(ips.size() * 2);
+        for (String ip : ips) {
+            if (ip != null && !result.containsKey(ip)) {
+                result.put(ip, getIpLocation(ip));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean reloadIfModified() {
+        if (!Files.isRegularFile(dbPath)) {
+            if (current.get() == null) {
+                log.warn("IP2Region数据库文件不存在: {}", dbPath);
+            }
+            return false;
+        }
+        try {
+            FileTime modified = Files.getLastModifiedTime(dbPath);
+            long size = Files.size(dbPath);
+            LoadedDb loaded = current.get();
+            if (loaded != null && loaded.modified().equals(modified) && loaded.size() == size) {
+                return false;
+            }
+            XdbSearcher searcher = XdbSearcher.open(dbPath);
+            current.set(new LoadedDb(searcher, modified, size));
+            cache.invalidateAll();
+            log.info("IP2Region数据库已{}: 路径={}, 大小={}KB", loaded == null ? "加载" : "重新加载", dbPath, size / 1024);
+            return true;
+        } catch (IOException e) {
+            log.error("加载IP2Region数据库失败，继续使用当前数据: 路径={}, 错误={}", dbPath, e.getMessage());
+            return false;
+        }
+    }
+
+    private CachedLocation lookup(String ip) {
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip) ||
+                "127.0.0.1".equals(ip) || "0:0:0:0:0:0:0:1".equals(ip) || "::1".equals(ip)) {
+            return CachedLocation.LOCAL_NETWORK;
+        }
+        long value = XdbSearcher.ipToLong(ip);
+        LoadedDb loaded = current.get();
+        if (value < 0 || loaded == null) {
+            return CachedLocation.UNKNOWN_LOCATION;
+        }
+
+        long prefix = value >>> 8;
+        CachedLocation cached = cache.getIfPresent(prefix);
+        if (cached == null) {
+            cached = cache.getIfPresent(EXACT_KEY_OFFSET + value);
+        }
+        if (cached != null) {
+            return cached;
+        }
+
+        XdbSearcher.Segment segment;
+        try {
+            segment = loaded.searcher().search(value);
+        } catch (RuntimeException e) {
+            log.error("IP地址解析失败: {}, {}", ip, e.getMessage());
+            return CachedLocation.UNKNOWN_LOCATION;
+        }
+        CachedLocation location = segment == null ? CachedLocation.UNKNOWN_LOCATION
+                : new CachedLocation(segment.region(), IPLocationUtil.parseLocation(segment.region()));
+        // 段完整覆盖 /24 网段时整段共享一条缓存
+        boolean coversPrefix = segment != null && segment.startIp() <= (prefix << 8) && segment.endIp() >= ((prefix << 8) | 0xFF);
+        cache.put(coversPrefix ? prefix : EXACT_KEY_OFFSET + value, location);
+        return location;
+    }
+
+    /**
+     * 配置路径下没有数据库时，从ClassPath复制一份，内存映射需要真实文件
+     */
+    private void extractFromClassPath() {
+        if (Files.exists(dbPath)) {
+            return;
+        }
+        ClassPathResource resource = new ClassPathResource(CLASSPATH_DB);
+        if (!resource.exists()) {
+            return;
+        }
+        try (InputStream inputStream = resource.getInputStream()) {
+            Files.createDirectories(dbPath.getParent());
+            Path tempFile = Files.createTempFile(dbPath.getParent(), "ip2region", ".tmp");
+            Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempFile, dbPath, StandardCopyOption.ATOMIC_MOVE);
+            log.info("从ClassPath复制IP2Region数据库: {}", dbPath);
+        } catch (IOException e) {
+            log.error("复制IP2Region数据库失败: {}", e.getMessage());
+        }
+    }
+
+    private record LoadedDb(XdbSearcher searcher, FileTime modified, long size) {
+    }
+
+    private record CachedLocation(String raw, IPLocationUtil.IPLocationInfo info) {
+        static final CachedLocation LOCAL_NETWORK = new CachedLocation(IpLocationServiceImpl.LOCAL_NETWORK,
+                IPLocationUtil.parseLocation(IpLocationServiceImpl.LOCAL_NETWORK));
+        static final CachedLocation UNKNOWN_LOCATION = new CachedLocation(UNKNOWN, IPLocationUtil.parseLocation(UNKNOWN));
+    }
+}
@@ -0,0 +1,292 @@
+package com.ryu.blog.service.impl;
+
+import cn.hutool.core.util.IdUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.ryu.blog.constant.CacheConstants;
+import com.ryu.blog.event.CommentCreatedEvent;
+import com.ryu.blog.event.ViewEvent;
+import com.ryu.blog.event.ViewEventsPersistedEvent;
+import com.ryu.blog.service.LiveStatsService;
+import com.ryu.blog.utils.RefererUtils;
+import com.ryu.blog.vo.LiveStatsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 实时统计服务实现类
+ * <p>
+ * 浏览和评论事件只更新本地计数器，每个周期由定时任务汇总一次增量：推送到本地热流，同时通过Redis频道广播给其他节点。
+ * 订阅方的热流合并本地增量和其他节点的广播，按周期缓冲后汇总为一条统计推送给所有订阅者；
+ * 热流在第一个订阅者到达时才订阅Redis频道，最后一个订阅者离开后取消，订阅者数量不影响计算量。
+ * <p>
+ * 在线读者按节点统计（最近一段时间内浏览过文章的访客），各节点的最新值相加，同一访客访问多个节点时会重复计数；
+ * 每篇文章的在线读者数随读者加入和过期增量维护，汇总时不遍历读者。
+ * 本节点没有订阅者且上次广播没有节点接收时，只每隔若干周期广播一次，用来发现其他节点新到的订阅者。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class LiveStatsServiceImpl implements LiveStatsService {
+
+    /**
+     * 集群内没有订阅者时，每隔多少个周期广播一次
+     */
+    private static final int IDLE_PROBE_INTERVALS = 10;
+
+    private final ReactiveRedisTemplate<String, String> reactiveRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final long intervalMillis;
+    private final int topSize;
+
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    private final AtomicLong views = new AtomicLong();
+    private final AtomicLong newVisits = new AtomicLong();
+    private final Map<String, Long> referrers = new ConcurrentHashMap<>();
+    private final Map<Long, Long> comments = new ConcurrentHashMap<>();
+
+    /**
+     * 在线读者：文章ID:访客标识 -> 文章ID，写入后超过活跃窗口即过期
+     */
+    private final Cache<String, Long> activeReaders;
+
+    /**
+     * 文章ID -> 在线读者数，读者加入时加一，过期或被淘汰时减一
+     */
+    private final Map<Long, Long> readersByPost = new ConcurrentHashMap<>();
+
+    /**
+     * 上次广播被多少个节点接收（各节点有订阅者时才监听频道），首次总是广播
+     */
+    private volatile long lastReceivers = 1;
+    private int idleRounds;
+
+    /**
+     * 各节点最近一次广播的增量，用于合并在线读者
+     */
+    private final Map<String, LiveStatsDelta> latestDeltas = new ConcurrentHashMap<>();
+
+    private final Sinks.Many<LiveStatsDelta> localDeltas = Sinks.many().multicast().directBestEffort();
+    private final Flux<LiveStatsVO> stream;
+
+    public LiveStatsServiceImpl(ReactiveRedisTemplate<String, String> reactiveRedisTemplate,
+                                ObjectMapper objectMapper,
+                                @Value("${app.live-stats.interval-ms:1000}") long intervalMillis,
+                                @Value("${app.live-stats.active-window-seconds:300}") long activeWindowSeconds,
+                                @Value("${app.live-stats.max-tracked-readers:100000}") long maxTrackedReaders,
+                                @Value("${app.live-stats.top-size:20}") int topSize) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.intervalMillis = intervalMillis;
+        this.topSize = topSize;
+        this.activeReaders = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(activeWindowSeconds))
+                .maximumSize(maxTrackedReaders)
+                // 淘汰监听在过期清理的线程中同步执行，汇总前调用cleanUp即可得到最新计数
+                .evictionListener((String key, Long postId, RemovalCause cause) -> {
+                    if (postId != null) {
+                        readersByPost.computeIfPresent(postId, (id, count) -> count > 1 ? count - 1 : null);
+                    }
+                })
+                .build();
+        this.stream = Flux.merge(localDeltas.asFlux(), remoteDeltas())
+                .buffer(Duration.ofMillis(intervalMillis))
+                .map(this::aggregate)
+                .share();
+    }
+
+    /**
+     * 统计已入库的浏览事件（机器流量在入队前已被过滤）
+     */
+    @EventListener
+    public void onViewEventsPersisted(ViewEventsPersistedEvent event) {
+        for (ViewEvent viewEvent : event.getEvents()) {
+            views.incrementAndGet();
+            if (viewEvent.isNewVisit()) {
+                newVisits.incrementAndGet();
+            }
+            referrers.merge(RefererUtils.normalize(viewEvent.getReferer(), viewEvent.getLandingUrl()).source(), 1L, Long::sum);
+            if (viewEvent.getPostId() != null && viewEvent.getVisitorId() != null) {
+                Long postId = viewEvent.getPostId();
+                if (activeReaders.asMap().put(postId + ":" + viewEvent.getVisitorId(), postId) == null) {
+                    readersByPost.merge(postId, 1L, Long::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * 统计新评论
+     */
+    @EventListener
+    public void onCommentCreated(CommentCreatedEvent event) {
+        if (event.getPostId() != null) {
+            comments.merge(event.getPostId(), 1L, Long::sum);
+        }
+    }
+
+    @Override
+    public Mono<Long> publish() {
+        LiveStatsDelta delta = drain();
+        if (delta.isEmpty()) {
+            return Mono.just(0L);
+        }
+        boolean localSubscribers = localDeltas.currentSubscriberCount() > 0;
+        if (localSubscribers) {
+            localDeltas.tryEmitNext(delta);
+        } else if (lastReceivers == 0 && ++idleRounds < IDLE_PROBE_INTERVALS) {
+            // 集群内没有订阅者，本周期的增量无人接收，不再广播
+            return Mono.just(delta.views());
+        }
+        idleRounds = 0;
+
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(delta);
+        } catch (JsonProcessingException e) {
+            log.error("序列化实时统计增量失败: {}", e.getMessage());
+            return Mono.just(delta.views());
+        }
+        return reactiveRedisTemplate.convertAndSend(CacheConstants.VIEW_LIVE_CHANNEL, payload)
+                .doOnNext(receivers -> lastReceivers = receivers)
+                .doOnError(e -> log.debug("广播实时统计增量失败: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .thenReturn(delta.views());
+    }
+
+    @Override
+    public Flux<LiveStatsVO> stream() {
+        return stream;
+    }
+
+    /**
+     * 取出本节点上一周期的增量，计数器逐项移除，并发写入会落到下一周期；
+     * 在线读者只读取按文章维护的计数，先清理已过期的读者使计数及时减少
+     */
+    private LiveStatsDelta drain() {
+        activeReaders.cleanUp();
+        Map<Long, Long> readers = new HashMap<>(readersByPost);
+        long totalReaders = readers.values().stream().mapToLong(Long::longValue).sum();
+        return new LiveStatsDelta(nodeId, System.currentTimeMillis(),
+                views.getAndSet(0), newVisits.getAndSet(0),
+                totalReaders, top(readers), top(drainMap(referrers)), drainMap(comments));
+    }
+
+    private static <K> Map<K, Long> drainMap(Map<K, Long> counters) {
+        Map<K, Long> drained = new HashMap<>();
+        for (K key : counters.keySet()) {
+            Long count = counters.remove(key);
+            if (count != null) {
+                drained.put(key, count);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * 订阅其他节点广播的增量，连接断开后自动重新订阅
+     */
+    private Flux<LiveStatsDelta> remoteDeltas() {
+        return reactiveRedisTemplate.listenToChannel(CacheConstants.VIEW_LIVE_CHANNEL)
+                .flatMap(message -> {
+                    try {
+                        return Mono.just(objectMapper.readValue(message.getMessage(), LiveStatsDelta.class));
+                    } catch (JsonProcessingException e) {
+                        log.warn("解析实时统计增量失败: {}", e.getMessage());
+                        return Mono.empty();
+                    }
+                })
+                .filter(delta -> !nodeId.equals(delta.nodeId()))
+                .doOnError(e -> log.warn("订阅实时统计频道失败: {}", e.getMessage()))
+                .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, Duration.ofSeconds(5)));
+    }
+
+    /**
+     * 合并一个周期内收到的增量：计数累加，在线读者取各节点最新值相加
+     */
+    private LiveStatsVO aggregate(List<LiveStatsDelta> deltas) {
+        long now = System.currentTimeMillis();
+        long viewCount = 0;
+        long newVisitCount = 0;
+        Map<String, Long> referrerCounts = new HashMap<>();
+        Map<Long, Long> commentCounts = new HashMap<>();
+        for (LiveStatsDelta delta : deltas) {
+            viewCount += delta.views();
+            newVisitCount += delta.newVisits();
+            delta.referrers().forEach((host, count) -> referrerCounts.merge(host, count, Long::sum));
+            delta.comments().forEach((postId, count) -> commentCounts.merge(postId, count, Long::sum));
+            latestDeltas.put(delta.nodeId(), delta);
+        }
+
+        // 节点没有在线读者时不再广播，超过若干周期未更新的节点视为没有在线读者
+        long totalReaders = 0;
+        Map<Long, Long> readersByPost = new HashMap<>();
+        Iterator<LiveStatsDelta> iterator = latestDeltas.values().iterator();
+        while (iterator.hasNext()) {
+            LiveStatsDelta delta = iterator.next();
+            if (now - delta.timestamp() > intervalMillis * 3) {
+                iterator.remove();
+                continue;
+            }
+            totalReaders += delta.activeReaders();
+            delta.readersByPost().forEach((postId, count) -> readersByPost.merge(postId, count, Long::sum));
+        }
+
+        LiveStatsVO vo = new LiveStatsVO();
+        vo.setTimestamp(now);
+        vo.setIntervalMillis(intervalMillis);
+        vo.setViews(viewCount);
+        vo.setNewVisits(newVisitCount);
+        vo.setActiveReaders(totalReaders);
+        vo.setActiveReadersByPost(top(readersByPost));
+        vo.setTopReferrers(top(referrerCounts));
+        vo.setNewComments(commentCounts);
+        return vo;
+    }
+
+    /**
+     * 按计数降序取前 topSize 项
+     */
+    private <K> Map<K, Long> top(Map<K, Long> counts) {
+        List<Map.Entry<K, Long>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<K, Long>comparingByValue().reversed());
+        Map<K, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<K, Long> entry : entries.subList(0, Math.min(topSize, entries.size()))) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * 单个节点一个周期的增量，节点间通过Redis频道以JSON传递
+     */
+    record LiveStatsDelta(String nodeId, long timestamp, long views, long newVisits, long activeReaders,
+                          Map<Long, Long> readersByPost, Map<String, Long> referrers, Map<Long, Long> comments) {
+
+        boolean isEmpty() {
+            return views == 0 && activeReaders == 0 && comments.isEmpty();
+        }
+    }
+}
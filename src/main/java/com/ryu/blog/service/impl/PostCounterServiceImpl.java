@@ -0,0 +1,158 @@
+package com.ryu.blog.service.impl;
+
+import com.ryu.blog.entity.PostCounterType;
+import com.ryu.blog.service.PostCounterService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 文章计数器服务实现类
+ * <p>
+ * 每篇文章每种计数对应一个 {@link LongAdder}，高并发递增分散到不同的槽位；
+ * 刷新时用sumThenReset取出增量，生成 SET x = x + CASE ... 的批量UPDATE。
+ * sumThenReset对每个槽位做getAndSet(0)，刷新期间并发的递增要么计入本次取出的增量，
+ * 要么留在槽位中等下次刷新，不会丢失；浏览量等高频计数因此可以精确地只写增量。
+ * 写入失败的增量会被加回计数器，等待下次刷新。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class PostCounterServiceImpl implements PostCounterService, DisposableBean {
+
+    private final DatabaseClient databaseClient;
+    private final int batchSize;
+
+    /**
+     * 计数器类型 -> (文章ID -> 计数器)
+     * 文章数量有限，计数器创建后常驻内存，避免回收与并发递增之间的竞态
+     */
+    private final Map<PostCounterType, Map<Long, LongAdder>> counters = new EnumMap<>(PostCounterType.class);
+
+    /**
+     * 已从计数器取出、正在写入数据库的增量，写入完成前仍计入读取结果
+     */
+    private final Map<PostCounterType, Map<Long, Long>> inFlight = new EnumMap<>(PostCounterType.class);
+
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    public PostCounterServiceImpl(DatabaseClient databaseClient,
+                                  @Value("${app.counter.flush-batch-size:500}") int batchSize) {
+        this.databaseClient = databaseClient;
+        this.batchSize = batchSize;
+        for (PostCounterType type : PostCounterType.values()) {
+            counters.put(type, new ConcurrentHashMap<>());
+            inFlight.put(type, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Override
+    public void increment(Long postId, PostCounterType type, long delta) {
+        if (postId == null || delta == 0) {
+            return;
+        }
+        counters.get(type).computeIfAbsent(postId, id -> new LongAdder()).add(delta);
+    }
+
+    @Override
+    public long getPendingDelta(Long postId, PostCounterType type) {
+        if (postId == null) {
+            return 0;
+        }
+        LongAdder counter = counters.get(type).get(postId);
+        long pending = counter == null ? 0 : counter.sum();
+        return pending + inFlight.get(type).getOrDefault(postId, 0L);
+    }
+
+    @Override
+    public Mono<Integer> flush() {
+        return Mono.defer(() -> {
+            // 同一时刻只允许一个刷新任务，避免定时任务与停机刷新重叠
+            if (!flushing.compareAndSet(false, true)) {
+                return Mono.just(0);
+            }
+            return Flux.fromArray(PostCounterType.values())
+                    .concatMap(this::flushType)
+                    .reduce(0, Integer::sum)
+                    .doFinally(signal -> flushing.set(false));
+        });
+    }
+
+    @Override
+    public void destroy() {
+        log.info("应用停止，刷新待写入的文章计数");
+        Integer flushed = flush().block(Duration.ofSeconds(10));
+        log.info("文章计数停机刷新完成，共 {} 条", flushed);
+    }
+
+    /**
+     * 刷新某一类计数器
+     */
+    private Mono<Integer> flushType(PostCounterType type) {
+        Map<Long, Long> deltas = new HashMap<>();
+        counters.get(type).forEach((postId, counter) -> {
+            long delta = counter.sumThenReset();
+            if (delta != 0) {
+                deltas.put(postId, delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return Mono.just(0);
+        }
+        Map<Long, Long> flying = inFlight.get(type);
+        flying.putAll(deltas);
+
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(deltas.entrySet());
+        List<List<Map.Entry<Long, Long>>> batches = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i += batchSize) {
+            batches.add(entries.subList(i, Math.min(i + batchSize, entries.size())));
+        }
+
+        return Flux.fromIterable(batches)
+                .concatMap(batch -> databaseClient.sql(buildUpdateSql(type, batch))
+                        .fetch()
+                        .rowsUpdated()
+                        .thenReturn(batch.size())
+                        .onErrorResume(e -> {
+                            log.error("刷新文章{}失败，增量将在下次重试: 条数={}, 错误={}",
+                                    type.getDescription(), batch.size(), e.getMessage());
+                            batch.forEach(entry -> increment(entry.getKey(), type, entry.getValue()));
+                            return Mono.just(0);
+                        })
+                        .doFinally(signal -> batch.forEach(entry -> flying.remove(entry.getKey()))))
+                .reduce(0, Integer::sum)
+                .doOnSuccess(count -> log.debug("刷新文章{}完成: 条数={}", type.getDescription(), count));
+    }
+
+    /**
+     * 构建批量增量更新SQL，列名来自枚举，ID与增量均为数值，可直接拼接
+     */
+    private String buildUpdateSql(PostCounterType type, List<Map.Entry<Long, Long>> batch) {
+        String column = type.getColumn();
+        StringBuilder cases = new StringBuilder();
+        for (Map.Entry<Long, Long> entry : batch) {
+            cases.append(" WHEN ").append(entry.getKey()).append(" THEN ").append(entry.getValue());
+        }
+        String ids = batch.stream()
+                .map(entry -> String.valueOf(entry.getKey()))
+                .collect(Collectors.joining(","));
+        return "UPDATE t_posts SET " + column + " = GREATEST(COALESCE(" + column + ", 0) + CASE id" + cases +
+                " ELSE 0 END, 0) WHERE id IN (" + ids + ")";
+    }
+}
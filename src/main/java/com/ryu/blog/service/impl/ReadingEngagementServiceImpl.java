@@ -0,0 +1,413 @@
+package com.ryu.blog.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ryu.blog.dto.ViewBeaconDTO;
+import com.ryu.blog.entity.TrafficType;
+import com.ryu.blog.service.BotDetectionService;
+import com.ryu.blog.service.ReadingEngagementService;
+import com.ryu.blog.utils.LogLinearHistogram;
+import com.ryu.blog.vo.ReadingEngagementVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 阅读深度服务实现类
+ * <p>
+ * 每篇文章每天一组直方图（停留时长按对数-线性分桶，滚动深度按百分比逐值分桶），计数是原子数组，记录时不加锁。
+ * 同一次浏览（文章ID + viewId）的最近一次上报值保存在本地缓存中，再次上报时把样本从旧桶移到新桶，
+ * 移动发生在样本原来所属日期的直方图上，已写库的桶会产生负增量，按天汇总后每次浏览仍只计一次。
+ * 写库时取出并清零计数，只写入非零的桶，库中保存桶的下界而不是桶下标，分桶参数调整后历史数据仍可读取；
+ * 写入失败时把取出的计数加回内存。
+ * 信标接口允许匿名访问，只接受已发布文章的信标：已发布文章ID集合缓存在本地，过期或遇到不在集合中的ID时异步刷新
+ * （刷新间隔有下限），避免伪造的文章ID占满直方图名额。未上报的指标不计入对应的直方图，而不是按0记录。
+ * 信标先经过机器流量识别（不累计IP访问频率），每个IP在一个窗口内对同一篇文章只能新增有限个样本，
+ * 同一次浏览的后续上报只移动已有样本，不受此限制；伪造大量viewId无法刷高样本数。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class ReadingEngagementServiceImpl implements ReadingEngagementService {
+
+    private static final String METRIC_DWELL = "dwell";
+    private static final String METRIC_DEPTH = "depth";
+    private static final int DWELL_SUB_BUCKET_BITS = 4;
+    private static final int DEPTH_SUB_BUCKET_BITS = 7;
+    private static final int MAX_DEPTH = 100;
+    private static final int MAX_VIEW_ID_LENGTH = 64;
+    private static final int UPSERT_ROWS = 500;
+
+    /**
+     * 未上报的指标
+     */
+    private static final int ABSENT = -1;
+
+    private final DatabaseClient databaseClient;
+    private final BotDetectionService botDetectionService;
+    private final long maxDwellSeconds;
+    private final int ipPostMaxViews;
+    private final int maxTrackedPosts;
+    private final long publishedRefreshMillis;
+    private final long publishedMissRefreshMillis;
+
+    /**
+     * 只用于分桶计算和统计的直方图，不记录数据
+     */
+    private final LogLinearHistogram dwellLayout;
+    private final LogLinearHistogram depthLayout;
+
+    /**
+     * 文章 + 日期 -> 待写入的直方图增量
+     */
+    private final Map<PostDay, PostAccumulator> accumulators = new ConcurrentHashMap<>();
+
+    /**
+     * 文章ID:viewId -> 该次浏览最近上报的值
+     */
+    private final Cache<String, ViewState> viewStates;
+
+    /**
+     * IP:文章ID -> 当前窗口内新增的样本数，窗口从第一个样本开始计算
+     */
+    private final Cache<String, AtomicInteger> ipPostViews;
+
+    /**
+     * 已发布文章ID，未加载时为空
+     */
+    private volatile PublishedPosts publishedPosts;
+    private final AtomicLong lastPublishedRefresh = new AtomicLong();
+
+    public ReadingEngagementServiceImpl(DatabaseClient databaseClient,
+                                        BotDetectionService botDetectionService,
+                                        @Value("${app.reading-engagement.max-dwell-seconds:14400}") long maxDwellSeconds,
+                                        @Value("${app.reading-engagement.max-tracked-posts:10000}") int maxTrackedPosts,
+                                        @Value("${app.reading-engagement.max-tracked-views:100000}") long maxTrackedViews,
+                                        @Value("${app.reading-engagement.view-state-minutes:30}") long viewStateMinutes,
+                                        @Value("${app.reading-engagement.published-refresh-ms:300000}") long publishedRefreshMillis,
+                                        @Value("${app.reading-engagement.published-miss-refresh-ms:10000}") long publishedMissRefreshMillis,
+                                        @Value("${app.reading-engagement.ip-post-max-views:20}") int ipPostMaxViews,
+                                        @Value("${app.reading-engagement.ip-window-seconds:600}") long ipWindowSeconds) {
+        this.databaseClient = databaseClient;
+        this.botDetectionService = botDetectionService;
+        this.maxDwellSeconds = maxDwellSeconds;
+        this.ipPostMaxViews = ipPostMaxViews;
+        this.maxTrackedPosts = maxTrackedPosts;
+        this.publishedRefreshMillis = publishedRefreshMillis;
+        this.publishedMissRefreshMillis = publishedMissRefreshMillis;
+        this.dwellLayout = new LogLinearHistogram(DWELL_SUB_BUCKET_BITS, maxDwellSeconds);
+        this.depthLayout = new LogLinearHistogram(DEPTH_SUB_BUCKET_BITS, MAX_DEPTH);
+        this.viewStates = Caffeine.newBuilder()
+                .maximumSize(maxTrackedViews)
+                .expireAfterAccess(Duration.ofMinutes(viewStateMinutes))
+                .build();
+        this.ipPostViews = Caffeine.newBuilder()
+                .maximumSize(maxTrackedViews)
+                .expireAfterWrite(Duration.ofSeconds(ipWindowSeconds))
+                .build();
+    }
+
+    @Override
+    public boolean recordBeacon(ViewBeaconDTO beacon, String ipAddress, String userAgent, HttpHeaders headers) {
+        if (beacon == null || beacon.getPostId() == null || beacon.getPostId() <= 0 ||
+                (beacon.getScrollDepth() == null && beacon.getDwellSeconds() == null)) {
+            return false;
+        }
+        long postId = beacon.getPostId();
+        if (!isPublished(postId)) {
+            return false;
+        }
+        TrafficType trafficType = botDetectionService.inspect(ipAddress, userAgent, headers);
+        if (trafficType.isBot()) {
+            log.debug("丢弃机器流量的阅读信标: 文章ID={}, 类型={}, IP={}", postId, trafficType.getCode(), ipAddress);
+            return false;
+        }
+        int depth = metric(beacon.getScrollDepth(), MAX_DEPTH);
+        int dwell = metric(beacon.getDwellSeconds(), maxDwellSeconds);
+        String viewId = beacon.getViewId();
+        if (viewId == null || viewId.isEmpty() || viewId.length() > MAX_VIEW_ID_LENGTH) {
+            if (!allowNewView(ipAddress, postId)) {
+                return false;
+            }
+            PostAccumulator accumulator = accumulator(new PostDay(postId, LocalDate.now()));
+            if (accumulator == null) {
+                return false;
+            }
+            accumulator.record(depth, dwell, 1);
+            return true;
+        }
+
+        boolean[] accepted = new boolean[1];
+        viewStates.asMap().compute(postId + ":" + viewId, (key, previous) -> {
+            if (previous == null) {
+                if (!allowNewView(ipAddress, postId)) {
+                    return null;
+                }
+                PostDay day = new PostDay(postId, LocalDate.now());
+                PostAccumulator accumulator = accumulator(day);
+                if (accumulator == null) {
+                    return null;
+                }
+                accumulator.record(depth, dwell, 1);
+                accepted[0] = true;
+                return new ViewState(day, depth, dwell);
+            }
+            // 上报的是累计值，只会增长；本次未上报的指标为ABSENT，取较大值后保留上次的值
+            int newDepth = Math.max(previous.depth(), depth);
+            int newDwell = Math.max(previous.dwell(), dwell);
+            accepted[0] = true;
+            if (newDepth == previous.depth() && newDwell == previous.dwell()) {
+                return previous;
+            }
+            PostAccumulator accumulator = accumulators.computeIfAbsent(previous.day(), day -> newAccumulator());
+            accumulator.record(previous.depth(), previous.dwell(), -1);
+            accumulator.record(newDepth, newDwell, 1);
+            return new ViewState(previous.day(), newDepth, newDwell);
+        });
+        return accepted[0];
+    }
+
+    @Override
+    public Mono<Integer> flush() {
+        LocalDate staleBefore = LocalDate.now().minusDays(1);
+        List<Drained> drained = new ArrayList<>();
+        List<Row> rows = new ArrayList<>();
+        for (Map.Entry<PostDay, PostAccumulator> entry : accumulators.entrySet()) {
+            PostDay key = entry.getKey();
+            PostAccumulator accumulator = entry.getValue();
+            if (key.date().isBefore(staleBefore)) {
+                // 浏览状态早已过期，不会再有样本移动到前天及更早的直方图
+                accumulators.remove(key, accumulator);
+            }
+            long[] dwell = accumulator.dwell.drain();
+            long[] depth = accumulator.depth.drain();
+            int before = rows.size();
+            addRows(rows, key, METRIC_DWELL, dwellLayout, dwell);
+            addRows(rows, key, METRIC_DEPTH, depthLayout, depth);
+            if (rows.size() > before) {
+                drained.add(new Drained(key, dwell, depth));
+            }
+        }
+        if (rows.isEmpty()) {
+            return Mono.just(0);
+        }
+
+        List<List<Row>> chunks = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i += UPSERT_ROWS) {
+            chunks.add(rows.subList(i, Math.min(i + UPSERT_ROWS, rows.size())));
+        }
+        return Flux.fromIterable(chunks)
+                .concatMap(this::upsert)
+                .then(Mono.just(rows.size()))
+                .onErrorResume(e -> {
+                    log.error("写入阅读深度直方图失败，增量保留到下次写入: 桶数={}, 错误={}", rows.size(), e.getMessage());
+                    for (Drained item : drained) {
+                        PostAccumulator accumulator = accumulators.computeIfAbsent(item.key(), day -> newAccumulator());
+                        accumulator.dwell.restore(item.dwell());
+                        accumulator.depth.restore(item.depth());
+                    }
+                    return Mono.just(0);
+                });
+    }
+
+    @Override
+    public Mono<ReadingEngagementVO> getEngagement(Long postId, LocalDate from, LocalDate to) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("SELECT metric, bucket, SUM(samples) AS samples " +
+                        "FROM t_post_reading_engagement WHERE stat_date BETWEEN :from AND :to" +
+                        (postId != null ? " AND post_id = :postId" : "") + " GROUP BY metric, bucket")
+                .bind("from", from)
+                .bind("to", to);
+        if (postId != null) {
+            spec = spec.bind("postId", postId);
+        }
+        long[] dwell = new long[dwellLayout.getBucketCount()];
+        long[] depth = new long[depthLayout.getBucketCount()];
+        return spec.map((row, metadata) -> new Row(null, row.get("metric", String.class),
+                        row.get("bucket", Long.class), row.get("samples", Long.class)))
+                .all()
+                .doOnNext(row -> {
+                    if (METRIC_DWELL.equals(row.metric())) {
+                        dwell[dwellLayout.bucketIndex(row.bucket())] += row.samples();
+                    } else if (METRIC_DEPTH.equals(row.metric())) {
+                        depth[depthLayout.bucketIndex(row.bucket())] += row.samples();
+                    }
+                })
+                .then(Mono.fromSupplier(() -> ReadingEngagementVO.builder()
+                        .postId(postId)
+                        .views(Math.max(LogLinearHistogram.totalCount(dwell), LogLinearHistogram.totalCount(depth)))
+                        .averageDwellSeconds(round(dwellLayout.mean(dwell)))
+                        .dwellP50(dwellLayout.valueAtPercentile(dwell, 50))
+                        .dwellP90(dwellLayout.valueAtPercentile(dwell, 90))
+                        .averageScrollDepth(round(depthLayout.mean(depth)))
+                        .scrollDepthP50(depthLayout.valueAtPercentile(depth, 50))
+                        .reach25(reachRate(depth, 25))
+                        .reach50(reachRate(depth, 50))
+                        .reach75(reachRate(depth, 75))
+                        .completionRate(reachRate(depth, 90))
+                        .build()));
+    }
+
+    /**
+     * 文章是否已发布
+     * 集合过期或ID不在集合中时触发异步刷新，本次按当前集合判断；ID不在集合中触发的刷新有最小间隔，
+     * 伪造的ID不会导致频繁查询，新发布的文章最多延迟一个间隔开始统计
+     */
+    private boolean isPublished(long postId) {
+        PublishedPosts current = publishedPosts;
+        long now = System.currentTimeMillis();
+        boolean published = current != null && current.ids().contains(postId);
+        if (current == null || now - current.loadedAt() >= publishedRefreshMillis ||
+                (!published && now - current.loadedAt() >= publishedMissRefreshMillis)) {
+            refreshPublishedPosts(now);
+        }
+        return published;
+    }
+
+    private void refreshPublishedPosts(long now) {
+        long last = lastPublishedRefresh.get();
+        if (now - last < publishedMissRefreshMillis || !lastPublishedRefresh.compareAndSet(last, now)) {
+            return;
+        }
+        databaseClient.sql("SELECT id FROM t_posts WHERE status = 1 AND is_deleted = 0")
+                .map((row, metadata) -> row.get("id", Long.class))
+                .all()
+                .collect(Collectors.toUnmodifiableSet())
+                .subscribe(ids -> publishedPosts = new PublishedPosts(ids, System.currentTimeMillis()),
+                        e -> log.error("加载已发布文章ID失败: {}", e.getMessage()));
+    }
+
+    /**
+     * 累加IP在当前窗口内为文章新增的样本数，超过上限时拒绝
+     */
+    private boolean allowNewView(String ipAddress, long postId) {
+        if (ipAddress == null || ipAddress.isEmpty()) {
+            return true;
+        }
+        int views = ipPostViews.get(ipAddress + ":" + postId, key -> new AtomicInteger()).incrementAndGet();
+        if (views > ipPostMaxViews) {
+            log.debug("IP阅读信标超出频率限制: IP={}, 文章ID={}, 窗口内样本数={}", ipAddress, postId, views);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 获取直方图，跟踪的文章数量已满时不再为新文章创建
+     */
+    private PostAccumulator accumulator(PostDay day) {
+        PostAccumulator accumulator = accumulators.get(day);
+        if (accumulator != null) {
+            return accumulator;
+        }
+        if (accumulators.size() >= maxTrackedPosts) {
+            log.debug("跟踪的文章数量已达上限，丢弃阅读信标: 文章ID={}", day.postId());
+            return null;
+        }
+        return accumulators.computeIfAbsent(day, key -> newAccumulator());
+    }
+
+    private PostAccumulator newAccumulator() {
+        return new PostAccumulator(new LogLinearHistogram(DWELL_SUB_BUCKET_BITS, maxDwellSeconds),
+                new LogLinearHistogram(DEPTH_SUB_BUCKET_BITS, MAX_DEPTH));
+    }
+
+    private void addRows(List<Row> rows, PostDay key, String metric, LogLinearHistogram layout, long[] counts) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                rows.add(new Row(key, metric, layout.bucketLowerBound(i), counts[i]));
+            }
+        }
+    }
+
+    private Mono<Long> upsert(List<Row> chunk) {
+        StringBuilder sql = new StringBuilder("INSERT INTO t_post_reading_engagement (post_id, stat_date, metric, bucket, samples) VALUES ");
+        Map<String, Object> params = new HashMap<>(chunk.size() * 8);
+        int index = 0;
+        for (Row row : chunk) {
+            sql.append(index == 0 ? "(" : ", (")
+                    .append(":p").append(index).append(", :d").append(index).append(", :m").append(index)
+                    .append(", :b").append(index).append(", :s").append(index).append(')');
+            params.put("p" + index, row.key().postId());
+            params.put("d" + index, row.key().date());
+            params.put("m" + index, row.metric());
+            params.put("b" + index, row.bucket());
+            params.put("s" + index, row.samples());
+            index++;
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE samples = samples + VALUES(samples)");
+        return databaseClient.sql(sql.toString())
+                .bindValues(params)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * 滚动深度达到阈值的浏览占比
+     */
+    private Double reachRate(long[] depth, int threshold) {
+        long total = LogLinearHistogram.totalCount(depth);
+        if (total == 0) {
+            return 0.0;
+        }
+        long reached = 0;
+        for (int i = depthLayout.bucketIndex(threshold); i < depth.length; i++) {
+            reached += Math.max(depth[i], 0);
+        }
+        return round((double) reached / total);
+    }
+
+    /**
+     * 把上报值限制在 [0, max]，未上报时返回 {@link #ABSENT}
+     */
+    private static int metric(Integer value, long max) {
+        return value == null ? ABSENT : (int) Math.min(Math.max(value, 0), max);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private record PostDay(long postId, LocalDate date) {
+    }
+
+    private record PublishedPosts(Set<Long> ids, long loadedAt) {
+    }
+
+    private record ViewState(PostDay day, int depth, int dwell) {
+    }
+
+    private record Row(PostDay key, String metric, long bucket, long samples) {
+    }
+
+    private record Drained(PostDay key, long[] dwell, long[] depth) {
+    }
+
+    private record PostAccumulator(LogLinearHistogram dwell, LogLinearHistogram depth) {
+
+        void record(int depth, int dwell, long count) {
+            if (depth != ABSENT) {
+                this.depth.add(depth, count);
+            }
+            if (dwell != ABSENT) {
+                this.dwell.add(dwell, count);
+            }
+        }
+    }
+}
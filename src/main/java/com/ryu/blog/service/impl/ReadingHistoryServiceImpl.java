@@ -0,0 +1,258 @@
+package com.ryu.blog.service.impl;
+
+import com.ryu.blog.constant.CacheConstants;
+import com.ryu.blog.entity.Posts;
+import com.ryu.blog.repository.PostsRepository;
+import com.ryu.blog.service.ReadingHistoryService;
+import com.ryu.blog.vo.ReadingHistoryPageVO;
+import com.ryu.blog.vo.ReadingHistoryVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 阅读历史服务实现类
+ * <p>
+ * 数据库表 t_user_reading_history 每个用户每篇文章一行，是持久存储；
+ * Redis有序集合缓存最近阅读的文章（成员为文章ID，分值为阅读时间毫秒数），长度限制为 max-size。
+ * 有序集合只在从数据库完整加载后才存在，记录阅读时集合不存在则先加载，保证缓存中的内容总是完整的最近N篇。
+ * 分页使用阅读时间作为游标，缓存和数据库都是按索引范围读取，耗时只与页大小有关。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class ReadingHistoryServiceImpl implements ReadingHistoryService {
+
+    /**
+     * 集合存在时写入并裁剪到上限。
+     * 返回 -2 表示集合不存在需要加载，-1 表示未裁剪，否则返回裁剪后最早一条的分值
+     */
+    private static final RedisScript<Long> RECORD_SCRIPT = RedisScript.of(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -2 end\n" +
+            "redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[4])\n" +
+            "local size = redis.call('ZCARD', KEYS[1])\n" +
+            "local cap = tonumber(ARGV[3])\n" +
+            "if size <= cap then return -1 end\n" +
+            "redis.call('ZREMRANGEBYRANK', KEYS[1], 0, size - cap - 1)\n" +
+            "local oldest = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')\n" +
+            "return tonumber(oldest[2])", Long.class);
+
+    private static final int MAX_PAGE_SIZE = 50;
+
+    private final DatabaseClient databaseClient;
+    private final ReactiveRedisTemplate<String, String> reactiveRedisTemplate;
+    private final PostsRepository postsRepository;
+    private final int maxSize;
+    private final Duration ttl;
+
+    public ReadingHistoryServiceImpl(DatabaseClient databaseClient,
+                                     ReactiveRedisTemplate<String, String> reactiveRedisTemplate,
+                                     PostsRepository postsRepository,
+                                     @Value("${app.reading-history.max-size:500}") int maxSize,
+                                     @Value("${app.reading-history.cache-ttl-days:7}") long ttlDays) {
+        this.databaseClient = databaseClient;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.postsRepository = postsRepository;
+        this.maxSize = maxSize;
+        this.ttl = Duration.ofDays(ttlDays);
+    }
+
+    @Override
+    public Mono<Void> recordRead(Long userId, Long postId) {
+        LocalDateTime readTime = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        String key = CacheConstants.USER_READING_HISTORY_KEY + userId;
+        return databaseClient.sql("INSERT INTO t_user_reading_history (user_id, post_id, read_time) " +
+                        "VALUES (:userId, :postId, :readTime) ON DUPLICATE KEY UPDATE read_time = VALUES(read_time)")
+                .bind("userId", userId)
+                .bind("postId", postId)
+                .bind("readTime", readTime)
+                .fetch()
+                .rowsUpdated()
+                .then(reactiveRedisTemplate.execute(RECORD_SCRIPT, List.of(key), List.of(String.valueOf(postId),
+                                String.valueOf(toMillis(readTime)), String.valueOf(maxSize), String.valueOf(ttl.toSeconds())))
+                        .next())
+                .flatMap(result -> {
+                    if (result == -2) {
+                        return load(userId).then();
+                    }
+                    return result >= 0 ? trimDatabase(userId, toDateTime(result)) : Mono.empty();
+                });
+    }
+
+    @Override
+    public Mono<ReadingHistoryPageVO> getReadingHistory(Long userId, Long cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        String key = CacheConstants.USER_READING_HISTORY_KEY + userId;
+        Range<Double> range = cursor == null ? Range.unbounded()
+                : Range.of(Range.Bound.unbounded(), Range.Bound.exclusive(cursor.doubleValue()));
+
+        // 多取一条判断是否有下一页
+        Mono<List<ReadEntry>> entries = reactiveRedisTemplate.hasKey(key)
+                .onErrorResume(e -> {
+                    log.warn("读取阅读历史缓存失败，查询数据库: 用户ID={}, 错误={}", userId, e.getMessage());
+                    return Mono.just(false);
+                })
+                .flatMap(cached -> {
+                    if (cached) {
+                        return reactiveRedisTemplate.opsForZSet()
+                                .reverseRangeByScoreWithScores(key, range, Limit.limit().count(pageSize + 1))
+                                .map(tuple -> new ReadEntry(Long.valueOf(tuple.getValue()), tuple.getScore().longValue()))
+                                .collectList();
+                    }
+                    if (cursor == null) {
+                        return load(userId).map(loaded -> loaded.subList(0, Math.min(pageSize + 1, loaded.size())));
+                    }
+                    return queryDatabase(userId, toDateTime(cursor), pageSize + 1);
+                });
+        return entries.flatMap(list -> toPage(list, pageSize));
+    }
+
+    @Override
+    public Mono<Boolean> clearReadingHistory(Long userId) {
+        return Mono.when(
+                        reactiveRedisTemplate.delete(CacheConstants.USER_READING_HISTORY_KEY + userId),
+                        databaseClient.sql("DELETE FROM t_user_reading_history WHERE user_id = :userId")
+                                .bind("userId", userId)
+                                .fetch()
+                                .rowsUpdated(),
+                        databaseClient.sql("DELETE FROM t_view_history WHERE visitor_id = :visitorId")
+                                .bind("visitorId", String.valueOf(userId))
+                                .fetch()
+                                .rowsUpdated())
+                .thenReturn(true)
+                .doOnError(e -> log.error("清空阅读历史失败: 用户ID={}, 错误={}", userId, e.getMessage()))
+                .onErrorReturn(false);
+    }
+
+    /**
+     * 从数据库加载最近阅读的文章写入缓存，同时删除超出上限的数据库记录
+     */
+    private Mono<List<ReadEntry>> load(Long userId) {
+        String key = CacheConstants.USER_READING_HISTORY_KEY + userId;
+        return queryDatabase(userId, null, maxSize + 1)
+                .flatMap(entries -> {
+                    if (entries.isEmpty()) {
+                        return Mono.just(entries);
+                    }
+                    Mono<Void> trim = Mono.empty();
+                    List<ReadEntry> kept = entries;
+                    if (entries.size() > maxSize) {
+                        kept = entries.subList(0, maxSize);
+                        trim = trimDatabase(userId, toDateTime(kept.get(maxSize - 1).millis()));
+                    }
+                    Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(kept.size() * 2);
+                    for (ReadEntry entry : kept) {
+                        tuples.add(new DefaultTypedTuple<>(String.valueOf(entry.postId()), (double) entry.millis()));
+                    }
+                    List<ReadEntry> result = kept;
+                    return reactiveRedisTemplate.opsForZSet().addAll(key, tuples)
+                            .then(reactiveRedisTemplate.expire(key, ttl))
+                            .onErrorResume(e -> {
+                                log.warn("写入阅读历史缓存失败: 用户ID={}, 错误={}", userId, e.getMessage());
+                                return Mono.empty();
+                            })
+                            .then(trim)
+                            .thenReturn(result);
+                });
+    }
+
+    /**
+     * 按阅读时间倒序查询，before为空时从最新开始
+     */
+    private Mono<List<ReadEntry>> queryDatabase(Long userId, LocalDateTime before, int limit) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("SELECT post_id, read_time FROM t_user_reading_history " +
+                        "WHERE user_id = :userId" + (before != null ? " AND read_time < :before" : "") +
+                        " ORDER BY read_time DESC LIMIT :limit")
+                .bind("userId", userId)
+                .bind("limit", limit);
+        if (before != null) {
+            spec = spec.bind("before", before);
+        }
+        return spec.map((row, metadata) -> new ReadEntry(row.get("post_id", Long.class),
+                        toMillis(row.get("read_time", LocalDateTime.class))))
+                .all()
+                .collectList();
+    }
+
+    /**
+     * 删除早于最早保留记录的阅读历史
+     */
+    private Mono<Void> trimDatabase(Long userId, LocalDateTime oldestKept) {
+        return databaseClient.sql("DELETE FROM t_user_reading_history WHERE user_id = :userId AND read_time < :oldestKept")
+                .bind("userId", userId)
+                .bind("oldestKept", oldestKept)
+                .fetch()
+                .rowsUpdated()
+                .doOnNext(count -> {
+                    if (count > 0) {
+                        log.debug("裁剪阅读历史: 用户ID={}, 删除={}", userId, count);
+                    }
+                })
+                .then();
+    }
+
+    private Mono<ReadingHistoryPageVO> toPage(List<ReadEntry> entries, int pageSize) {
+        boolean hasNext = entries.size() > pageSize;
+        List<ReadEntry> page = hasNext ? entries.subList(0, pageSize) : entries;
+        List<Long> postIds = page.stream().map(ReadEntry::postId).toList();
+        Mono<Map<Long, Posts>> postsMono = postIds.isEmpty() ? Mono.just(Map.of())
+                : postsRepository.findAllById(postIds).collectMap(Posts::getId);
+        return postsMono.map(posts -> {
+            List<ReadingHistoryVO> records = new ArrayList<>(page.size());
+            for (ReadEntry entry : page) {
+                ReadingHistoryVO vo = new ReadingHistoryVO();
+                vo.setPostId(entry.postId());
+                vo.setReadTime(toDateTime(entry.millis()));
+                Posts post = posts.get(entry.postId());
+                if (post != null) {
+                    vo.setPostTitle(post.getTitle());
+                    vo.setCoverImageId(post.getCoverImageId());
+                }
+                records.add(vo);
+            }
+            ReadingHistoryPageVO pageVO = new ReadingHistoryPageVO();
+            pageVO.setRecords(records);
+            pageVO.setHasNext(hasNext);
+            pageVO.setNextCursor(hasNext ? page.get(page.size() - 1).millis() : null);
+            return pageVO;
+        });
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    /**
+     * 一条阅读记录
+     *
+     * @param postId 文章ID
+     * @param millis 阅读时间（毫秒）
+     */
+    private record ReadEntry(Long postId, long millis) {
+    }
+}
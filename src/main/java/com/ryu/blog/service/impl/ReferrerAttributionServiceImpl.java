@@ -0,0 +1,275 @@
+package com.ryu.blog.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ryu.blog.service.ReferrerAttributionService;
+import com.ryu.blog.utils.RefererUtils;
+import com.ryu.blog.vo.ReferrerStatVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 来源归因服务实现类
+ * <p>
+ * 字典ID缓存在本地，写入线程只在遇到新来源时访问数据库：先查询，不存在的批量 INSERT IGNORE 后再查询一次。
+ * utm_source/utm_campaign 由客户端任意填写，每天新登记的来源数量有上限（按实例计数，当天首次登记时从数据库读取已登记数量），
+ * 超出的来源不登记，直接计入"其他"。
+ * 文章来源汇总在浏览统计汇总任务的事务中执行：先查出涉及的文章当天已有的来源，
+ * 新来源按本批浏览量从高到低占用剩余名额，名额用完后计入"其他"，每篇文章每天最多 max-sources-per-post + 1 行。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class ReferrerAttributionServiceImpl implements ReferrerAttributionService {
+
+    private static final int UPSERT_ROWS = 500;
+
+    private final DatabaseClient databaseClient;
+    private final int maxSourcesPerPost;
+    private final int maxNewSourcesPerDay;
+    private final Cache<RefererUtils.Source, Long> dictionaryCache;
+    private final AtomicReference<NewSourceBudget> newSourceBudget = new AtomicReference<>();
+
+    public ReferrerAttributionServiceImpl(DatabaseClient databaseClient,
+                                          @Value("${app.referrer.max-sources-per-post:50}") int maxSourcesPerPost,
+                                          @Value("${app.referrer.max-new-sources-per-day:1000}") int maxNewSourcesPerDay,
+                                          @Value("${app.referrer.dictionary-cache-size:10000}") long dictionaryCacheSize) {
+        this.databaseClient = databaseClient;
+        this.maxSourcesPerPost = maxSourcesPerPost;
+        this.maxNewSourcesPerDay = maxNewSourcesPerDay;
+        this.dictionaryCache = Caffeine.newBuilder()
+                .maximumSize(dictionaryCacheSize)
+                .build();
+    }
+
+    @Override
+    public Mono<Map<RefererUtils.Source, Long>> intern(Collection<RefererUtils.Source> sources) {
+        Map<RefererUtils.Source, Long> result = new HashMap<>(sources.size() * 2);
+        Set<RefererUtils.Source> missing = new LinkedHashSet<>();
+        for (RefererUtils.Source source : sources) {
+            Long id = dictionaryCache.getIfPresent(source);
+            if (id != null) {
+                result.put(source, id);
+            } else {
+                missing.add(source);
+            }
+        }
+        if (missing.isEmpty()) {
+            return Mono.just(result);
+        }
+        return lookup(missing, result)
+                .flatMap(stillMissing -> stillMissing.isEmpty() ? Mono.just(result)
+                        : reserve(stillMissing).flatMap(allowed -> {
+                            // 超出当天登记名额的来源计入"其他"，不写缓存，第二天名额恢复后仍可登记
+                            for (RefererUtils.Source source : stillMissing) {
+                                if (!allowed.contains(source)) {
+                                    result.put(source, OTHER_SOURCE_ID);
+                                }
+                            }
+                            return allowed.isEmpty() ? Mono.just(result)
+                                    : insert(allowed).then(lookup(allowed, result)).thenReturn(result);
+                        }));
+    }
+
+    @Override
+    public Mono<Void> addDailyViews(Map<DailyKey, Long> views) {
+        if (views.isEmpty()) {
+            return Mono.empty();
+        }
+        Set<LocalDate> dates = new HashSet<>();
+        Set<Long> postIds = new HashSet<>();
+        views.keySet().forEach(key -> {
+            dates.add(key.date());
+            postIds.add(key.postId());
+        });
+        return databaseClient.sql("SELECT stat_date, post_id, referer_id FROM t_post_referer_daily " +
+                        "WHERE post_id IN (:postIds) AND stat_date IN (:dates)")
+                .bind("postIds", postIds)
+                .bind("dates", dates)
+                .map((row, metadata) -> new DailyKey(row.get("stat_date", LocalDate.class),
+                        row.get("post_id", Long.class), row.get("referer_id", Long.class)))
+                .all()
+                .collect(HashSet<DailyKey>::new, Set::add)
+                .map(existing -> applyCap(views, existing))
+                .flatMap(this::upsert);
+    }
+
+    @Override
+    public Mono<List<ReferrerStatVO>> getTopSources(Long postId, LocalDate from, LocalDate to, int limit) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("SELECT s.source, s.campaign, SUM(d.views) AS total " +
+                        "FROM t_post_referer_daily d JOIN t_referer_source s ON s.id = d.referer_id " +
+                        "WHERE d.stat_date BETWEEN :from AND :to" + (postId != null ? " AND d.post_id = :postId" : "") +
+                        " GROUP BY d.referer_id, s.source, s.campaign ORDER BY total DESC LIMIT :limit")
+                .bind("from", from)
+                .bind("to", to)
+                .bind("limit", limit);
+        if (postId != null) {
+            spec = spec.bind("postId", postId);
+        }
+        return spec.map((row, metadata) -> new ReferrerStatVO(row.get("source", String.class),
+                        row.get("campaign", String.class), row.get("total", Long.class)))
+                .all()
+                .collectList();
+    }
+
+    /**
+     * 查询字典ID，找到的写入结果和缓存
+     *
+     * @return 仍未找到的来源
+     */
+    private Mono<Set<RefererUtils.Source>> lookup(Set<RefererUtils.Source> sources, Map<RefererUtils.Source, Long> result) {
+        Set<String> names = new HashSet<>();
+        sources.forEach(source -> names.add(source.source()));
+        return databaseClient.sql("SELECT id, source, campaign FROM t_referer_source WHERE source IN (:sources)")
+                .bind("sources", names)
+                .map((row, metadata) -> Map.entry(new RefererUtils.Source(row.get("source", String.class),
+                        row.get("campaign", String.class)), row.get("id", Long.class)))
+                .all()
+                .<Set<RefererUtils.Source>>collect(() -> new LinkedHashSet<>(sources), (remaining, entry) -> {
+                    if (remaining.remove(entry.getKey())) {
+                        result.put(entry.getKey(), entry.getValue());
+                        dictionaryCache.put(entry.getKey(), entry.getValue());
+                    }
+                });
+    }
+
+    /**
+     * 从当天的登记名额中为新来源预留位置，名额按预留数量扣减，INSERT IGNORE 未实际插入的不退还
+     *
+     * @return 获得名额的来源
+     */
+    private Mono<Set<RefererUtils.Source>> reserve(Set<RefererUtils.Source> sources) {
+        LocalDate today = LocalDate.now();
+        NewSourceBudget budget = newSourceBudget.get();
+        Mono<NewSourceBudget> current = budget != null && budget.date().equals(today) ? Mono.just(budget)
+                : databaseClient.sql("SELECT COUNT(*) AS total FROM t_referer_source WHERE create_time >= :today")
+                .bind("today", today.atStartOfDay())
+                .map((row, metadata) -> row.get("total", Long.class))
+                .one()
+                .defaultIfEmpty(0L)
+                .map(registered -> {
+                    NewSourceBudget fresh = new NewSourceBudget(today,
+                            new AtomicInteger((int) Math.min(registered, maxNewSourcesPerDay)), new AtomicBoolean());
+                    return newSourceBudget.updateAndGet(existing ->
+                            existing != null && existing.date().equals(today) ? existing : fresh);
+                });
+        return current.map(todayBudget -> {
+            Set<RefererUtils.Source> allowed = new LinkedHashSet<>();
+            for (RefererUtils.Source source : sources) {
+                if (todayBudget.used().incrementAndGet() > maxNewSourcesPerDay) {
+                    todayBudget.used().decrementAndGet();
+                    break;
+                }
+                allowed.add(source);
+            }
+            if (allowed.size() < sources.size() && todayBudget.exhaustedLogged().compareAndSet(false, true)) {
+                log.warn("今日新登记来源已达上限{}，之后的新来源计入other", maxNewSourcesPerDay);
+            }
+            return allowed;
+        });
+    }
+
+    private Mono<Void> insert(Set<RefererUtils.Source> sources) {
+        StringBuilder sql = new StringBuilder("INSERT IGNORE INTO t_referer_source (source, campaign) VALUES ");
+        Map<String, Object> params = new HashMap<>(sources.size() * 4);
+        int index = 0;
+        for (RefererUtils.Source source : sources) {
+            sql.append(index == 0 ? "(" : ", (").append(":s").append(index).append(", :c").append(index).append(')');
+            params.put("s" + index, source.source());
+            params.put("c" + index, source.campaign());
+            index++;
+        }
+        log.debug("登记新来源: {}", sources);
+        return databaseClient.sql(sql.toString())
+                .bindValues(params)
+                .fetch()
+                .rowsUpdated()
+                .then();
+    }
+
+    /**
+     * 限制每篇文章每天的来源数量，超出名额的来源并入"其他"
+     */
+    private Map<DailyKey, Long> applyCap(Map<DailyKey, Long> views, Set<DailyKey> existing) {
+        Map<String, Integer> used = new HashMap<>();
+        for (DailyKey key : existing) {
+            if (key.refererId() != OTHER_SOURCE_ID) {
+                used.merge(key.date() + ":" + key.postId(), 1, Integer::sum);
+            }
+        }
+        List<Map.Entry<DailyKey, Long>> entries = new ArrayList<>(views.entrySet());
+        entries.sort(Map.Entry.<DailyKey, Long>comparingByValue().reversed());
+        Map<DailyKey, Long> capped = new HashMap<>(views.size() * 2);
+        for (Map.Entry<DailyKey, Long> entry : entries) {
+            DailyKey key = entry.getKey();
+            if (key.refererId() != OTHER_SOURCE_ID && !existing.contains(key)) {
+                String slot = key.date() + ":" + key.postId();
+                if (used.getOrDefault(slot, 0) < maxSourcesPerPost) {
+                    used.merge(slot, 1, Integer::sum);
+                } else {
+                    key = new DailyKey(key.date(), key.postId(), OTHER_SOURCE_ID);
+                }
+            }
+            capped.merge(key, entry.getValue(), Long::sum);
+        }
+        return capped;
+    }
+
+    private Mono<Void> upsert(Map<DailyKey, Long> views) {
+        List<Map.Entry<DailyKey, Long>> entries = new ArrayList<>(views.entrySet());
+        List<List<Map.Entry<DailyKey, Long>>> chunks = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i += UPSERT_ROWS) {
+            chunks.add(entries.subList(i, Math.min(i + UPSERT_ROWS, entries.size())));
+        }
+        return Flux.fromIterable(chunks)
+                .concatMap(chunk -> {
+                    StringBuilder sql = new StringBuilder("INSERT INTO t_post_referer_daily (stat_date, post_id, referer_id, views) VALUES ");
+                    Map<String, Object> params = new HashMap<>(chunk.size() * 8);
+                    int index = 0;
+                    for (Map.Entry<DailyKey, Long> entry : chunk) {
+                        sql.append(index == 0 ? "(" : ", (")
+                                .append(":d").append(index).append(", :p").append(index)
+                                .append(", :r").append(index).append(", :v").append(index).append(')');
+                        params.put("d" + index, entry.getKey().date());
+                        params.put("p" + index, entry.getKey().postId());
+                        params.put("r" + index, entry.getKey().refererId());
+                        params.put("v" + index, entry.getValue());
+                        index++;
+                    }
+                    sql.append(" ON DUPLICATE KEY UPDATE views = views + VALUES(views)");
+                    return databaseClient.sql(sql.toString())
+                            .bindValues(params)
+                            .fetch()
+                            .rowsUpdated();
+                })
+                .then();
+    }
+
+    /**
+     * 当天新来源的登记名额
+     *
+     * @param date            日期
+     * @param used            已使用的名额
+     * @param exhaustedLogged 名额用完的告警是否已输出
+     */
+    private record NewSourceBudget(LocalDate date, AtomicInteger used, AtomicBoolean exhaustedLogged) {
+    }
+}
@@ -0,0 +1,212 @@
+package com.ryu.blog.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ryu.blog.constant.CacheConstants;
+import com.ryu.blog.service.UniqueVisitorService;
+import com.ryu.blog.utils.HyperLogLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveHyperLogLogOperations;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 独立访客统计服务实现类
+ * <p>
+ * 站点和每篇文章每天各一个Redis HyperLogLog（PFADD/PFCOUNT），每个草图最多约12KB，
+ * 与访客数量无关；区间统计用多键PFCOUNT在服务端求并集，完整的历史月份直接使用月汇总。
+ * 每天凌晨把前一天的站点草图PFMERGE进所在周、月的汇总键。
+ * Redis不可用时读写降级到进程内HyperLogLog，降级数据只反映本节点在故障期间的访问。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class UniqueVisitorServiceImpl implements UniqueVisitorService {
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final ReactiveHyperLogLogOperations<String, String> hyperLogLog;
+    private final ReactiveRedisTemplate<String, String> reactiveRedisTemplate;
+    private final Duration dayRetention;
+    private final Duration rollupRetention;
+    private final int localPrecision;
+
+    /**
+     * 进程内降级草图，按总字节数限制容量
+     */
+    private final Cache<String, HyperLogLog> localSketches;
+
+    public UniqueVisitorServiceImpl(ReactiveRedisTemplate<String, String> reactiveRedisTemplate,
+                                    @Value("${app.uv.day-retention-days:62}") long dayRetentionDays,
+                                    @Value("${app.uv.rollup-retention-days:400}") long rollupRetentionDays,
+                                    @Value("${app.uv.local-precision:12}") int localPrecision,
+                                    @Value("${app.uv.local-max-bytes:33554432}") long localMaxBytes) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.hyperLogLog = reactiveRedisTemplate.opsForHyperLogLog();
+        this.dayRetention = Duration.ofDays(dayRetentionDays);
+        this.rollupRetention = Duration.ofDays(rollupRetentionDays);
+        this.localPrecision = localPrecision;
+        this.localSketches = Caffeine.newBuilder()
+                .maximumWeight(localMaxBytes)
+                .weigher((String key, HyperLogLog sketch) -> 1 << localPrecision)
+                .expireAfterWrite(dayRetention)
+                .build();
+    }
+
+    @Override
+    public Mono<Void> recordVisit(Long postId, String visitorId) {
+        if (postId == null || visitorId == null || visitorId.isEmpty()) {
+            return Mono.empty();
+        }
+        LocalDate today = LocalDate.now();
+        String siteKey = siteDayKey(today);
+        String postKey = postDayKey(postId, today);
+        return Mono.when(add(siteKey, visitorId, dayRetention), add(postKey, visitorId, dayRetention));
+    }
+
+    @Override
+    public Mono<Long> getSiteUniqueVisitors(LocalDate date) {
+        return count(List.of(siteDayKey(date)));
+    }
+
+    @Override
+    public Mono<Long> getSiteUniqueVisitors(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return Mono.just(0L);
+        }
+        YearMonth currentMonth = YearMonth.now();
+        List<String> keys = new ArrayList<>();
+        LocalDate cursor = from;
+        while (!cursor.isAfter(to)) {
+            YearMonth month = YearMonth.from(cursor);
+            // 区间完整覆盖的历史月份已有月汇总，用一个键代替整月的日键
+            if (cursor.getDayOfMonth() == 1 && month.isBefore(currentMonth) && !month.atEndOfMonth().isAfter(to)) {
+                keys.add(siteMonthKey(month));
+                cursor = month.plusMonths(1).atDay(1);
+            } else {
+                keys.add(siteDayKey(cursor));
+                cursor = cursor.plusDays(1);
+            }
+        }
+        return count(keys);
+    }
+
+    @Override
+    public Mono<Long> getPostUniqueVisitors(Long postId, LocalDate from, LocalDate to) {
+        List<String> keys = new ArrayList<>();
+        for (LocalDate cursor = from; !cursor.isAfter(to); cursor = cursor.plusDays(1)) {
+            keys.add(postDayKey(postId, cursor));
+        }
+        return keys.isEmpty() ? Mono.just(0L) : count(keys);
+    }
+
+    @Override
+    public Mono<Long> getWeeklyUniqueVisitors(LocalDate dayOfWeek) {
+        LocalDate monday = dayOfWeek.with(DayOfWeek.MONDAY);
+        return count(withUnrolledDays(siteWeekKey(dayOfWeek), monday, monday.plusDays(6)));
+    }
+
+    @Override
+    public Mono<Long> getMonthlyUniqueVisitors(YearMonth month) {
+        return count(withUnrolledDays(siteMonthKey(month), month.atDay(1), month.atEndOfMonth()));
+    }
+
+    @Override
+    public Mono<Void> rollupDay(LocalDate date) {
+        String dayKey = siteDayKey(date);
+        return Mono.when(merge(siteWeekKey(date), dayKey), merge(siteMonthKey(YearMonth.from(date)), dayKey))
+                .doOnSuccess(v -> log.debug("独立访客汇总完成: 日期={}", date));
+    }
+
+    /**
+     * 汇总键加上尚未汇总的昨天和今天（凌晨汇总任务执行前昨天也未汇总），
+     * HyperLogLog求并集是幂等的，重复包含已汇总的日期不影响结果
+     */
+    private List<String> withUnrolledDays(String rollupKey, LocalDate periodStart, LocalDate periodEnd) {
+        List<String> keys = new ArrayList<>(3);
+        keys.add(rollupKey);
+        LocalDate today = LocalDate.now();
+        for (LocalDate day : List.of(today.minusDays(1), today)) {
+            if (!day.isBefore(periodStart) && !day.isAfter(periodEnd)) {
+                keys.add(siteDayKey(day));
+            }
+        }
+        return keys;
+    }
+
+    private Mono<Void> add(String key, String visitorId, Duration ttl) {
+        return hyperLogLog.add(key, visitorId)
+                .flatMap(changed -> changed > 0 ? reactiveRedisTemplate.expire(key, ttl) : Mono.just(false))
+                .then()
+                .onErrorResume(e -> {
+                    log.debug("Redis记录独立访客失败，降级到本地: key={}, 错误={}", key, e.getMessage());
+                    localSketches.get(key, k -> new HyperLogLog(localPrecision)).add(visitorId);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Long> count(List<String> keys) {
+        return hyperLogLog.size(keys.toArray(new String[0]))
+                .onErrorResume(e -> {
+                    log.debug("Redis统计独立访客失败，使用本地数据: keys={}, 错误={}", keys.size(), e.getMessage());
+                    return Mono.fromCallable(() -> {
+                        HyperLogLog union = new HyperLogLog(localPrecision);
+                        for (String key : keys) {
+                            HyperLogLog sketch = localSketches.getIfPresent(key);
+                            if (sketch != null) {
+                                union.merge(sketch);
+                            }
+                        }
+                        return union.count();
+                    });
+                })
+                .defaultIfEmpty(0L);
+    }
+
+    /**
+     * PFMERGE：目标键已存在时作为源之一参与合并
+     */
+    private Mono<Void> merge(String destination, String source) {
+        return hyperLogLog.union(destination, source)
+                .then(reactiveRedisTemplate.expire(destination, rollupRetention))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Redis汇总独立访客失败，降级到本地: key={}, 错误={}", destination, e.getMessage());
+                    HyperLogLog sketch = localSketches.getIfPresent(source);
+                    if (sketch != null) {
+                        localSketches.get(destination, k -> new HyperLogLog(localPrecision)).merge(sketch);
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    private static String siteDayKey(LocalDate date) {
+        return CacheConstants.UV_SITE_DAY_KEY + date.format(DAY_FORMATTER);
+    }
+
+    private static String postDayKey(Long postId, LocalDate date) {
+        return CacheConstants.UV_POST_KEY + postId + ":day:" + date.format(DAY_FORMATTER);
+    }
+
+    private static String siteWeekKey(LocalDate date) {
+        return CacheConstants.UV_SITE_WEEK_KEY + date.get(IsoFields.WEEK_BASED_YEAR)
+                + "W" + String.format("%02d", date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+    }
+
+    private static String siteMonthKey(YearMonth month) {
+        return CacheConstants.UV_SITE_MONTH_KEY + month.format(MONTH_FORMATTER);
+    }
+}
@@ -0,0 +1,365 @@
+package com.ryu.blog.service.impl;
+
+import cn.hutool.core.util.IdUtil;
+import com.ryu.blog.exception.BusinessException;
+import com.ryu.blog.service.ViewArchiveService;
+import com.ryu.blog.service.ViewStatsService;
+import com.ryu.blog.utils.ColumnarArchive;
+import com.ryu.blog.vo.ViewArchivePartitionVO;
+import io.r2dbc.spi.Readable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * 浏览记录归档服务实现类
+ * <p>
+ * 每次从最早的一天开始归档，一天一个分区目录（dt=yyyy-MM-dd），目录下每次归档写入一个 part-最小ID-最大ID 子目录。
+ * 归档顺序：先写临时目录，完成后重命名为正式分区，再分批删除数据库中已写入的记录；
+ * 删除前中断时，下次执行会先删除分区中已有的记录再继续，归档文件中不会出现重复数据。
+ * 只归档全部记录都在汇总水位线之前的日期，归档后的数据不会再影响汇总结果。
+ * <p>
+ * 时间列保存为本地时间按UTC换算的毫秒数；update_time 和 is_deleted 不归档。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class ViewArchiveServiceImpl implements ViewArchiveService {
+
+    private static final String PARTITION_PREFIX = "dt=";
+    private static final String PART_PREFIX = "part-";
+    private static final String TEMP_PREFIX = ".tmp-";
+    private static final String DAY_COLUMN = "day";
+    private static final String POST_COLUMN = "post_id";
+
+    private static final List<ColumnarArchive.Column> COLUMNS = List.of(
+            new ColumnarArchive.Column("id", ColumnarArchive.ColumnType.LONG),
+            new ColumnarArchive.Column("visitor_id", ColumnarArchive.ColumnType.STRING),
+            new ColumnarArchive.Column(POST_COLUMN, ColumnarArchive.ColumnType.LONG),
+            new ColumnarArchive.Column("view_time", ColumnarArchive.ColumnType.LONG),
+            new ColumnarArchive.Column("ip_address", ColumnarArchive.ColumnType.STRING),
+            new ColumnarArchive.Column("agent", ColumnarArchive.ColumnType.STRING),
+            new ColumnarArchive.Column("location", ColumnarArchive.ColumnType.STRING),
+            new ColumnarArchive.Column("view_duration", ColumnarArchive.ColumnType.LONG),
+            new ColumnarArchive.Column("referer", ColumnarArchive.ColumnType.STRING),
+            new ColumnarArchive.Column("referer_id", ColumnarArchive.ColumnType.LONG),
+            new ColumnarArchive.Column("create_time", ColumnarArchive.ColumnType.LONG));
+
+    private static final Set<String> GROUP_COLUMNS = Set.of("visitor_id", POST_COLUMN, "ip_address", "agent",
+            "location", "referer", "referer_id", DAY_COLUMN);
+
+    private final DatabaseClient databaseClient;
+    private final ViewStatsService viewStatsService;
+    private final boolean enabled;
+    private final Path directory;
+    private final int archiveAfterDays;
+    private final int maxDaysPerRun;
+    private final int purgeBatchSize;
+    private final Duration purgeInterval;
+
+    public ViewArchiveServiceImpl(DatabaseClient databaseClient,
+                                  ViewStatsService viewStatsService,
+                                  @Value("${app.view-archive.enabled:false}") boolean enabled,
+                                  @Value("${app.view-archive.dir:./data/view-archive}") String directory,
+                                  @Value("${app.view-archive.archive-after-days:30}") int archiveAfterDays,
+                                  @Value("${app.view-archive.max-days-per-run:7}") int maxDaysPerRun,
+                                  @Value("${app.view-stats.purge-batch-size:1000}") int purgeBatchSize,
+                                  @Value("${app.view-stats.purge-interval-ms:200}") long purgeIntervalMs) {
+        this.databaseClient = databaseClient;
+        this.viewStatsService = viewStatsService;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory).toAbsolutePath();
+        this.archiveAfterDays = archiveAfterDays;
+        this.maxDaysPerRun = maxDaysPerRun;
+        this.purgeBatchSize = purgeBatchSize;
+        this.purgeInterval = Duration.ofMillis(purgeIntervalMs);
+    }
+
+    @Override
+    public Mono<Long> archiveExpired() {
+        if (!enabled) {
+            return Mono.just(0L);
+        }
+        LocalDate cutoff = LocalDate.now().minusDays(archiveAfterDays);
+        return viewStatsService.getWatermark()
+                .flatMap(watermark -> archiveOldestDay(cutoff, watermark)
+                        .expand(moved -> archiveOldestDay(cutoff, watermark))
+                        .take(maxDaysPerRun)
+                        .reduce(0L, Long::sum))
+                .defaultIfEmpty(0L);
+    }
+
+    @Override
+    public Mono<List<ViewArchivePartitionVO>> listPartitions(LocalDate from, LocalDate to) {
+        return Mono.fromCallable(() -> {
+            List<ViewArchivePartitionVO> partitions = new ArrayList<>();
+            for (Map.Entry<LocalDate, Path> partition : partitions(from, to).entrySet()) {
+                long rows = 0;
+                for (Path part : parts(partition.getValue())) {
+                    rows += Long.parseLong(ColumnarArchive.readManifest(part).getProperty("rows", "0"));
+                }
+                partitions.add(new ViewArchivePartitionVO(partition.getKey(), rows, ColumnarArchive.sizeOf(partition.getValue())));
+            }
+            return partitions;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Map<String, Long>> aggregate(String column, Long postId, LocalDate from, LocalDate to, int limit) {
+        if (!GROUP_COLUMNS.contains(column)) {
+            return Mono.error(new BusinessException("不支持的分组列: " + column));
+        }
+        return Mono.fromCallable(() -> {
+            boolean byDay = DAY_COLUMN.equals(column);
+            List<String> columns = new ArrayList<>();
+            columns.add(byDay ? POST_COLUMN : column);
+            if (postId != null && !POST_COLUMN.equals(columns.get(0))) {
+                columns.add(POST_COLUMN);
+            }
+            int postIndex = columns.indexOf(POST_COLUMN);
+
+            Map<String, Long> counts = new HashMap<>();
+            for (Map.Entry<LocalDate, Path> partition : partitions(from, to).entrySet()) {
+                String day = partition.getKey().toString();
+                for (Path part : parts(partition.getValue())) {
+                    ColumnarArchive.read(part, columns, values -> {
+                        if (postId == null || postId.equals(values[postIndex])) {
+                            counts.merge(byDay ? day : String.valueOf(values[0]), 1L, Long::sum);
+                        }
+                    });
+                }
+            }
+
+            Comparator<Map.Entry<String, Long>> order = byDay ? Map.Entry.comparingByKey()
+                    : Map.Entry.<String, Long>comparingByValue().reversed();
+            Map<String, Long> result = new LinkedHashMap<>();
+            counts.entrySet().stream()
+                    .sorted(order)
+                    .limit(limit)
+                    .forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+            return result;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 归档数据库中最早的一天，没有可归档的日期时返回空
+     *
+     * @return 迁出的记录数
+     */
+    private Mono<Long> archiveOldestDay(LocalDate cutoff, long watermark) {
+        return databaseClient.sql("SELECT MIN(create_time) AS oldest FROM t_view_history")
+                .map((row, metadata) -> Optional.ofNullable(row.get("oldest", LocalDateTime.class)))
+                .one()
+                .flatMap(oldest -> oldest.map(LocalDateTime::toLocalDate)
+                        .filter(day -> day.isBefore(cutoff))
+                        .map(day -> archiveDay(day, watermark))
+                        .orElseGet(Mono::empty));
+    }
+
+    private Mono<Long> archiveDay(LocalDate day, long watermark) {
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = day.plusDays(1).atStartOfDay();
+        return databaseClient.sql("SELECT MAX(id) AS max_id FROM t_view_history WHERE create_time >= :start AND create_time < :end")
+                .bind("start", start)
+                .bind("end", end)
+                .map((row, metadata) -> Optional.ofNullable(row.get("max_id", Long.class)))
+                .one()
+                .flatMap(maxId -> {
+                    if (maxId.isPresent() && maxId.get() > watermark) {
+                        log.info("浏览记录尚未全部汇总，暂停归档: 日期={}, 最大ID={}, 水位线={}", day, maxId.get(), watermark);
+                        return Mono.empty();
+                    }
+                    return Mono.fromCallable(() -> archivedMaxId(day))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            // 上次写入分区后、删除完成前中断的记录已在归档中，直接删除
+                            .flatMap(archivedMaxId -> deleteArchived(start, end, archivedMaxId)
+                                    .flatMap(recovered -> writePart(day, start, end, archivedMaxId)
+                                            .flatMap(partMaxId -> partMaxId > archivedMaxId
+                                                    ? deleteArchived(start, end, partMaxId) : Mono.just(0L))
+                                            .map(moved -> moved + recovered)));
+                })
+                .doOnSuccess(moved -> {
+                    if (moved != null) {
+                        log.info("浏览记录归档完成: 日期={}, 迁出记录={}", day, moved);
+                    }
+                });
+    }
+
+    /**
+     * 把一天中ID大于 afterId 的记录写入新的分区文件
+     *
+     * @return 写入的最大ID，没有记录时返回 afterId
+     */
+    private Mono<Long> writePart(LocalDate day, LocalDateTime start, LocalDateTime end, long afterId) {
+        Path partition = directory.resolve(PARTITION_PREFIX + day);
+        Path temp = partition.resolve(TEMP_PREFIX + IdUtil.fastSimpleUUID());
+        return Mono.using(() -> new ColumnarArchive.Writer(temp, COLUMNS),
+                        writer -> databaseClient.sql("SELECT id, visitor_id, post_id, view_time, ip_address, agent, location, " +
+                                        "view_duration, referer, referer_id, create_time FROM t_view_history " +
+                                        "WHERE create_time >= :start AND create_time < :end AND id > :afterId ORDER BY id")
+                                .bind("start", start)
+                                .bind("end", end)
+                                .bind("afterId", afterId)
+                                .map((row, metadata) -> toValues(row))
+                                .all()
+                                .publishOn(Schedulers.boundedElastic())
+                                .reduceWith(() -> new long[]{Long.MAX_VALUE, afterId}, (range, values) -> {
+                                    append(writer, values);
+                                    range[0] = Math.min(range[0], (Long) values[0]);
+                                    range[1] = Math.max(range[1], (Long) values[0]);
+                                    return range;
+                                })
+                                .map(range -> {
+                                    if (writer.getRowCount() == 0) {
+                                        return afterId;
+                                    }
+                                    commit(writer, temp, partition.resolve(PART_PREFIX + range[0] + "-" + range[1]), day, range);
+                                    return range[1];
+                                }),
+                        ColumnarArchive.Writer::close)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Long> deleteArchived(LocalDateTime start, LocalDateTime end, long maxId) {
+        if (maxId <= 0) {
+            return Mono.just(0L);
+        }
+        Mono<Long> deleteBatch = Mono.defer(() -> databaseClient.sql("DELETE FROM t_view_history " +
+                        "WHERE create_time >= :start AND create_time < :end AND id <= :maxId LIMIT " + purgeBatchSize)
+                .bind("start", start)
+                .bind("end", end)
+                .bind("maxId", maxId)
+                .fetch()
+                .rowsUpdated());
+        return deleteBatch
+                .expand(deleted -> deleted < purgeBatchSize
+                        ? Mono.empty()
+                        : Mono.delay(purgeInterval).then(deleteBatch))
+                .reduce(0L, Long::sum);
+    }
+
+    private static Object[] toValues(Readable row) {
+        Integer viewDuration = row.get("view_duration", Integer.class);
+        return new Object[]{
+                row.get("id", Long.class),
+                row.get("visitor_id", String.class),
+                row.get("post_id", Long.class),
+                toMillis(row.get("view_time", LocalDateTime.class)),
+                row.get("ip_address", String.class),
+                row.get("agent", String.class),
+                row.get("location", String.class),
+                viewDuration != null ? viewDuration.longValue() : null,
+                row.get("referer", String.class),
+                row.get("referer_id", Long.class),
+                toMillis(row.get("create_time", LocalDateTime.class))
+        };
+    }
+
+    private static Long toMillis(LocalDateTime time) {
+        return time != null ? time.toInstant(ZoneOffset.UTC).toEpochMilli() : null;
+    }
+
+    private static void append(ColumnarArchive.Writer writer, Object[] values) {
+        try {
+            writer.append(values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void commit(ColumnarArchive.Writer writer, Path temp, Path target, LocalDate day, long[] range) {
+        try {
+            writer.finish(Map.of("day", day.toString(), "minId", String.valueOf(range[0]), "maxId", String.valueOf(range[1])));
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            ColumnarArchive.deleteRecursively(temp);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 分区中已归档的最大ID，同时清理中断时残留的临时目录
+     */
+    private long archivedMaxId(LocalDate day) throws IOException {
+        Path partition = directory.resolve(PARTITION_PREFIX + day);
+        if (!Files.isDirectory(partition)) {
+            return 0L;
+        }
+        try (Stream<Path> children = Files.list(partition)) {
+            children.filter(child -> child.getFileName().toString().startsWith(TEMP_PREFIX))
+                    .forEach(ColumnarArchive::deleteRecursively);
+        }
+        long maxId = 0L;
+        for (Path part : parts(partition)) {
+            Properties manifest = ColumnarArchive.readManifest(part);
+            maxId = Math.max(maxId, Long.parseLong(manifest.getProperty("maxId", "0")));
+        }
+        return maxId;
+    }
+
+    /**
+     * 日期范围内的分区目录
+     */
+    private Map<LocalDate, Path> partitions(LocalDate from, LocalDate to) throws IOException {
+        Map<LocalDate, Path> partitions = new TreeMap<>();
+        if (!Files.isDirectory(directory)) {
+            return partitions;
+        }
+        try (Stream<Path> children = Files.list(directory)) {
+            for (Path child : (Iterable<Path>) children::iterator) {
+                String name = child.getFileName().toString();
+                if (!name.startsWith(PARTITION_PREFIX) || !Files.isDirectory(child)) {
+                    continue;
+                }
+                try {
+                    LocalDate day = LocalDate.parse(name.substring(PARTITION_PREFIX.length()));
+                    if (!day.isBefore(from) && !day.isAfter(to)) {
+                        partitions.put(day, child);
+                    }
+                } catch (DateTimeParseException ignored) {
+                    // 不是分区目录
+                }
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * 分区中已完成的子目录，临时目录不可见
+     */
+    private static List<Path> parts(Path partition) throws IOException {
+        try (Stream<Path> children = Files.list(partition)) {
+            return children.filter(child -> child.getFileName().toString().startsWith(PART_PREFIX))
+                    .filter(child -> Files.isRegularFile(child.resolve(ColumnarArchive.MANIFEST)))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,629 @@
+package com.ryu.blog.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ryu.blog.event.ViewEvent;
+import com.ryu.blog.event.ViewEventsPersistedEvent;
+import com.ryu.blog.service.IpLocationService;
+import com.ryu.blog.service.ReferrerAttributionService;
+import com.ryu.blog.service.ViewEventIngestService;
+import com.ryu.blog.utils.RefererUtils;
+import com.ryu.blog.utils.UserAgentAnalyzer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 浏览事件写入服务实现类
+ * <p>
+ * 请求线程把原始浏览事件放入有界环形缓冲区（ArrayBlockingQueue）后立即返回；
+ * 单个后台线程每攒够batch-size条或等待flush-interval-ms后取出一批，
+ * 补充IP地理位置和设备信息，再用一条多行INSERT写入t_view_history。
+ * 写入速度跟不上时缓冲区被填满，新事件放入一个较小的溢出队列，由独立的溢出线程追加到本地溢出文件，
+ * 请求线程不接触文件；溢出队列也满或溢出文件达到上限后事件被丢弃。缓冲区空闲时回放溢出文件，
+ * 同一批次连续回放失败且数据库可用时逐条写入，无法写入的事件移入隔离文件，不再阻塞后续回放。
+ * 接收、溢出、丢弃、写入、失败、隔离数量均通过Micrometer暴露。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class ViewEventIngestServiceImpl implements ViewEventIngestService,
+        ApplicationListener<ApplicationStartedEvent>, DisposableBean {
+
+    private static final String METRIC_EVENTS = "blog.view.ingest.events";
+    private static final String METRIC_BUFFER = "blog.view.ingest.buffer";
+    private static final String INSERT_PREFIX = "INSERT INTO t_view_history (visitor_id, post_id, view_time, ip_address, " +
+            "agent, location, view_duration, referer, referer_id, create_time, update_time, is_deleted) VALUES ";
+    private static final int COLUMNS = 12;
+    private static final Duration WRITE_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration MAX_REPLAY_BACKOFF = Duration.ofMinutes(1);
+
+    private final DatabaseClient databaseClient;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IpLocationService ipLocationService;
+    private final ReferrerAttributionService referrerAttributionService;
+
+    private final BlockingQueue<ViewEvent> ringBuffer;
+    private final BlockingQueue<ViewEvent> overflowQueue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final boolean spillEnabled;
+    private final Path spillFile;
+    private final Path replayFile;
+    private final Path quarantineFile;
+    private final long spillMaxBytes;
+    private final int replayMaxAttempts;
+
+    private final Counter acceptedCounter;
+    private final Counter spilledCounter;
+    private final Counter droppedCounter;
+    private final Counter persistedCounter;
+    private final Counter failedCounter;
+    private final Counter quarantinedCounter;
+
+    private final Object spillLock = new Object();
+    private final AtomicBoolean spillPending = new AtomicBoolean(false);
+    private BufferedWriter spillWriter;
+    private long spillBytes;
+
+    /**
+     * 回放文件头部批次的连续失败次数和下次回放时间，只由写入线程访问
+     */
+    private int replayFailures;
+    private long replayRetryAt = System.nanoTime();
+
+    private volatile boolean running;
+    private Thread worker;
+    private Thread spillWorker;
+
+    public ViewEventIngestServiceImpl(DatabaseClient databaseClient,
+                                      ObjectMapper objectMapper,
+                                      ApplicationEventPublisher eventPublisher,
+                                      IpLocationService ipLocationService,
+                                      ReferrerAttributionService referrerAttributionService,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.view-ingest.buffer-capacity:8192}") int bufferCapacity,
+                                      @Value("${app.view-ingest.overflow-capacity:1024}") int overflowCapacity,
+                                      @Value("${app.view-ingest.batch-size:200}") int batchSize,
+                                      @Value("${app.view-ingest.flush-interval-ms:500}") long flushIntervalMillis,
+                                      @Value("${app.view-ingest.spill-enabled:true}") boolean spillEnabled,
+                                      @Value("${app.view-ingest.spill-path:./data/view-spill.log}") String spillPath,
+                                      @Value("${app.view-ingest.spill-max-bytes:67108864}") long spillMaxBytes,
+                                      @Value("${app.view-ingest.replay-max-attempts:5}") int replayMaxAttempts) {
+        this.databaseClient = databaseClient;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.ipLocationService = ipLocationService;
+        this.referrerAttributionService = referrerAttributionService;
+        this.ringBuffer = new ArrayBlockingQueue<>(bufferCapacity);
+        this.overflowQueue = new ArrayBlockingQueue<>(overflowCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.spillEnabled = spillEnabled;
+        this.spillFile = Paths.get(spillPath).toAbsolutePath();
+        this.replayFile = spillFile.resolveSibling(spillFile.getFileName() + ".replay");
+        this.quarantineFile = spillFile.resolveSibling(spillFile.getFileName() + ".quarantine");
+        this.spillMaxBytes = spillMaxBytes;
+        this.replayMaxAttempts = replayMaxAttempts;
+
+        this.acceptedCounter = meterRegistry.counter(METRIC_EVENTS, "result", "accepted");
+        this.spilledCounter = meterRegistry.counter(METRIC_EVENTS, "result", "spilled");
+        this.droppedCounter = meterRegistry.counter(METRIC_EVENTS, "result", "dropped");
+        this.persistedCounter = meterRegistry.counter(METRIC_EVENTS, "result", "persisted");
+        this.failedCounter = meterRegistry.counter(METRIC_EVENTS, "result", "failed");
+        this.quarantinedCounter = meterRegistry.counter(METRIC_EVENTS, "result", "quarantined");
+        Gauge.builder(METRIC_BUFFER, ringBuffer, BlockingQueue::size)
+                .description("等待写入的浏览事件数量")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationStartedEvent event) {
+        // 上次运行遗留的溢出文件在空闲时回放
+        spillPending.set(Files.exists(spillFile) || Files.exists(replayFile));
+        running = true;
+        worker = new Thread(this::runWorker, "view-ingest-worker");
+        worker.setDaemon(true);
+        worker.start();
+        if (spillEnabled) {
+            spillWorker = new Thread(this::runSpillWorker, "view-ingest-spill");
+            spillWorker.setDaemon(true);
+            spillWorker.start();
+        }
+        log.info("浏览事件写入线程已启动: 缓冲区容量={}, 批量大小={}, 刷新间隔={}ms",
+                ringBuffer.remainingCapacity(), batchSize, flushIntervalMillis);
+    }
+
+    @Override
+    public boolean offer(ViewEvent event) {
+        if (event == null) {
+            return false;
+        }
+        if (ringBuffer.offer(event)) {
+            acceptedCounter.increment();
+            return true;
+        }
+        // 缓冲区已满：交给溢出线程写入文件，这里只做一次非阻塞入队，不接触文件
+        if (spillEnabled && overflowQueue.offer(event)) {
+            return true;
+        }
+        droppedCounter.increment();
+        log.debug("浏览事件缓冲区已满，丢弃事件: 文章ID={}", event.getPostId());
+        return false;
+    }
+
+    @Override
+    public int getPendingCount() {
+        return ringBuffer.size();
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        try {
+            // 写入线程和溢出线程会在退出前清空各自的队列
+            if (worker != null) {
+                worker.join(WRITE_TIMEOUT.toMillis());
+            }
+            if (spillWorker != null) {
+                spillWorker.join(WRITE_TIMEOUT.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<ViewEvent> remaining = new ArrayList<>();
+        ringBuffer.drainTo(remaining);
+        overflowQueue.drainTo(remaining);
+        if (!remaining.isEmpty() && spill(remaining)) {
+            log.info("应用停止，{} 条未写入的浏览事件已保存到溢出文件", remaining.size());
+        }
+        synchronized (spillLock) {
+            closeSpillWriter();
+        }
+    }
+
+    /**
+     * 写入线程主循环：攒批 -> 写入；缓冲区空闲且未处于退避期时回放溢出文件
+     */
+    private void runWorker() {
+        List<ViewEvent> batch = new ArrayList<>(batchSize);
+        while (running || !ringBuffer.isEmpty()) {
+            try {
+                ViewEvent first = ringBuffer.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (spillPending.get() && System.nanoTime() - replayRetryAt >= 0) {
+                        replaySpill();
+                    }
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    ringBuffer.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    ViewEvent next = ringBuffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                // 写入失败的批次转存到溢出文件，等数据库恢复后回放
+                if (!persist(batch)) {
+                    (spill(batch) ? spilledCounter : droppedCounter).increment(batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("浏览事件写入线程异常: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+        log.info("浏览事件写入线程已停止");
+    }
+
+    /**
+     * 溢出线程主循环：把缓冲区满时放入溢出队列的事件追加到溢出文件，文件达到上限时丢弃
+     */
+    private void runSpillWorker() {
+        List<ViewEvent> events = new ArrayList<>(batchSize);
+        while (running || !overflowQueue.isEmpty()) {
+            try {
+                ViewEvent first = overflowQueue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                events.add(first);
+                overflowQueue.drainTo(events, batchSize - 1);
+                (spill(events) ? spilledCounter : droppedCounter).increment(events.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                events.clear();
+            }
+        }
+    }
+
+    /**
+     * 补充信息并批量写入一批浏览事件
+     *
+     * @return 是否写入成功
+     */
+    private boolean persist(List<ViewEvent> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        Map<String, String> locations = resolveLocations(batch);
+        Map<RefererUtils.Source, Long> sourceIds = internSources(batch);
+        for (ViewEvent event : batch) {
+            try {
+                enrich(event, locations, sourceIds);
+            } catch (Exception e) {
+                // 单条事件补充失败不影响整批写入，未补充的字段按空值写入
+                log.warn("补充浏览事件信息失败: 文章ID={}, 错误={}", event.getPostId(), e.getMessage());
+            }
+        }
+        try {
+            databaseClient.sql(buildInsertSql(batch.size()))
+                    .bindValues(buildInsertParams(batch))
+                    .fetch()
+                    .rowsUpdated()
+                    .block(WRITE_TIMEOUT);
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            log.error("批量写入浏览记录失败: 条数={}, 错误={}", batch.size(), e.getMessage());
+            return false;
+        }
+        persistedCounter.increment(batch.size());
+        log.debug("批量写入浏览记录成功: 条数={}", batch.size());
+        try {
+            eventPublisher.publishEvent(new ViewEventsPersistedEvent(this, List.copyOf(batch)));
+        } catch (Exception e) {
+            log.warn("处理浏览记录入库事件失败: {}", e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * 解析一批事件的IP地理位置，重复IP只查询一次；整批解析失败时逐个解析，解析不了的IP不记录位置
+     */
+    private Map<String, String> resolveLocations(List<ViewEvent> batch) {
+        Set<String> ips = batch.stream()
+                .filter(event -> event.getLocation() == null)
+                .map(ViewEvent::getIpAddress)
+                .filter(ip -> ip != null && !ip.isEmpty())
+                .collect(Collectors.toSet());
+        if (ips.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return ipLocationService.getIpLocations(ips);
+        } catch (Exception e) {
+            log.warn("批量解析IP地理位置失败，改为逐个解析: {}", e.getMessage());
+        }
+        Map<String, String> locations = new HashMap<>(ips.size() * 2);
+        for (String ip : ips) {
+            try {
+                locations.put(ip, ipLocationService.getIpLocation(ip));
+            } catch (Exception e) {
+                log.debug("解析IP地理位置失败: IP={}, 错误={}", ip, e.getMessage());
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * 补充地理位置和设备信息，回放的事件可能已经补充过
+     */
+    private void enrich(ViewEvent event, Map<String, String> locations, Map<RefererUtils.Source, Long> sourceIds) {
+        if (event.getRefererId() == null) {
+            RefererUtils.Source source = normalizeSource(event);
+            event.setRefererId(source != null ? sourceIds.get(source) : null);
+        }
+        if (event.getLocation() == null) {
+            String ip = event.getIpAddress();
+            event.setLocation(ip == null || ip.isEmpty() ? "" : locations.getOrDefault(ip, ""));
+        }
+        if (event.getDeviceInfo() == null) {
+            String userAgent = event.getUserAgent();
+            if (userAgent == null || userAgent.isEmpty()) {
+                event.setDeviceInfo("");
+            } else {
+                UserAgentAnalyzer.DeviceInfo deviceInfo = UserAgentAnalyzer.parseUserAgent(userAgent);
+                event.setDeviceInfo(deviceInfo.toString());
+                event.setDeviceType(deviceInfo.getDeviceType());
+            }
+        }
+    }
+
+    /**
+     * 来源归一化后登记到字典，浏览记录只保存字典ID；字典不可用时保留原始来源
+     */
+    private Map<RefererUtils.Source, Long> internSources(List<ViewEvent> batch) {
+        Set<RefererUtils.Source> sources = batch.stream()
+                .filter(event -> event.getRefererId() == null)
+                .map(ViewEventIngestServiceImpl::normalizeSource)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (sources.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            Map<RefererUtils.Source, Long> sourceIds = referrerAttributionService.intern(sources).block(WRITE_TIMEOUT);
+            return sourceIds != null ? sourceIds : Map.of();
+        } catch (Exception e) {
+            log.warn("登记来源字典失败，保留原始来源: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * 归一化事件来源，无法解析的来源返回null，写入时保留原始来源
+     */
+    private static RefererUtils.Source normalizeSource(ViewEvent event) {
+        try {
+            return RefererUtils.normalize(event.getReferer(), event.getLandingUrl());
+        } catch (Exception e) {
+            log.debug("归一化浏览来源失败: 来源={}, 错误={}", event.getReferer(), e.getMessage());
+            return null;
+        }
+    }
+
+    private String buildInsertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        int index = 0;
+        for (int row = 0; row < rows; row++) {
+            sql.append(row == 0 ? "(" : ", (");
+            for (int column = 0; column < COLUMNS; column++) {
+                sql.append(column == 0 ? ":p" : ", :p").append(index++);
+            }
+            sql.append(')');
+        }
+        return sql.toString();
+    }
+
+    private Map<String, Object> buildInsertParams(List<ViewEvent> batch) {
+        Map<String, Object> params = new HashMap<>(batch.size() * COLUMNS * 2);
+        LocalDateTime now = LocalDateTime.now();
+        int index = 0;
+        for (ViewEvent event : batch) {
+            Object[] values = {
+                    event.getVisitorId(),
+                    event.getPostId(),
+                    event.getViewTime() != null ? event.getViewTime() : now,
+                    nullToEmpty(event.getIpAddress()),
+                    nullToEmpty(event.getDeviceInfo()),
+                    nullToEmpty(event.getLocation()),
+                    event.getViewDuration() != null ? event.getViewDuration() : 0,
+                    event.getRefererId() != null ? "" : nullToEmpty(event.getReferer()),
+                    Parameter.fromOrEmpty(event.getRefererId(), Long.class),
+                    now,
+                    now,
+                    0
+            };
+            for (Object value : values) {
+                params.put("p" + index++, value);
+            }
+        }
+        return params;
+    }
+
+    /**
+     * 追加事件到溢出文件，每行一个JSON
+     *
+     * @return 是否写入成功
+     */
+    private boolean spill(List<ViewEvent> events) {
+        if (!spillEnabled) {
+            return false;
+        }
+        synchronized (spillLock) {
+            try {
+                if (spillWriter == null) {
+                    Files.createDirectories(spillFile.getParent());
+                    spillBytes = Files.exists(spillFile) ? Files.size(spillFile) : 0;
+                    spillWriter = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                if (spillBytes >= spillMaxBytes) {
+                    return false;
+                }
+                for (ViewEvent event : events) {
+                    String line = objectMapper.writeValueAsString(event);
+                    spillWriter.write(line);
+                    spillWriter.newLine();
+                    spillBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                }
+                spillWriter.flush();
+                spillPending.set(true);
+                return true;
+            } catch (IOException e) {
+                log.error("写入浏览事件溢出文件失败: {}", e.getMessage());
+                closeSpillWriter();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 回放溢出文件：先把溢出文件改名为回放文件，溢出线程随后的写入进入新文件；
+     * 回放中途写入失败时，未写入的部分保留在回放文件中，按失败次数退避后再回放
+     */
+    private void replaySpill() {
+        synchronized (spillLock) {
+            try {
+                if (!Files.exists(replayFile)) {
+                    closeSpillWriter();
+                    if (!Files.exists(spillFile)) {
+                        spillPending.set(false);
+                        return;
+                    }
+                    Files.move(spillFile, replayFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                log.error("准备回放浏览事件溢出文件失败: {}", e.getMessage());
+                return;
+            }
+        }
+
+        // 逐行流式读取，内存中只保留当前批次，避免在内存吃紧时一次性载入整个溢出文件
+        int replayed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+            List<ViewEvent> batch = new ArrayList<>(batchSize);
+            List<String> batchLines = new ArrayList<>(batchSize);
+            String line;
+            boolean eof = false;
+            while (!eof) {
+                line = reader.readLine();
+                eof = line == null;
+                if (!eof && !line.isBlank()) {
+                    try {
+                        batch.add(objectMapper.readValue(line, ViewEvent.class));
+                        batchLines.add(line);
+                    } catch (IOException e) {
+                        log.warn("跳过无法解析的浏览事件: {}", line);
+                    }
+                }
+                if (batch.size() >= batchSize || (eof && !batch.isEmpty())) {
+                    if (!persist(batch) && !isolateRejected(batch, batchLines)) {
+                        long remaining = retainUnreplayed(batchLines, reader);
+                        long backoff = Math.min(flushIntervalMillis << Math.min(replayFailures, 16),
+                                MAX_REPLAY_BACKOFF.toMillis());
+                        replayRetryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+                        log.warn("浏览事件溢出文件回放中断，剩余 {} 行在 {}ms 后重新回放", remaining, backoff);
+                        return;
+                    }
+                    replayFailures = 0;
+                    replayed += batch.size();
+                    batch.clear();
+                    batchLines.clear();
+                }
+            }
+        } catch (IOException e) {
+            log.error("回放浏览事件溢出文件失败: {}", e.getMessage());
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(replayFile);
+            log.info("浏览事件溢出文件回放完成: 条数={}", replayed);
+            synchronized (spillLock) {
+                spillPending.set(Files.exists(spillFile));
+            }
+        } catch (IOException e) {
+            log.error("删除浏览事件回放文件失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 同一批次连续回放失败达到上限且数据库可用时，说明批次中有无法写入的数据：
+     * 逐条写入，写不进去的事件移入隔离文件，避免一条坏数据卡住整个溢出文件的回放
+     *
+     * @return 批次是否已处理完；未达到上限或数据库不可用时返回false，批次保留等待下次回放
+     */
+    private boolean isolateRejected(List<ViewEvent> batch, List<String> batchLines) throws IOException {
+        if (++replayFailures < replayMaxAttempts || !databaseAvailable()) {
+            return false;
+        }
+        List<String> rejected = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (!persist(List.of(batch.get(i)))) {
+                rejected.add(batchLines.get(i));
+            }
+        }
+        if (!rejected.isEmpty()) {
+            Files.write(quarantineFile, rejected, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            quarantinedCounter.increment(rejected.size());
+            log.warn("{} 条浏览事件连续 {} 次回放失败，已移入隔离文件: {}", rejected.size(), replayFailures, quarantineFile);
+        }
+        return true;
+    }
+
+    private boolean databaseAvailable() {
+        try {
+            databaseClient.sql("SELECT 1").fetch().first().block(WRITE_TIMEOUT);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 把写入失败的批次和尚未读取的部分流式写入临时文件，再替换回放文件
+     *
+     * @return 保留的行数
+     */
+    private long retainUnreplayed(List<String> failedLines, BufferedReader reader) throws IOException {
+        Path restFile = replayFile.resolveSibling(replayFile.getFileName() + ".tmp");
+        long remaining = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(restFile, StandardCharsets.UTF_8)) {
+            for (String failed : failedLines) {
+                writer.write(failed);
+                writer.newLine();
+                remaining++;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.write(line);
+                writer.newLine();
+                remaining++;
+            }
+        }
+        Files.move(restFile, replayFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return remaining;
+    }
+
+    private void closeSpillWriter() {
+        if (spillWriter != null) {
+            try {
+                spillWriter.close();
+            } catch (IOException e) {
+                log.warn("关闭浏览事件溢出文件失败: {}", e.getMessage());
+            }
+            spillWriter = null;
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,383 @@
+package com.ryu.blog.service.impl;
+
+import com.ryu.blog.entity.ViewStatsDimension;
+import com.ryu.blog.service.ReferrerAttributionService;
+import com.ryu.blog.service.ViewStatsService;
+import com.ryu.blog.utils.HyperLogLog;
+import com.ryu.blog.utils.IPLocationUtil;
+import com.ryu.blog.utils.RefererUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 浏览统计汇总服务实现类
+ * <p>
+ * 按id顺序从水位线之后读取t_view_history，按浏览时间聚合到小时表和天表（全站、文章、设备、地区、来源五个维度），
+ * 全站的天汇总额外保存HyperLogLog草图用于长周期去重。汇总写入、草图合并和水位线推进在同一事务中完成，
+ * 水位线行使用 FOR UPDATE 锁定，多个节点同时执行时自然串行，不会重复汇总。
+ * <p>
+ * 只汇总写入时间早于 当前时间 - lag 的记录，并在遇到第一条未到期的记录时停止，
+ * lag 需大于批量写入的超时时间，保证水位线之前不会再出现迟到提交的记录。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class ViewStatsServiceImpl implements ViewStatsService {
+
+    private static final String WATERMARK_NAME = "view_history";
+    private static final String SITE_VALUE = "";
+    private static final String UNKNOWN = "未知";
+    private static final int MAX_VALUE_LENGTH = 128;
+    private static final int UPSERT_ROWS = 500;
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final ReferrerAttributionService referrerAttributionService;
+
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration lag;
+    private final int sketchPrecision;
+    private final int rawRetentionDays;
+    private final int hourlyRetentionDays;
+    private final int purgeBatchSize;
+    private final Duration purgeInterval;
+    private final boolean archiveEnabled;
+
+    public ViewStatsServiceImpl(DatabaseClient databaseClient,
+                                ReactiveTransactionManager transactionManager,
+                                ReferrerAttributionService referrerAttributionService,
+                                @Value("${app.view-stats.batch-size:2000}") int batchSize,
+                                @Value("${app.view-stats.max-batches-per-run:50}") int maxBatchesPerRun,
+                                @Value("${app.view-stats.lag-seconds:60}") long lagSeconds,
+                                @Value("${app.view-stats.sketch-precision:12}") int sketchPrecision,
+                                @Value("${app.view-stats.raw-retention-days:180}") int rawRetentionDays,
+                                @Value("${app.view-stats.hourly-retention-days:14}") int hourlyRetentionDays,
+                                @Value("${app.view-stats.purge-batch-size:1000}") int purgeBatchSize,
+                                @Value("${app.view-stats.purge-interval-ms:200}") long purgeIntervalMs,
+                                @Value("${app.view-archive.enabled:false}") boolean archiveEnabled) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+        this.referrerAttributionService = referrerAttributionService;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.lag = Duration.ofSeconds(lagSeconds);
+        this.sketchPrecision = sketchPrecision;
+        this.rawRetentionDays = rawRetentionDays;
+        this.hourlyRetentionDays = hourlyRetentionDays;
+        this.purgeBatchSize = purgeBatchSize;
+        this.purgeInterval = Duration.ofMillis(purgeIntervalMs);
+        this.archiveEnabled = archiveEnabled;
+    }
+
+    @Override
+    public Mono<Integer> rollup() {
+        return rollupBatch()
+                .expand(count -> count < batchSize ? Mono.empty() : rollupBatch())
+                .take(maxBatchesPerRun)
+                .reduce(0, Integer::sum)
+                .doOnSuccess(count -> {
+                    if (count > 0) {
+                        log.debug("浏览统计汇总完成: 记录数={}", count);
+                    }
+                });
+    }
+
+    @Override
+    public Mono<Long> pruneExpired() {
+        LocalDateTime rawDeadline = LocalDateTime.now().minusDays(rawRetentionDays);
+        LocalDateTime hourlyDeadline = LocalDateTime.now().minusDays(hourlyRetentionDays).truncatedTo(ChronoUnit.HOURS);
+        // 只删除水位线之前（已汇总）的记录，汇总任务落后时不会丢数据；启用归档时由归档任务迁出，避免删掉未归档的记录
+        Mono<Long> pruneRaw = archiveEnabled ? Mono.just(0L) : readWatermark(false)
+                .flatMap(watermark -> deleteInBatches("DELETE FROM t_view_history WHERE create_time < :deadline " +
+                        "AND id <= :watermark LIMIT " + purgeBatchSize, Map.of("deadline", rawDeadline, "watermark", watermark)));
+        return pruneRaw
+                .flatMap(rawDeleted -> deleteInBatches("DELETE FROM t_view_stats_hourly WHERE stat_hour < :deadline " +
+                        "LIMIT " + purgeBatchSize, Map.of("deadline", hourlyDeadline))
+                        .doOnSuccess(hourlyDeleted -> log.info("浏览统计清理完成: 浏览记录={}, 小时汇总={}", rawDeleted, hourlyDeleted))
+                        .thenReturn(rawDeleted));
+    }
+
+    @Override
+    public Mono<Long> getWatermark() {
+        return readWatermark(false);
+    }
+
+    @Override
+    public Mono<Map<LocalDate, Long>> getDailySiteViews(LocalDate from, LocalDate to) {
+        return databaseClient.sql("SELECT stat_date, views FROM t_view_stats_daily " +
+                        "WHERE dim_type = :dimType AND dim_value = :dimValue AND stat_date BETWEEN :from AND :to")
+                .bind("dimType", ViewStatsDimension.SITE.getCode())
+                .bind("dimValue", SITE_VALUE)
+                .bind("from", from)
+                .bind("to", to)
+                .map((row, metadata) -> Map.entry(row.get("stat_date", LocalDate.class), row.get("views", Long.class)))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .map(views -> {
+                    Map<LocalDate, Long> result = new LinkedHashMap<>();
+                    for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                        result.put(day, views.getOrDefault(day, 0L));
+                    }
+                    return result;
+                });
+    }
+
+    @Override
+    public Mono<Long> getTotalSiteViews() {
+        return databaseClient.sql("SELECT CAST(COALESCE(SUM(views), 0) AS SIGNED) AS total FROM t_view_stats_daily " +
+                        "WHERE dim_type = :dimType AND dim_value = :dimValue")
+                .bind("dimType", ViewStatsDimension.SITE.getCode())
+                .bind("dimValue", SITE_VALUE)
+                .map((row, metadata) -> row.get("total", Long.class))
+                .one()
+                .defaultIfEmpty(0L);
+    }
+
+    @Override
+    public Mono<Map<String, Long>> getTopValues(ViewStatsDimension dimension, LocalDate from, LocalDate to, int limit) {
+        return databaseClient.sql("SELECT dim_value, CAST(SUM(views) AS SIGNED) AS total FROM t_view_stats_daily " +
+                        "WHERE dim_type = :dimType AND stat_date BETWEEN :from AND :to " +
+                        "GROUP BY dim_value ORDER BY total DESC LIMIT :limit")
+                .bind("dimType", dimension.getCode())
+                .bind("from", from)
+                .bind("to", to)
+                .bind("limit", limit)
+                .map((row, metadata) -> Map.entry(row.get("dim_value", String.class), row.get("total", Long.class)))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new);
+    }
+
+    @Override
+    public Mono<Long> getSiteUniqueVisitors(LocalDate from, LocalDate to) {
+        return databaseClient.sql("SELECT uv_sketch FROM t_view_stats_daily WHERE dim_type = :dimType " +
+                        "AND dim_value = :dimValue AND stat_date BETWEEN :from AND :to AND uv_sketch IS NOT NULL")
+                .bind("dimType", ViewStatsDimension.SITE.getCode())
+                .bind("dimValue", SITE_VALUE)
+                .bind("from", from)
+                .bind("to", to)
+                .map((row, metadata) -> row.get("uv_sketch", byte[].class))
+                .all()
+                .map(HyperLogLog::fromBytes)
+                .reduce(new HyperLogLog(sketchPrecision), (union, sketch) -> {
+                    if (sketch.getPrecision() == union.getPrecision()) {
+                        union.merge(sketch);
+                    }
+                    return union;
+                })
+                .map(HyperLogLog::count);
+    }
+
+    /**
+     * 在一个事务中汇总水位线之后的一批记录
+     *
+     * @return 本批汇总的记录数
+     */
+    private Mono<Integer> rollupBatch() {
+        LocalDateTime safeTime = LocalDateTime.now().minus(lag);
+        Mono<Integer> batch = readWatermark(true)
+                .flatMap(lastId -> databaseClient.sql("SELECT vh.id, vh.visitor_id, vh.post_id, vh.view_time, vh.agent, " +
+                                "vh.location, vh.referer, vh.referer_id, rs.source AS referer_source, vh.create_time " +
+                                "FROM t_view_history vh LEFT JOIN t_referer_source rs ON rs.id = vh.referer_id " +
+                                "WHERE vh.id > :lastId ORDER BY vh.id LIMIT :limit")
+                        .bind("lastId", lastId)
+                        .bind("limit", batchSize)
+                        .map((row, metadata) -> new ViewRow(
+                                row.get("id", Long.class),
+                                row.get("visitor_id", String.class),
+                                row.get("post_id", Long.class),
+                                row.get("view_time", LocalDateTime.class),
+                                row.get("agent", String.class),
+                                row.get("location", String.class),
+                                row.get("referer", String.class),
+                                row.get("referer_id", Long.class),
+                                row.get("referer_source", String.class),
+                                row.get("create_time", LocalDateTime.class)))
+                        .all()
+                        .takeWhile(row -> row.createTime() == null || row.createTime().isBefore(safeTime))
+                        .collectList())
+                .flatMap(rows -> rows.isEmpty() ? Mono.just(0) : applyRows(rows).thenReturn(rows.size()));
+        return transactionalOperator.transactional(batch);
+    }
+
+    private Mono<Long> readWatermark(boolean forUpdate) {
+        return databaseClient.sql("SELECT last_id FROM t_view_stats_watermark WHERE name = :name" +
+                        (forUpdate ? " FOR UPDATE" : ""))
+                .bind("name", WATERMARK_NAME)
+                .map((row, metadata) -> row.get("last_id", Long.class))
+                .one()
+                .defaultIfEmpty(0L);
+    }
+
+    /**
+     * 聚合一批记录并写入汇总表，最后推进水位线
+     */
+    private Mono<Void> applyRows(List<ViewRow> rows) {
+        Map<StatKey, Long> hourly = new HashMap<>();
+        Map<StatKey, Long> daily = new HashMap<>();
+        Map<LocalDate, HyperLogLog> sketches = new HashMap<>();
+        Map<ReferrerAttributionService.DailyKey, Long> attribution = new HashMap<>();
+        for (ViewRow row : rows) {
+            LocalDateTime viewTime = row.viewTime() != null ? row.viewTime() : row.createTime();
+            LocalDateTime hour = viewTime.truncatedTo(ChronoUnit.HOURS);
+            LocalDate day = viewTime.toLocalDate();
+            dimensions(row).forEach((dimension, value) -> {
+                hourly.merge(new StatKey(hour, dimension.getCode(), value), 1L, Long::sum);
+                daily.merge(new StatKey(day, dimension.getCode(), value), 1L, Long::sum);
+            });
+            if (row.visitorId() != null && !row.visitorId().isEmpty()) {
+                sketches.computeIfAbsent(day, d -> new HyperLogLog(sketchPrecision)).add(row.visitorId());
+            }
+            if (row.postId() != null && row.refererId() != null) {
+                attribution.merge(new ReferrerAttributionService.DailyKey(day, row.postId(), row.refererId()), 1L, Long::sum);
+            }
+        }
+        long maxId = rows.get(rows.size() - 1).id();
+        return upsert("t_view_stats_hourly", "stat_hour", hourly)
+                .then(upsert("t_view_stats_daily", "stat_date", daily))
+                .then(Flux.fromIterable(sketches.entrySet())
+                        .concatMap(entry -> mergeSketch(entry.getKey(), entry.getValue()))
+                        .then())
+                .then(referrerAttributionService.addDailyViews(attribution))
+                .then(databaseClient.sql("INSERT INTO t_view_stats_watermark (name, last_id, update_time) " +
+                                "VALUES (:name, :lastId, NOW()) ON DUPLICATE KEY UPDATE last_id = VALUES(last_id), update_time = NOW()")
+                        .bind("name", WATERMARK_NAME)
+                        .bind("lastId", maxId)
+                        .fetch()
+                        .rowsUpdated())
+                .then();
+    }
+
+    private Map<ViewStatsDimension, String> dimensions(ViewRow row) {
+        Map<ViewStatsDimension, String> dimensions = new LinkedHashMap<>();
+        dimensions.put(ViewStatsDimension.SITE, SITE_VALUE);
+        if (row.postId() != null) {
+            dimensions.put(ViewStatsDimension.POST, String.valueOf(row.postId()));
+        }
+        dimensions.put(ViewStatsDimension.DEVICE, deviceOf(row.agent()));
+        dimensions.put(ViewStatsDimension.REGION, truncate(IPLocationUtil.getRegionName(row.location())));
+        // 早于来源字典的记录在汇总时归一化
+        dimensions.put(ViewStatsDimension.REFERRER, row.refererSource() != null ? row.refererSource()
+                : RefererUtils.normalize(row.referer(), null).source());
+        return dimensions;
+    }
+
+    /**
+     * 按维度累加浏览量，多行合并成一条 INSERT ... ON DUPLICATE KEY UPDATE
+     */
+    private Mono<Void> upsert(String table, String timeColumn, Map<StatKey, Long> counts) {
+        List<Map.Entry<StatKey, Long>> entries = new ArrayList<>(counts.entrySet());
+        List<List<Map.Entry<StatKey, Long>>> chunks = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i += UPSERT_ROWS) {
+            chunks.add(entries.subList(i, Math.min(i + UPSERT_ROWS, entries.size())));
+        }
+        return Flux.fromIterable(chunks)
+                .concatMap(chunk -> {
+                    StringBuilder sql = new StringBuilder("INSERT INTO ").append(table)
+                            .append(" (").append(timeColumn).append(", dim_type, dim_value, views) VALUES ");
+                    Map<String, Object> params = new HashMap<>(chunk.size() * 8);
+                    int index = 0;
+                    for (Map.Entry<StatKey, Long> entry : chunk) {
+                        sql.append(index == 0 ? "(" : ", (")
+                                .append(":p").append(index).append(", :p").append(index + 1)
+                                .append(", :p").append(index + 2).append(", :p").append(index + 3).append(')');
+                        params.put("p" + index++, entry.getKey().time());
+                        params.put("p" + index++, entry.getKey().dimType());
+                        params.put("p" + index++, entry.getKey().dimValue());
+                        params.put("p" + index++, entry.getValue());
+                    }
+                    sql.append(" ON DUPLICATE KEY UPDATE views = views + VALUES(views)");
+                    return databaseClient.sql(sql.toString()).bindValues(params).fetch().rowsUpdated();
+                })
+                .then();
+    }
+
+    /**
+     * 合并当天全站的独立访客草图，天汇总行在此之前已由upsert创建
+     */
+    private Mono<Void> mergeSketch(LocalDate day, HyperLogLog sketch) {
+        return databaseClient.sql("SELECT uv_sketch FROM t_view_stats_daily WHERE stat_date = :day " +
+                        "AND dim_type = :dimType AND dim_value = :dimValue FOR UPDATE")
+                .bind("day", day)
+                .bind("dimType", ViewStatsDimension.SITE.getCode())
+                .bind("dimValue", SITE_VALUE)
+                .map((row, metadata) -> Optional.ofNullable(row.get("uv_sketch", byte[].class)))
+                .one()
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(stored -> {
+                    stored.map(HyperLogLog::fromBytes).ifPresent(existing -> {
+                        if (existing.getPrecision() == sketch.getPrecision()) {
+                            sketch.merge(existing);
+                        } else {
+                            log.warn("独立访客草图精度变化，丢弃旧草图: 日期={}, 旧精度={}", day, existing.getPrecision());
+                        }
+                    });
+                    return databaseClient.sql("UPDATE t_view_stats_daily SET uv_sketch = :sketch, unique_visitors = :uv " +
+                                    "WHERE stat_date = :day AND dim_type = :dimType AND dim_value = :dimValue")
+                            .bind("sketch", sketch.toBytes())
+                            .bind("uv", sketch.count())
+                            .bind("day", day)
+                            .bind("dimType", ViewStatsDimension.SITE.getCode())
+                            .bind("dimValue", SITE_VALUE)
+                            .fetch()
+                            .rowsUpdated();
+                })
+                .then();
+    }
+
+    /**
+     * 分批限速删除，每条DELETE只删除一小批
+     */
+    private Mono<Long> deleteInBatches(String sql, Map<String, Object> params) {
+        Mono<Long> deleteBatch = Mono.defer(() -> databaseClient.sql(sql).bindValues(params).fetch().rowsUpdated());
+        return deleteBatch
+                .expand(deleted -> deleted < purgeBatchSize
+                        ? Mono.empty()
+                        : Mono.delay(purgeInterval).then(deleteBatch))
+                .reduce(0L, Long::sum);
+    }
+
+    /**
+     * 设备类型，浏览记录的agent列格式为 设备类型 / 浏览器 / 操作系统
+     */
+    private static String deviceOf(String agent) {
+        if (agent == null || agent.isBlank()) {
+            return UNKNOWN;
+        }
+        int end = agent.indexOf(" / ");
+        return truncate(end > 0 ? agent.substring(0, end) : agent);
+    }
+
+    private static String truncate(String value) {
+        return value.length() > MAX_VALUE_LENGTH ? value.substring(0, MAX_VALUE_LENGTH) : value;
+    }
+
+    /**
+     * 汇总键，time为小时（LocalDateTime）或天（LocalDate）
+     */
+    private record StatKey(Object time, String dimType, String dimValue) {
+    }
+
+    private record ViewRow(Long id, String visitorId, Long postId, LocalDateTime viewTime, String agent,
+                           String location, String referer, Long refererId, String refererSource,
+                           LocalDateTime createTime) {
+    }
+}
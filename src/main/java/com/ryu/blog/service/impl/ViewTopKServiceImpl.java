@@ -0,0 +1,232 @@
+package com.ryu.blog.service.impl;
+
+import cn.hutool.core.util.IdUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ryu.blog.constant.CacheConstants;
+import com.ryu.blog.entity.ViewStatsDimension;
+import com.ryu.blog.event.ViewEvent;
+import com.ryu.blog.event.ViewEventsPersistedEvent;
+import com.ryu.blog.service.ViewTopKService;
+import com.ryu.blog.utils.IPLocationUtil;
+import com.ryu.blog.utils.SpaceSavingTopK;
+import com.ryu.blog.vo.ViewTopItemVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 浏览高频维度统计服务实现类
+ * <p>
+ * 设备、地区各自按固定长度的时间桶维护Space-Saving草图，每个草图最多 capacity 个计数器，
+ * 随机User-Agent等长尾值不会让内存无限增长。有变化的草图定期以JSON写入Redis哈希（字段为节点ID），
+ * 查询时合并窗口内所有节点的快照，本节点使用内存中的最新草图；启动时按节点ID恢复本节点的快照。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class ViewTopKServiceImpl implements ViewTopKService, ApplicationListener<ApplicationStartedEvent> {
+
+    private static final List<ViewStatsDimension> DIMENSIONS = List.of(ViewStatsDimension.DEVICE, ViewStatsDimension.REGION);
+    private static final TypeReference<List<SpaceSavingTopK.Item>> ITEMS_TYPE = new TypeReference<>() {
+    };
+    private static final String UNKNOWN = "未知";
+
+    private final ReactiveRedisTemplate<String, String> reactiveRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final int capacity;
+    private final long bucketMinutes;
+    private final int retentionBuckets;
+    private final Duration snapshotTtl;
+    private final String nodeId;
+
+    /**
+     * 本地草图：维度编码:时间桶序号 -> 草图
+     */
+    private final Map<String, SpaceSavingTopK> sketches = new ConcurrentHashMap<>();
+
+    /**
+     * 上次快照后有变化的草图
+     */
+    private final Set<String> dirtyBuckets = ConcurrentHashMap.newKeySet();
+
+    public ViewTopKServiceImpl(ReactiveRedisTemplate<String, String> reactiveRedisTemplate,
+                               ObjectMapper objectMapper,
+                               @Value("${app.topk.capacity:200}") int capacity,
+                               @Value("${app.topk.bucket-minutes:10}") long bucketMinutes,
+                               @Value("${app.topk.retention-buckets:144}") int retentionBuckets,
+                               @Value("${app.topk.node-id:${HOSTNAME:}}") String nodeId) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.capacity = capacity;
+        this.bucketMinutes = bucketMinutes;
+        this.retentionBuckets = retentionBuckets;
+        this.snapshotTtl = Duration.ofMinutes(bucketMinutes * (retentionBuckets + 1));
+        if (nodeId == null || nodeId.isBlank()) {
+            // 没有稳定的节点ID时重启后无法找回本节点的快照
+            this.nodeId = IdUtil.fastSimpleUUID();
+            log.info("未配置Top-K统计节点ID，使用随机ID: {}", this.nodeId);
+        } else {
+            this.nodeId = nodeId;
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationStartedEvent event) {
+        long current = currentBucket();
+        Flux.fromIterable(DIMENSIONS)
+                .flatMap(dimension -> Flux.range(0, retentionBuckets)
+                        .map(offset -> bucketKey(dimension, current - offset)))
+                .flatMap(bucketKey -> reactiveRedisTemplate.<String, String>opsForHash()
+                        .get(CacheConstants.VIEW_TOPK_KEY + bucketKey, nodeId)
+                        .map(json -> {
+                            SpaceSavingTopK restored = deserialize(json);
+                            // 启动后已经产生的计数与快照合并
+                            sketches.merge(bucketKey, restored, (live, snapshot) -> {
+                                live.merge(snapshot);
+                                return live;
+                            });
+                            return 1;
+                        }), 16)
+                .reduce(0, Integer::sum)
+                .subscribe(
+                        count -> log.info("浏览Top-K草图恢复完成，共 {} 个时间桶", count),
+                        error -> log.warn("浏览Top-K草图恢复失败: {}", error.getMessage())
+                );
+    }
+
+    /**
+     * 浏览记录入库后统计设备和地区，只统计新访问
+     *
+     * @param event 浏览事件入库事件
+     */
+    @EventListener
+    public void onViewEventsPersisted(ViewEventsPersistedEvent event) {
+        long bucket = currentBucket();
+        for (ViewEvent viewEvent : event.getEvents()) {
+            if (!viewEvent.isNewVisit()) {
+                continue;
+            }
+            String deviceInfo = viewEvent.getDeviceInfo();
+            record(ViewStatsDimension.DEVICE, bucket, deviceInfo == null || deviceInfo.isBlank() ? UNKNOWN : deviceInfo);
+            record(ViewStatsDimension.REGION, bucket, IPLocationUtil.getRegionName(viewEvent.getLocation()));
+        }
+    }
+
+    @Override
+    public Mono<List<ViewTopItemVO>> getTop(ViewStatsDimension dimension, Duration window, int k) {
+        if (!DIMENSIONS.contains(dimension) || k <= 0) {
+            return Mono.just(Collections.emptyList());
+        }
+        long bucketMillis = TimeUnit.MINUTES.toMillis(bucketMinutes);
+        long buckets = Math.min(retentionBuckets, Math.max(1, (window.toMillis() + bucketMillis - 1) / bucketMillis));
+        long current = currentBucket();
+        List<String> bucketKeys = new ArrayList<>();
+        for (long bucket = current - buckets + 1; bucket <= current; bucket++) {
+            bucketKeys.add(bucketKey(dimension, bucket));
+        }
+
+        // 其他节点的快照
+        Flux<SpaceSavingTopK> remote = Flux.fromIterable(bucketKeys)
+                .concatMap(bucketKey -> reactiveRedisTemplate.<String, String>opsForHash()
+                        .entries(CacheConstants.VIEW_TOPK_KEY + bucketKey)
+                        .filter(entry -> !nodeId.equals(entry.getKey()))
+                        .map(entry -> deserialize(entry.getValue()))
+                        .onErrorResume(e -> {
+                            log.debug("读取Top-K快照失败，只使用本地数据: key={}, 错误={}", bucketKey, e.getMessage());
+                            return Flux.empty();
+                        }));
+        // 本节点的最新草图
+        Flux<SpaceSavingTopK> local = Flux.fromIterable(bucketKeys)
+                .mapNotNull(sketches::get);
+
+        return Flux.concat(local, remote)
+                .reduce(new SpaceSavingTopK(capacity), (union, sketch) -> {
+                    union.merge(sketch);
+                    return union;
+                })
+                .map(union -> union.top(k).stream()
+                        .map(item -> new ViewTopItemVO(item.key(), item.count(), item.error()))
+                        .toList());
+    }
+
+    @Override
+    public Mono<Integer> snapshot() {
+        long oldest = currentBucket() - retentionBuckets + 1;
+        sketches.keySet().removeIf(bucketKey -> bucketOf(bucketKey) < oldest);
+
+        List<String> pending = new ArrayList<>(dirtyBuckets);
+        dirtyBuckets.removeAll(pending);
+        return Flux.fromIterable(pending)
+                .flatMap(bucketKey -> {
+                    SpaceSavingTopK sketch = sketches.get(bucketKey);
+                    if (sketch == null) {
+                        return Mono.just(0);
+                    }
+                    String redisKey = CacheConstants.VIEW_TOPK_KEY + bucketKey;
+                    return reactiveRedisTemplate.<String, String>opsForHash()
+                            .put(redisKey, nodeId, serialize(sketch))
+                            .then(reactiveRedisTemplate.expire(redisKey, snapshotTtl))
+                            .thenReturn(1)
+                            .onErrorResume(e -> {
+                                // 写入失败的草图留到下次快照
+                                dirtyBuckets.add(bucketKey);
+                                log.debug("写入Top-K快照失败: key={}, 错误={}", redisKey, e.getMessage());
+                                return Mono.just(0);
+                            });
+                }, 8)
+                .reduce(0, Integer::sum);
+    }
+
+    private void record(ViewStatsDimension dimension, long bucket, String value) {
+        String bucketKey = bucketKey(dimension, bucket);
+        sketches.computeIfAbsent(bucketKey, key -> new SpaceSavingTopK(capacity)).offer(value);
+        dirtyBuckets.add(bucketKey);
+    }
+
+    private long currentBucket() {
+        return TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis()) / bucketMinutes;
+    }
+
+    private static String bucketKey(ViewStatsDimension dimension, long bucket) {
+        return dimension.getCode() + ":" + bucket;
+    }
+
+    private static long bucketOf(String bucketKey) {
+        return Long.parseLong(bucketKey.substring(bucketKey.indexOf(':') + 1));
+    }
+
+    private String serialize(SpaceSavingTopK sketch) {
+        try {
+            return objectMapper.writeValueAsString(sketch.items());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化Top-K草图失败", e);
+        }
+    }
+
+    private SpaceSavingTopK deserialize(String json) {
+        try {
+            return SpaceSavingTopK.fromItems(capacity, objectMapper.readValue(json, ITEMS_TYPE));
+        } catch (JsonProcessingException e) {
+            log.warn("解析Top-K快照失败: {}", e.getMessage());
+            return new SpaceSavingTopK(capacity);
+        }
+    }
+}
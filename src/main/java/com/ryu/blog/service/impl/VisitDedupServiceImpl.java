@@ -0,0 +1,144 @@
+package com.ryu.blog.service.impl;
+
+import com.ryu.blog.constant.CacheConstants;
+import com.ryu.blog.service.VisitDedupService;
+import com.ryu.blog.utils.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 访问去重服务实现类
+ * <p>
+ * 去重窗口被切分为 slices 个时间桶，每个桶一个布隆过滤器，访问只写入当前桶，判定时检查当前桶和之前的 slices 个桶，
+ * 实际去重时长在 window 到 window + window/slices 之间，过期的桶整体丢弃。
+ * <p>
+ * 集群共享的过滤器是Redis位图，按文章ID分片（键带哈希标签，集群模式下同一分片的桶位于同一槽位），
+ * 检查和写入由Lua脚本原子完成；每个位图大小固定，内存与访客数量无关。
+ * 本地保留同样结构的过滤器：本节点在当前桶已登记过的访问直接判定为重复，不再访问Redis；
+ * Redis不可用时只使用本地过滤器判定。
+ *
+ * @author ryu
+ */
+@Slf4j
+@Service
+public class VisitDedupServiceImpl implements VisitDedupService {
+
+    /**
+     * KEYS为窗口内的桶（最后一个是当前桶），ARGV[1]为当前桶的过期秒数，其余为位下标。
+     * 任意一个桶包含全部位即为重复访问，随后总是写入当前桶
+     */
+    private static final RedisScript<Long> MARK_SCRIPT = RedisScript.of(
+            "local seen = 0\n" +
+            "for i = 1, #KEYS do\n" +
+            "  local all = 1\n" +
+            "  for j = 2, #ARGV do\n" +
+            "    if redis.call('GETBIT', KEYS[i], ARGV[j]) == 0 then all = 0 break end\n" +
+            "  end\n" +
+            "  if all == 1 then seen = 1 break end\n" +
+            "end\n" +
+            "local current = KEYS[#KEYS]\n" +
+            "for j = 2, #ARGV do redis.call('SETBIT', current, ARGV[j], 1) end\n" +
+            "redis.call('EXPIRE', current, ARGV[1])\n" +
+            "return seen", Long.class);
+
+    private final ReactiveRedisTemplate<String, String> reactiveRedisTemplate;
+    private final long bucketMillis;
+    private final int slices;
+    private final int shards;
+    private final long redisBitSize;
+    private final int redisHashCount;
+    private final long localBitSize;
+    private final int localHashCount;
+    private final String bucketTtlSeconds;
+
+    /**
+     * 本地过滤器：时间桶序号 -> 过滤器
+     */
+    private final Map<Long, BloomFilter> localFilters = new ConcurrentHashMap<>();
+
+    public VisitDedupServiceImpl(ReactiveRedisTemplate<String, String> reactiveRedisTemplate,
+                                 @Value("${app.visit-dedup.window-minutes:30}") long windowMinutes,
+                                 @Value("${app.visit-dedup.slices:3}") int slices,
+                                 @Value("${app.visit-dedup.shards:16}") int shards,
+                                 @Value("${app.visit-dedup.expected-visits-per-shard:50000}") long expectedVisitsPerShard,
+                                 @Value("${app.visit-dedup.local-expected-visits:200000}") long localExpectedVisits,
+                                 @Value("${app.visit-dedup.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.slices = slices;
+        this.shards = shards;
+        this.bucketMillis = Duration.ofMinutes(windowMinutes).toMillis() / slices;
+        this.redisBitSize = BloomFilter.optimalBitSize(expectedVisitsPerShard, falsePositiveRate);
+        this.redisHashCount = BloomFilter.optimalHashCount(expectedVisitsPerShard, redisBitSize);
+        this.localBitSize = BloomFilter.optimalBitSize(localExpectedVisits, falsePositiveRate);
+        this.localHashCount = BloomFilter.optimalHashCount(localExpectedVisits, localBitSize);
+        // 当前桶在之后的 slices 个桶内仍会被检查
+        this.bucketTtlSeconds = String.valueOf(bucketMillis * (slices + 1) / 1000 + 60);
+        log.info("访问去重过滤器: 窗口={}分钟, 分片={}, Redis位图={}KB×{}次哈希, 本地位图={}KB×{}次哈希",
+                windowMinutes, shards, redisBitSize / 8 / 1024, redisHashCount, localBitSize / 8 / 1024, localHashCount);
+    }
+
+    @Override
+    public Mono<Boolean> markVisit(Long postId, String visitorId) {
+        long current = System.currentTimeMillis() / bucketMillis;
+        String member = postId + ":" + visitorId;
+        long[] localOffsets = BloomFilter.bitOffsets(member, localBitSize, localHashCount);
+        BloomFilter currentFilter = localFilter(current);
+        if (currentFilter.mightContain(localOffsets)) {
+            // 本节点在当前桶已登记，Redis当前桶中也一定存在
+            return Mono.just(false);
+        }
+
+        int shard = Math.floorMod(postId, shards);
+        List<String> keys = new ArrayList<>(slices + 1);
+        for (long bucket = current - slices; bucket <= current; bucket++) {
+            keys.add(CacheConstants.VIEW_DEDUP_KEY + "{" + shard + "}:" + bucket);
+        }
+        List<String> args = new ArrayList<>(redisHashCount + 1);
+        args.add(bucketTtlSeconds);
+        for (long offset : BloomFilter.bitOffsets(member, redisBitSize, redisHashCount)) {
+            args.add(String.valueOf(offset));
+        }
+
+        return reactiveRedisTemplate.execute(MARK_SCRIPT, keys, args)
+                .next()
+                .map(seen -> seen == 0)
+                .onErrorResume(e -> {
+                    log.debug("Redis访问去重失败，使用本地过滤器: 错误={}", e.getMessage());
+                    return Mono.just(!seenLocally(current, localOffsets));
+                })
+                .defaultIfEmpty(true)
+                .doOnNext(isNew -> currentFilter.put(localOffsets));
+    }
+
+    private boolean seenLocally(long current, long[] offsets) {
+        for (long bucket = current - slices; bucket <= current; bucket++) {
+            BloomFilter filter = localFilters.get(bucket);
+            if (filter != null && filter.mightContain(offsets)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取当前桶的本地过滤器，同时丢弃已经移出窗口的桶
+     */
+    private BloomFilter localFilter(long current) {
+        BloomFilter filter = localFilters.get(current);
+        if (filter != null) {
+            return filter;
+        }
+        localFilters.keySet().removeIf(bucket -> bucket < current - slices);
+        return localFilters.computeIfAbsent(current, bucket -> new BloomFilter(localBitSize, localHashCount));
+    }
+}
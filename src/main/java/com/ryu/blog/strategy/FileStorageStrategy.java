@@ -5,6 +5,8 @@ import org.springframework.http.codec.multipart.FilePart;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -38,6 +40,15 @@ public interface FileStorageStrategy {
      */
     Mono<String> uploadFile(Flux<DataBuffer> dataBufferFlux, String fileName, long size);
     
+    /**
+     * 上传本地文件（上传内容已暂存到磁盘时使用，实现应按块读取，不把整个文件读入内存）
+     * @param file 本地文件
+     * @param fileName 文件名
+     * @param size 文件大小
+     * @return 文件路径
+     */
+    Mono<String> uploadFile(Path file, String fileName, long size);
+    
     /**
      * 下载文件
      * @param path 文件路径
@@ -45,6 +56,22 @@ public interface FileStorageStrategy {
      */
     Mono<Flux<DataBuffer>> downloadFile(String path);
     
+    /**
+     * 下载文件的一段内容（用于HTTP Range请求，实现应只读取请求的区间）
+     * @param path 文件路径
+     * @param offset 起始字节偏移
+     * @param length 读取字节数
+     * @return 数据缓冲流
+     */
+    Mono<Flux<DataBuffer>> downloadFile(String path, long offset, long length);
+    
+    /**
+     * 解析文件在本机磁盘上的路径（用于零拷贝发送，由内核直接把文件内容写入套接字）
+     * @param path 文件路径
+     * @return 本地文件路径，非本地存储或文件不存在时为空
+     */
+    Mono<Path> resolveLocalFile(String path);
+    
     /**
      * 删除文件
      * @param path 文件路径
@@ -139,6 +166,13 @@ public interface FileStorageStrategy {
      */
     Mono<Boolean> abortMultipartUpload(String uploadId);
     
+    /**
+     * 清理长时间没有活动的分片上传暂存数据
+     * @param maxIdle 最长空闲时间
+     * @return 清理的上传数
+     */
+    Mono<Integer> cleanupMultipartUploads(Duration maxIdle);
+    
     /**
      * 获取文件的公共永久URL（不需要身份验证，适用于博客图片等公开内容）
      * @param path 文件路径
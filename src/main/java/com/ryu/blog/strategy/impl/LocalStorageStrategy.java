@@ -1,6 +1,7 @@
 package com.ryu.blog.strategy.impl;
 
 import com.ryu.blog.entity.StorageConfig;
+import com.ryu.blog.exception.ResourceNotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
@@ -9,18 +10,25 @@ import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * 本地文件存储策略实现类
@@ -31,6 +39,15 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j
 public class LocalStorageStrategy extends AbstractFileStorageStrategy {
 
+    /**
+     * 分片上传暂存目录，位于存储根目录下
+     */
+    private static final String MULTIPART_DIR = ".multipart";
+    private static final String MULTIPART_MANIFEST = "upload.properties";
+    private static final String PART_SUFFIX = ".part";
+    private static final String ASSEMBLING_PREFIX = "assembling-";
+    private static final Pattern UPLOAD_ID_PATTERN = Pattern.compile("[0-9a-fA-F-]{32,36}");
+
     private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
 
     @Override
@@ -91,12 +108,12 @@ public class LocalStorageStrategy extends AbstractFileStorageStrategy {
                 return Mono.fromCallable(() -> {
                     if (!Files.exists(filePath)) {
                         log.warn("[local] 下载的文件不存在: path={}, filePath={}", path, filePath);
-                        return Flux.<DataBuffer>empty();
+                        throw new ResourceNotFoundException("文件内容不存在: " + path);
                     }
                     
                     if (Files.isDirectory(filePath)) {
                         log.warn("[local] 下载路径是一个目录: path={}, filePath={}", path, filePath);
-                        return Flux.<DataBuffer>empty();
+                        throw new ResourceNotFoundException("文件内容不存在: " + path);
                     }
                     
                     AsynchronousFileChannel channel = AsynchronousFileChannel.open(filePath, StandardOpenOption.READ);
@@ -115,6 +132,37 @@ public class LocalStorageStrategy extends AbstractFileStorageStrategy {
             });
     }
 
+    @Override
+    public Mono<Flux<DataBuffer>> downloadFile(String path, long offset, long length) {
+        // 从指定位置开始定位读取文件通道，读够区间长度后取消，通道由DataBufferUtils负责关闭
+        return resolveLocalFile(path)
+            .map(filePath -> DataBufferUtils.takeUntilByteCount(
+                    DataBufferUtils.readAsynchronousFileChannel(
+                        () -> AsynchronousFileChannel.open(filePath, StandardOpenOption.READ),
+                        offset, bufferFactory, (int) Math.min(FILE_READ_BUFFER_SIZE, Math.max(length, 1))),
+                    length))
+            .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("文件内容不存在: " + path)));
+    }
+
+    @Override
+    public Mono<Path> resolveLocalFile(String path) {
+        return getBasePathAsync()
+            .flatMap(basePath -> Mono.fromCallable(() -> {
+                Path base = Paths.get(basePath).toAbsolutePath().normalize();
+                Path filePath = base.resolve(path).normalize();
+                // 防止通过 .. 访问存储目录之外的文件
+                if (!filePath.startsWith(base)) {
+                    log.warn("[local] 文件路径超出存储目录: path={}", path);
+                    return null;
+                }
+                if (!Files.isRegularFile(filePath)) {
+                    log.warn("[local] 文件不存在或不是普通文件: path={}, filePath={}", path, filePath);
+                    return null;
+                }
+                return filePath;
+            }).subscribeOn(Schedulers.boundedElastic()));
+    }
+
     @Override
     public Mono<Boolean> deleteFile(String path) {
         return getBasePathAsync()
@@ -232,142 +280,195 @@ public class LocalStorageStrategy extends AbstractFileStorageStrategy {
         // 生成唯一上传ID
         String uploadId = UUID.randomUUID().toString();
         
-        // 使用异步方法构建对象名
+        // 上传上下文写入暂存目录的清单文件，不保存在内存中，共享存储目录的任意节点都能继续上传
         return buildObjectNameAsync(fileName)
-            .flatMap(objectName -> {
-                // 创建上传上下文
-                Map<String, Object> uploadContext = new HashMap<>();
-                uploadContext.put("objectName", objectName);
-                uploadContext.put("fileName", fileName);
-                uploadContext.put("fileSize", fileSize);
-                uploadContext.put("parts", new ConcurrentHashMap<Integer, byte[]>());
-                uploadContext.put("createdAt", System.currentTimeMillis());
-                
-                // 确保目录存在
-                return getPrefixAsync()
-                    .flatMap(relativePath -> 
-                        getBasePathAsync()
-                            .flatMap(basePath -> createDirectories(basePath, relativePath)
-                                .map(directory -> {
-                                    // 存储上传上下文
-                                    multipartUploadCache.put(uploadId, uploadContext);
-                                    
-                                    // 返回上传ID和对象名
-                                    Map<String, String> result = new HashMap<>();
-                                    result.put("uploadId", uploadId);
-                                    result.put("objectName", objectName);
-                                    
-                                    log.info("[local] 分片上传初始化成功: fileName={}, uploadId={}, objectName={}", 
-                                            fileName, uploadId, objectName);
-                                    
-                                    return result;
-                                })
-                            )
-                    );
-            });
+            .flatMap(objectName -> getMultipartDirectory(uploadId)
+                .flatMap(directory -> Mono.fromCallable(() -> {
+                    Files.createDirectories(directory);
+                    Properties manifest = new Properties();
+                    manifest.setProperty("objectName", objectName);
+                    manifest.setProperty("fileName", fileName);
+                    manifest.setProperty("fileSize", String.valueOf(fileSize));
+                    try (OutputStream out = Files.newOutputStream(directory.resolve(MULTIPART_MANIFEST))) {
+                        manifest.store(out, null);
+                    }
+                    
+                    // 返回上传ID和对象名
+                    Map<String, String> result = new HashMap<>();
+                    result.put("uploadId", uploadId);
+                    result.put("objectName", objectName);
+                    
+                    log.info("[local] 分片上传初始化成功: fileName={}, uploadId={}, objectName={}", 
+                            fileName, uploadId, objectName);
+                    
+                    return result;
+                })
+                .subscribeOn(Schedulers.boundedElastic())));
     }
 
     @Override
     public Mono<String> uploadPart(String uploadId, int partNumber, Flux<DataBuffer> content) {
         log.debug("[local] 上传分片: uploadId={}, partNumber={}", uploadId, partNumber);
         
-        Map<String, Object> uploadContext = multipartUploadCache.get(uploadId);
-        if (uploadContext == null) {
-            log.warn("[local] 无效的上传ID: uploadId={}", uploadId);
-            return Mono.error(new RuntimeException("无效的上传ID: " + uploadId));
-        }
-        
-        return DataBufferUtils.join(content)
-            .flatMap(dataBuffer -> {
-                byte[] bytes = new byte[dataBuffer.readableByteCount()];
-                dataBuffer.read(bytes);
-                DataBufferUtils.release(dataBuffer);
-                
-                // 存储分片数据
-                @SuppressWarnings("unchecked")
-                Map<Integer, byte[]> parts = (Map<Integer, byte[]>) uploadContext.get("parts");
-                parts.put(partNumber, bytes);
-                
-                String partETag = "part-" + partNumber;
-                log.info("[local] 分片上传成功: uploadId={}, partNumber={}, size={}", 
-                        uploadId, partNumber, bytes.length);
-                
-                return Mono.just(partETag);
-            });
+        // 分片先流式写入临时文件，完成后原子替换为分片文件，重传同一分片不会留下写了一半的内容
+        return getMultipartDirectory(uploadId)
+            .flatMap(directory -> Mono.fromCallable(() -> {
+                    if (!Files.isRegularFile(directory.resolve(MULTIPART_MANIFEST))) {
+                        log.warn("[local] 无效的上传ID: uploadId={}", uploadId);
+                        throw new RuntimeException("无效的上传ID: " + uploadId);
+                    }
+                    return Files.createTempFile(directory, partNumber + "-", ".tmp");
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(tempFile -> DataBufferUtils.write(content, tempFile,
+                            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                    .then(Mono.fromCallable(() -> {
+                        Path partFile = directory.resolve(partNumber + PART_SUFFIX);
+                        Files.move(tempFile, partFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                        log.info("[local] 分片上传成功: uploadId={}, partNumber={}, size={}", 
+                                uploadId, partNumber, Files.size(partFile));
+                        return "part-" + partNumber;
+                    }))
+                    .onErrorResume(error -> Mono.fromCallable(() -> Files.deleteIfExists(tempFile))
+                        .onErrorReturn(false)
+                        .then(Mono.error(error)))));
     }
 
     @Override
     public Mono<String> completeMultipartUpload(String uploadId, List<String> partETags) {
         log.debug("[local] 完成分片上传: uploadId={}, partETags={}", uploadId, partETags);
         
-        Map<String, Object> uploadContext = multipartUploadCache.get(uploadId);
-        if (uploadContext == null) {
-            log.warn("[local] 无效的上传ID: uploadId={}", uploadId);
-            return Mono.error(new RuntimeException("无效的上传ID: " + uploadId));
-        }
-        
-        String objectName = (String) uploadContext.get("objectName");
-        
-        @SuppressWarnings("unchecked")
-        Map<Integer, byte[]> parts = (Map<Integer, byte[]>) uploadContext.get("parts");
-        
-        // 获取存储路径
-        String relativePath = extractPath(objectName);
-        String fileName = extractFileName(objectName);
-        
-        return getBasePathAsync()
-            .flatMap(basePath -> createDirectories(basePath, relativePath)
-                .flatMap(directory -> Mono.fromCallable(() -> {
-                    try {
-                        // 计算总大小
-                        int totalSize = 0;
-                        List<Integer> partNumbers = new ArrayList<>(parts.keySet());
-                        Collections.sort(partNumbers);
-                        
-                        for (Integer partNumber : partNumbers) {
-                            totalSize += parts.get(partNumber).length;
+        return getMultipartDirectory(uploadId)
+            .flatMap(directory -> getBasePathAsync()
+                .flatMap(basePath -> Mono.fromCallable(() -> {
+                    Path manifestFile = directory.resolve(MULTIPART_MANIFEST);
+                    if (!Files.isRegularFile(manifestFile)) {
+                        log.warn("[local] 无效的上传ID: uploadId={}", uploadId);
+                        throw new RuntimeException("无效的上传ID: " + uploadId);
+                    }
+                    Properties manifest = new Properties();
+                    try (InputStream in = Files.newInputStream(manifestFile)) {
+                        manifest.load(in);
+                    }
+                    String objectName = manifest.getProperty("objectName");
+                    Path target = Paths.get(basePath, objectName);
+                    Files.createDirectories(target.getParent());
+                    
+                    // 按分片号顺序用transferTo拼接，数据由内核在文件之间复制，不经过堆内存；
+                    // 每次合并使用独立的临时文件，并发的合并请求不会写入同一个文件
+                    Path assembling = Files.createTempFile(directory, ASSEMBLING_PREFIX, ".tmp");
+                    long totalSize = 0;
+                    try (FileChannel out = FileChannel.open(assembling, StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING)) {
+                        for (int partNumber = 1; partNumber <= partETags.size(); partNumber++) {
+                            Path partFile = directory.resolve(partNumber + PART_SUFFIX);
+                            if (!Files.isRegularFile(partFile)) {
+                                throw new RuntimeException("缺少分片: " + partNumber);
+                            }
+                            try (FileChannel in = FileChannel.open(partFile, StandardOpenOption.READ)) {
+                                long size = in.size();
+                                long position = 0;
+                                while (position < size) {
+                                    position += in.transferTo(position, size - position, out);
+                                }
+                                totalSize += size;
+                            }
                         }
-                        
-                        // 合并分片
-                        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(totalSize);
-                        for (Integer partNumber : partNumbers) {
-                            outputStream.write(parts.get(partNumber));
+                        // 以磁盘上实际的分片大小为准，与初始化时声明的文件大小不一致时不落盘
+                        long expectedSize = Long.parseLong(manifest.getProperty("fileSize", "-1"));
+                        if (expectedSize >= 0 && totalSize != expectedSize) {
+                            throw new RuntimeException("分片总大小与文件大小不一致: 预期" + expectedSize + "字节，实际" + totalSize + "字节");
                         }
-                        
-                        byte[] completeData = outputStream.toByteArray();
-                        
-                        // 写入文件
-                        Path filePath = Paths.get(directory.toString(), fileName);
-                        Files.write(filePath, completeData);
-                        
-                        // 清理上传信息
-                        multipartUploadCache.remove(uploadId);
-                        
-                        log.info("[local] 分片上传完成并合并成功: uploadId={}, objectName={}, size={}", 
-                                uploadId, objectName, completeData.length);
-                        
-                        return objectName;
-                    } catch (IOException e) {
-                        log.error("[local] 合并分片失败: uploadId={}, error={}", uploadId, e.getMessage(), e);
-                        throw new RuntimeException("合并分片失败: " + e.getMessage(), e);
+                    } catch (IOException | RuntimeException e) {
+                        Files.deleteIfExists(assembling);
+                        throw e;
                     }
-                }))
-                // 直接返回objectName，不添加前缀
-                .thenReturn(objectName)
-            );
+                    
+                    // 暂存目录位于存储根目录下，移动是同一文件系统内的重命名
+                    Files.move(assembling, target, StandardCopyOption.REPLACE_EXISTING);
+                    deleteDirectory(directory);
+                    
+                    log.info("[local] 分片上传完成并合并成功: uploadId={}, objectName={}, size={}", 
+                            uploadId, objectName, totalSize);
+                    
+                    // 直接返回objectName，不添加前缀
+                    return objectName;
+                })
+                .subscribeOn(Schedulers.boundedElastic())));
     }
 
     @Override
     public Mono<Boolean> abortMultipartUpload(String uploadId) {
         log.debug("[local] 终止分片上传: uploadId={}", uploadId);
         
-        // 清理上传信息
-        Map<String, Object> uploadContext = multipartUploadCache.remove(uploadId);
-        boolean success = uploadContext != null;
-        
-        log.info("[local] 终止分片上传结果: uploadId={}, success={}", uploadId, success);
-        
-        return Mono.just(success);
+        // 删除暂存目录
+        return getMultipartDirectory(uploadId)
+            .flatMap(directory -> Mono.fromCallable(() -> {
+                    boolean success = Files.isDirectory(directory);
+                    deleteDirectory(directory);
+                    log.info("[local] 终止分片上传结果: uploadId={}, success={}", uploadId, success);
+                    return success;
+                })
+                .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    @Override
+    public Mono<Integer> cleanupMultipartUploads(Duration maxIdle) {
+        return getBasePathAsync()
+            .flatMap(basePath -> Mono.fromCallable(() -> {
+                    Path root = Paths.get(basePath, MULTIPART_DIR);
+                    if (!Files.isDirectory(root)) {
+                        return 0;
+                    }
+                    long threshold = System.currentTimeMillis() - maxIdle.toMillis();
+                    int removed = 0;
+                    try (DirectoryStream<Path> directories = Files.newDirectoryStream(root)) {
+                        for (Path directory : directories) {
+                            // 暂存目录中最后一次写入的时间作为最后活动时间
+                            if (Files.isDirectory(directory) && lastModified(directory) < threshold) {
+                                deleteDirectory(directory);
+                                removed++;
+                                log.info("[local] 清理过期的分片上传: uploadId={}", directory.getFileName());
+                            }
+                        }
+                    }
+                    return removed;
+                })
+                .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    /**
+     * 获取分片上传的暂存目录
+     * @param uploadId 上传ID
+     * @return 暂存目录
+     */
+    private Mono<Path> getMultipartDirectory(String uploadId) {
+        if (uploadId == null || !UPLOAD_ID_PATTERN.matcher(uploadId).matches()) {
+            return Mono.error(new RuntimeException("无效的上传ID: " + uploadId));
+        }
+        return getBasePathAsync()
+            .map(basePath -> Paths.get(basePath, MULTIPART_DIR, uploadId));
+    }
+
+    private static long lastModified(Path directory) throws IOException {
+        long latest = Files.getLastModifiedTime(directory).toMillis();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                latest = Math.max(latest, Files.getLastModifiedTime(file).toMillis());
+            }
+        }
+        return latest;
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
     }
 
     /**
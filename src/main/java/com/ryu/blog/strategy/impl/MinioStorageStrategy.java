@@ -19,6 +19,7 @@ import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -110,6 +111,23 @@ public class MinioStorageStrategy extends AbstractFileStorageStrategy {
             );
     }
     
+    @Override
+    public Mono<String> uploadFile(Path file, String fileName, long size) {
+        String contentType = FileUtils.getContentType(fileName);
+        
+        return buildObjectNameAsync(fileName)
+            .flatMap(objectName -> 
+                getMinioClient()
+                    .flatMap(minioClient -> 
+                        getBucketName().flatMap(bucketName ->
+                            MinioUtils.uploadFile(minioClient, bucketName, objectName, file, size, contentType)
+                        )
+                    )
+                    // 直接返回objectName，不添加前缀
+                    .thenReturn(objectName)
+            );
+    }
+    
     @Override
     public Mono<Flux<DataBuffer>> downloadFile(String path) {
         // 不需要添加prefix，因为path已经是完整存储路径
@@ -129,6 +147,24 @@ public class MinioStorageStrategy extends AbstractFileStorageStrategy {
                 });
     }
     
+    @Override
+    public Mono<Flux<DataBuffer>> downloadFile(String path, long offset, long length) {
+        // 只向MinIO请求指定区间
+        return getMinioClient()
+                .flatMap(minioClient -> 
+                    getBucketName().map(bucketName ->
+                        MinioUtils.downloadFile(
+                            minioClient, 
+                            bucketName, 
+                            FileUtils.normalizePath(path),
+                            offset,
+                            length,
+                            FILE_READ_BUFFER_SIZE
+                        )
+                    )
+                );
+    }
+    
     @Override
     public Mono<Boolean> deleteFile(String path) {
         // 不需要添加prefix，因为path已经是完整存储路径
@@ -0,0 +1,161 @@
+package com.ryu.blog.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Aho–Corasick多模式匹配自动机
+ * <p>
+ * 构建时把所有模式串编译为一个确定性自动机（失败链接预先展开为完整的转移表），
+ * 匹配时对文本只扫描一次、每个字符一次数组查找，没有回溯，耗时与模式数量无关。
+ * 模式串和文本都按ASCII忽略大小写处理，非ASCII字符直接回到根状态；需要区分大小写的调用方可在匹配回调中自行校验原文。
+ * 构建完成后只读，可被多个线程并发使用。
+ *
+ * @author ryu
+ */
+public class AhoCorasick {
+
+    private static final int ALPHABET = 128;
+    private static final int[] NO_OUTPUT = new int[0];
+
+    /**
+     * 转移表：状态 * 128 + 字符 -> 下一状态
+     */
+    private final int[] transitions;
+
+    /**
+     * 每个状态命中的模式下标（包括经由失败链接可达的模式）
+     */
+    private final int[][] outputs;
+
+    private final int[] patternLengths;
+
+    /**
+     * 匹配回调
+     */
+    @FunctionalInterface
+    public interface MatchHandler {
+
+        /**
+         * 命中一个模式
+         *
+         * @param pattern 模式下标，与构建时的顺序一致
+         * @param start   命中位置的起始下标（含）
+         * @param end     命中位置的结束下标（不含）
+         */
+        void onMatch(int pattern, int start, int end);
+    }
+
+    /**
+     * 编译模式串
+     *
+     * @param patterns 模式串，只能包含ASCII字符
+     */
+    public AhoCorasick(List<String> patterns) {
+        List<int[]> goTo = new ArrayList<>();
+        List<List<Integer>> output = new ArrayList<>();
+        goTo.add(newState());
+        output.add(new ArrayList<>());
+        patternLengths = new int[patterns.size()];
+
+        for (int index = 0; index < patterns.size(); index++) {
+            String pattern = patterns.get(index);
+            if (pattern.isEmpty()) {
+                throw new IllegalArgumentException("模式串不能为空");
+            }
+            patternLengths[index] = pattern.length();
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int c = fold(pattern.charAt(i));
+                if (c < 0) {
+                    throw new IllegalArgumentException("模式串只能包含ASCII字符: " + pattern);
+                }
+                if (goTo.get(state)[c] < 0) {
+                    goTo.get(state)[c] = goTo.size();
+                    goTo.add(newState());
+                    output.add(new ArrayList<>());
+                }
+                state = goTo.get(state)[c];
+            }
+            output.get(state).add(index);
+        }
+
+        // 按广度优先计算失败链接，同时把缺失的转移指向失败状态的转移
+        int stateCount = goTo.size();
+        int[] fail = new int[stateCount];
+        transitions = new int[stateCount * ALPHABET];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = goTo.get(0)[c];
+            if (next > 0) {
+                fail[next] = 0;
+                transitions[c] = next;
+                queue.add(next);
+            } else {
+                transitions[c] = 0;
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            output.get(state).addAll(output.get(fail[state]));
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = goTo.get(state)[c];
+                if (next > 0) {
+                    fail[next] = transitions[fail[state] * ALPHABET + c];
+                    transitions[state * ALPHABET + c] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * ALPHABET + c] = transitions[fail[state] * ALPHABET + c];
+                }
+            }
+        }
+
+        outputs = new int[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            List<Integer> hits = output.get(state);
+            outputs[state] = hits.isEmpty() ? NO_OUTPUT : hits.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * 扫描文本，按结束位置顺序回调所有命中的模式（包括重叠的命中）
+     *
+     * @param text    文本
+     * @param handler 匹配回调
+     */
+    public void scan(CharSequence text, MatchHandler handler) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int c = fold(text.charAt(i));
+            state = c < 0 ? 0 : transitions[state * ALPHABET + c];
+            for (int pattern : outputs[state]) {
+                handler.onMatch(pattern, i + 1 - patternLengths[pattern], i + 1);
+            }
+        }
+    }
+
+    /**
+     * 获取自动机状态数
+     *
+     * @return 状态数
+     */
+    public int getStateCount() {
+        return outputs.length;
+    }
+
+    private static int[] newState() {
+        int[] state = new int[ALPHABET];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private static int fold(char c) {
+        if (c >= ALPHABET) {
+            return -1;
+        }
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+}
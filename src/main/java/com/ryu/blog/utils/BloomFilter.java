@@ -0,0 +1,129 @@
+package com.ryu.blog.utils;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 定长布隆过滤器
+ * <p>
+ * 位数组大小和哈希次数按预期元素数量和误判率计算，内存与实际插入的元素数量无关。
+ * 使用MurmurHash128的两个64位结果做双重哈希生成位下标，下标计算是静态的，
+ * 同样的参数可以在Redis位图上得到一致的位置。位数组使用CAS更新，可并发读写。
+ *
+ * @author ryu
+ */
+public class BloomFilter {
+
+    private final long bitSize;
+    private final int hashCount;
+    private final AtomicLongArray words;
+
+    /**
+     * 创建布隆过滤器
+     *
+     * @param bitSize   位数组大小
+     * @param hashCount 哈希次数
+     */
+    public BloomFilter(long bitSize, int hashCount) {
+        if (bitSize < 64 || hashCount < 1) {
+            throw new IllegalArgumentException("bitSize必须不小于64，hashCount必须大于0");
+        }
+        this.bitSize = bitSize;
+        this.hashCount = hashCount;
+        this.words = new AtomicLongArray((int) ((bitSize + 63) >>> 6));
+    }
+
+    /**
+     * 计算最优位数组大小
+     *
+     * @param expectedInsertions 预期元素数量
+     * @param falsePositiveRate  误判率
+     * @return 位数
+     */
+    public static long optimalBitSize(long expectedInsertions, double falsePositiveRate) {
+        return Math.max(64, (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+    }
+
+    /**
+     * 计算最优哈希次数
+     *
+     * @param expectedInsertions 预期元素数量
+     * @param bitSize            位数
+     * @return 哈希次数
+     */
+    public static int optimalHashCount(long expectedInsertions, long bitSize) {
+        return Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * 计算元素对应的位下标
+     *
+     * @param value     元素
+     * @param bitSize   位数组大小
+     * @param hashCount 哈希次数
+     * @return 位下标
+     */
+    public static long[] bitOffsets(String value, long bitSize, int hashCount) {
+        long[] hash = MurmurHash.hash128(value);
+        long[] offsets = new long[hashCount];
+        long combined = hash[0];
+        for (int i = 0; i < hashCount; i++) {
+            offsets[i] = (combined & Long.MAX_VALUE) % bitSize;
+            combined += hash[1];
+        }
+        return offsets;
+    }
+
+    /**
+     * 元素是否可能存在
+     *
+     * @param offsets {@link #bitOffsets} 计算的位下标
+     * @return 一定不存在时返回false
+     */
+    public boolean mightContain(long[] offsets) {
+        for (long offset : offsets) {
+            if ((words.get((int) (offset >>> 6)) & (1L << offset)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 添加元素
+     *
+     * @param offsets {@link #bitOffsets} 计算的位下标
+     */
+    public void put(long[] offsets) {
+        for (long offset : offsets) {
+            int index = (int) (offset >>> 6);
+            long mask = 1L << offset;
+            long word;
+            do {
+                word = words.get(index);
+                if ((word & mask) != 0) {
+                    break;
+                }
+            } while (!words.compareAndSet(index, word, word | mask));
+        }
+    }
+
+    /**
+     * 获取位数组大小
+     *
+     * @return 位数
+     */
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    /**
+     * 获取哈希次数
+     *
+     * @return 哈希次数
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+}
@@ -0,0 +1,427 @@
+package com.ryu.blog.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 列式归档文件格式
+ * <p>
+ * 一个分区是一个目录，每列一个GZIP压缩文件，另有一个清单文件记录行数、列定义和附加信息：
+ * <ul>
+ *     <li>整数列：与上一个非空值的差值做ZigZag变换后按变长整数写入，0表示空值，其余为变换结果加1。
+ *     自增ID、时间戳这类有序列的差值很小，大多只占一个字节。差值为 {@code Long.MIN_VALUE} 时变换结果加1等于 2^64，
+ *     按10字节的变长整数写入第65位；空值固定是单字节0，与之不冲突</li>
+ *     <li>字符串列：字典编码，数据文件按变长整数写入字典下标（0表示空值，其余为下标加1），
+ *     字典在写入结束后单独保存，写入时只有字典常驻内存</li>
+ * </ul>
+ * 读取时只打开需要的列。写入方应先写到临时目录，完成后再整体重命名，读取方看不到写了一半的分区。
+ *
+ * @author ryu
+ */
+public final class ColumnarArchive {
+
+    public static final String MANIFEST = "_manifest.properties";
+    private static final String DATA_SUFFIX = ".col.gz";
+    private static final String DICT_SUFFIX = ".dict.gz";
+    private static final String FORMAT_VERSION = "1";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ColumnarArchive() {
+    }
+
+    /**
+     * 列类型
+     */
+    public enum ColumnType {
+        /**
+         * 整数，对应Long
+         */
+        LONG,
+
+        /**
+         * 字符串，对应String
+         */
+        STRING
+    }
+
+    /**
+     * 列定义
+     *
+     * @param name 列名，同时用作文件名
+     * @param type 列类型
+     */
+    public record Column(String name, ColumnType type) {
+    }
+
+    /**
+     * 行回调
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+
+        /**
+         * 读取到一行
+         *
+         * @param values 按请求顺序排列的列值，数组在回调之间复用
+         */
+        void onRow(Object[] values);
+    }
+
+    /**
+     * 分区写入器，非线程安全
+     */
+    public static class Writer implements Closeable {
+
+        private final Path directory;
+        private final List<Column> columns;
+        private final DataOutputStream[] outputs;
+        private final long[] previous;
+        private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+        private long rowCount;
+        private boolean finished;
+
+        /**
+         * 创建分区目录并打开所有列文件
+         *
+         * @param directory 分区目录，不能已存在
+         * @param columns   列定义
+         * @throws IOException 目录已存在或无法创建
+         */
+        public Writer(Path directory, List<Column> columns) throws IOException {
+            this.directory = directory;
+            this.columns = List.copyOf(columns);
+            this.outputs = new DataOutputStream[columns.size()];
+            this.previous = new long[columns.size()];
+            Files.createDirectories(directory.getParent());
+            Files.createDirectory(directory);
+            try {
+                for (int i = 0; i < columns.size(); i++) {
+                    outputs[i] = openOutput(directory.resolve(columns.get(i).name() + DATA_SUFFIX));
+                    dictionaries.add(columns.get(i).type() == ColumnType.STRING ? new HashMap<>() : null);
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * 追加一行
+         *
+         * @param values 按列定义顺序排列的值，整数列为Number，字符串列为String，可以为null
+         * @throws IOException 写入失败
+         */
+        public void append(Object[] values) throws IOException {
+            for (int i = 0; i < outputs.length; i++) {
+                Object value = values[i];
+                if (value == null) {
+                    writeVarLong(outputs[i], 0);
+                } else if (columns.get(i).type() == ColumnType.LONG) {
+                    long current = ((Number) value).longValue();
+                    long delta = current - previous[i];
+                    writeZigZag(outputs[i], (delta << 1) ^ (delta >> 63));
+                    previous[i] = current;
+                } else {
+                    Map<String, Integer> dictionary = dictionaries.get(i);
+                    Integer index = dictionary.get((String) value);
+                    if (index == null) {
+                        index = dictionary.size();
+                        dictionary.put((String) value, index);
+                    }
+                    writeVarLong(outputs[i], index + 1L);
+                }
+            }
+            rowCount++;
+        }
+
+        /**
+         * 获取已写入的行数
+         *
+         * @return 行数
+         */
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * 写入字典和清单，关闭所有文件
+         *
+         * @param metadata 写入清单的附加信息
+         * @throws IOException 写入失败
+         */
+        public void finish(Map<String, String> metadata) throws IOException {
+            for (int i = 0; i < outputs.length; i++) {
+                outputs[i].close();
+                outputs[i] = null;
+                Map<String, Integer> dictionary = dictionaries.get(i);
+                if (dictionary != null) {
+                    String[] values = new String[dictionary.size()];
+                    dictionary.forEach((value, index) -> values[index] = value);
+                    try (DataOutputStream out = openOutput(directory.resolve(columns.get(i).name() + DICT_SUFFIX))) {
+                        writeVarLong(out, values.length);
+                        for (String value : values) {
+                            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                            writeVarLong(out, bytes.length);
+                            out.write(bytes);
+                        }
+                    }
+                }
+            }
+
+            Properties manifest = new Properties();
+            manifest.putAll(metadata);
+            manifest.setProperty("format", FORMAT_VERSION);
+            manifest.setProperty("rows", String.valueOf(rowCount));
+            List<String> definitions = new ArrayList<>();
+            columns.forEach(column -> definitions.add(column.name() + ":" + column.type()));
+            manifest.setProperty("columns", String.join(",", definitions));
+            try (OutputStream out = Files.newOutputStream(directory.resolve(MANIFEST))) {
+                manifest.store(out, null);
+            }
+            finished = true;
+        }
+
+        /**
+         * 关闭文件，未调用 {@link #finish} 时删除整个分区目录
+         */
+        @Override
+        public void close() {
+            for (int i = 0; i < outputs.length; i++) {
+                if (outputs[i] != null) {
+                    try {
+                        outputs[i].close();
+                    } catch (IOException ignored) {
+                        // 分区将被删除
+                    }
+                    outputs[i] = null;
+                }
+            }
+            if (!finished) {
+                deleteRecursively(directory);
+            }
+        }
+    }
+
+    /**
+     * 读取分区清单
+     *
+     * @param directory 分区目录
+     * @return 清单内容
+     * @throws IOException 清单不存在或无法读取
+     */
+    public static Properties readManifest(Path directory) throws IOException {
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(directory.resolve(MANIFEST))) {
+            manifest.load(in);
+        }
+        return manifest;
+    }
+
+    /**
+     * 按行读取分区中指定的列
+     *
+     * @param directory 分区目录
+     * @param columns   需要读取的列名
+     * @param handler   行回调
+     * @return 读取的行数
+     * @throws IOException 文件损坏或无法读取
+     */
+    public static long read(Path directory, List<String> columns, RowHandler handler) throws IOException {
+        Properties manifest = readManifest(directory);
+        long rows = Long.parseLong(manifest.getProperty("rows", "0"));
+        Map<String, ColumnType> types = new HashMap<>();
+        for (String definition : manifest.getProperty("columns", "").split(",")) {
+            int separator = definition.indexOf(':');
+            if (separator > 0) {
+                types.put(definition.substring(0, separator), ColumnType.valueOf(definition.substring(separator + 1)));
+            }
+        }
+
+        int count = columns.size();
+        DataInputStream[] inputs = new DataInputStream[count];
+        String[][] dictionaries = new String[count][];
+        long[] previous = new long[count];
+        Object[] values = new Object[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                String name = columns.get(i);
+                ColumnType type = types.get(name);
+                if (type == null) {
+                    throw new IllegalArgumentException("分区中不存在列: " + name);
+                }
+                inputs[i] = openInput(directory.resolve(name + DATA_SUFFIX));
+                if (type == ColumnType.STRING) {
+                    dictionaries[i] = readDictionary(directory.resolve(name + DICT_SUFFIX));
+                }
+            }
+            for (long row = 0; row < rows; row++) {
+                for (int i = 0; i < count; i++) {
+                    int first = readByte(inputs[i]);
+                    if (first == 0) {
+                        values[i] = null;
+                        continue;
+                    }
+                    long encoded = readVarLong(inputs[i], first);
+                    if (dictionaries[i] != null) {
+                        values[i] = dictionaries[i][(int) (encoded - 1)];
+                    } else {
+                        long zigzag = encoded - 1;
+                        previous[i] += (zigzag >>> 1) ^ -(zigzag & 1);
+                        values[i] = previous[i];
+                    }
+                }
+                handler.onRow(values);
+            }
+        } finally {
+            for (DataInputStream input : inputs) {
+                if (input != null) {
+                    input.close();
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 统计目录占用的字节数
+     *
+     * @param directory 目录
+     * @return 字节数
+     * @throws IOException 无法读取
+     */
+    public static long sizeOf(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            long total = 0;
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    total += Files.size(file);
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * 删除目录及其内容，失败时忽略
+     *
+     * @param directory 目录
+     */
+    public static void deleteRecursively(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // 残留的临时文件不影响读取
+                }
+            });
+        } catch (IOException ignored) {
+            // 同上
+        }
+    }
+
+    private static String[] readDictionary(Path file) throws IOException {
+        try (DataInputStream in = openInput(file)) {
+            String[] values = new String[(int) readVarLong(in)];
+            for (int i = 0; i < values.length; i++) {
+                byte[] bytes = new byte[(int) readVarLong(in)];
+                in.readFully(bytes);
+                values[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return values;
+        }
+    }
+
+    private static DataOutputStream openOutput(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+    private static DataInputStream openInput(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * 写入整数列的ZigZag结果加1，结果为 2^64-1 时加1超出64位，单独写出第65位
+     */
+    private static void writeZigZag(DataOutputStream out, long zigzag) throws IOException {
+        if (zigzag != -1L) {
+            writeVarLong(out, zigzag + 1);
+            return;
+        }
+        for (int i = 0; i < 9; i++) {
+            out.writeByte(0x80);
+        }
+        out.writeByte(0x02);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        return readVarLong(in, readByte(in));
+    }
+
+    /**
+     * 读取变长整数，超出64位的 2^64 按无符号运算回绕为0，调用方已通过首字节排除空值
+     *
+     * @param in 输入流
+     * @param b  已读取的首字节
+     * @return 变长整数的值
+     * @throws IOException 格式不正确或文件提前结束
+     */
+    private static long readVarLong(DataInputStream in, int b) throws IOException {
+        long result = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift == 63) {
+                if (b == 0x02) {
+                    return result;
+                }
+                if ((b & ~0x01) != 0) {
+                    throw new IOException("变长整数格式不正确");
+                }
+            }
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            b = readByte(in);
+        }
+    }
+
+    private static int readByte(DataInputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("列文件提前结束");
+        }
+        return b;
+    }
+}
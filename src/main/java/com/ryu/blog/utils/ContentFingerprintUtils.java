@@ -0,0 +1,119 @@
+package com.ryu.blog.utils;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.ryu.blog.entity.Posts;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 文章内容指纹工具类
+ * 对文章各个方面（正文、分类、标签等）做规范化后计算SHA-256，
+ * 用于识别重复提交和只写入发生变化的部分
+ *
+ * @author ryu
+ */
+public class ContentFingerprintUtils {
+
+    /** 字段分隔符，不会出现在正常文本中 */
+    private static final String SEPARATOR = "\u0001";
+
+    private ContentFingerprintUtils() {
+        // 工具类私有构造函数
+    }
+
+    /**
+     * 计算版本内容指纹（标题、正文、摘要）
+     * 决定是否需要生成新的文章版本
+     *
+     * @param title   标题
+     * @param content 正文
+     * @param excerpt 摘要
+     * @return 指纹
+     */
+    public static String contentFingerprint(String title, String content, String excerpt) {
+        return sha256(normalize(title), normalize(content), normalize(excerpt));
+    }
+
+    /**
+     * 计算文章行指纹，覆盖t_posts中所有可编辑的字段
+     * 状态、发布时间等生命周期字段会被其他流程修改，不参与指纹计算，由调用方直接比较
+     *
+     * @param post 文章
+     * @return 指纹
+     */
+    public static String rowFingerprint(Posts post) {
+        return sha256(
+                contentFingerprint(post.getTitle(), post.getContent(), post.getExcerpt()),
+                normalize(post.getSeoMeta()),
+                String.valueOf(post.getCoverImageId()),
+                String.valueOf(post.getIsOriginal()),
+                normalize(post.getSourceUrl()),
+                String.valueOf(post.getSort()),
+                String.valueOf(post.getAllowComment()),
+                normalize(post.getVisibility()),
+                normalize(post.getPassword()),
+                normalize(post.getLicense()));
+    }
+
+    /**
+     * 计算标签指纹，标签ID去重排序后参与计算，与提交顺序无关
+     *
+     * @param tagIds 标签ID集合
+     * @return 指纹
+     */
+    public static String tagsFingerprint(Collection<Long> tagIds) {
+        if (tagIds == null || tagIds.isEmpty()) {
+            return sha256("");
+        }
+        return sha256(tagIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .map(String::valueOf)
+                .collect(Collectors.joining(",")));
+    }
+
+    /**
+     * 计算文章整体指纹（行、分类、标签）
+     *
+     * @param rowFingerprint  行指纹
+     * @param categoryId      分类ID
+     * @param tagsFingerprint 标签指纹
+     * @return 指纹
+     */
+    public static String articleFingerprint(String rowFingerprint, Long categoryId, String tagsFingerprint) {
+        return sha256(rowFingerprint, String.valueOf(categoryId), tagsFingerprint);
+    }
+
+    /**
+     * 按文章当前已存储的状态计算整体指纹
+     * 回滚、恢复等绕过常规编辑流程写入正文或关联的路径用它重算t_posts.content_hash，
+     * 与编辑流程一致，多分类时取第一个分类参与计算
+     *
+     * @param post        文章
+     * @param categoryIds 当前分类ID
+     * @param tagIds      当前标签ID
+     * @return 指纹
+     */
+    public static String storedArticleFingerprint(Posts post, List<Long> categoryIds, Collection<Long> tagIds) {
+        Long categoryId = categoryIds == null || categoryIds.isEmpty() ? null : categoryIds.get(0);
+        return articleFingerprint(rowFingerprint(post), categoryId, tagsFingerprint(tagIds));
+    }
+
+    /**
+     * 规范化文本：统一换行符并去除首尾空白，null视为空串
+     */
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\r\n", "\n").replace('\r', '\n').strip();
+    }
+
+    private static String sha256(String... parts) {
+        return DigestUtil.sha256Hex(String.join(SEPARATOR, parts));
+    }
+}
@@ -0,0 +1,143 @@
+package com.ryu.blog.utils;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+
+/**
+ * 进程内HyperLogLog基数估计
+ * <p>
+ * 使用 2^precision 个6位寄存器（按字节存储），precision=12 时占用4KB，标准误差约1.6%。
+ * 用作Redis HyperLogLog不可用时的降级实现，也可序列化后存入统计汇总表，同精度的草图之间可以合并。
+ *
+ * @author ryu
+ */
+public class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * 创建HyperLogLog
+     *
+     * @param precision 精度，取值4-16，寄存器数量为 2^precision
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision必须在4到16之间");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * 添加元素
+     *
+     * @param value 元素
+     */
+    public synchronized void add(String value) {
+        long hash = MurmurHash.hash64(value);
+        int index = (int) (hash >>> (64 - precision));
+        // 低位补1，保证前导零计数不会超过 64 - precision
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * 估算基数
+     *
+     * @return 不同元素数量的估计值
+     */
+    public synchronized long count() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        // 小基数时使用线性计数修正
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * 合并另一个草图，合并后相当于两个集合的并集
+     *
+     * @param other 同精度的草图
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("只能合并相同精度的HyperLogLog");
+        }
+        byte[] snapshot;
+        synchronized (other) {
+            snapshot = other.registers.clone();
+        }
+        synchronized (this) {
+            for (int i = 0; i < registers.length; i++) {
+                if (snapshot[i] > registers[i]) {
+                    registers[i] = snapshot[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * 序列化为字节数组，首字节为精度，其后为寄存器
+     *
+     * @return 字节数组
+     */
+    public synchronized byte[] toBytes() {
+        byte[] bytes = new byte[registers.length + 1];
+        bytes[0] = (byte) precision;
+        System.arraycopy(registers, 0, bytes, 1, registers.length);
+        return bytes;
+    }
+
+    /**
+     * 从 {@link #toBytes()} 的结果恢复草图
+     *
+     * @param bytes 字节数组
+     * @return 草图
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length < 2) {
+            throw new IllegalArgumentException("HyperLogLog数据为空");
+        }
+        HyperLogLog sketch = new HyperLogLog(bytes[0]);
+        if (bytes.length != sketch.registers.length + 1) {
+            throw new IllegalArgumentException("HyperLogLog数据长度与精度不匹配");
+        }
+        System.arraycopy(bytes, 1, sketch.registers, 0, sketch.registers.length);
+        return sketch;
+    }
+
+    /**
+     * 获取精度
+     *
+     * @return 精度
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+}
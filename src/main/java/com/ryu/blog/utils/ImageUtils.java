@@ -2,8 +2,19 @@ package com.ryu.blog.utils;
 
 import lombok.extern.slf4j.Slf4j;
 import net.coobird.thumbnailator.Thumbnails;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
 
 /**
  * 图片处理工具类，支持生成缩略图
@@ -13,6 +24,9 @@ import java.io.ByteArrayOutputStream;
  */
 @Slf4j
 public class ImageUtils {
+
+    private static final float OUTPUT_QUALITY = 0.85f;
+
     /**
      * 生成图片缩略图
      * @param imageData 原始图片字节数组
@@ -25,7 +39,7 @@ public class ImageUtils {
              ByteArrayOutputStream out = new ByteArrayOutputStream()) {
             Thumbnails.of(in)
                     .size(width, height)
-                    .outputQuality(0.85f)
+                    .outputQuality(OUTPUT_QUALITY)
                     .toOutputStream(out);
             return out.toByteArray();
         } catch (Exception e) {
@@ -33,4 +47,85 @@ public class ImageUtils {
             return null;
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 只读取文件头获取图片尺寸，不解码像素
+     * @param file 图片文件
+     * @return 图片尺寸，无法识别的格式返回null
+     * @throws IOException 读取失败
+     */
+    public static Dimension readDimension(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 解码图片
+     * @param file 图片文件
+     * @return 图片，无法识别的格式返回null
+     * @throws IOException 读取失败
+     */
+    public static BufferedImage read(Path file) throws IOException {
+        return ImageIO.read(file.toFile());
+    }
+
+    /**
+     * 判断当前运行环境能否输出指定格式（如webp需要额外的ImageIO插件）
+     * @param format 格式名
+     * @return 是否可以输出
+     */
+    public static boolean canWrite(String format) {
+        return ImageIO.getImageWritersByFormatName(format).hasNext();
+    }
+
+    /**
+     * 按比例计算不超过给定宽高的尺寸，不放大
+     * @param width 原始宽度
+     * @param height 原始高度
+     * @param maxWidth 最大宽度
+     * @param maxHeight 最大高度，0表示不限制
+     * @return 目标尺寸
+     */
+    public static Dimension fitWithin(int width, int height, int maxWidth, int maxHeight) {
+        double scale = Math.min(1.0, (double) maxWidth / width);
+        if (maxHeight > 0) {
+            scale = Math.min(scale, (double) maxHeight / height);
+        }
+        return new Dimension(Math.max(1, (int) Math.round(width * scale)), Math.max(1, (int) Math.round(height * scale)));
+    }
+
+    /**
+     * 缩放图片并写入文件
+     * @param image 原始图片
+     * @param size 目标尺寸
+     * @param format 输出格式（jpg、png、webp等）
+     * @param target 目标文件
+     * @throws IOException 编码或写入失败
+     */
+    public static void writeScaled(BufferedImage image, Dimension size, String format, Path target) throws IOException {
+        Thumbnails.Builder<BufferedImage> builder = Thumbnails.of(image)
+                .size(size.width, size.height)
+                .outputFormat(format);
+        // PNG等无损格式不支持设置压缩质量
+        if ("jpg".equals(format) || "jpeg".equals(format)) {
+            builder.outputQuality(OUTPUT_QUALITY);
+        }
+        try (OutputStream out = Files.newOutputStream(target)) {
+            builder.toOutputStream(out);
+        }
+    }
+}
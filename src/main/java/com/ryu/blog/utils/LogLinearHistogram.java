@@ -0,0 +1,194 @@
+package com.ryu.blog.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 对数-线性分桶的直方图（与HdrHistogram的分桶方式相同）
+ * <p>
+ * 小于 2^subBucketBits 的值每个值一个桶，之后每个2的幂区间等分为 2^(subBucketBits-1) 个桶，
+ * 相对误差不超过 1/2^(subBucketBits-1)，桶数量只与取值范围的对数成正比。
+ * 超出上限的值计入最后一个桶。计数保存在 {@link AtomicLongArray} 中，记录和取出都是无锁的，
+ * 计数允许为负，用于把同一样本从旧桶移动到新桶。
+ *
+ * @author ryu
+ */
+public class LogLinearHistogram {
+
+    private final int subBucketBits;
+    private final int subBucketCount;
+    private final int subBucketHalf;
+    private final long maxValue;
+    private final AtomicLongArray counts;
+
+    /**
+     * 创建直方图
+     *
+     * @param subBucketBits 精度位数，1 到 16
+     * @param maxValue      最大记录值
+     */
+    public LogLinearHistogram(int subBucketBits, long maxValue) {
+        if (subBucketBits < 1 || subBucketBits > 16 || maxValue < 1) {
+            throw new IllegalArgumentException("直方图参数不正确: subBucketBits=" + subBucketBits + ", maxValue=" + maxValue);
+        }
+        this.subBucketBits = subBucketBits;
+        this.subBucketCount = 1 << subBucketBits;
+        this.subBucketHalf = subBucketCount >> 1;
+        this.maxValue = maxValue;
+        this.counts = new AtomicLongArray(bucketIndex(maxValue) + 1);
+    }
+
+    /**
+     * 记录一个值
+     *
+     * @param value 值，小于0按0处理，超出上限按上限处理
+     */
+    public void record(long value) {
+        add(value, 1);
+    }
+
+    /**
+     * 累加值所在桶的计数
+     *
+     * @param value 值
+     * @param count 计数，可以为负
+     */
+    public void add(long value, long count) {
+        counts.addAndGet(bucketIndex(value), count);
+    }
+
+    /**
+     * 取出并清零所有桶的计数，取出期间并发记录的值只会出现在本次或下次的结果中
+     *
+     * @return 每个桶的计数
+     */
+    public long[] drain() {
+        long[] snapshot = new long[counts.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.getAndSet(i, 0);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 把计数加回直方图，用于写入失败后恢复取出的计数
+     *
+     * @param snapshot 每个桶的计数
+     */
+    public void restore(long[] snapshot) {
+        for (int i = 0; i < snapshot.length && i < counts.length(); i++) {
+            if (snapshot[i] != 0) {
+                counts.addAndGet(i, snapshot[i]);
+            }
+        }
+    }
+
+    /**
+     * 获取桶数量
+     *
+     * @return 桶数量
+     */
+    public int getBucketCount() {
+        return counts.length();
+    }
+
+    /**
+     * 获取值所在的桶下标
+     *
+     * @param value 值
+     * @return 桶下标
+     */
+    public int bucketIndex(long value) {
+        long clamped = Math.min(Math.max(value, 0), maxValue);
+        if (clamped < subBucketCount) {
+            return (int) clamped;
+        }
+        // 右移后落在 [half, count) 区间
+        int shift = 63 - Long.numberOfLeadingZeros(clamped) - (subBucketBits - 1);
+        return subBucketCount + (shift - 1) * subBucketHalf + (int) ((clamped >>> shift) - subBucketHalf);
+    }
+
+    /**
+     * 获取桶的下界
+     *
+     * @param index 桶下标
+     * @return 桶内最小值
+     */
+    public long bucketLowerBound(int index) {
+        if (index < subBucketCount) {
+            return index;
+        }
+        int offset = index - subBucketCount;
+        int shift = offset / subBucketHalf + 1;
+        return (long) (subBucketHalf + offset % subBucketHalf) << shift;
+    }
+
+    /**
+     * 获取桶的上界
+     *
+     * @param index 桶下标
+     * @return 桶内最大值，不超过最大记录值
+     */
+    public long bucketUpperBound(int index) {
+        if (index < subBucketCount) {
+            return Math.min(index, maxValue);
+        }
+        int offset = index - subBucketCount;
+        int shift = offset / subBucketHalf + 1;
+        return Math.min((((long) (subBucketHalf + offset % subBucketHalf + 1)) << shift) - 1, maxValue);
+    }
+
+    /**
+     * 计算分位值
+     *
+     * @param snapshot   每个桶的计数
+     * @param percentile 百分位，0 到 100
+     * @return 分位值所在桶的上界，没有样本时返回0
+     */
+    public long valueAtPercentile(long[] snapshot, double percentile) {
+        long total = totalCount(snapshot);
+        if (total <= 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += Math.max(snapshot[i], 0);
+            if (seen >= target) {
+                return bucketUpperBound(i);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * 计算平均值，每个桶按中点计算
+     *
+     * @param snapshot 每个桶的计数
+     * @return 平均值，没有样本时返回0
+     */
+    public double mean(long[] snapshot) {
+        long total = 0;
+        double sum = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            if (snapshot[i] > 0) {
+                total += snapshot[i];
+                sum += snapshot[i] * (bucketLowerBound(i) + bucketUpperBound(i)) / 2.0;
+            }
+        }
+        return total == 0 ? 0 : sum / total;
+    }
+
+    /**
+     * 统计样本数，负计数不计入
+     *
+     * @param snapshot 每个桶的计数
+     * @return 样本数
+     */
+    public static long totalCount(long[] snapshot) {
+        long total = 0;
+        for (long count : snapshot) {
+            total += Math.max(count, 0);
+        }
+        return total;
+    }
+}
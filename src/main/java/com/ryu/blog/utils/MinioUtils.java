@@ -6,9 +6,17 @@ import io.minio.http.Method;
 import io.minio.messages.DeleteError;
 import io.minio.messages.DeleteObject;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -84,6 +92,29 @@ public class MinioUtils {
      * @return 对象名称
      */
     public static Mono<String> uploadFile(MinioClient minioClient, String bucketName, String objectName, byte[] data, String contentType) {
+        return ensureBucketExists(minioClient, bucketName)
+                .flatMap(exists -> {
+                    if (!exists) {
+                        return Mono.error(new RuntimeException("存储桶不存在且无法创建: " + bucketName));
+                    }
+                    
+                    return Mono.fromCallable(() -> putObject(minioClient, bucketName, objectName,
+                            new ByteArrayInputStream(data), data.length, contentType));
+                });
+    }
+
+    /**
+     * 上传本地文件，按流读取，不把整个文件读入内存
+     *
+     * @param minioClient MinIO客户端
+     * @param bucketName  存储桶名称
+     * @param objectName  对象名称
+     * @param file        本地文件
+     * @param size        文件大小
+     * @param contentType 内容类型
+     * @return 对象名称
+     */
+    public static Mono<String> uploadFile(MinioClient minioClient, String bucketName, String objectName, Path file, long size, String contentType) {
         return ensureBucketExists(minioClient, bucketName)
                 .flatMap(exists -> {
                     if (!exists) {
@@ -91,27 +122,37 @@ public class MinioUtils {
                     }
                     
                     return Mono.fromCallable(() -> {
-                        try {
-                            // 使用PutObject上传
-                            minioClient.putObject(
-                                PutObjectArgs.builder()
-                                    .bucket(bucketName)
-                                    .object(objectName)
-                                    .stream(new ByteArrayInputStream(data), data.length, -1)
-                                    .contentType(contentType)
-                                    .build()
-                            );
-                            
-                            log.debug("文件上传成功: {}/{}", bucketName, objectName);
-                            return objectName;
-                        } catch (Exception e) {
-                            log.error("文件上传失败: {}", e.getMessage(), e);
-                            throw new RuntimeException("文件上传失败: " + e.getMessage(), e);
-                        }
-                    });
+                                try (InputStream inputStream = Files.newInputStream(file)) {
+                                    return putObject(minioClient, bucketName, objectName, inputStream, size, contentType);
+                                }
+                            })
+                            .subscribeOn(Schedulers.boundedElastic());
                 });
     }
 
+    /**
+     * 使用PutObject上传，大小已知时SDK按分片流式发送
+     */
+    private static String putObject(MinioClient minioClient, String bucketName, String objectName,
+                                    InputStream inputStream, long size, String contentType) {
+        try {
+            minioClient.putObject(
+                PutObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .stream(inputStream, size, -1)
+                    .contentType(contentType)
+                    .build()
+            );
+            
+            log.debug("文件上传成功: {}/{}", bucketName, objectName);
+            return objectName;
+        } catch (Exception e) {
+            log.error("文件上传失败: {}", e.getMessage(), e);
+            throw new RuntimeException("文件上传失败: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * 下载文件
      *
@@ -144,6 +185,37 @@ public class MinioUtils {
         });
     }
 
+    /**
+     * 下载对象的一段内容，由MinIO服务端按Range返回，响应流按块读取
+     *
+     * @param minioClient MinIO客户端
+     * @param bucketName  存储桶名称
+     * @param objectName  对象名称
+     * @param offset      起始字节偏移
+     * @param length      读取字节数
+     * @param bufferSize  每块大小
+     * @return 数据缓冲流
+     */
+    public static Flux<DataBuffer> downloadFile(MinioClient minioClient, String bucketName, String objectName,
+                                                long offset, long length, int bufferSize) {
+        return DataBufferUtils.readInputStream(() -> {
+                    try {
+                        return minioClient.getObject(
+                            GetObjectArgs.builder()
+                                .bucket(bucketName)
+                                .object(objectName)
+                                .offset(offset)
+                                .length(length)
+                                .build()
+                        );
+                    } catch (Exception e) {
+                        log.error("区间下载失败: {}/{}, offset={}, length={}, error={}", bucketName, objectName, offset, length, e.getMessage(), e);
+                        throw new RuntimeException("文件下载失败: " + e.getMessage(), e);
+                    }
+                }, DefaultDataBufferFactory.sharedInstance, bufferSize)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
     /**
      * 删除文件
      *
@@ -0,0 +1,128 @@
+package com.ryu.blog.utils;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 来源页面工具类
+ *
+ * @author ryu
+ */
+public class RefererUtils {
+
+    /**
+     * 没有来源页面（直接访问）
+     */
+    public static final String DIRECT = "direct";
+
+    /**
+     * 来源页面无法解析
+     */
+    public static final String UNKNOWN = "未知";
+
+    /**
+     * 归一化后来源和活动名称的最大长度
+     */
+    public static final int MAX_LENGTH = 64;
+
+    private RefererUtils() {
+        // 工具类私有构造函数
+    }
+
+    /**
+     * 获取来源页面的域名（小写），没有来源时视为直接访问
+     *
+     * @param referer 来源页面
+     * @return 域名、{@link #DIRECT} 或 {@link #UNKNOWN}
+     */
+    public static String getHost(String referer) {
+        if (referer == null || referer.isBlank()) {
+            return DIRECT;
+        }
+        try {
+            String host = URI.create(referer.trim()).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : UNKNOWN;
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * 将来源归一化为 来源 + 推广活动
+     * 优先使用落地页（其次是来源页面）上的 utm_source、utm_campaign 参数，没有 utm_source 时使用来源域名（去掉www.）。
+     * 查询参数、路径等高基数部分全部丢弃，结果只包含小写字母、数字和 . _ -
+     *
+     * @param referer    来源页面
+     * @param landingUrl 落地页地址，可为空
+     * @return 归一化的来源
+     */
+    public static Source normalize(String referer, String landingUrl) {
+        Map<String, String> utm = utmParams(landingUrl);
+        if (utm.isEmpty()) {
+            utm = utmParams(referer);
+        }
+        String source = clean(utm.get("utm_source"));
+        if (source.isEmpty()) {
+            String host = getHost(referer);
+            source = host.startsWith("www.") ? host.substring(4) : host;
+        }
+        return new Source(truncate(source), truncate(clean(utm.get("utm_campaign"))));
+    }
+
+    private static Map<String, String> utmParams(String url) {
+        if (url == null) {
+            return Map.of();
+        }
+        int start = url.indexOf('?');
+        if (start < 0) {
+            return Map.of();
+        }
+        int end = url.indexOf('#', start);
+        String query = url.substring(start + 1, end < 0 ? url.length() : end);
+        Map<String, String> params = new HashMap<>(4);
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0 || !pair.regionMatches(true, 0, "utm_", 0, 4)) {
+                continue;
+            }
+            try {
+                params.put(pair.substring(0, eq).toLowerCase(Locale.ROOT),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                // 编码不正确的参数直接忽略
+            }
+        }
+        return params;
+    }
+
+    private static String clean(String value) {
+        if (value == null || value.isBlank()) {
+            return "";
+        }
+        String lower = value.trim().toLowerCase(Locale.ROOT);
+        StringBuilder cleaned = new StringBuilder(Math.min(lower.length(), MAX_LENGTH));
+        for (int i = 0; i < lower.length() && cleaned.length() < MAX_LENGTH; i++) {
+            char c = lower.charAt(i);
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '.' || c == '_' || c == '-';
+            cleaned.append(allowed ? c : '-');
+        }
+        return cleaned.toString();
+    }
+
+    private static String truncate(String value) {
+        return value.length() > MAX_LENGTH ? value.substring(0, MAX_LENGTH) : value;
+    }
+
+    /**
+     * 归一化的来源
+     *
+     * @param source   来源（utm_source或来源域名）
+     * @param campaign 推广活动（utm_campaign），没有时为空串
+     */
+    public record Source(String source, String campaign) {
+    }
+}
@@ -0,0 +1,229 @@
+package com.ryu.blog.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving 高频元素（Top-K）草图
+ * <p>
+ * 最多保留 capacity 个计数器，计数器按计数组织成最小堆。新元素在计数器已满时替换堆顶（计数最小）的元素，
+ * 并继承其计数作为误差上界，因此内存与不同元素的数量无关。
+ * 任意元素的真实计数满足 count - error &lt;= 真实值 &lt;= count，计数超过 总数/capacity 的元素一定会被保留。
+ * 同容量的草图之间可以合并（Agarwal等人的可合并摘要），用于跨节点、跨时间窗口汇总。
+ *
+ * @author ryu
+ */
+public class SpaceSavingTopK {
+
+    private final int capacity;
+    private final String[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<String, Integer> positions;
+    private int size;
+
+    /**
+     * 创建草图
+     *
+     * @param capacity 计数器数量，应明显大于需要查询的K
+     */
+    public SpaceSavingTopK(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity必须大于0");
+        }
+        this.capacity = capacity;
+        this.keys = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * 从快照恢复草图，超出容量的条目按计数从高到低保留
+     *
+     * @param capacity 计数器数量
+     * @param items    快照条目
+     * @return 草图
+     */
+    public static SpaceSavingTopK fromItems(int capacity, List<Item> items) {
+        SpaceSavingTopK sketch = new SpaceSavingTopK(capacity);
+        items.stream()
+                .sorted(Comparator.comparingLong(Item::count).reversed())
+                .limit(capacity)
+                .forEach(item -> sketch.append(item.key(), item.count(), item.error()));
+        return sketch;
+    }
+
+    /**
+     * 元素计数加一
+     *
+     * @param key 元素
+     */
+    public void offer(String key) {
+        offer(key, 1);
+    }
+
+    /**
+     * 元素计数增加指定权重
+     *
+     * @param key    元素
+     * @param weight 权重
+     */
+    public synchronized void offer(String key, long weight) {
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += weight;
+            siftDown(position);
+        } else if (size < capacity) {
+            append(key, weight, 0);
+        } else {
+            // 替换计数最小的元素，被替换元素的计数成为新元素的误差上界
+            long minCount = counts[0];
+            positions.remove(keys[0]);
+            keys[0] = key;
+            counts[0] = minCount + weight;
+            errors[0] = minCount;
+            positions.put(key, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * 合并另一个同容量的草图
+     * 在一方中缺失的元素以该方的最小计数作为估计（该方未满时为0），合并后只保留计数最高的 capacity 个元素
+     *
+     * @param other 草图
+     */
+    public void merge(SpaceSavingTopK other) {
+        List<Item> otherItems = other.items();
+        long otherMin = other.minCount();
+        synchronized (this) {
+            long selfMin = size < capacity ? 0 : counts[0];
+            Map<String, long[]> merged = new HashMap<>((size + otherItems.size()) * 2);
+            for (int i = 0; i < size; i++) {
+                merged.put(keys[i], new long[]{counts[i] + otherMin, errors[i] + otherMin});
+            }
+            for (Item item : otherItems) {
+                long[] value = merged.get(item.key());
+                if (value != null) {
+                    value[0] += item.count() - otherMin;
+                    value[1] += item.error() - otherMin;
+                } else {
+                    merged.put(item.key(), new long[]{item.count() + selfMin, item.error() + selfMin});
+                }
+            }
+            positions.clear();
+            Arrays.fill(keys, null);
+            size = 0;
+            merged.entrySet().stream()
+                    .sorted(Comparator.comparingLong((Map.Entry<String, long[]> entry) -> entry.getValue()[0]).reversed())
+                    .limit(capacity)
+                    .forEach(entry -> append(entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+        }
+    }
+
+    /**
+     * 获取计数最高的K个元素
+     *
+     * @param k 数量
+     * @return 按计数降序排列的条目
+     */
+    public List<Item> top(int k) {
+        List<Item> items = items();
+        items.sort(Comparator.comparingLong(Item::count).reversed());
+        return items.size() > k ? new ArrayList<>(items.subList(0, k)) : items;
+    }
+
+    /**
+     * 获取所有计数器的快照
+     *
+     * @return 条目列表（无序）
+     */
+    public synchronized List<Item> items() {
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Item(keys[i], counts[i], errors[i]));
+        }
+        return items;
+    }
+
+    /**
+     * 获取计数器数量
+     *
+     * @return 计数器数量
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 计数器已满时的最小计数，即未被跟踪元素的计数上界
+     */
+    private synchronized long minCount() {
+        return size < capacity ? 0 : counts[0];
+    }
+
+    private void append(String key, long count, long error) {
+        int position = size++;
+        keys[position] = key;
+        counts[position] = count;
+        errors[position] = error;
+        positions.put(key, position);
+        siftUp(position);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[parent] <= counts[position]) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int left = position * 2 + 1;
+            if (left >= size) {
+                break;
+            }
+            int right = left + 1;
+            int smallest = right < size && counts[right] < counts[left] ? right : left;
+            if (counts[position] <= counts[smallest]) {
+                break;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        String key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long count = counts[i];
+        counts[i] = counts[j];
+        counts[j] = count;
+        long error = errors[i];
+        errors[i] = errors[j];
+        errors[j] = error;
+        positions.put(keys[i], i);
+        positions.put(keys[j], j);
+    }
+
+    /**
+     * 草图条目
+     *
+     * @param key   元素
+     * @param count 估计计数（上界）
+     * @param error 误差上界
+     */
+    public record Item(String key, long count, long error) {
+    }
+}
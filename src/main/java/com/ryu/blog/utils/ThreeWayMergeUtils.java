@@ -0,0 +1,191 @@
+package com.ryu.blog.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 文本三方合并工具类
+ * <p>
+ * 以行为单位分别计算 基线->我的修改、基线->服务器版本 的最长公共子序列，
+ * 两侧都未改动的基线行作为稳定锚点，锚点之间的区块按diff3规则合并：
+ * 只有一侧修改时采用该侧，两侧修改相同时采用任一侧，否则输出冲突标记。
+ *
+ * @author ryu
+ */
+public class ThreeWayMergeUtils {
+
+    public static final String MARKER_OURS = "<<<<<<< 我的修改";
+    public static final String MARKER_SEPARATOR = "=======";
+    public static final String MARKER_THEIRS = ">>>>>>> 服务器版本";
+
+    /**
+     * LCS动态规划表的最大单元数，超出时中间差异部分按整体替换处理，避免超大文档占用过多内存
+     */
+    private static final long MAX_LCS_CELLS = 4_000_000L;
+
+    private ThreeWayMergeUtils() {
+        // 工具类私有构造函数
+    }
+
+    /**
+     * 三方合并
+     *
+     * @param base   基线内容（双方开始编辑时的版本）
+     * @param ours   我的修改
+     * @param theirs 服务器当前版本
+     * @return 合并结果
+     */
+    public static MergeResult merge(String base, String ours, String theirs) {
+        List<String> baseLines = splitLines(base);
+        List<String> ourLines = splitLines(ours);
+        List<String> theirLines = splitLines(theirs);
+
+        if (ourLines.equals(theirLines) || theirLines.equals(baseLines)) {
+            return new MergeResult(String.join("\n", ourLines), 0);
+        }
+        if (ourLines.equals(baseLines)) {
+            return new MergeResult(String.join("\n", theirLines), 0);
+        }
+
+        int[] ourMatches = matchLines(baseLines, ourLines);
+        int[] theirMatches = matchLines(baseLines, theirLines);
+
+        List<String> merged = new ArrayList<>(Math.max(ourLines.size(), theirLines.size()));
+        int conflicts = 0;
+        int b = 0;
+        int o = 0;
+        int t = 0;
+        while (true) {
+            // 下一个两侧都保留的基线行
+            int anchor = b;
+            while (anchor < baseLines.size() && (ourMatches[anchor] < 0 || theirMatches[anchor] < 0)) {
+                anchor++;
+            }
+            int ourEnd = anchor < baseLines.size() ? ourMatches[anchor] : ourLines.size();
+            int theirEnd = anchor < baseLines.size() ? theirMatches[anchor] : theirLines.size();
+
+            conflicts += mergeChunk(merged, baseLines.subList(b, anchor),
+                    ourLines.subList(o, ourEnd), theirLines.subList(t, theirEnd));
+
+            if (anchor >= baseLines.size()) {
+                break;
+            }
+            merged.add(baseLines.get(anchor));
+            b = anchor + 1;
+            o = ourEnd + 1;
+            t = theirEnd + 1;
+        }
+        return new MergeResult(String.join("\n", merged), conflicts);
+    }
+
+    /**
+     * 合并锚点之间的区块
+     *
+     * @return 冲突数量（0或1）
+     */
+    private static int mergeChunk(List<String> merged, List<String> base, List<String> ours, List<String> theirs) {
+        if (ours.equals(theirs)) {
+            merged.addAll(ours);
+        } else if (ours.equals(base)) {
+            merged.addAll(theirs);
+        } else if (theirs.equals(base)) {
+            merged.addAll(ours);
+        } else {
+            merged.add(MARKER_OURS);
+            merged.addAll(ours);
+            merged.add(MARKER_SEPARATOR);
+            merged.addAll(theirs);
+            merged.add(MARKER_THEIRS);
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * 计算基线行在目标文本中的匹配位置
+     *
+     * @return 下标为基线行号，值为目标行号，未匹配为-1，匹配位置单调递增
+     */
+    private static int[] matchLines(List<String> base, List<String> target) {
+        int[] matches = new int[base.size()];
+        Arrays.fill(matches, -1);
+
+        // 公共前缀和后缀直接匹配，通常编辑只涉及中间一小段
+        int prefix = 0;
+        while (prefix < base.size() && prefix < target.size() && base.get(prefix).equals(target.get(prefix))) {
+            matches[prefix] = prefix;
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < base.size() - prefix && suffix < target.size() - prefix
+                && base.get(base.size() - 1 - suffix).equals(target.get(target.size() - 1 - suffix))) {
+            matches[base.size() - 1 - suffix] = target.size() - 1 - suffix;
+            suffix++;
+        }
+
+        int rows = base.size() - prefix - suffix;
+        int cols = target.size() - prefix - suffix;
+        if (rows == 0 || cols == 0 || (long) (rows + 1) * (cols + 1) > MAX_LCS_CELLS) {
+            return matches;
+        }
+
+        // lcs[i][j] 为 base[prefix+i..] 与 target[prefix+j..] 的LCS长度
+        int width = cols + 1;
+        int[] lcs = new int[(rows + 1) * width];
+        for (int i = rows - 1; i >= 0; i--) {
+            String line = base.get(prefix + i);
+            for (int j = cols - 1; j >= 0; j--) {
+                lcs[i * width + j] = line.equals(target.get(prefix + j))
+                        ? lcs[(i + 1) * width + j + 1] + 1
+                        : Math.max(lcs[(i + 1) * width + j], lcs[i * width + j + 1]);
+            }
+        }
+        int i = 0;
+        int j = 0;
+        while (i < rows && j < cols) {
+            if (base.get(prefix + i).equals(target.get(prefix + j))) {
+                matches[prefix + i] = prefix + j;
+                i++;
+                j++;
+            } else if (lcs[(i + 1) * width + j] >= lcs[i * width + j + 1]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return matches;
+    }
+
+    private static List<String> splitLines(String text) {
+        if (text == null || text.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.asList(text.replace("\r\n", "\n").replace('\r', '\n').split("\n", -1));
+    }
+
+    /**
+     * 合并结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class MergeResult {
+
+        /**
+         * 合并后的内容，冲突区块包含冲突标记
+         */
+        private final String content;
+
+        /**
+         * 冲突区块数量
+         */
+        private final int conflictCount;
+
+        public boolean isClean() {
+            return conflictCount == 0;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.ryu.blog.utils;
+
+import com.ryu.blog.exception.BusinessException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * 上传内容暂存文件
+ * <p>
+ * 上传内容按数据块写入临时文件，写入的同时增量计算MD5校验和（与 {@link FileUtils#calculateChecksum} 结果一致）和用于内容寻址的SHA-256、
+ * 保留开头的若干字节用于识别MIME类型，并在累计大小超过上限时立即中止。
+ * 整个过程只持有当前数据块，内存占用与文件大小无关；存储时再从临时文件按块读取。
+ *
+ * @author ryu
+ */
+@Slf4j
+public final class UploadSpool {
+
+    /**
+     * 用于识别MIME类型的开头字节数，常见格式的特征都在文件头部
+     */
+    public static final int HEAD_BYTES = 8 * 1024;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final long maxSize;
+    private final MessageDigest digest;
+    private final MessageDigest sha256Digest;
+    private final byte[] head = new byte[HEAD_BYTES];
+    private int headLength;
+    private long size;
+    private String checksum;
+    private String sha256;
+
+    private UploadSpool(Path file, long maxSize) {
+        this.file = file;
+        this.maxSize = maxSize;
+        try {
+            this.digest = MessageDigest.getInstance("MD5");
+            this.sha256Digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("摘要算法不可用", e);
+        }
+    }
+
+    /**
+     * 将上传内容写入暂存文件
+     *
+     * @param content   上传内容
+     * @param directory 暂存目录
+     * @param maxSize   大小上限（字节），小于等于0时不限制
+     * @return 写入完成的暂存文件，失败时临时文件已被删除
+     */
+    public static Mono<UploadSpool> spool(Flux<DataBuffer> content, Path directory, long maxSize) {
+        return Mono.fromCallable(() -> {
+                    Files.createDirectories(directory);
+                    return new UploadSpool(Files.createTempFile(directory, "upload-", ".tmp"), maxSize);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(spool -> DataBufferUtils.write(content.handle(spool::update), spool.file,
+                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                        .thenReturn(spool)
+                        .onErrorResume(error -> spool.delete().then(Mono.error(error))));
+    }
+
+    /**
+     * 获取暂存文件路径
+     *
+     * @return 文件路径
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * 获取文件大小
+     *
+     * @return 字节数
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 获取文件开头的字节
+     *
+     * @return 最多 {@link #HEAD_BYTES} 字节
+     */
+    public byte[] getHead() {
+        return Arrays.copyOf(head, headLength);
+    }
+
+    /**
+     * 获取文件的MD5校验和
+     *
+     * @return 十六进制小写字符串
+     */
+    public synchronized String getChecksum() {
+        if (checksum == null) {
+            checksum = HexFormat.of().formatHex(digest.digest());
+        }
+        return checksum;
+    }
+
+    /**
+     * 获取文件的SHA-256，用于内容寻址
+     *
+     * @return 十六进制小写字符串
+     */
+    public synchronized String getSha256() {
+        if (sha256 == null) {
+            sha256 = HexFormat.of().formatHex(sha256Digest.digest());
+        }
+        return sha256;
+    }
+
+    /**
+     * 按块读取暂存文件
+     *
+     * @return 数据缓冲流
+     */
+    public Flux<DataBuffer> content() {
+        return DataBufferUtils.read(file, DefaultDataBufferFactory.sharedInstance, READ_BUFFER_SIZE);
+    }
+
+    /**
+     * 删除暂存文件
+     *
+     * @return 完成信号
+     */
+    public Mono<Void> delete() {
+        return Mono.<Void>fromRunnable(() -> {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        log.warn("删除上传暂存文件失败: file={}, error={}", file, e.getMessage());
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private void update(DataBuffer buffer, SynchronousSink<DataBuffer> sink) {
+        size += buffer.readableByteCount();
+        if (maxSize > 0 && size > maxSize) {
+            DataBufferUtils.release(buffer);
+            sink.error(new BusinessException("文件大小超过限制: " + FileUtils.formatFileSize(maxSize)));
+            return;
+        }
+        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                ByteBuffer byteBuffer = iterator.next();
+                if (headLength < HEAD_BYTES) {
+                    int length = Math.min(HEAD_BYTES - headLength, byteBuffer.remaining());
+                    byteBuffer.duplicate().get(head, headLength, length);
+                    headLength += length;
+                }
+                sha256Digest.update(byteBuffer.duplicate());
+                digest.update(byteBuffer);
+            }
+        }
+        sink.next(buffer);
+    }
+}
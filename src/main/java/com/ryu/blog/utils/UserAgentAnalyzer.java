@@ -1,37 +1,113 @@
 package com.ryu.blog.utils;
 
-import lombok.extern.slf4j.Slf4j;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * User-Agent解析工具类
  * 提供更准确的设备、浏览器和操作系统识别
+ * <p>
+ * 所有设备、浏览器、操作系统、爬虫和无头浏览器特征编译为一个Aho–Corasick自动机，
+ * 一次扫描得到全部命中的特征，再按优先级判定各字段，版本号只在判定出的浏览器族上提取。
+ * 解析结果按User-Agent字符串缓存，真实流量中User-Agent的种类很少，绝大多数请求直接命中缓存。
  * 
  * @author ryu 475118582@qq.com
  */
-@Slf4j
 public class UserAgentAnalyzer {
     
-    // 设备类型正则表达式
-    private static final Pattern MOBILE_PATTERN = Pattern.compile(".*(iPhone|iPod|Android|Mobile|okhttp|MicroMessenger).*");
-    private static final Pattern TABLET_PATTERN = Pattern.compile(".*(iPad|Tablet).*");
-    
-    // 浏览器类型正则表达式
-    private static final Pattern CHROME_PATTERN = Pattern.compile(".*(Chrome|CriOS).*");
-    private static final Pattern FIREFOX_PATTERN = Pattern.compile(".*(Firefox|FxiOS).*");
-    private static final Pattern SAFARI_PATTERN = Pattern.compile(".*(Safari).*");
-    private static final Pattern EDGE_PATTERN = Pattern.compile(".*(Edge|Edg|EdgiOS).*");
-    private static final Pattern IE_PATTERN = Pattern.compile(".*(MSIE|Trident).*");
-    private static final Pattern OPERA_PATTERN = Pattern.compile(".*(Opera|OPR|OPiOS).*");
-    private static final Pattern WECHAT_PATTERN = Pattern.compile(".*(MicroMessenger).*");
-    
-    // 操作系统正则表达式
-    private static final Pattern WINDOWS_PATTERN = Pattern.compile(".*(Windows).*");
-    private static final Pattern MAC_PATTERN = Pattern.compile(".*(Mac OS).*");
-    private static final Pattern IOS_PATTERN = Pattern.compile(".*(iPhone|iPad|iPod).*");
-    private static final Pattern ANDROID_PATTERN = Pattern.compile(".*(Android).*");
-    private static final Pattern LINUX_PATTERN = Pattern.compile(".*(Linux).*");
+    // 特征标记，一个特征串可以同时对应多个标记（如 iPhone 既是移动设备也是iOS）
+    private static final int MOBILE = 1;
+    private static final int TABLET = 1 << 1;
+    private static final int WECHAT = 1 << 2;
+    private static final int EDGE = 1 << 3;
+    private static final int OPERA = 1 << 4;
+    private static final int CHROME = 1 << 5;
+    private static final int FIREFOX = 1 << 6;
+    private static final int SAFARI = 1 << 7;
+    private static final int IE = 1 << 8;
+    private static final int IOS = 1 << 9;
+    private static final int ANDROID = 1 << 10;
+    private static final int MAC = 1 << 11;
+    private static final int WINDOWS = 1 << 12;
+    private static final int LINUX = 1 << 13;
+    private static final int BOT = 1 << 14;
+    private static final int HEADLESS = 1 << 15;
+    
+    private static final String UNKNOWN = "Unknown";
+    private static final String OTHER = "Other";
+    
+    /**
+     * 超过该长度的User-Agent不缓存，避免异常请求占用缓存
+     */
+    private static final int MAX_CACHED_LENGTH = 512;
+    
+    private static final List<Signature> SIGNATURES = new ArrayList<>();
+    
+    static {
+        // 设备、浏览器、操作系统特征区分大小写
+        sensitive("iPhone", MOBILE | IOS);
+        sensitive("iPod", MOBILE | IOS);
+        sensitive("iPad", TABLET | IOS);
+        sensitive("Android", MOBILE | ANDROID);
+        sensitive("Mobile", MOBILE);
+        sensitive("okhttp", MOBILE);
+        sensitive("MicroMessenger", MOBILE | WECHAT);
+        sensitive("Tablet", TABLET);
+        sensitive("Edge", EDGE);
+        sensitive("Edg", EDGE);
+        sensitive("EdgiOS", EDGE);
+        sensitive("Opera", OPERA);
+        sensitive("OPR", OPERA);
+        sensitive("OPiOS", OPERA);
+        sensitive("Chrome", CHROME);
+        sensitive("CriOS", CHROME);
+        sensitive("Firefox", FIREFOX);
+        sensitive("FxiOS", FIREFOX);
+        sensitive("Safari", SAFARI);
+        sensitive("MSIE", IE);
+        sensitive("Trident", IE);
+        sensitive("Windows", WINDOWS);
+        sensitive("Mac OS", MAC);
+        sensitive("Linux", LINUX);
+        
+        // 爬虫、监控和脚本客户端特征，不区分大小写
+        // 独立的bot单词要求前后都是单词边界，避免误判Cubot等手机型号；
+        // 以bot结尾的产品标识（XxxBot/1.0）和常见爬虫名称单独列出
+        SIGNATURES.add(new Signature("bot", BOT, false, true, true));
+        SIGNATURES.add(new Signature("bot/", BOT, false, false, false));
+        for (String token : new String[]{"googlebot", "bingbot", "yandexbot", "duckduckbot", "applebot", "adsbot",
+                "slackbot", "twitterbot", "discordbot", "telegrambot", "linkedinbot", "pinterestbot", "ahrefsbot",
+                "semrushbot", "mj12bot", "dotbot", "petalbot", "amazonbot", "gptbot", "ccbot", "seznambot",
+                "blexbot", "dataforseobot"}) {
+            SIGNATURES.add(new Signature(token, BOT, false, false, false));
+        }
+        for (String token : new String[]{"spider", "crawl", "slurp", "mediapartners", "facebookexternalhit",
+                "bingpreview", "feedfetcher", "embedly", "curl/", "wget", "python-requests", "python-urllib",
+                "aiohttp", "httpx", "go-http-client", "java/", "apache-httpclient", "axios/", "node-fetch", "scrapy",
+                "libwww", "httpunit", "uptime", "pingdom", "statuscake", "site24x7", "check_http", "nagios", "zabbix",
+                "monitor", "lighthouse", "pagespeed", "gtmetrix"}) {
+            SIGNATURES.add(new Signature(token, BOT, false, false, false));
+        }
+        
+        // 无头浏览器和自动化框架特征，不区分大小写
+        for (String token : new String[]{"HeadlessChrome", "PhantomJS", "SlimerJS", "Puppeteer", "Playwright",
+                "Selenium", "WebDriver"}) {
+            SIGNATURES.add(new Signature(token, HEADLESS, false, false, false));
+        }
+    }
+    
+    private static final AhoCorasick AUTOMATON = new AhoCorasick(SIGNATURES.stream().map(Signature::token).toList());
+    
+    private static final Cache<String, Analysis> CACHE = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+    
+    private UserAgentAnalyzer() {
+        // 工具类私有构造函数
+    }
     
     /**
      * 解析User-Agent字符串，提取设备信息
@@ -40,15 +116,7 @@ public class UserAgentAnalyzer {
      * @return 设备信息对象
      */
     public static DeviceInfo parseUserAgent(String userAgent) {
-        if (userAgent == null || userAgent.isEmpty()) {
-            return new DeviceInfo("Unknown", "Unknown", "Unknown");
-        }
-        
-        String deviceType = getDeviceType(userAgent);
-        String browserType = getBrowserType(userAgent);
-        String osType = getOsType(userAgent);
-        
-        return new DeviceInfo(deviceType, browserType, osType);
+        return analyze(userAgent).deviceInfo();
     }
     
     /**
@@ -58,17 +126,7 @@ public class UserAgentAnalyzer {
      * @return 设备类型
      */
     public static String getDeviceType(String userAgent) {
-        if (userAgent == null || userAgent.isEmpty()) {
-            return "Unknown";
-        }
-        
-        if (MOBILE_PATTERN.matcher(userAgent).matches()) {
-            return "Mobile";
-        } else if (TABLET_PATTERN.matcher(userAgent).matches()) {
-            return "Tablet";
-        } else {
-            return "Desktop";
-        }
+        return analyze(userAgent).deviceInfo().getDeviceType();
     }
     
     /**
@@ -78,28 +136,7 @@ public class UserAgentAnalyzer {
      * @return 浏览器类型
      */
     public static String getBrowserType(String userAgent) {
-        if (userAgent == null || userAgent.isEmpty()) {
-            return "Unknown";
-        }
-        
-        // 检查顺序很重要，因为有些浏览器会包含其他浏览器的标识
-        if (WECHAT_PATTERN.matcher(userAgent).matches()) {
-            return "WeChat";
-        } else if (EDGE_PATTERN.matcher(userAgent).matches()) {
-            return "Edge";
-        } else if (OPERA_PATTERN.matcher(userAgent).matches()) {
-            return "Opera";
-        } else if (CHROME_PATTERN.matcher(userAgent).matches()) {
-            return "Chrome";
-        } else if (FIREFOX_PATTERN.matcher(userAgent).matches()) {
-            return "Firefox";
-        } else if (SAFARI_PATTERN.matcher(userAgent).matches()) {
-            return "Safari";
-        } else if (IE_PATTERN.matcher(userAgent).matches()) {
-            return "Internet Explorer";
-        } else {
-            return "Other";
-        }
+        return analyze(userAgent).deviceInfo().getBrowserType();
     }
     
     /**
@@ -109,23 +146,27 @@ public class UserAgentAnalyzer {
      * @return 操作系统类型
      */
     public static String getOsType(String userAgent) {
-        if (userAgent == null || userAgent.isEmpty()) {
-            return "Unknown";
-        }
-        
-        if (IOS_PATTERN.matcher(userAgent).matches()) {
-            return "iOS";
-        } else if (ANDROID_PATTERN.matcher(userAgent).matches()) {
-            return "Android";
-        } else if (MAC_PATTERN.matcher(userAgent).matches()) {
-            return "macOS";
-        } else if (WINDOWS_PATTERN.matcher(userAgent).matches()) {
-            return "Windows";
-        } else if (LINUX_PATTERN.matcher(userAgent).matches()) {
-            return "Linux";
-        } else {
-            return "Other";
-        }
+        return analyze(userAgent).deviceInfo().getOsType();
+    }
+    
+    /**
+     * 是否为爬虫、监控或脚本客户端
+     * 
+     * @param userAgent User-Agent字符串
+     * @return 是否匹配已知的自动化客户端特征
+     */
+    public static boolean isBot(String userAgent) {
+        return analyze(userAgent).bot();
+    }
+    
+    /**
+     * 是否为无头浏览器
+     * 
+     * @param userAgent User-Agent字符串
+     * @return 是否包含无头浏览器或自动化框架标识
+     */
+    public static boolean isHeadless(String userAgent) {
+        return analyze(userAgent).headless();
     }
     
     /**
@@ -146,11 +187,17 @@ public class UserAgentAnalyzer {
         private final String deviceType;
         private final String browserType;
         private final String osType;
+        private final String browserVersion;
         
         public DeviceInfo(String deviceType, String browserType, String osType) {
+            this(deviceType, browserType, osType, "");
+        }
+        
+        public DeviceInfo(String deviceType, String browserType, String osType, String browserVersion) {
             this.deviceType = deviceType;
             this.browserType = browserType;
             this.osType = osType;
+            this.browserVersion = browserVersion;
         }
         
         public String getDeviceType() {
@@ -165,9 +212,145 @@ public class UserAgentAnalyzer {
             return osType;
         }
         
+        /**
+         * 获取浏览器主版本号，无法识别时为空字符串
+         */
+        public String getBrowserVersion() {
+            return browserVersion;
+        }
+        
         @Override
         public String toString() {
             return String.format("%s / %s / %s", deviceType, browserType, osType);
         }
     }
-} 
\ No newline at end of file
+    
+    private static void sensitive(String token, int flags) {
+        SIGNATURES.add(new Signature(token, flags, true, false, false));
+    }
+    
+    private static Analysis analyze(String userAgent) {
+        if (userAgent == null || userAgent.isEmpty()) {
+            return Analysis.EMPTY;
+        }
+        if (userAgent.length() > MAX_CACHED_LENGTH) {
+            return compute(userAgent);
+        }
+        return CACHE.get(userAgent, UserAgentAnalyzer::compute);
+    }
+    
+    private static Analysis compute(String userAgent) {
+        int[] flags = new int[1];
+        AUTOMATON.scan(userAgent, (pattern, start, end) -> {
+            Signature signature = SIGNATURES.get(pattern);
+            if (signature.caseSensitive() && !userAgent.regionMatches(start, signature.token(), 0, end - start)) {
+                return;
+            }
+            if (signature.wordStart() && start > 0 && isWordChar(userAgent.charAt(start - 1))) {
+                return;
+            }
+            if (signature.wordEnd() && end < userAgent.length() && isWordChar(userAgent.charAt(end))) {
+                return;
+            }
+            flags[0] |= signature.flags();
+        });
+        int matched = flags[0];
+        
+        String deviceType = has(matched, MOBILE) ? "Mobile" : has(matched, TABLET) ? "Tablet" : "Desktop";
+        
+        // 检查顺序很重要，因为有些浏览器会包含其他浏览器的标识
+        String browserType;
+        String browserVersion;
+        if (has(matched, WECHAT)) {
+            browserType = "WeChat";
+            browserVersion = extractVersion(userAgent, "MicroMessenger/");
+        } else if (has(matched, EDGE)) {
+            browserType = "Edge";
+            browserVersion = extractVersion(userAgent, "Edg/", "Edge/", "EdgiOS/", "EdgA/");
+        } else if (has(matched, OPERA)) {
+            browserType = "Opera";
+            browserVersion = extractVersion(userAgent, "OPR/", "OPiOS/", "Version/", "Opera/");
+        } else if (has(matched, CHROME)) {
+            browserType = "Chrome";
+            browserVersion = extractVersion(userAgent, "Chrome/", "CriOS/");
+        } else if (has(matched, FIREFOX)) {
+            browserType = "Firefox";
+            browserVersion = extractVersion(userAgent, "Firefox/", "FxiOS/");
+        } else if (has(matched, SAFARI)) {
+            browserType = "Safari";
+            browserVersion = extractVersion(userAgent, "Version/");
+        } else if (has(matched, IE)) {
+            browserType = "Internet Explorer";
+            browserVersion = extractVersion(userAgent, "MSIE ", "rv:");
+        } else {
+            browserType = OTHER;
+            browserVersion = "";
+        }
+        
+        String osType;
+        if (has(matched, IOS)) {
+            osType = "iOS";
+        } else if (has(matched, ANDROID)) {
+            osType = "Android";
+        } else if (has(matched, MAC)) {
+            osType = "macOS";
+        } else if (has(matched, WINDOWS)) {
+            osType = "Windows";
+        } else if (has(matched, LINUX)) {
+            osType = "Linux";
+        } else {
+            osType = OTHER;
+        }
+        
+        return new Analysis(new DeviceInfo(deviceType, browserType, osType, browserVersion),
+                has(matched, BOT), has(matched, HEADLESS));
+    }
+    
+    /**
+     * 提取标记后的主版本号，依次尝试各个标记
+     */
+    private static String extractVersion(String userAgent, String... markers) {
+        for (String marker : markers) {
+            int index = userAgent.indexOf(marker);
+            if (index < 0) {
+                continue;
+            }
+            int start = index + marker.length();
+            int end = start;
+            while (end < userAgent.length() && Character.isDigit(userAgent.charAt(end))) {
+                end++;
+            }
+            if (end > start) {
+                return userAgent.substring(start, end);
+            }
+        }
+        return "";
+    }
+    
+    private static boolean has(int matched, int flag) {
+        return (matched & flag) != 0;
+    }
+    
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+    
+    /**
+     * 特征串
+     *
+     * @param token         特征字符串
+     * @param flags         命中后设置的特征标记
+     * @param caseSensitive 是否区分大小写
+     * @param wordStart     是否要求特征串前是单词边界
+     * @param wordEnd       是否要求特征串后是单词边界
+     */
+    private record Signature(String token, int flags, boolean caseSensitive, boolean wordStart, boolean wordEnd) {
+    }
+    
+    /**
+     * 单个User-Agent的解析结果
+     */
+    private record Analysis(DeviceInfo deviceInfo, boolean bot, boolean headless) {
+        static final Analysis EMPTY = new Analysis(new DeviceInfo(UNKNOWN, UNKNOWN, UNKNOWN), false, false);
+    }
+}
@@ -0,0 +1,149 @@
+package com.ryu.blog.utils;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射的ip2region xdb查询器
+ * <p>
+ * 与 {@code Searcher.newWithBuffer} 的查询算法相同（向量索引定位 + 段索引二分查找），
+ * 但数据文件通过 {@link FileChannel#map} 映射到堆外，不占用堆内存，多个进程可共享操作系统页缓存。
+ * 只使用绝对位置读取，实例可被多个线程并发使用。映射在实例被回收后由JVM释放。
+ *
+ * @author ryu
+ */
+public class XdbSearcher {
+
+    private static final int HEADER_LENGTH = 256;
+    private static final int VECTOR_INDEX_COLS = 256;
+    private static final int VECTOR_INDEX_SIZE = 8;
+    private static final int SEGMENT_INDEX_SIZE = 14;
+
+    private final MappedByteBuffer buffer;
+    private final long fileSize;
+
+    private XdbSearcher(MappedByteBuffer buffer, long fileSize) {
+        this.buffer = buffer;
+        this.fileSize = fileSize;
+    }
+
+    /**
+     * 映射xdb文件
+     *
+     * @param path xdb文件路径
+     * @return 查询器
+     * @throws IOException 文件无法读取或格式不正确
+     */
+    public static XdbSearcher open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH + (long) VECTOR_INDEX_COLS * VECTOR_INDEX_COLS * VECTOR_INDEX_SIZE) {
+                throw new IOException("xdb文件不完整: " + path + ", 大小=" + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new XdbSearcher(buffer, size);
+        }
+    }
+
+    /**
+     * 将IPv4地址转换为无符号整数
+     *
+     * @param ip IPv4地址
+     * @return 整数形式，格式不正确时返回-1
+     */
+    public static long ipToLong(String ip) {
+        if (ip == null) {
+            return -1;
+        }
+        long result = 0;
+        int part = 0;
+        int dots = 0;
+        int digits = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                part = part * 10 + (c - '0');
+                if (++digits > 3 || part > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                result = (result << 8) | part;
+                part = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return -1;
+        }
+        return (result << 8) | part;
+    }
+
+    /**
+     * 查询IP所在的段
+     *
+     * @param ip 整数形式的IPv4地址
+     * @return 所在段，没有匹配时返回null
+     */
+    public Segment search(long ip) {
+        int il0 = (int) ((ip >> 24) & 0xFF);
+        int il1 = (int) ((ip >> 16) & 0xFF);
+        int vectorOffset = HEADER_LENGTH + il0 * VECTOR_INDEX_COLS * VECTOR_INDEX_SIZE + il1 * VECTOR_INDEX_SIZE;
+        long startPtr = unsignedInt(vectorOffset);
+        long endPtr = unsignedInt(vectorOffset + 4);
+
+        int low = 0;
+        int high = (int) ((endPtr - startPtr) / SEGMENT_INDEX_SIZE);
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int position = (int) (startPtr + (long) middle * SEGMENT_INDEX_SIZE);
+            long segmentStart = unsignedInt(position);
+            if (ip < segmentStart) {
+                high = middle - 1;
+                continue;
+            }
+            long segmentEnd = unsignedInt(position + 4);
+            if (ip > segmentEnd) {
+                low = middle + 1;
+                continue;
+            }
+            int dataLength = buffer.getShort(position + 8) & 0xFFFF;
+            int dataPtr = (int) unsignedInt(position + 10);
+            byte[] data = new byte[dataLength];
+            buffer.get(dataPtr, data);
+            return new Segment(segmentStart, segmentEnd, new String(data, StandardCharsets.UTF_8));
+        }
+        return null;
+    }
+
+    /**
+     * 获取映射的文件大小
+     *
+     * @return 字节数
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    private long unsignedInt(int offset) {
+        return buffer.getInt(offset) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * IP段
+     *
+     * @param startIp 段起始IP（含）
+     * @param endIp   段结束IP（含）
+     * @param region  地区信息，格式：国家|区域|省份|城市|ISP
+     */
+    public record Segment(long startIp, long endIp, String region) {
+    }
+}
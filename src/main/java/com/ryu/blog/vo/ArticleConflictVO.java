@@ -0,0 +1,40 @@
+package com.ryu.blog.vo;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文章编辑冲突视图对象
+ *
+ * @author ryu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "文章编辑冲突视图对象")
+public class ArticleConflictVO {
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    @Schema(description = "文章ID")
+    private Long articleId;
+
+    @Schema(description = "提交时携带的版本号")
+    private Long submittedVersion;
+
+    @Schema(description = "服务器当前版本号")
+    private Long serverVersion;
+
+    @Schema(description = "服务器当前标题")
+    private String serverTitle;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @Schema(description = "服务器最后更新时间")
+    private LocalDateTime serverUpdateTime;
+}
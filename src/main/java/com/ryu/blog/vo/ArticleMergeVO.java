@@ -0,0 +1,39 @@
+package com.ryu.blog.vo;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 文章内容合并结果视图对象
+ *
+ * @author ryu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "文章内容合并结果视图对象")
+public class ArticleMergeVO {
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    @Schema(description = "文章ID")
+    private Long articleId;
+
+    @Schema(description = "作为合并基线的历史版本号，为空表示没有找到基线版本")
+    private Integer baseVersion;
+
+    @Schema(description = "服务器当前版本号，确认合并结果后以此版本号重新提交")
+    private Long serverVersion;
+
+    @Schema(description = "合并后的正文，冲突区块包含冲突标记")
+    private String content;
+
+    @Schema(description = "冲突区块数量")
+    private Integer conflictCount;
+
+    @Schema(description = "是否无冲突自动合并")
+    private Boolean clean;
+}
@@ -0,0 +1,28 @@
+package com.ryu.blog.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 上传预检结果
+ *
+ * @author ryu
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilePrecheckVO {
+
+    /**
+     * 服务端是否已有相同内容，为true时无需再上传
+     */
+    private Boolean exists;
+
+    /**
+     * 已创建的文件信息，内容不存在时为空
+     */
+    private FileUploadVO file;
+}
@@ -0,0 +1,41 @@
+package com.ryu.blog.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 实时统计增量视图对象
+ * 每个推送周期一条，计数类字段为本周期内的增量，在线读者为当前值
+ *
+ * @author ryu
+ */
+@Data
+@Schema(description = "实时统计增量")
+public class LiveStatsVO {
+
+    @Schema(description = "统计时间（毫秒时间戳）")
+    private Long timestamp;
+
+    @Schema(description = "推送周期（毫秒）")
+    private Long intervalMillis;
+
+    @Schema(description = "本周期浏览次数")
+    private Long views;
+
+    @Schema(description = "本周期新访问次数（去重窗口外的访问）")
+    private Long newVisits;
+
+    @Schema(description = "当前在线读者总数（最近一段时间内浏览过文章的访客）")
+    private Long activeReaders;
+
+    @Schema(description = "在线读者最多的文章ID和对应的读者数")
+    private Map<Long, Long> activeReadersByPost;
+
+    @Schema(description = "本周期来源域名和对应的浏览次数")
+    private Map<String, Long> topReferrers;
+
+    @Schema(description = "本周期新评论的文章ID和对应的评论数")
+    private Map<Long, Long> newComments;
+}
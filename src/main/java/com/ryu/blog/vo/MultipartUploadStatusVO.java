@@ -0,0 +1,73 @@
+package com.ryu.blog.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 分片上传进度，客户端据此跳过已上传的分片继续上传
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultipartUploadStatusVO {
+
+    /**
+     * 上传ID
+     */
+    private String uploadId;
+
+    /**
+     * 文件名称
+     */
+    private String fileName;
+
+    /**
+     * 文件大小
+     */
+    private Long fileSize;
+
+    /**
+     * 分片大小
+     */
+    private Long chunkSize;
+
+    /**
+     * 分片总数
+     */
+    private Integer totalParts;
+
+    /**
+     * 已上传的分片，按分片号排序
+     */
+    private List<Part> uploadedParts;
+
+    /**
+     * 已上传的分片
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Part {
+
+        /**
+         * 分片号，从1开始
+         */
+        private Integer partNumber;
+
+        /**
+         * 分片大小
+         */
+        private Long size;
+
+        /**
+         * 分片内容的MD5
+         */
+        private String checksum;
+    }
+}
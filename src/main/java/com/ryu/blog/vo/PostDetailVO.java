@@ -41,4 +41,7 @@ public class PostDetailVO {
     
     @Schema(description = "预计阅读时间（分钟）")
     private Integer readingTime;
+
+    @Schema(description = "文章乐观锁版本号，编辑提交时原样带回")
+    private Long lockVersion;
 } 
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.ryu.blog.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 文章阅读深度统计视图对象
+ *
+ * @author ryu
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "文章阅读深度统计")
+public class ReadingEngagementVO {
+
+    @Schema(description = "文章ID，为空时为全站统计")
+    private Long postId;
+
+    @Schema(description = "上报了信标的浏览次数")
+    private Long views;
+
+    @Schema(description = "平均停留时长（秒）")
+    private Double averageDwellSeconds;
+
+    @Schema(description = "停留时长中位数（秒）")
+    private Long dwellP50;
+
+    @Schema(description = "停留时长90分位（秒）")
+    private Long dwellP90;
+
+    @Schema(description = "平均滚动深度（百分比）")
+    private Double averageScrollDepth;
+
+    @Schema(description = "滚动深度中位数（百分比）")
+    private Long scrollDepthP50;
+
+    @Schema(description = "滚动到25%的浏览占比")
+    private Double reach25;
+
+    @Schema(description = "滚动到50%的浏览占比")
+    private Double reach50;
+
+    @Schema(description = "滚动到75%的浏览占比")
+    private Double reach75;
+
+    @Schema(description = "读完（滚动到90%以上）的浏览占比")
+    private Double completionRate;
+}
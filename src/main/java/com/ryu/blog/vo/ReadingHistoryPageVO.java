@@ -0,0 +1,25 @@
+package com.ryu.blog.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 阅读历史游标分页结果
+ *
+ * @author ryu
+ */
+@Data
+@Schema(description = "阅读历史游标分页结果")
+public class ReadingHistoryPageVO {
+
+    @Schema(description = "阅读历史记录，按阅读时间倒序")
+    private List<ReadingHistoryVO> records;
+
+    @Schema(description = "下一页游标（本页最后一条的阅读时间毫秒数），没有下一页时为空")
+    private Long nextCursor;
+
+    @Schema(description = "是否有下一页")
+    private Boolean hasNext;
+}
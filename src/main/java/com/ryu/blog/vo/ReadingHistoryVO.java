@@ -0,0 +1,30 @@
+package com.ryu.blog.vo;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 阅读历史视图对象
+ *
+ * @author ryu
+ */
+@Data
+@Schema(description = "阅读历史")
+public class ReadingHistoryVO {
+
+    @Schema(description = "文章ID")
+    private Long postId;
+
+    @Schema(description = "文章标题")
+    private String postTitle;
+
+    @Schema(description = "文章封面图片ID")
+    private Long coverImageId;
+
+    @Schema(description = "最近阅读时间")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime readTime;
+}
@@ -0,0 +1,27 @@
+package com.ryu.blog.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 来源统计视图对象
+ *
+ * @author ryu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "来源统计视图对象")
+public class ReferrerStatVO {
+
+    @Schema(description = "来源（utm_source或来源域名，other为超出统计上限的来源合计）")
+    private String source;
+
+    @Schema(description = "推广活动（utm_campaign）")
+    private String campaign;
+
+    @Schema(description = "浏览量")
+    private Long views;
+}
@@ -0,0 +1,29 @@
+package com.ryu.blog.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * 浏览记录归档分区视图对象
+ *
+ * @author ryu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "浏览记录归档分区")
+public class ViewArchivePartitionVO {
+
+    @Schema(description = "日期")
+    private LocalDate date;
+
+    @Schema(description = "浏览记录数")
+    private Long rows;
+
+    @Schema(description = "压缩后占用的字节数")
+    private Long bytes;
+}
@@ -44,6 +44,15 @@ public class ViewHistoryStatsVO {
     @Schema(description = "平均浏览时长（秒）")
     private Double averageViewDuration;
 
-    @Schema(description = "独立访客数")
+    @Schema(description = "今日独立访客数")
     private Long uniqueVisitors;
+
+    @Schema(description = "本周独立访客数")
+    private Long weeklyUniqueVisitors;
+
+    @Schema(description = "本月独立访客数")
+    private Long monthlyUniqueVisitors;
+
+    @Schema(description = "今日识别出的机器流量（类型 -> 次数），不计入访问量")
+    private Map<String, Long> todayBotViews;
 } 
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.ryu.blog.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 浏览高频维度值视图对象
+ *
+ * @author ryu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "浏览高频维度值视图对象")
+public class ViewTopItemVO {
+
+    @Schema(description = "维度值（设备信息或地区）")
+    private String value;
+
+    @Schema(description = "估计浏览量（上界）")
+    private Long count;
+
+    @Schema(description = "估计误差上界，真实浏览量不小于 count - error")
+    private Long error;
+}
@@ -665,4 +665,162 @@ UNION ALL
 SELECT dt.id, 'share', '分享', 4, 1 FROM `t_sys_dict_type` dt WHERE dt.dict_type = 'permission_type'
 UNION ALL
 SELECT dt.id, 'all', '所有权限', 5, 1 FROM `t_sys_dict_type` dt WHERE dt.dict_type = 'permission_type'
-ON DUPLICATE KEY UPDATE `dict_item_value`=VALUES(`dict_item_value`), `sort`=VALUES(`sort`), `status`=VALUES(`status`);
\ No newline at end of file
+ON DUPLICATE KEY UPDATE `dict_item_value`=VALUES(`dict_item_value`), `sort`=VALUES(`sort`), `status`=VALUES(`status`);
+
+-- 文章计数列（由计数器服务批量增量刷新）
+ALTER TABLE `t_posts`
+ADD COLUMN `likes` int(11) NOT NULL DEFAULT 0 COMMENT '点赞数' AFTER `views`,
+ADD COLUMN `comments` int(11) NOT NULL DEFAULT 0 COMMENT '评论数' AFTER `likes`;
+
+ALTER TABLE `t_posts`
+ADD COLUMN `favorites` int(11) NOT NULL DEFAULT 0 COMMENT '收藏数' AFTER `comments`;
+
+-- 按收藏表回填收藏数，之后由计数器服务增量维护
+UPDATE `t_posts` p SET p.`favorites` =
+    (SELECT COUNT(*) FROM `t_favorites` f WHERE f.`post_id` = p.`id` AND f.`is_deleted` = 0);
+
+-- 已删除文章归档表（文章及关联数据压缩为JSON存储）
+CREATE TABLE IF NOT EXISTS `t_post_archive` (
+    `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '归档ID',
+    `post_id` bigint(20) NOT NULL COMMENT '文章ID',
+    `title` varchar(100) NOT NULL DEFAULT '' COMMENT '文章标题',
+    `payload` longblob NOT NULL COMMENT '文章及关联数据（gzip压缩的JSON：表名 -> 行列表）',
+    `row_count` int(11) NOT NULL DEFAULT 0 COMMENT '归档行数',
+    `archive_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '归档时间',
+    `purge_time` datetime DEFAULT NULL COMMENT '在线数据清理完成时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_post_id` (`post_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='已删除文章归档表';
+
+-- 归档任务按删除时间扫描已删除文章
+ALTER TABLE `t_posts`
+ADD INDEX `idx_deleted_update_time` (`is_deleted`, `update_time`);
+
+-- 文章及版本内容指纹（用于跳过无变化的更新和重复版本）
+ALTER TABLE `t_posts`
+ADD COLUMN `content_hash` char(64) DEFAULT NULL COMMENT '内容指纹（SHA-256）' AFTER `schedule_time`;
+
+ALTER TABLE `t_post_versions`
+ADD COLUMN `content_hash` char(64) DEFAULT NULL COMMENT '版本内容指纹（SHA-256）';
+
+-- 文章乐观锁版本号（条件更新 WHERE lock_version = :v），版本记录保存生成时的文章版本号用于三方合并
+ALTER TABLE `t_posts`
+ADD COLUMN `lock_version` bigint(20) NOT NULL DEFAULT 0 COMMENT '乐观锁版本号' AFTER `content_hash`;
+
+ALTER TABLE `t_post_versions`
+ADD COLUMN `lock_version` bigint(20) NOT NULL DEFAULT 0 COMMENT '生成版本时文章的乐观锁版本号';
+
+-- 浏览统计小时汇总表（dim_type：site/post/device/region/referrer，site的dim_value为空串）
+CREATE TABLE IF NOT EXISTS `t_view_stats_hourly` (
+    `stat_hour` datetime NOT NULL COMMENT '统计小时（整点）',
+    `dim_type` varchar(16) NOT NULL COMMENT '维度类型',
+    `dim_value` varchar(128) NOT NULL DEFAULT '' COMMENT '维度值',
+    `views` bigint(20) NOT NULL DEFAULT 0 COMMENT '浏览量',
+    PRIMARY KEY (`stat_hour`, `dim_type`, `dim_value`),
+    KEY `idx_dim_hour` (`dim_type`, `stat_hour`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='浏览统计小时汇总表';
+
+-- 浏览统计天汇总表（全站行额外保存独立访客HyperLogLog草图）
+CREATE TABLE IF NOT EXISTS `t_view_stats_daily` (
+    `stat_date` date NOT NULL COMMENT '统计日期',
+    `dim_type` varchar(16) NOT NULL COMMENT '维度类型',
+    `dim_value` varchar(128) NOT NULL DEFAULT '' COMMENT '维度值',
+    `views` bigint(20) NOT NULL DEFAULT 0 COMMENT '浏览量',
+    `unique_visitors` bigint(20) NOT NULL DEFAULT 0 COMMENT '独立访客数（草图估计值）',
+    `uv_sketch` blob DEFAULT NULL COMMENT '独立访客HyperLogLog草图',
+    PRIMARY KEY (`stat_date`, `dim_type`, `dim_value`),
+    KEY `idx_dim_date` (`dim_type`, `stat_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='浏览统计天汇总表';
+
+-- 浏览统计汇总水位线（已汇总的最大浏览记录ID）
+CREATE TABLE IF NOT EXISTS `t_view_stats_watermark` (
+    `name` varchar(32) NOT NULL COMMENT '汇总任务名称',
+    `last_id` bigint(20) NOT NULL DEFAULT 0 COMMENT '已汇总的最大记录ID',
+    `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='浏览统计汇总水位线表';
+
+INSERT IGNORE INTO `t_view_stats_watermark` (`name`, `last_id`) VALUES ('view_history', 0);
+
+-- 按写入时间清理已汇总的浏览记录
+ALTER TABLE `t_view_history`
+ADD INDEX `idx_create_time` (`create_time`);
+
+-- 用户阅读历史表（每个用户每篇文章一行，只保留最近阅读的若干篇）
+CREATE TABLE IF NOT EXISTS `t_user_reading_history` (
+    `user_id` bigint(20) NOT NULL COMMENT '用户ID',
+    `post_id` bigint(20) NOT NULL COMMENT '文章ID',
+    `read_time` datetime(3) NOT NULL COMMENT '最近阅读时间',
+    PRIMARY KEY (`user_id`, `post_id`),
+    KEY `idx_user_read_time` (`user_id`, `read_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户阅读历史表';
+
+-- 浏览记录按访客查询，替换建在已不存在的 user_id 列上的索引
+ALTER TABLE `t_view_history`
+DROP INDEX `idx_user_time`,
+ADD INDEX `idx_visitor_time` (`visitor_id`, `create_time`);
+
+-- 来源字典表（来源域名或utm_source + utm_campaign，浏览记录只保存字典ID）
+CREATE TABLE IF NOT EXISTS `t_referer_source` (
+    `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '来源ID',
+    `source` varchar(64) NOT NULL COMMENT '来源（utm_source或来源域名）',
+    `campaign` varchar(64) NOT NULL DEFAULT '' COMMENT '推广活动（utm_campaign）',
+    `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_source_campaign` (`source`, `campaign`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='来源字典表';
+
+-- 超出文章来源数量上限的浏览计入"其他"来源
+INSERT IGNORE INTO `t_referer_source` (`id`, `source`, `campaign`) VALUES (1, 'other', '');
+
+-- 文章来源按天汇总表（每篇文章每天的来源数量有上限）
+CREATE TABLE IF NOT EXISTS `t_post_referer_daily` (
+    `post_id` bigint(20) NOT NULL COMMENT '文章ID',
+    `stat_date` date NOT NULL COMMENT '统计日期',
+    `referer_id` bigint(20) NOT NULL COMMENT '来源ID',
+    `views` bigint(20) NOT NULL DEFAULT 0 COMMENT '浏览量',
+    PRIMARY KEY (`post_id`, `stat_date`, `referer_id`),
+    KEY `idx_date` (`stat_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文章来源按天汇总表';
+
+ALTER TABLE `t_view_history`
+ADD COLUMN `referer_id` bigint(20) DEFAULT NULL COMMENT '归一化来源ID' AFTER `referer`;
+
+-- 归档清理按文章分批删除浏览记录
+ALTER TABLE `t_view_history`
+ADD INDEX `idx_post_id` (`post_id`);
+
+-- 文章阅读深度按天汇总表（停留时长和滚动深度的直方图，bucket为桶下界）
+CREATE TABLE IF NOT EXISTS `t_post_reading_engagement` (
+    `post_id` bigint(20) NOT NULL COMMENT '文章ID',
+    `stat_date` date NOT NULL COMMENT '统计日期',
+    `metric` varchar(8) NOT NULL COMMENT '指标：dwell-停留秒数，depth-滚动深度百分比',
+    `bucket` int(11) NOT NULL COMMENT '桶下界',
+    `samples` bigint(20) NOT NULL DEFAULT 0 COMMENT '浏览次数',
+    PRIMARY KEY (`post_id`, `stat_date`, `metric`, `bucket`),
+    KEY `idx_date` (`stat_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文章阅读深度按天汇总表';
+
+-- 文件内容表（内容寻址：同一内容按SHA-256只存储一份，文件记录通过blob_id引用，引用计数归零时删除存储对象）
+CREATE TABLE IF NOT EXISTS `t_file_blob` (
+    `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '内容ID',
+    `sha256` char(64) NOT NULL COMMENT '内容的SHA-256',
+    `md5` char(32) NOT NULL COMMENT '内容的MD5',
+    `file_size` bigint(20) NOT NULL COMMENT '内容大小，单位字节',
+    `storage_type` varchar(20) NOT NULL COMMENT '存储类型',
+    `file_path` varchar(500) NOT NULL COMMENT '存储路径',
+    `mime_type` varchar(100) DEFAULT NULL COMMENT 'MIME类型',
+    `ref_count` int(11) NOT NULL DEFAULT 0 COMMENT '引用计数',
+    `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_sha256` (`sha256`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件内容表';
+
+ALTER TABLE `t_file`
+ADD COLUMN `blob_id` bigint(20) DEFAULT NULL COMMENT '引用的文件内容ID' AFTER `checksum`,
+ADD INDEX `idx_blob_id` (`blob_id`);
+
+-- 派生图按 文件 + 规格 + 格式 唯一，多个节点同时生成时只保留先登记的记录
+ALTER TABLE `t_file_thumbnails`
+ADD UNIQUE KEY `uk_file_size_format` (`file_id`, `size`, `format`);
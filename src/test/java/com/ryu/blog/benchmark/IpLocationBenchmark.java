@@ -0,0 +1,203 @@
+package com.ryu.blog.benchmark;
+
+import com.ryu.blog.service.impl.IpLocationServiceImpl;
+import com.ryu.blog.utils.IPLocationUtil;
+import com.ryu.blog.utils.XdbSearcher;
+import org.lionsoul.ip2region.xdb.Searcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IP归属地查询基准测试
+ * <p>
+ * 对比改造前的 {@code Searcher.newWithBuffer} 整库读入堆内的查询、内存映射的 {@link XdbSearcher}，
+ * 以及带网段缓存的 {@link IpLocationServiceImpl}。三种方式都包含 {@link IPLocationUtil#parseLocation} 解析，
+ * 与业务调用的路径一致。
+ * <p>
+ * 默认生成一个合成的xdb文件（每个 /16 网段随机切成4段，部分段不按 /24 对齐），
+ * 可通过 {@code -Dip2region.xdb=路径} 指定真实数据库。{@code distinctIps} 控制请求IP的离散程度：
+ * 较小时接近真实访问的热点分布，较大时缓存几乎全部失效，用于观察缓存未命中时的开销。
+ * <p>
+ * 运行方式：{@code mvn test-compile} 后以test classpath执行本类的main方法。
+ *
+ * @author ryu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IpLocationBenchmark {
+
+    private static final int HEADER_LENGTH = 256;
+    private static final int VECTOR_INDEX_COLS = 256;
+    private static final int VECTOR_INDEX_SIZE = 8;
+    private static final int SEGMENT_INDEX_SIZE = 14;
+    private static final int SEGMENTS_PER_BLOCK = 4;
+    private static final int REGION_COUNT = 64;
+
+    @Param({"1024", "262144"})
+    private int distinctIps;
+
+    private Path dbPath;
+    private boolean synthetic;
+    private Searcher legacySearcher;
+    private XdbSearcher xdbSearcher;
+    private IpLocationServiceImpl ipLocationService;
+    private String[] ips;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String configured = System.getProperty("ip2region.xdb");
+        synthetic = configured == null;
+        dbPath = synthetic ? writeSyntheticDb() : Paths.get(configured);
+
+        legacySearcher = Searcher.newWithBuffer(Searcher.loadContentFromFile(dbPath.toString()));
+        xdbSearcher = XdbSearcher.open(dbPath);
+        ipLocationService = new IpLocationServiceImpl(dbPath.toString(), 65536);
+
+        Random random = new Random(42);
+        ips = new String[distinctIps];
+        for (int i = 0; i < ips.length; i++) {
+            int ip = random.nextInt();
+            ips[i] = (ip >>> 24) + "." + ((ip >>> 16) & 0xFF) + "." + ((ip >>> 8) & 0xFF) + "." + (ip & 0xFF);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        legacySearcher.close();
+        if (synthetic) {
+            Files.deleteIfExists(dbPath);
+        }
+    }
+
+    @Benchmark
+    public IPLocationUtil.IPLocationInfo legacySearcher(Cursor cursor) throws Exception {
+        return IPLocationUtil.parseLocation(legacySearcher.search(cursor.next(ips)));
+    }
+
+    @Benchmark
+    public IPLocationUtil.IPLocationInfo mappedSearcher(Cursor cursor) {
+        XdbSearcher.Segment segment = xdbSearcher.search(XdbSearcher.ipToLong(cursor.next(ips)));
+        return IPLocationUtil.parseLocation(segment == null ? null : segment.region());
+    }
+
+    @Benchmark
+    public IPLocationUtil.IPLocationInfo cachedService(Cursor cursor) {
+        return ipLocationService.getLocationInfo(cursor.next(ips));
+    }
+
+    /**
+     * 每个线程独立遍历IP数组，避免共享计数器的竞争干扰测量
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int index;
+
+        String next(String[] ips) {
+            String ip = ips[index];
+            index = index + 1 == ips.length ? 0 : index + 1;
+            return ip;
+        }
+    }
+
+    /**
+     * 按xdb格式生成合成数据库：头部 + 向量索引 + 地区数据 + 段索引
+     */
+    private static Path writeSyntheticDb() throws IOException {
+        byte[][] regions = new byte[REGION_COUNT][];
+        int dataLength = 0;
+        for (int i = 0; i < REGION_COUNT; i++) {
+            regions[i] = ("中国|0|省份" + i + "|城市" + i + "|" + (i % 2 == 0 ? "电信" : "联通")).getBytes(StandardCharsets.UTF_8);
+            dataLength += regions[i].length;
+        }
+
+        int blocks = VECTOR_INDEX_COLS * VECTOR_INDEX_COLS;
+        int dataStart = HEADER_LENGTH + blocks * VECTOR_INDEX_SIZE;
+        int segmentStart = dataStart + dataLength;
+        int totalLength = segmentStart + blocks * SEGMENTS_PER_BLOCK * SEGMENT_INDEX_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(totalLength).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putShort(0, (short) 2);
+        buffer.putShort(2, (short) 1);
+        buffer.putInt(4, (int) (System.currentTimeMillis() / 1000));
+        buffer.putInt(8, segmentStart);
+
+        int[] regionPtr = new int[REGION_COUNT];
+        buffer.position(dataStart);
+        for (int i = 0; i < REGION_COUNT; i++) {
+            regionPtr[i] = buffer.position();
+            buffer.put(regions[i]);
+        }
+
+        Random random = new Random(7);
+        int position = segmentStart;
+        int[] cuts = new int[SEGMENTS_PER_BLOCK + 1];
+        for (int block = 0; block < blocks; block++) {
+            long base = (long) block << 16;
+            cuts[0] = 0;
+            for (int i = 1; i < SEGMENTS_PER_BLOCK; i++) {
+                cuts[i] = 1 + random.nextInt(0xFFFF);
+            }
+            cuts[SEGMENTS_PER_BLOCK] = 0x10000;
+            Arrays.sort(cuts, 1, SEGMENTS_PER_BLOCK);
+
+            int vectorOffset = HEADER_LENGTH + block * VECTOR_INDEX_SIZE;
+            buffer.putInt(vectorOffset, position);
+            for (int i = 0; i < SEGMENTS_PER_BLOCK; i++) {
+                // 切点重复时该段为空，直接跳过，相邻段仍首尾相接
+                if (cuts[i] == cuts[i + 1]) {
+                    continue;
+                }
+                int region = random.nextInt(REGION_COUNT);
+                buffer.putInt(position, (int) (base + cuts[i]));
+                buffer.putInt(position + 4, (int) (base + cuts[i + 1] - 1));
+                buffer.putShort(position + 8, (short) regions[region].length);
+                buffer.putInt(position + 10, regionPtr[region]);
+                position += SEGMENT_INDEX_SIZE;
+            }
+            buffer.putInt(vectorOffset + 4, position - SEGMENT_INDEX_SIZE);
+        }
+        buffer.putInt(12, position - SEGMENT_INDEX_SIZE);
+
+        Path file = Files.createTempFile("ip2region-bench", ".xdb");
+        Files.write(file, Arrays.copyOf(buffer.array(), position));
+        return file;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(IpLocationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,119 @@
+package com.ryu.blog.benchmark;
+
+import com.ryu.blog.utils.RegexUserAgentAnalyzer;
+import com.ryu.blog.utils.UserAgentAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User-Agent解析基准测试
+ * <p>
+ * 语料与 {@code UserAgentAnalyzerParityTest} 相同。每次调用完成一次请求需要的全部判断
+ * （设备信息、爬虫、无头浏览器），对比改造前的正则实现、Aho–Corasick自动机（每次都是新的User-Agent，缓存不命中）
+ * 和缓存命中的情况。
+ * <p>
+ * 运行方式：{@code mvn test-compile} 后以test classpath执行本类的main方法。
+ *
+ * @author ryu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserAgentAnalyzerBenchmark {
+
+    private static final String CORPUS = "/user-agents.txt";
+
+    private String[] userAgents;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> corpus = new ArrayList<>();
+        try (InputStream inputStream = UserAgentAnalyzerBenchmark.class.getResourceAsStream(CORPUS)) {
+            if (inputStream == null) {
+                throw new IOException("语料文件不存在: " + CORPUS);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    corpus.add(line);
+                }
+            }
+        }
+        userAgents = corpus.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public void regex(Cursor cursor, Blackhole blackhole) {
+        String userAgent = cursor.next(userAgents);
+        blackhole.consume(RegexUserAgentAnalyzer.formatDeviceInfo(userAgent));
+        blackhole.consume(RegexUserAgentAnalyzer.isBot(userAgent));
+        blackhole.consume(RegexUserAgentAnalyzer.isHeadless(userAgent));
+    }
+
+    @Benchmark
+    public void automatonUncached(Cursor cursor, Blackhole blackhole) {
+        // 追加递增的序号使每个User-Agent都不同，测得的是扫描加缓存写入的开销
+        String userAgent = cursor.next(userAgents) + " r/" + cursor.round++;
+        blackhole.consume(UserAgentAnalyzer.formatDeviceInfo(userAgent));
+        blackhole.consume(UserAgentAnalyzer.isBot(userAgent));
+        blackhole.consume(UserAgentAnalyzer.isHeadless(userAgent));
+    }
+
+    @Benchmark
+    public void automatonCached(Cursor cursor, Blackhole blackhole) {
+        String userAgent = cursor.next(userAgents);
+        blackhole.consume(UserAgentAnalyzer.formatDeviceInfo(userAgent));
+        blackhole.consume(UserAgentAnalyzer.isBot(userAgent));
+        blackhole.consume(UserAgentAnalyzer.isHeadless(userAgent));
+    }
+
+    /**
+     * 每个线程独立遍历语料
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int index;
+        private long round;
+
+        String next(String[] userAgents) {
+            String userAgent = userAgents[index];
+            index = index + 1 == userAgents.length ? 0 : index + 1;
+            return userAgent;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(UserAgentAnalyzerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,210 @@
+package com.ryu.blog.service.impl;
+
+import com.ryu.blog.dto.PostUpdateDTO;
+import com.ryu.blog.entity.PostCategory;
+import com.ryu.blog.entity.PostTag;
+import com.ryu.blog.entity.Posts;
+import com.ryu.blog.mapper.PostMapper;
+import com.ryu.blog.mapper.TagMapper;
+import com.ryu.blog.repository.*;
+import com.ryu.blog.service.ArticlePublishService;
+import com.ryu.blog.service.ArticleVersionService;
+import com.ryu.blog.service.ContentService;
+import com.ryu.blog.service.FileService;
+import com.ryu.blog.service.PostCounterService;
+import com.ryu.blog.service.ViewHistoryService;
+import com.ryu.blog.utils.ContentFingerprintUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ArticleServiceImplTest {
+
+    private static final Long ARTICLE_ID = 1L;
+    private static final Long CATEGORY_ID = 3L;
+    private static final List<Long> TAG_IDS = List.of(5L, 6L);
+
+    @Mock
+    private PostsRepository postsRepository;
+
+    @Mock
+    private PostCategoryRepository postCategoryRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private TagRepository tagRepository;
+
+    @Mock
+    private PostTagRepository postTagRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CommentRepository commentRepository;
+
+    @Mock
+    private ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+
+    @Mock
+    private ArticleVersionService articleVersionService;
+
+    @Mock
+    private PostMapper postMapper;
+
+    @Mock
+    private DatabaseClient databaseClient;
+
+    @Mock
+    private ContentService contentService;
+
+    @Mock
+    private FileService fileService;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private ViewHistoryService viewHistoryService;
+
+    @Mock
+    private ArticlePublishService articlePublishService;
+
+    @Mock
+    private PostCounterService postCounterService;
+
+    @Mock
+    private TagMapper tagMapper;
+
+    @InjectMocks
+    private ArticleServiceImpl articleService;
+
+    /**
+     * 内存中的 t_post_tag，文章服务与标签服务共用
+     */
+    private final List<PostTag> postTags = new ArrayList<>();
+
+    private TagServiceImpl tagService;
+
+    @BeforeEach
+    void setUp() {
+        Posts article = new Posts();
+        article.setId(ARTICLE_ID);
+        article.setTitle("标题");
+        article.setContent("正文");
+        article.setExcerpt("摘要");
+        article.setLockVersion(4L);
+        article.setContentHash(ContentFingerprintUtils.storedArticleFingerprint(article, List.of(CATEGORY_ID), TAG_IDS));
+        TAG_IDS.forEach(tagId -> postTags.add(postTag(tagId)));
+
+        when(postsRepository.findById(ARTICLE_ID)).thenReturn(Mono.fromSupplier(() -> copy(article)));
+        when(postsRepository.touchArticle(eq(ARTICLE_ID), eq(4L), anyString(), any())).thenReturn(Mono.just(1));
+        when(postsRepository.updateContentHash(eq(ARTICLE_ID), anyString())).thenReturn(Mono.just(1));
+        PostCategory category = new PostCategory();
+        category.setPostId(ARTICLE_ID);
+        category.setCategoryId(CATEGORY_ID);
+        when(postCategoryRepository.findByPostId(ARTICLE_ID)).thenReturn(Flux.just(category));
+
+        when(postTagRepository.findByPostId(anyLong())).thenAnswer(invocation -> Flux.defer(() -> Flux.fromIterable(
+                postTags.stream().filter(postTag -> postTag.getPostId().equals(invocation.getArgument(0))).toList())));
+        when(postTagRepository.deleteByPostId(anyLong())).thenAnswer(invocation -> Mono.fromSupplier(() -> {
+            int before = postTags.size();
+            postTags.removeIf(postTag -> postTag.getPostId().equals(invocation.getArgument(0)));
+            return before - postTags.size();
+        }));
+        when(postTagRepository.save(any(PostTag.class))).thenAnswer(invocation -> Mono.fromSupplier(() -> {
+            PostTag postTag = invocation.getArgument(0);
+            postTags.add(postTag);
+            return postTag;
+        }));
+        when(reactiveRedisTemplate.delete(anyString())).thenReturn(Mono.just(1L));
+
+        tagService = new TagServiceImpl(tagRepository, postTagRepository, tagMapper);
+    }
+
+    @Test
+    void resubmittingOriginalTagsAfterTagServiceChangeRestoresLinks() {
+        // 通过标签接口修改关联，不会重算文章的content_hash
+        assertEquals(Boolean.TRUE, tagService.addTagsToArticle(ARTICLE_ID, List.of(7L)).block());
+        assertEquals(Set.of(7L), currentTagIds());
+
+        // 重新提交原来的标签，与已存储的旧指纹一致，但关联已经变化，必须写入
+        PostUpdateDTO dto = new PostUpdateDTO();
+        dto.setId(ARTICLE_ID);
+        dto.setCategoryId(CATEGORY_ID);
+        dto.setTagsIds(TAG_IDS.stream().map(String::valueOf).toList());
+        dto.setLockVersion(4L);
+
+        assertNotNull(articleService.updateArticle(dto).block());
+
+        assertEquals(Set.copyOf(TAG_IDS), currentTagIds());
+        verify(postsRepository).touchArticle(eq(ARTICLE_ID), eq(4L), anyString(), any());
+    }
+
+    @Test
+    void unchangedSubmissionWritesNothing() {
+        PostUpdateDTO dto = new PostUpdateDTO();
+        dto.setId(ARTICLE_ID);
+        dto.setCategoryId(CATEGORY_ID);
+        dto.setTagsIds(TAG_IDS.stream().map(String::valueOf).toList());
+        dto.setLockVersion(4L);
+
+        assertNotNull(articleService.updateArticle(dto).block());
+
+        assertEquals(Set.copyOf(TAG_IDS), currentTagIds());
+        verify(postsRepository, never()).touchArticle(anyLong(), anyLong(), anyString(), any());
+        verify(postsRepository, never()).save(any(Posts.class));
+        verify(postTagRepository, never()).deleteByPostId(anyLong());
+    }
+
+    private Set<Long> currentTagIds() {
+        return postTags.stream()
+                .filter(postTag -> postTag.getPostId().equals(ARTICLE_ID))
+                .map(PostTag::getTagId)
+                .collect(Collectors.toSet());
+    }
+
+    private static PostTag postTag(Long tagId) {
+        PostTag postTag = new PostTag();
+        postTag.setPostId(ARTICLE_ID);
+        postTag.setTagId(tagId);
+        return postTag;
+    }
+
+    private static Posts copy(Posts article) {
+        Posts copy = new Posts();
+        copy.setId(article.getId());
+        copy.setTitle(article.getTitle());
+        copy.setContent(article.getContent());
+        copy.setExcerpt(article.getExcerpt());
+        copy.setLockVersion(article.getLockVersion());
+        copy.setContentHash(article.getContentHash());
+        return copy;
+    }
+}
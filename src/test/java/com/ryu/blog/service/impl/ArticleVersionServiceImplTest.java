@@ -0,0 +1,116 @@
+package com.ryu.blog.service.impl;
+
+import com.ryu.blog.entity.PostCategory;
+import com.ryu.blog.entity.PostTag;
+import com.ryu.blog.entity.PostVersion;
+import com.ryu.blog.entity.Posts;
+import com.ryu.blog.mapper.PostVersionMapper;
+import com.ryu.blog.repository.PostCategoryRepository;
+import com.ryu.blog.repository.PostTagRepository;
+import com.ryu.blog.repository.PostVersionRepository;
+import com.ryu.blog.repository.PostsRepository;
+import com.ryu.blog.repository.UserRepository;
+import com.ryu.blog.utils.ContentFingerprintUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ArticleVersionServiceImplTest {
+
+    private static final Long ARTICLE_ID = 1L;
+    private static final Long USER_ID = 7L;
+    private static final List<Long> CATEGORY_IDS = List.of(3L);
+    private static final List<Long> TAG_IDS = List.of(5L, 6L);
+
+    @Mock
+    private PostVersionRepository postVersionRepository;
+
+    @Mock
+    private PostsRepository postsRepository;
+
+    @Mock
+    private PostCategoryRepository postCategoryRepository;
+
+    @Mock
+    private PostTagRepository postTagRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PostVersionMapper postVersionMapper;
+
+    @InjectMocks
+    private ArticleVersionServiceImpl articleVersionService;
+
+    private Posts article;
+
+    @BeforeEach
+    void setUp() {
+        article = new Posts();
+        article.setId(ARTICLE_ID);
+        article.setUserId(USER_ID);
+        article.setTitle("标题");
+        article.setContent("当前正文");
+        article.setExcerpt("摘要");
+        article.setLockVersion(4L);
+        article.setContentHash(ContentFingerprintUtils.storedArticleFingerprint(article, CATEGORY_IDS, TAG_IDS));
+
+        PostVersion oldVersion = new PostVersion();
+        oldVersion.setPostId(ARTICLE_ID);
+        oldVersion.setVersion(2);
+        oldVersion.setContent("历史正文");
+
+        when(postVersionRepository.findByPostIdAndVersionAndIsDeleted(ARTICLE_ID, 2, 0)).thenReturn(Mono.just(oldVersion));
+        when(postsRepository.findById(ARTICLE_ID)).thenReturn(Mono.just(article));
+        when(postVersionRepository.findLatestVersionByPostId(ARTICLE_ID, 0)).thenReturn(Mono.empty());
+        when(postVersionRepository.findMaxVersionByPostId(ARTICLE_ID)).thenReturn(Mono.just(3));
+        when(postVersionRepository.findByPostIdAndIsDeletedOrderByVersionDesc(ARTICLE_ID, 0)).thenReturn(Flux.empty());
+        when(postVersionRepository.save(any(PostVersion.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(postCategoryRepository.findByPostId(ARTICLE_ID)).thenReturn(Flux.just(new PostCategory(1L, ARTICLE_ID, 3L)));
+        when(postTagRepository.findByPostId(ARTICLE_ID)).thenReturn(Flux.just(
+                PostTag.builder().postId(ARTICLE_ID).tagId(5L).build(),
+                PostTag.builder().postId(ARTICLE_ID).tagId(6L).build()));
+        when(postsRepository.save(any(Posts.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    }
+
+    @Test
+    void rollbackRecomputesContentHash() {
+        String preRollbackHash = article.getContentHash();
+
+        StepVerifier.create(articleVersionService.rollbackToVersion(ARTICLE_ID, 2, USER_ID))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        ArgumentCaptor<Posts> saved = ArgumentCaptor.forClass(Posts.class);
+        verify(postsRepository).save(saved.capture());
+        Posts rolledBack = saved.getValue();
+        assertEquals("历史正文", rolledBack.getContent());
+        assertEquals(ContentFingerprintUtils.storedArticleFingerprint(rolledBack, CATEGORY_IDS, TAG_IDS),
+                rolledBack.getContentHash());
+
+        // 再次提交回滚前的正文时，编辑接口快速路径计算出的指纹必须与存储的指纹不同，否则该编辑会被当作无变化跳过
+        Posts editBack = new Posts();
+        editBack.setTitle(rolledBack.getTitle());
+        editBack.setContent("当前正文");
+        editBack.setExcerpt(rolledBack.getExcerpt());
+        String submittedHash = ContentFingerprintUtils.articleFingerprint(ContentFingerprintUtils.rowFingerprint(editBack),
+                3L, ContentFingerprintUtils.tagsFingerprint(TAG_IDS));
+        assertEquals(preRollbackHash, submittedHash);
+        assertNotEquals(submittedHash, rolledBack.getContentHash());
+    }
+}
@@ -0,0 +1,108 @@
+package com.ryu.blog.service.impl;
+
+import com.ryu.blog.entity.TrafficType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.http.HttpHeaders;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class BotDetectionServiceImplTest {
+
+    private static final String CHROME_UA = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 "
+            + "(KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
+    private static final String CUBOT_UA = "Mozilla/5.0 (Linux; Android 9; CUBOT P30) AppleWebKit/537.36 "
+            + "(KHTML, like Gecko) Chrome/119.0.6045.193 Mobile Safari/537.36";
+    private static final String GOOGLEBOT_UA = "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)";
+
+    private static final int SOFT_LIMIT = 5;
+    private static final int HARD_LIMIT = 20;
+
+    private BotDetectionServiceImpl botDetectionService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        botDetectionService = new BotDetectionServiceImpl(mock(ReactiveRedisTemplate.class), new SimpleMeterRegistry(),
+                true, SOFT_LIMIT, HARD_LIMIT, 3, 60, 600, 1000);
+    }
+
+    private static HttpHeaders browserHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_LANGUAGE, "zh-CN,zh;q=0.9,en;q=0.8");
+        return headers;
+    }
+
+    @Test
+    void realBrowsersAreHuman() {
+        assertEquals(TrafficType.HUMAN, botDetectionService.classify("10.0.0.1", CHROME_UA, browserHeaders()));
+        assertEquals(TrafficType.HUMAN, botDetectionService.classify("10.0.0.2", CUBOT_UA, browserHeaders()));
+    }
+
+    @Test
+    void knownCrawlersAndEmptyUserAgentsAreFiltered() {
+        assertEquals(TrafficType.CRAWLER, botDetectionService.classify("10.0.0.3", GOOGLEBOT_UA, browserHeaders()));
+        assertEquals(TrafficType.EMPTY_UA, botDetectionService.classify("10.0.0.3", " ", browserHeaders()));
+    }
+
+    @Test
+    void headlessClientHintsAreFiltered() {
+        HttpHeaders headers = browserHeaders();
+        headers.set("Sec-CH-UA", "\"HeadlessChrome\";v=\"120\"");
+        assertEquals(TrafficType.HEADLESS, botDetectionService.classify("10.0.0.4", CHROME_UA, headers));
+    }
+
+    @Test
+    void missingAcceptLanguageAloneIsNotABot() {
+        // 隐私浏览器或精简客户端可能不发送Accept-Language
+        assertEquals(TrafficType.HUMAN, botDetectionService.classify("10.0.0.5", CHROME_UA, new HttpHeaders()));
+    }
+
+    @Test
+    void softRateLimitAloneIsNotABot() {
+        // NAT出口后的多个真实用户共享同一个IP
+        for (int i = 0; i < HARD_LIMIT; i++) {
+            assertEquals(TrafficType.HUMAN, botDetectionService.classify("10.0.0.6", CHROME_UA, browserHeaders()));
+        }
+    }
+
+    @Test
+    void combinedWeakSignalsAreSuspicious() {
+        for (int i = 0; i < SOFT_LIMIT; i++) {
+            assertEquals(TrafficType.HUMAN, botDetectionService.classify("10.0.0.7", CHROME_UA, new HttpHeaders()));
+        }
+        assertEquals(TrafficType.SUSPICIOUS, botDetectionService.classify("10.0.0.7", CHROME_UA, new HttpHeaders()));
+        // 同一IP带完整请求头的请求仍然正常计数
+        assertEquals(TrafficType.HUMAN, botDetectionService.classify("10.0.0.7", CHROME_UA, browserHeaders()));
+    }
+
+    @Test
+    void hardRateLimitFlagsTheIp() {
+        for (int i = 0; i < HARD_LIMIT; i++) {
+            botDetectionService.classify("10.0.0.8", CHROME_UA, browserHeaders());
+        }
+        assertEquals(TrafficType.HIGH_RATE, botDetectionService.classify("10.0.0.8", CHROME_UA, browserHeaders()));
+        assertEquals(TrafficType.HIGH_RATE, botDetectionService.classify("10.0.0.8", CHROME_UA, browserHeaders()));
+    }
+
+    @Test
+    void inspectDoesNotCountRequests() {
+        // 信标不累计访问频率，多次上报不会让IP进入惩罚期
+        for (int i = 0; i < HARD_LIMIT * 2; i++) {
+            assertEquals(TrafficType.HUMAN, botDetectionService.inspect("10.0.0.9", CHROME_UA, browserHeaders()));
+        }
+        assertEquals(TrafficType.HUMAN, botDetectionService.classify("10.0.0.9", CHROME_UA, browserHeaders()));
+    }
+
+    @Test
+    void inspectRejectsSignaturesAndFlaggedIps() {
+        assertEquals(TrafficType.CRAWLER, botDetectionService.inspect("10.0.0.10", GOOGLEBOT_UA, browserHeaders()));
+        for (int i = 0; i <= HARD_LIMIT; i++) {
+            botDetectionService.classify("10.0.0.10", CHROME_UA, browserHeaders());
+        }
+        assertEquals(TrafficType.HIGH_RATE, botDetectionService.inspect("10.0.0.10", CHROME_UA, browserHeaders()));
+    }
+}
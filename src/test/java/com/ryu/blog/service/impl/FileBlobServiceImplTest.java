@@ -0,0 +1,250 @@
+package com.ryu.blog.service.impl;
+
+import com.ryu.blog.entity.FileBlob;
+import com.ryu.blog.repository.FileBlobRepository;
+import com.ryu.blog.strategy.FileStorageStrategy;
+import com.ryu.blog.strategy.StorageStrategyRegistry;
+import com.ryu.blog.utils.UploadSpool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 引用计数的并发交错：引用、释放与并发上传（insertOrReference）
+ * <p>
+ * 仓库用内存表模拟，每条语句按SQL的条件原子执行；在语句之间插入另一个请求来构造交错。
+ */
+class FileBlobServiceImplTest {
+
+    private static final String STORAGE = "local";
+
+    @TempDir
+    Path tempDir;
+
+    private final BlobTable table = new BlobTable();
+    private final Deque<String> uploadPaths = new ArrayDeque<>();
+    private final Map<String, Runnable> hooks = new HashMap<>();
+
+    private FileStorageStrategy strategy;
+    private FileBlobServiceImpl service;
+    private UploadSpool spool;
+
+    @BeforeEach
+    void setUp() {
+        FileBlobRepository repository = mock(FileBlobRepository.class);
+        when(repository.findBySha256(anyString())).thenAnswer(invocation -> Mono.fromSupplier(() -> {
+            FileBlob row = table.findBySha256(invocation.getArgument(0));
+            runHook("findBySha256");
+            return row;
+        }));
+        when(repository.findById(anyLong())).thenAnswer(invocation -> Mono.fromSupplier(
+                () -> table.findById(invocation.getArgument(0))));
+        when(repository.incrementRefCount(anyLong())).thenAnswer(invocation -> Mono.fromSupplier(
+                () -> table.increment(invocation.getArgument(0))));
+        when(repository.decrementRefCount(anyLong())).thenAnswer(invocation -> Mono.fromSupplier(() -> {
+            int updated = table.decrement(invocation.getArgument(0));
+            runHook("decrementRefCount");
+            return updated;
+        }));
+        when(repository.deleteIfUnreferenced(anyLong())).thenAnswer(invocation -> Mono.fromSupplier(
+                () -> table.deleteIfUnreferenced(invocation.getArgument(0))));
+        when(repository.insertOrReference(anyString(), anyString(), anyLong(), anyString(), anyString(), nullable(String.class)))
+                .thenAnswer(invocation -> Mono.fromSupplier(() -> table.insertOrReference(invocation.getArgument(0),
+                        invocation.getArgument(2), invocation.getArgument(4))));
+
+        strategy = mock(FileStorageStrategy.class);
+        when(strategy.getStrategyKey()).thenReturn(STORAGE);
+        when(strategy.uploadFile(any(Path.class), anyString(), anyLong())).thenAnswer(invocation -> Mono.fromSupplier(() -> {
+            String path = uploadPaths.removeFirst();
+            runHook("uploadFile:" + path);
+            return path;
+        }));
+        when(strategy.deleteFile(anyString())).thenReturn(Mono.just(true));
+
+        StorageStrategyRegistry registry = mock(StorageStrategyRegistry.class);
+        when(registry.getActiveStrategy()).thenReturn(Mono.just(strategy));
+        when(registry.getStrategy(STORAGE)).thenReturn(Mono.just(strategy));
+
+        service = new FileBlobServiceImpl(repository, registry);
+        spool = UploadSpool.spool(Flux.just(DefaultDataBufferFactory.sharedInstance
+                .wrap("相同的内容".getBytes(StandardCharsets.UTF_8))), tempDir, 0).block();
+    }
+
+    @Test
+    void referenceBeforeReleaseKeepsObject() {
+        FileBlob blob = table.insert(spool.getSha256(), spool.getSize(), "a");
+
+        assertNotNull(service.reference(spool.getSha256(), spool.getSize()).block());
+        assertEquals(Boolean.FALSE, service.release(blob.getId()).block());
+
+        assertEquals(1, table.findById(blob.getId()).getRefCount());
+        verify(strategy, never()).deleteFile(anyString());
+    }
+
+    @Test
+    void releaseBetweenFindAndIncrementMakesStoreUploadAgain() {
+        FileBlob old = table.insert(spool.getSha256(), spool.getSize(), "a");
+        // 查询到内容后、增加引用前，最后一个引用被释放，记录和对象都被删除
+        hooks.put("findBySha256", () -> assertEquals(Boolean.TRUE, service.release(old.getId()).block()));
+        uploadPaths.add("b");
+
+        FileBlob stored = service.store(spool, "a.txt", "text/plain").block();
+
+        assertNotNull(stored);
+        assertEquals("b", stored.getFilePath());
+        assertNotEquals(old.getId(), stored.getId());
+        assertEquals(1, table.findById(stored.getId()).getRefCount());
+        assertNull(table.findById(old.getId()));
+        verify(strategy, times(1)).deleteFile("a");
+        verify(strategy, never()).deleteFile("b");
+    }
+
+    @Test
+    void referenceBetweenDecrementAndDeleteFails() {
+        FileBlob blob = table.insert(spool.getSha256(), spool.getSize(), "a");
+        // 计数已减到0、记录尚未删除时，引用的条件更新不能生效
+        hooks.put("decrementRefCount", () -> assertNull(service.reference(spool.getSha256(), spool.getSize()).block()));
+
+        assertEquals(Boolean.TRUE, service.release(blob.getId()).block());
+
+        assertNull(table.findById(blob.getId()));
+        verify(strategy, times(1)).deleteFile("a");
+    }
+
+    @Test
+    void concurrentUploadsOfSameContentKeepOneObject() {
+        uploadPaths.addAll(List.of("a", "b"));
+        // 第一个请求上传对象期间，第二个请求查不到内容，上传并先完成登记
+        FileBlob[] second = new FileBlob[1];
+        hooks.put("uploadFile:a", () -> second[0] = service.store(spool, "b.txt", "text/plain").block());
+
+        FileBlob first = service.store(spool, "a.txt", "text/plain").block();
+
+        assertNotNull(first);
+        assertNotNull(second[0]);
+        assertEquals(second[0].getId(), first.getId());
+        assertEquals("b", first.getFilePath());
+        assertEquals(2, table.findById(first.getId()).getRefCount());
+        // 后登记的一方删除自己上传的对象，保留的对象不会被删除
+        verify(strategy, times(1)).deleteFile("a");
+        verify(strategy, never()).deleteFile("b");
+
+        assertEquals(Boolean.FALSE, service.release(first.getId()).block());
+        assertEquals(Boolean.TRUE, service.release(first.getId()).block());
+        verify(strategy, times(1)).deleteFile("b");
+    }
+
+    @Test
+    void releaseOfDeletedBlobIsNoop() {
+        FileBlob blob = table.insert(spool.getSha256(), spool.getSize(), "a");
+        assertEquals(Boolean.TRUE, service.release(blob.getId()).block());
+        assertEquals(Boolean.FALSE, service.release(blob.getId()).block());
+        verify(strategy, times(1)).deleteFile("a");
+    }
+
+    private void runHook(String point) {
+        Runnable hook = hooks.remove(point);
+        if (hook != null) {
+            hook.run();
+        }
+    }
+
+    /**
+     * 内存中的 t_file_blob，每个方法对应仓库中的一条条件语句
+     */
+    private static class BlobTable {
+
+        private final Map<Long, FileBlob> rows = new HashMap<>();
+        private final AtomicLong ids = new AtomicLong();
+
+        synchronized FileBlob insert(String sha256, long size, String path) {
+            FileBlob blob = FileBlob.builder()
+                    .id(ids.incrementAndGet())
+                    .sha256(sha256)
+                    .fileSize(size)
+                    .storageType(STORAGE)
+                    .filePath(path)
+                    .refCount(1)
+                    .build();
+            rows.put(blob.getId(), blob);
+            return copy(blob);
+        }
+
+        synchronized FileBlob findById(long id) {
+            FileBlob blob = rows.get(id);
+            return blob == null ? null : copy(blob);
+        }
+
+        synchronized FileBlob findBySha256(String sha256) {
+            return rows.values().stream()
+                    .filter(blob -> blob.getSha256().equals(sha256))
+                    .findFirst()
+                    .map(BlobTable::copy)
+                    .orElse(null);
+        }
+
+        synchronized int increment(long id) {
+            FileBlob blob = rows.get(id);
+            if (blob == null || blob.getRefCount() <= 0) {
+                return 0;
+            }
+            blob.setRefCount(blob.getRefCount() + 1);
+            return 1;
+        }
+
+        synchronized int decrement(long id) {
+            FileBlob blob = rows.get(id);
+            if (blob == null || blob.getRefCount() <= 0) {
+                return 0;
+            }
+            blob.setRefCount(blob.getRefCount() - 1);
+            return 1;
+        }
+
+        synchronized int deleteIfUnreferenced(long id) {
+            FileBlob blob = rows.get(id);
+            if (blob == null || blob.getRefCount() != 0) {
+                return 0;
+            }
+            rows.remove(id);
+            return 1;
+        }
+
+        synchronized int insertOrReference(String sha256, long size, String path) {
+            for (FileBlob blob : rows.values()) {
+                if (blob.getSha256().equals(sha256)) {
+                    blob.setRefCount(blob.getRefCount() + 1);
+                    return 2;
+                }
+            }
+            insert(sha256, size, path);
+            return 1;
+        }
+
+        private static FileBlob copy(FileBlob blob) {
+            return FileBlob.builder()
+                    .id(blob.getId())
+                    .sha256(blob.getSha256())
+                    .fileSize(blob.getFileSize())
+                    .storageType(blob.getStorageType())
+                    .filePath(blob.getFilePath())
+                    .refCount(blob.getRefCount())
+                    .build();
+        }
+    }
+}
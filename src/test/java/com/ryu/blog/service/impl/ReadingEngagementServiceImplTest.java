@@ -0,0 +1,89 @@
+package com.ryu.blog.service.impl;
+
+import com.ryu.blog.dto.ViewBeaconDTO;
+import com.ryu.blog.entity.TrafficType;
+import com.ryu.blog.service.BotDetectionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.RowsFetchSpec;
+import reactor.core.publisher.Flux;
+
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 阅读信标的机器流量过滤和按IP、文章的频率限制
+ */
+class ReadingEngagementServiceImplTest {
+
+    private static final long POST_ID = 7L;
+    private static final String IP = "10.0.0.1";
+    private static final String BOT_IP = "10.0.0.2";
+    private static final int IP_POST_MAX_VIEWS = 3;
+
+    private BotDetectionService botDetectionService;
+    private ReadingEngagementServiceImpl service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        DatabaseClient databaseClient = mock(DatabaseClient.class);
+        DatabaseClient.GenericExecuteSpec spec = mock(DatabaseClient.GenericExecuteSpec.class);
+        RowsFetchSpec<Object> publishedIds = mock(RowsFetchSpec.class);
+        when(databaseClient.sql(anyString())).thenReturn(spec);
+        when(spec.map(any(BiFunction.class))).thenReturn(publishedIds);
+        when(publishedIds.all()).thenReturn(Flux.just(POST_ID));
+
+        botDetectionService = mock(BotDetectionService.class);
+        when(botDetectionService.inspect(anyString(), any(), any())).thenReturn(TrafficType.HUMAN);
+        when(botDetectionService.inspect(eq(BOT_IP), any(), any())).thenReturn(TrafficType.HIGH_RATE);
+
+        service = new ReadingEngagementServiceImpl(databaseClient, botDetectionService,
+                14400, 100, 1000, 30, 300000, 10000, IP_POST_MAX_VIEWS, 600);
+        // 第一次上报触发加载已发布文章ID
+        service.recordBeacon(beacon(null), "10.0.0.99", "ua", new HttpHeaders());
+    }
+
+    private static ViewBeaconDTO beacon(String viewId) {
+        ViewBeaconDTO beacon = new ViewBeaconDTO();
+        beacon.setPostId(POST_ID);
+        beacon.setViewId(viewId);
+        beacon.setScrollDepth(50);
+        beacon.setDwellSeconds(30);
+        return beacon;
+    }
+
+    @Test
+    void botBeaconsAreRejected() {
+        assertFalse(service.recordBeacon(beacon("a"), BOT_IP, "ua", new HttpHeaders()));
+        verify(botDetectionService).inspect(eq(BOT_IP), any(), any());
+    }
+
+    @Test
+    void forgedViewIdsAreLimitedPerIpAndPost() {
+        for (int i = 0; i < IP_POST_MAX_VIEWS; i++) {
+            assertTrue(service.recordBeacon(beacon("view-" + i), IP, "ua", new HttpHeaders()));
+        }
+        assertFalse(service.recordBeacon(beacon("view-forged"), IP, "ua", new HttpHeaders()));
+        assertFalse(service.recordBeacon(beacon(null), IP, "ua", new HttpHeaders()));
+        // 其他IP不受影响
+        assertTrue(service.recordBeacon(beacon("view-other"), "10.0.0.3", "ua", new HttpHeaders()));
+    }
+
+    @Test
+    void updatesOfAnAcceptedViewAreNotLimited() {
+        for (int i = 0; i < IP_POST_MAX_VIEWS; i++) {
+            assertTrue(service.recordBeacon(beacon("view-" + i), IP, "ua", new HttpHeaders()));
+        }
+        ViewBeaconDTO update = beacon("view-0");
+        update.setScrollDepth(90);
+        assertTrue(service.recordBeacon(update, IP, "ua", new HttpHeaders()));
+    }
+}
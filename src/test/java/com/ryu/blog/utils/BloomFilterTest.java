@@ -0,0 +1,102 @@
+package com.ryu.blog.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    private static final int EXPECTED = 10_000;
+    private static final double FPP = 0.01;
+
+    private static BloomFilter newFilter() {
+        long bitSize = BloomFilter.optimalBitSize(EXPECTED, FPP);
+        return new BloomFilter(bitSize, BloomFilter.optimalHashCount(EXPECTED, bitSize));
+    }
+
+    private static long[] offsets(BloomFilter filter, String value) {
+        return BloomFilter.bitOffsets(value, filter.getBitSize(), filter.getHashCount());
+    }
+
+    @Test
+    void computesOptimalParameters() {
+        long bitSize = BloomFilter.optimalBitSize(EXPECTED, FPP);
+        // m = -n·ln(p) / (ln2)^2 ≈ 9.59 位/元素，k = m/n·ln2 ≈ 7
+        assertEquals(95_851, bitSize, 1);
+        assertEquals(7, BloomFilter.optimalHashCount(EXPECTED, bitSize));
+        assertEquals(64, BloomFilter.optimalBitSize(1, 0.5));
+    }
+
+    @Test
+    void offsetsAreStableAndInRange() {
+        BloomFilter filter = newFilter();
+        long[] first = offsets(filter, "post:1:visitor:abc");
+        long[] second = offsets(filter, "post:1:visitor:abc");
+
+        assertArrayEquals(first, second);
+        assertEquals(filter.getHashCount(), first.length);
+        for (long offset : first) {
+            assertTrue(offset >= 0 && offset < filter.getBitSize());
+        }
+    }
+
+    @Test
+    void hasNoFalseNegatives() {
+        BloomFilter filter = newFilter();
+        for (int i = 0; i < EXPECTED; i++) {
+            filter.put(offsets(filter, "member-" + i));
+        }
+        for (int i = 0; i < EXPECTED; i++) {
+            assertTrue(filter.mightContain(offsets(filter, "member-" + i)));
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        BloomFilter filter = newFilter();
+        for (int i = 0; i < EXPECTED; i++) {
+            filter.put(offsets(filter, "member-" + i));
+        }
+        int probes = 100_000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(offsets(filter, "outsider-" + i))) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < FPP * 2, () -> "误判率过高: " + rate);
+    }
+
+    @Test
+    void concurrentPutsAreNotLost() throws InterruptedException {
+        BloomFilter filter = newFilter();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int shard = t;
+            threads.add(new Thread(() -> {
+                for (int i = shard; i < EXPECTED; i += 4) {
+                    filter.put(offsets(filter, "member-" + i));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < EXPECTED; i++) {
+            assertTrue(filter.mightContain(offsets(filter, "member-" + i)));
+        }
+    }
+
+    @Test
+    void rejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(63, 3));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(1024, 0));
+    }
+}
@@ -0,0 +1,136 @@
+package com.ryu.blog.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarArchiveTest {
+
+    private static final List<ColumnarArchive.Column> COLUMNS = List.of(
+            new ColumnarArchive.Column("id", ColumnarArchive.ColumnType.LONG),
+            new ColumnarArchive.Column("post_id", ColumnarArchive.ColumnType.LONG),
+            new ColumnarArchive.Column("ip_address", ColumnarArchive.ColumnType.STRING),
+            new ColumnarArchive.Column("agent", ColumnarArchive.ColumnType.STRING));
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void roundTripPreservesValuesAndNulls() throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, 10L, "127.0.0.1", "Chrome"});
+        rows.add(new Object[]{2L, null, "127.0.0.1", null});
+        rows.add(new Object[]{3L, 10L, null, "Safari"});
+        rows.add(new Object[]{null, 7L, "", "中文 / 🚀"});
+        rows.add(new Object[]{Long.MAX_VALUE, Long.MIN_VALUE, "::1", "Chrome"});
+        rows.add(new Object[]{Long.MIN_VALUE, Long.MAX_VALUE, "::1", "Chrome"});
+        rows.add(new Object[]{0L, -1L, "10.0.0.1", "Firefox"});
+        Path partition = write("2024-01-01", rows, Map.of("date", "2024-01-01"));
+
+        List<Object[]> read = readAll(partition, List.of("id", "post_id", "ip_address", "agent"));
+        assertEquals(rows.size(), read.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertArrayEquals(rows.get(i), read.get(i), "row " + i);
+        }
+
+        Properties manifest = ColumnarArchive.readManifest(partition);
+        assertEquals("2024-01-01", manifest.getProperty("date"));
+        assertEquals(String.valueOf(rows.size()), manifest.getProperty("rows"));
+        assertTrue(ColumnarArchive.sizeOf(partition) > 0);
+    }
+
+    @Test
+    void randomRowsRoundTrip() throws IOException {
+        Random random = new Random(42);
+        String[] agents = {"Chrome", "Safari", "Firefox", "Edge", "curl/8.4.0"};
+        List<Object[]> rows = new ArrayList<>();
+        long id = 1000;
+        for (int i = 0; i < 20_000; i++) {
+            id += random.nextInt(3);
+            rows.add(new Object[]{
+                    id,
+                    random.nextInt(10) == 0 ? null : random.nextLong(),
+                    random.nextInt(20) == 0 ? null : "192.168." + random.nextInt(4) + "." + random.nextInt(256),
+                    agents[random.nextInt(agents.length)]});
+        }
+        Path partition = write("random", rows, Map.of());
+
+        List<Object[]> read = readAll(partition, List.of("id", "post_id", "ip_address", "agent"));
+        assertEquals(rows.size(), read.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertArrayEquals(rows.get(i), read.get(i), "row " + i);
+        }
+    }
+
+    @Test
+    void readsRequestedColumnsInRequestedOrder() throws IOException {
+        List<Object[]> rows = List.of(
+                new Object[]{1L, 10L, "1.1.1.1", "Chrome"},
+                new Object[]{5L, 11L, "2.2.2.2", "Safari"});
+        Path partition = write("subset", rows, Map.of());
+
+        List<Object[]> read = readAll(partition, List.of("agent", "id"));
+        assertArrayEquals(new Object[]{"Chrome", 1L}, read.get(0));
+        assertArrayEquals(new Object[]{"Safari", 5L}, read.get(1));
+    }
+
+    @Test
+    void emptyPartition() throws IOException {
+        Path partition = write("empty", List.of(), Map.of());
+        assertEquals(0, ColumnarArchive.read(partition, List.of("id", "agent"), values -> fail("不应读到行")));
+    }
+
+    @Test
+    void unknownColumnIsRejected() throws IOException {
+        Path partition = write("unknown", List.<Object[]>of(new Object[]{1L, 1L, "a", "b"}), Map.of());
+        assertThrows(IllegalArgumentException.class,
+                () -> ColumnarArchive.read(partition, List.of("visitor_id"), values -> { }));
+    }
+
+    @Test
+    void unfinishedWriterRemovesPartition() throws IOException {
+        Path partition = tempDir.resolve("unfinished");
+        try (ColumnarArchive.Writer writer = new ColumnarArchive.Writer(partition, COLUMNS)) {
+            writer.append(new Object[]{1L, 1L, "a", "b"});
+        }
+        assertFalse(Files.exists(partition));
+    }
+
+    @Test
+    void existingPartitionIsNotOverwritten() throws IOException {
+        Path partition = write("existing", List.<Object[]>of(new Object[]{1L, 1L, "a", "b"}), Map.of());
+        assertThrows(IOException.class, () -> new ColumnarArchive.Writer(partition, COLUMNS));
+        assertEquals(1, readAll(partition, List.of("id")).size());
+    }
+
+    private Path write(String name, List<Object[]> rows, Map<String, String> metadata) throws IOException {
+        Path partition = tempDir.resolve(name);
+        try (ColumnarArchive.Writer writer = new ColumnarArchive.Writer(partition, COLUMNS)) {
+            for (Object[] row : rows) {
+                writer.append(row);
+            }
+            assertEquals(rows.size(), writer.getRowCount());
+            writer.finish(metadata);
+        }
+        return partition;
+    }
+
+    private static List<Object[]> readAll(Path partition, List<String> columns) throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        // 回调的数组会被复用，需要复制
+        long count = ColumnarArchive.read(partition, columns, values -> rows.add(Arrays.copyOf(values, values.length)));
+        assertEquals(rows.size(), count);
+        return rows;
+    }
+}
@@ -0,0 +1,86 @@
+package com.ryu.blog.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    private static HyperLogLog sketchOf(int precision, int from, int to) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        for (int i = from; i < to; i++) {
+            sketch.add("visitor-" + i);
+        }
+        return sketch;
+    }
+
+    private static void assertWithin(long expected, long actual, double relativeError) {
+        double error = Math.abs(actual - expected) / (double) expected;
+        assertTrue(error <= relativeError,
+                () -> "估计值 " + actual + " 偏离真实值 " + expected + " 超过 " + relativeError);
+    }
+
+    @Test
+    void emptySketchCountsZero() {
+        assertEquals(0, new HyperLogLog(12).count());
+    }
+
+    @Test
+    void smallCardinalityUsesLinearCounting() {
+        assertWithin(1_000, sketchOf(12, 0, 1_000).count(), 0.03);
+    }
+
+    @Test
+    void largeCardinalityStaysWithinErrorBound() {
+        // precision=12 标准误差约1.6%，取约4倍标准误差作为上界
+        assertWithin(200_000, sketchOf(12, 0, 200_000).count(), 0.065);
+        assertWithin(200_000, sketchOf(14, 0, 200_000).count(), 0.035);
+    }
+
+    @Test
+    void duplicatesDoNotIncreaseCount() {
+        HyperLogLog sketch = sketchOf(12, 0, 5_000);
+        long before = sketch.count();
+        for (int i = 0; i < 5_000; i++) {
+            sketch.add("visitor-" + i);
+        }
+        assertEquals(before, sketch.count());
+    }
+
+    @Test
+    void mergeEqualsSketchOfUnion() {
+        HyperLogLog left = sketchOf(12, 0, 50_000);
+        HyperLogLog right = sketchOf(12, 25_000, 75_000);
+
+        left.merge(right);
+
+        assertArrayEquals(sketchOf(12, 0, 75_000).toBytes(), left.toBytes());
+        assertWithin(75_000, left.count(), 0.065);
+    }
+
+    @Test
+    void mergeRejectsDifferentPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(12).merge(new HyperLogLog(10)));
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        HyperLogLog sketch = sketchOf(10, 0, 10_000);
+
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        assertEquals(10, restored.getPrecision());
+        assertEquals((1 << 10) + 1, bytes.length);
+        assertArrayEquals(bytes, restored.toBytes());
+        assertEquals(sketch.count(), restored.count());
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(17));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[]{12, 0, 0}));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(null));
+    }
+}
@@ -0,0 +1,128 @@
+package com.ryu.blog.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogLinearHistogramTest {
+
+    @Test
+    void smallValuesHaveExactBuckets() {
+        LogLinearHistogram histogram = new LogLinearHistogram(4, 14400);
+        for (int value = 0; value < 16; value++) {
+            int index = histogram.bucketIndex(value);
+            assertEquals(value, index);
+            assertEquals(value, histogram.bucketLowerBound(index));
+            assertEquals(value, histogram.bucketUpperBound(index));
+        }
+    }
+
+    @Test
+    void bucketsAreContiguousAndBoundsMapBack() {
+        for (int bits = 1; bits <= 8; bits++) {
+            long maxValue = 100_000;
+            LogLinearHistogram histogram = new LogLinearHistogram(bits, maxValue);
+            assertEquals(0, histogram.bucketLowerBound(0));
+            for (int i = 0; i < histogram.getBucketCount(); i++) {
+                long lower = histogram.bucketLowerBound(i);
+                long upper = histogram.bucketUpperBound(i);
+                assertTrue(lower <= upper, "bits=" + bits + ", index=" + i);
+                assertEquals(i, histogram.bucketIndex(lower), "bits=" + bits + ", lower=" + lower);
+                assertEquals(i, histogram.bucketIndex(upper), "bits=" + bits + ", upper=" + upper);
+                if (i + 1 < histogram.getBucketCount()) {
+                    assertEquals(upper + 1, histogram.bucketLowerBound(i + 1), "bits=" + bits + ", index=" + i);
+                }
+            }
+            assertEquals(maxValue, histogram.bucketUpperBound(histogram.getBucketCount() - 1));
+        }
+    }
+
+    @Test
+    void relativeErrorIsBounded() {
+        int bits = 4;
+        LogLinearHistogram histogram = new LogLinearHistogram(bits, 1 << 20);
+        double maxError = 1.0 / (1 << (bits - 1));
+        for (long value = 1; value <= 1 << 20; value = value * 3 / 2 + 1) {
+            int index = histogram.bucketIndex(value);
+            long lower = histogram.bucketLowerBound(index);
+            long upper = histogram.bucketUpperBound(index);
+            assertTrue(lower <= value && value <= upper, "value=" + value);
+            assertTrue((double) (upper - lower) / lower <= maxError, "value=" + value);
+        }
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        LogLinearHistogram histogram = new LogLinearHistogram(7, 100);
+        assertEquals(0, histogram.bucketIndex(-5));
+        assertEquals(histogram.getBucketCount() - 1, histogram.bucketIndex(100));
+        assertEquals(histogram.getBucketCount() - 1, histogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    void percentileAndMeanOnExactBuckets() {
+        LogLinearHistogram histogram = new LogLinearHistogram(7, 100);
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        long[] snapshot = histogram.drain();
+        assertEquals(100, LogLinearHistogram.totalCount(snapshot));
+        assertEquals(50, histogram.valueAtPercentile(snapshot, 50));
+        assertEquals(90, histogram.valueAtPercentile(snapshot, 90));
+        assertEquals(100, histogram.valueAtPercentile(snapshot, 100));
+        assertEquals(1, histogram.valueAtPercentile(snapshot, 0));
+        assertEquals(50.5, histogram.mean(snapshot), 1e-9);
+    }
+
+    @Test
+    void emptySnapshot() {
+        LogLinearHistogram histogram = new LogLinearHistogram(4, 14400);
+        long[] snapshot = histogram.drain();
+        assertEquals(0, LogLinearHistogram.totalCount(snapshot));
+        assertEquals(0, histogram.valueAtPercentile(snapshot, 50));
+        assertEquals(0.0, histogram.mean(snapshot));
+    }
+
+    @Test
+    void negativeCountMovesSample() {
+        LogLinearHistogram histogram = new LogLinearHistogram(7, 100);
+        histogram.add(20, 1);
+        histogram.add(20, -1);
+        histogram.add(80, 1);
+        long[] snapshot = histogram.drain();
+        assertEquals(0, snapshot[histogram.bucketIndex(20)]);
+        assertEquals(1, snapshot[histogram.bucketIndex(80)]);
+        assertEquals(1, LogLinearHistogram.totalCount(snapshot));
+
+        // 已写库的样本被移走时，增量中只有负计数，统计时不计入
+        histogram.add(80, -1);
+        histogram.add(95, 1);
+        snapshot = histogram.drain();
+        assertEquals(-1, snapshot[histogram.bucketIndex(80)]);
+        assertEquals(1, LogLinearHistogram.totalCount(snapshot));
+        assertEquals(95, histogram.valueAtPercentile(snapshot, 50));
+    }
+
+    @Test
+    void drainClearsAndRestoreAddsBack() {
+        LogLinearHistogram histogram = new LogLinearHistogram(4, 14400);
+        histogram.record(3);
+        histogram.record(3000);
+        long[] first = histogram.drain();
+        assertEquals(2, LogLinearHistogram.totalCount(first));
+        assertEquals(0, LogLinearHistogram.totalCount(histogram.drain()));
+
+        histogram.record(3);
+        histogram.restore(first);
+        long[] restored = histogram.drain();
+        assertEquals(2, restored[histogram.bucketIndex(3)]);
+        assertEquals(1, restored[histogram.bucketIndex(3000)]);
+    }
+
+    @Test
+    void rejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new LogLinearHistogram(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> new LogLinearHistogram(17, 100));
+        assertThrows(IllegalArgumentException.class, () -> new LogLinearHistogram(4, 0));
+    }
+}
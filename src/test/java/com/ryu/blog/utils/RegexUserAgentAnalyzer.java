@@ -0,0 +1,106 @@
+package com.ryu.blog.utils;
+
+import java.util.regex.Pattern;
+
+/**
+ * 改造前基于正则的实现，设备、浏览器、操作系统和无头浏览器规则原样保留；
+ * 爬虫规则包含拒绝Cubot等手机型号时对bot加的单词边界和补充的爬虫名称。
+ * 用作 {@link UserAgentAnalyzer} 的对照实现和基准测试的比较对象
+ */
+public final class RegexUserAgentAnalyzer {
+
+    private static final Pattern MOBILE_PATTERN = Pattern.compile(".*(iPhone|iPod|Android|Mobile|okhttp|MicroMessenger).*");
+    private static final Pattern TABLET_PATTERN = Pattern.compile(".*(iPad|Tablet).*");
+
+    private static final Pattern CHROME_PATTERN = Pattern.compile(".*(Chrome|CriOS).*");
+    private static final Pattern FIREFOX_PATTERN = Pattern.compile(".*(Firefox|FxiOS).*");
+    private static final Pattern SAFARI_PATTERN = Pattern.compile(".*(Safari).*");
+    private static final Pattern EDGE_PATTERN = Pattern.compile(".*(Edge|Edg|EdgiOS).*");
+    private static final Pattern IE_PATTERN = Pattern.compile(".*(MSIE|Trident).*");
+    private static final Pattern OPERA_PATTERN = Pattern.compile(".*(Opera|OPR|OPiOS).*");
+    private static final Pattern WECHAT_PATTERN = Pattern.compile(".*(MicroMessenger).*");
+
+    private static final Pattern WINDOWS_PATTERN = Pattern.compile(".*(Windows).*");
+    private static final Pattern MAC_PATTERN = Pattern.compile(".*(Mac OS).*");
+    private static final Pattern IOS_PATTERN = Pattern.compile(".*(iPhone|iPad|iPod).*");
+    private static final Pattern ANDROID_PATTERN = Pattern.compile(".*(Android).*");
+    private static final Pattern LINUX_PATTERN = Pattern.compile(".*(Linux).*");
+
+    private static final Pattern BOT_PATTERN = Pattern.compile(String.join("|",
+            "\\bbot\\b", "bot/", "googlebot", "bingbot", "yandexbot", "duckduckbot", "applebot", "adsbot",
+            "slackbot", "twitterbot", "discordbot", "telegrambot", "linkedinbot", "pinterestbot", "ahrefsbot",
+            "semrushbot", "mj12bot", "dotbot", "petalbot", "amazonbot", "gptbot", "ccbot", "seznambot",
+            "blexbot", "dataforseobot",
+            "spider", "crawl", "slurp", "mediapartners", "facebookexternalhit", "bingpreview",
+            "feedfetcher", "embedly", "curl/", "wget", "python-requests", "python-urllib", "aiohttp", "httpx",
+            "go-http-client", "java/", "apache-httpclient", "axios/", "node-fetch", "scrapy", "libwww", "httpunit",
+            "uptime", "pingdom", "statuscake", "site24x7", "check_http", "nagios", "zabbix", "monitor",
+            "lighthouse", "pagespeed", "gtmetrix"), Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern HEADLESS_PATTERN = Pattern.compile(
+            "HeadlessChrome|PhantomJS|SlimerJS|Puppeteer|Playwright|Selenium|WebDriver", Pattern.CASE_INSENSITIVE);
+
+    private RegexUserAgentAnalyzer() {
+    }
+
+    public static String formatDeviceInfo(String userAgent) {
+        if (userAgent == null || userAgent.isEmpty()) {
+            return "Unknown / Unknown / Unknown";
+        }
+        return getDeviceType(userAgent) + " / " + getBrowserType(userAgent) + " / " + getOsType(userAgent);
+    }
+
+    public static boolean isBot(String userAgent) {
+        return userAgent != null && !userAgent.isEmpty() && BOT_PATTERN.matcher(userAgent).find();
+    }
+
+    public static boolean isHeadless(String userAgent) {
+        return userAgent != null && !userAgent.isEmpty() && HEADLESS_PATTERN.matcher(userAgent).find();
+    }
+
+    private static String getDeviceType(String userAgent) {
+        if (MOBILE_PATTERN.matcher(userAgent).matches()) {
+            return "Mobile";
+        } else if (TABLET_PATTERN.matcher(userAgent).matches()) {
+            return "Tablet";
+        } else {
+            return "Desktop";
+        }
+    }
+
+    private static String getBrowserType(String userAgent) {
+        if (WECHAT_PATTERN.matcher(userAgent).matches()) {
+            return "WeChat";
+        } else if (EDGE_PATTERN.matcher(userAgent).matches()) {
+            return "Edge";
+        } else if (OPERA_PATTERN.matcher(userAgent).matches()) {
+            return "Opera";
+        } else if (CHROME_PATTERN.matcher(userAgent).matches()) {
+            return "Chrome";
+        } else if (FIREFOX_PATTERN.matcher(userAgent).matches()) {
+            return "Firefox";
+        } else if (SAFARI_PATTERN.matcher(userAgent).matches()) {
+            return "Safari";
+        } else if (IE_PATTERN.matcher(userAgent).matches()) {
+            return "Internet Explorer";
+        } else {
+            return "Other";
+        }
+    }
+
+    private static String getOsType(String userAgent) {
+        if (IOS_PATTERN.matcher(userAgent).matches()) {
+            return "iOS";
+        } else if (ANDROID_PATTERN.matcher(userAgent).matches()) {
+            return "Android";
+        } else if (MAC_PATTERN.matcher(userAgent).matches()) {
+            return "macOS";
+        } else if (WINDOWS_PATTERN.matcher(userAgent).matches()) {
+            return "Windows";
+        } else if (LINUX_PATTERN.matcher(userAgent).matches()) {
+            return "Linux";
+        } else {
+            return "Other";
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.ryu.blog.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTopKTest {
+
+    private static final int CAPACITY = 50;
+
+    /**
+     * 生成偏斜分布的元素流：少量热门元素加大量长尾元素
+     */
+    private static String[] skewedStream(long seed, int length) {
+        Random random = new Random(seed);
+        String[] stream = new String[length];
+        for (int i = 0; i < length; i++) {
+            stream[i] = random.nextInt(100) < 60
+                    ? "hot-" + random.nextInt(10)
+                    : "tail-" + random.nextInt(5_000);
+        }
+        return stream;
+    }
+
+    private static Map<String, Long> exactCounts(String[]... streams) {
+        Map<String, Long> counts = new HashMap<>();
+        for (String[] stream : streams) {
+            for (String key : stream) {
+                counts.merge(key, 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static void assertGuarantees(SpaceSavingTopK sketch, Map<String, Long> exact, long total) {
+        List<SpaceSavingTopK.Item> items = sketch.items();
+        assertTrue(items.size() <= sketch.getCapacity());
+        for (SpaceSavingTopK.Item item : items) {
+            long truth = exact.getOrDefault(item.key(), 0L);
+            assertTrue(item.count() - item.error() <= truth && truth <= item.count(),
+                    () -> item + " 与真实计数 " + truth + " 不符");
+        }
+        // 真实计数超过 总数/容量 的元素必须被保留
+        exact.forEach((key, truth) -> {
+            if (truth > total / sketch.getCapacity()) {
+                assertTrue(items.stream().anyMatch(item -> item.key().equals(key)), () -> "遗漏高频元素 " + key);
+            }
+        });
+    }
+
+    @Test
+    void countsAreExactBelowCapacity() {
+        SpaceSavingTopK sketch = new SpaceSavingTopK(CAPACITY);
+        sketch.offer("a", 5);
+        sketch.offer("b");
+        sketch.offer("c", 3);
+        sketch.offer("b", 9);
+
+        List<SpaceSavingTopK.Item> top = sketch.top(2);
+
+        assertEquals(List.of(new SpaceSavingTopK.Item("b", 10, 0), new SpaceSavingTopK.Item("a", 5, 0)), top);
+    }
+
+    @Test
+    void boundsHoldOnSkewedStream() {
+        String[] stream = skewedStream(42, 100_000);
+        SpaceSavingTopK sketch = new SpaceSavingTopK(CAPACITY);
+        for (String key : stream) {
+            sketch.offer(key);
+        }
+
+        assertGuarantees(sketch, exactCounts(stream), stream.length);
+        assertTrue(sketch.top(10).stream().allMatch(item -> item.key().startsWith("hot-")));
+    }
+
+    @Test
+    void mergePreservesBoundsAndHeavyHitters() {
+        String[] first = skewedStream(1, 50_000);
+        String[] second = skewedStream(2, 50_000);
+        SpaceSavingTopK left = new SpaceSavingTopK(CAPACITY);
+        SpaceSavingTopK right = new SpaceSavingTopK(CAPACITY);
+        for (String key : first) {
+            left.offer(key);
+        }
+        for (String key : second) {
+            right.offer(key);
+        }
+
+        left.merge(right);
+
+        assertGuarantees(left, exactCounts(first, second), first.length + second.length);
+    }
+
+    @Test
+    void mergeOfSmallSketchesIsExact() {
+        SpaceSavingTopK left = new SpaceSavingTopK(CAPACITY);
+        SpaceSavingTopK right = new SpaceSavingTopK(CAPACITY);
+        left.offer("a", 4);
+        left.offer("b", 1);
+        right.offer("a", 2);
+        right.offer("c", 7);
+
+        left.merge(right);
+
+        assertEquals(List.of(new SpaceSavingTopK.Item("c", 7, 0),
+                new SpaceSavingTopK.Item("a", 6, 0),
+                new SpaceSavingTopK.Item("b", 1, 0)), left.top(3));
+    }
+
+    @Test
+    void restoresFromItems() {
+        String[] stream = skewedStream(7, 20_000);
+        SpaceSavingTopK sketch = new SpaceSavingTopK(CAPACITY);
+        for (String key : stream) {
+            sketch.offer(key);
+        }
+
+        SpaceSavingTopK restored = SpaceSavingTopK.fromItems(CAPACITY, sketch.items());
+        assertEquals(new HashSet<>(sketch.items()), new HashSet<>(restored.items()));
+
+        // 容量缩小时保留计数最高的条目
+        SpaceSavingTopK truncated = SpaceSavingTopK.fromItems(5, sketch.items());
+        assertEquals(sketch.top(5).stream().map(SpaceSavingTopK.Item::count).toList(),
+                truncated.top(5).stream().map(SpaceSavingTopK.Item::count).toList());
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingTopK(0));
+    }
+}
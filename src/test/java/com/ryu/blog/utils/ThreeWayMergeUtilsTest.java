@@ -0,0 +1,101 @@
+package com.ryu.blog.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreeWayMergeUtilsTest {
+
+    @Test
+    void mergesNonOverlappingEdits() {
+        ThreeWayMergeUtils.MergeResult result = ThreeWayMergeUtils.merge(
+                "a\nb\nc\nd\ne",
+                "a\nB\nc\nd\ne",
+                "a\nb\nc\nD\ne");
+
+        assertTrue(result.isClean());
+        assertEquals("a\nB\nc\nD\ne", result.getContent());
+    }
+
+    @Test
+    void mergesInsertionWithDeletion() {
+        ThreeWayMergeUtils.MergeResult result = ThreeWayMergeUtils.merge(
+                "a\nb\nc",
+                "a\nx\nb\nc",
+                "a\nb");
+
+        assertTrue(result.isClean());
+        assertEquals("a\nx\nb", result.getContent());
+    }
+
+    @Test
+    void identicalEditsOnBothSidesAreNotConflicts() {
+        ThreeWayMergeUtils.MergeResult result = ThreeWayMergeUtils.merge(
+                "a\nb\nc\nd",
+                "a\nB\nc\nD",
+                "a\nB\nc\nd");
+
+        assertTrue(result.isClean());
+        assertEquals("a\nB\nc\nD", result.getContent());
+    }
+
+    @Test
+    void overlappingEditsProduceConflictMarkers() {
+        ThreeWayMergeUtils.MergeResult result = ThreeWayMergeUtils.merge(
+                "a\nb\nc",
+                "a\nX\nc",
+                "a\nY\nc");
+
+        assertFalse(result.isClean());
+        assertEquals(1, result.getConflictCount());
+        assertEquals("a\n"
+                + ThreeWayMergeUtils.MARKER_OURS + "\nX\n"
+                + ThreeWayMergeUtils.MARKER_SEPARATOR + "\nY\n"
+                + ThreeWayMergeUtils.MARKER_THEIRS + "\nc", result.getContent());
+    }
+
+    @Test
+    void countsEachConflictingChunk() {
+        ThreeWayMergeUtils.MergeResult result = ThreeWayMergeUtils.merge(
+                "a\nb\nc\nd\ne",
+                "a\nB1\nc\nD1\ne",
+                "a\nB2\nc\nD2\ne");
+
+        assertEquals(2, result.getConflictCount());
+    }
+
+    @Test
+    void oneSidedChangesReturnTheChangedSide() {
+        assertEquals("a\nB", ThreeWayMergeUtils.merge("a\nb", "a\nb", "a\nB").getContent());
+        assertEquals("a\nB", ThreeWayMergeUtils.merge("a\nb", "a\nB", "a\nb").getContent());
+        assertTrue(ThreeWayMergeUtils.merge("a\nb", "a\nb", "a\nB").isClean());
+    }
+
+    @Test
+    void normalizesLineEndings() {
+        ThreeWayMergeUtils.MergeResult result = ThreeWayMergeUtils.merge(
+                "a\r\nb\r\nc\r\nd",
+                "a\nB\nc\nd",
+                "a\r\nb\r\nc\r\nD");
+
+        assertTrue(result.isClean());
+        assertEquals("a\nB\nc\nD", result.getContent());
+    }
+
+    @Test
+    void adjacentEditsWithoutStableAnchorConflict() {
+        ThreeWayMergeUtils.MergeResult result = ThreeWayMergeUtils.merge(
+                "a\nb\nc",
+                "a\nB\nc",
+                "a\nb\nC");
+
+        assertEquals(1, result.getConflictCount());
+    }
+
+    @Test
+    void handlesEmptyBase() {
+        ThreeWayMergeUtils.MergeResult result = ThreeWayMergeUtils.merge(null, "x", "y");
+
+        assertEquals(1, result.getConflictCount());
+    }
+}
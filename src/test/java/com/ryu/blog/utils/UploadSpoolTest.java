@@ -0,0 +1,109 @@
+package com.ryu.blog.utils;
+
+import com.ryu.blog.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadSpoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void incrementalDigestsMatchWholeFile() throws Exception {
+        byte[] data = new byte[3 * UploadSpool.HEAD_BYTES + 123];
+        new Random(42).nextBytes(data);
+
+        // 块边界不对齐，且第一个块没有填满文件头
+        UploadSpool spool = UploadSpool.spool(chunks(data, 1000, 5000, 7, 20_000), tempDir, 0).block();
+
+        assertNotNull(spool);
+        assertEquals(FileUtils.calculateChecksum(data), spool.getChecksum());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data)), spool.getSha256());
+        assertEquals(data.length, spool.getSize());
+        assertArrayEquals(Arrays.copyOf(data, UploadSpool.HEAD_BYTES), spool.getHead());
+        assertArrayEquals(data, Files.readAllBytes(spool.getFile()));
+        // 摘要只计算一次，重复获取结果不变
+        assertEquals(FileUtils.calculateChecksum(data), spool.getChecksum());
+
+        byte[] reread = DataBufferUtils.join(spool.content())
+                .map(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    return bytes;
+                })
+                .block();
+        assertArrayEquals(data, reread);
+
+        spool.delete().block();
+        assertFalse(Files.exists(spool.getFile()));
+    }
+
+    @Test
+    void smallFileKeepsWholeContentAsHead() {
+        byte[] data = "%PDF-1.7 small".getBytes(StandardCharsets.UTF_8);
+
+        UploadSpool spool = UploadSpool.spool(chunks(data, 4), tempDir, data.length).block();
+
+        assertNotNull(spool);
+        assertEquals(FileUtils.calculateChecksum(data), spool.getChecksum());
+        assertArrayEquals(data, spool.getHead());
+    }
+
+    @Test
+    void emptyContent() {
+        UploadSpool spool = UploadSpool.spool(Flux.empty(), tempDir, 0).block();
+
+        assertNotNull(spool);
+        assertEquals(0, spool.getSize());
+        assertEquals(FileUtils.calculateChecksum(new byte[0]), spool.getChecksum());
+        assertEquals(0, spool.getHead().length);
+    }
+
+    @Test
+    void oversizedContentIsRejectedAndDeleted() throws IOException {
+        byte[] data = new byte[10_000];
+
+        StepVerifier.create(UploadSpool.spool(chunks(data, 3000), tempDir, 9_999))
+                .expectError(BusinessException.class)
+                .verify();
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    /**
+     * 按给定的块大小循环切分数据
+     */
+    private static Flux<DataBuffer> chunks(byte[] data, int... sizes) {
+        List<byte[]> chunks = new ArrayList<>();
+        int offset = 0;
+        for (int i = 0; offset < data.length; i++) {
+            int length = Math.min(sizes[i % sizes.length], data.length - offset);
+            chunks.add(Arrays.copyOfRange(data, offset, offset + length));
+            offset += length;
+        }
+        return Flux.fromIterable(chunks).map(DefaultDataBufferFactory.sharedInstance::wrap);
+    }
+}
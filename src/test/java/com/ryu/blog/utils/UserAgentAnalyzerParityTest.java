@@ -0,0 +1,78 @@
+package com.ryu.blog.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用语料对比自动机实现与改造前的正则实现，保证已存储的 device_info 字符串不变
+ */
+class UserAgentAnalyzerParityTest {
+
+    private static final String CORPUS = "/user-agents.txt";
+
+    @Test
+    void deviceInfoMatchesRegexImplementation() throws IOException {
+        List<String> corpus = loadCorpus();
+        assertTrue(corpus.size() > 100);
+
+        List<String> mismatches = new ArrayList<>();
+        for (String userAgent : corpus) {
+            String expected = RegexUserAgentAnalyzer.formatDeviceInfo(userAgent);
+            // 第一次计算，第二次命中缓存，两次结果都要与正则实现一致
+            for (int round = 0; round < 2; round++) {
+                String actual = UserAgentAnalyzer.formatDeviceInfo(userAgent);
+                if (!expected.equals(actual)) {
+                    mismatches.add(userAgent + " => 期望 " + expected + "，实际 " + actual);
+                }
+            }
+        }
+        assertTrue(mismatches.isEmpty(), () -> String.join("\n", mismatches));
+    }
+
+    @Test
+    void botAndHeadlessMatchRegexImplementation() throws IOException {
+        for (String userAgent : loadCorpus()) {
+            assertEquals(RegexUserAgentAnalyzer.isBot(userAgent), UserAgentAnalyzer.isBot(userAgent), userAgent);
+            assertEquals(RegexUserAgentAnalyzer.isHeadless(userAgent), UserAgentAnalyzer.isHeadless(userAgent), userAgent);
+        }
+    }
+
+    @Test
+    void uncachedLongUserAgentMatchesRegexImplementation() throws IOException {
+        for (String userAgent : loadCorpus()) {
+            String padded = userAgent + " " + "x".repeat(600);
+            assertEquals(RegexUserAgentAnalyzer.formatDeviceInfo(padded), UserAgentAnalyzer.formatDeviceInfo(padded), userAgent);
+            assertEquals(RegexUserAgentAnalyzer.isBot(padded), UserAgentAnalyzer.isBot(padded), userAgent);
+        }
+    }
+
+    @Test
+    void emptyUserAgent() {
+        assertEquals(RegexUserAgentAnalyzer.formatDeviceInfo(null), UserAgentAnalyzer.formatDeviceInfo(null));
+        assertEquals(RegexUserAgentAnalyzer.formatDeviceInfo(""), UserAgentAnalyzer.formatDeviceInfo(""));
+    }
+
+    private static List<String> loadCorpus() throws IOException {
+        List<String> corpus = new ArrayList<>();
+        try (InputStream inputStream = UserAgentAnalyzerParityTest.class.getResourceAsStream(CORPUS)) {
+            assertNotNull(inputStream, CORPUS);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    corpus.add(line);
+                }
+            }
+        }
+        return corpus;
+    }
+}